@@ -29,6 +29,16 @@ public interface RangerAdminClient {
 
 	ServicePolicies getServicePoliciesIfUpdated(long lastKnownVersion) throws Exception;
 
+	/**
+	 * Like getServicePoliciesIfUpdated(lastKnownVersion), except that Ranger Admin waits up to waitTimeoutMs for the
+	 * policy version to change before returning no update. Versions of Ranger Admin that don't support waiting return
+	 * right away.
+	 *
+	 * With supportsPolicyDeltas, the policies returned can be a delta: the policies changed since lastKnownVersion,
+	 * with getBasePolicyVersion() returning lastKnownVersion. See ServicePolicies.applyDelta().
+	 */
+	ServicePolicies getServicePoliciesIfUpdated(long lastKnownVersion, long waitTimeoutMs, boolean supportsPolicyDeltas) throws Exception;
+
 	void grantAccess(GrantRevokeRequest request) throws Exception;
 
 	void revokeAccess(GrantRevokeRequest request) throws Exception;
@@ -59,8 +59,13 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 
 	@Override
 	public ServicePolicies getServicePoliciesIfUpdated(long lastKnownVersion) throws Exception {
+		return getServicePoliciesIfUpdated(lastKnownVersion, 0, false);
+	}
+
+	@Override
+	public ServicePolicies getServicePoliciesIfUpdated(long lastKnownVersion, long waitTimeoutMs, boolean supportsPolicyDeltas) throws Exception {
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("==> RangerAdminRESTClient.getServicePoliciesIfUpdated(" + lastKnownVersion + ")");
+			LOG.debug("==> RangerAdminRESTClient.getServicePoliciesIfUpdated(" + lastKnownVersion + ", " + waitTimeoutMs + ", " + supportsPolicyDeltas + ")");
 		}
 
 		ServicePolicies ret = null;
@@ -68,6 +73,15 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 		WebResource webResource = createWebResource(RangerRESTUtils.REST_URL_POLICY_GET_FOR_SERVICE_IF_UPDATED + serviceName)
 										.queryParam(RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, Long.toString(lastKnownVersion))
 										.queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId);
+
+		if(waitTimeoutMs > 0) {
+			webResource = webResource.queryParam(RangerRESTUtils.REST_PARAM_POLICY_WAIT_TIMEOUT_MS, Long.toString(waitTimeoutMs));
+		}
+
+		if(supportsPolicyDeltas) {
+			webResource = webResource.queryParam(RangerRESTUtils.REST_PARAM_SUPPORTS_POLICY_DELTAS, Boolean.TRUE.toString());
+		}
+
 		ClientResponse response = webResource.accept(RangerRESTUtils.REST_MIME_TYPE_JSON).get(ClientResponse.class);
 
 		if(response != null && response.getStatus() == 200) {
@@ -81,7 +95,7 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 		}
 
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerAdminRESTClient.getServicePoliciesIfUpdated(" + lastKnownVersion + "): " + ret);
+			LOG.debug("<== RangerAdminRESTClient.getServicePoliciesIfUpdated(" + lastKnownVersion + ", " + waitTimeoutMs + ", " + supportsPolicyDeltas + "): " + ret);
 		}
 
 		return ret;
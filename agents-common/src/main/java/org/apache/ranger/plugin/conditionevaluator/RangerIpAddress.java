@@ -0,0 +1,368 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.conditionevaluator;
+
+
+/**
+ * An IPv4 or IPv6 address, parsed from its text form into 128 bits: IPv4 addresses take the 32 high bits.
+ *
+ * An address is canonical when its text has a single form, in which a policy ip like "10.20.*" or "a0:b0:*" matches
+ * the text only if it matches the bits: dotted-decimal IPv4 without leading zeros, or IPv6 with all 8 groups, no
+ * leading zeros and no "::". Text like "1.2.3.boo" or "fe80::1:2" is matched as text only.
+ *
+ * Instances are mutable, so that a thread can parse request addresses into the same instance; see parseRequestIp().
+ */
+final class RangerIpAddress {
+	static final int IPV4_BITS = 32;
+	static final int IPV6_BITS = 128;
+
+	private String  text      = null;
+	private boolean isValid   = false;
+	private boolean isIpv4    = false;
+	private boolean canonical = false;
+	private long    hi        = 0; // bits 0-63
+	private long    lo        = 0; // bits 64-127
+
+	private static final ThreadLocal<RangerIpAddress> LAST_PARSED = new ThreadLocal<RangerIpAddress>() {
+		@Override
+		protected RangerIpAddress initialValue() {
+			return new RangerIpAddress();
+		}
+	};
+
+	/**
+	 * Parses the given text into an instance held by the calling thread: the text is parsed again only when it is
+	 * not the same object as the one last parsed in this thread. All ip conditions evaluated for a request thus
+	 * share the parsed address, and no object is allocated. The returned instance must not be kept by callers.
+	 */
+	static RangerIpAddress parseRequestIp(String text) {
+		RangerIpAddress ret = LAST_PARSED.get();
+
+		if(ret.text != text) {
+			ret.parse(text);
+		}
+
+		return ret;
+	}
+
+	boolean parse(String text) {
+		this.text = text;
+		isValid   = false;
+		isIpv4    = false;
+		canonical = false;
+		hi        = 0;
+		lo        = 0;
+
+		if(text != null && !text.isEmpty()) {
+			if(text.indexOf(':') == -1) {
+				isValid = parseIpv4(text, 0, text.length());
+				isIpv4  = isValid;
+			} else {
+				isValid = parseIpv6(text, 0, text.length());
+			}
+		}
+
+		return isValid;
+	}
+
+	/**
+	 * Parses a CIDR block like "10.0.0.0/8" or "fe80::/10". Bits after the prefix are cleared.
+	 *
+	 * @return the prefix length, or -1 if the text isn't a CIDR block
+	 */
+	int parseCidr(String text) {
+		int sep = text == null ? -1 : text.indexOf('/');
+
+		if(sep <= 0 || sep == text.length() - 1) {
+			return -1;
+		}
+
+		int prefixLength = 0;
+
+		for(int i = sep + 1; i < text.length(); i++) {
+			char c = text.charAt(i);
+
+			if(c < '0' || c > '9' || i - sep > 3) {
+				return -1;
+			}
+
+			prefixLength = prefixLength * 10 + (c - '0');
+		}
+
+		this.text = text;
+		isIpv4    = text.lastIndexOf(':', sep) == -1;
+		canonical = false;
+		hi        = 0;
+		lo        = 0;
+		isValid   = isIpv4 ? parseIpv4(text, 0, sep) : parseIpv6(text, 0, sep);
+		canonical = false;
+
+		if(!isValid || prefixLength > getBitCount()) {
+			isValid = false;
+
+			return -1;
+		}
+
+		clearBitsFrom(prefixLength);
+
+		return prefixLength;
+	}
+
+	/**
+	 * Parses the prefix left by RangerIpMatcher.digestPolicyIp() for trailing wildcards, like "10.20." or "a0:b0:",
+	 * as leading groups of a canonical address.
+	 *
+	 * @return the prefix length, or -1 if the text isn't made of such groups
+	 */
+	int parseWildcardPrefix(String text) {
+		int len = text == null ? 0 : text.length();
+
+		if(len < 2) {
+			return -1;
+		}
+
+		char sep       = text.charAt(len - 1);
+		int  maxGroups = sep == '.' ? 3 : (sep == ':' ? 7 : 0);
+		int  groups    = 0;
+
+		this.text = text;
+		isValid   = false;
+		isIpv4    = sep == '.';
+		canonical = false;
+		hi        = 0;
+		lo        = 0;
+
+		for(int start = 0; start < len; ) {
+			int end = text.indexOf(sep, start);
+
+			if(end == -1 || groups == maxGroups) {
+				return -1;
+			}
+
+			int value = isIpv4 ? parseDecimal(text, start, end) : parseHex(text, start, end);
+
+			if(value == -1 || !isCanonicalGroup(text, start, end)) {
+				return -1;
+			}
+
+			setBits(groups * (isIpv4 ? 8 : 16), isIpv4 ? 8 : 16, value);
+
+			groups++;
+			start = end + 1;
+		}
+
+		isValid = true;
+
+		return groups * (isIpv4 ? 8 : 16);
+	}
+
+	boolean isValid() {
+		return isValid;
+	}
+
+	boolean isIpv4() {
+		return isIpv4;
+	}
+
+	boolean isCanonical() {
+		return canonical;
+	}
+
+	int getBitCount() {
+		return isIpv4 ? IPV4_BITS : IPV6_BITS;
+	}
+
+	long getHi() {
+		return hi;
+	}
+
+	long getLo() {
+		return lo;
+	}
+
+	@Override
+	public String toString() {
+		return "RangerIpAddress={text={" + text + "} isValid={" + isValid + "} isIpv4={" + isIpv4 + "} canonical={" + canonical + "} bits={" + Long.toHexString(hi) + ":" + Long.toHexString(lo) + "}}";
+	}
+
+	private boolean parseIpv4(String text, int from, int to) {
+		int     octets      = 0;
+		boolean isCanonical = true;
+
+		for(int start = from; start <= to; ) {
+			int end = text.indexOf('.', start);
+
+			if(end == -1 || end > to) {
+				end = to;
+			}
+
+			int value = parseDecimal(text, start, end);
+
+			if(value == -1 || octets == 4) {
+				return false;
+			}
+
+			isCanonical = isCanonical && isCanonicalGroup(text, start, end);
+
+			setBits(octets * 8, 8, value);
+
+			octets++;
+			start = end + 1;
+		}
+
+		canonical = isCanonical;
+
+		return octets == 4;
+	}
+
+	/*
+	 * groups before "::" are set in place; groups after it are shifted into the low bits, as they end the address
+	 */
+	private boolean parseIpv6(String text, int from, int to) {
+		int     count       = 0;
+		int     gapIndex    = -1; // number of groups before "::"
+		long    tailHi      = 0;
+		long    tailLo      = 0;
+		boolean isCanonical = true;
+		int     pos         = from;
+
+		if(to - from >= 2 && text.charAt(from) == ':' && text.charAt(from + 1) == ':') {
+			gapIndex = 0;
+			pos      = from + 2;
+		}
+
+		while(pos < to) {
+			int end = text.indexOf(':', pos);
+
+			if(end == -1 || end > to) {
+				end = to;
+			}
+
+			int value = parseHex(text, pos, end);
+
+			if(value == -1 || count == 8) {
+				return false;
+			}
+
+			isCanonical = isCanonical && isCanonicalGroup(text, pos, end);
+
+			if(gapIndex == -1) {
+				setBits(count * 16, 16, value);
+			} else {
+				tailHi = (tailHi << 16) | (tailLo >>> 48);
+				tailLo = (tailLo << 16) | value;
+			}
+
+			count++;
+
+			if(end == to) {
+				pos = to;
+			} else if(end + 1 < to && text.charAt(end + 1) == ':') {
+				if(gapIndex != -1) {
+					return false;
+				}
+
+				gapIndex = count;
+				pos      = end + 2;
+			} else if(end + 1 == to) {
+				return false; // trailing ':'
+			} else {
+				pos = end + 1;
+			}
+		}
+
+		if(gapIndex == -1 ? count != 8 : count > 7) {
+			return false;
+		}
+
+		hi |= tailHi;
+		lo |= tailLo;
+
+		canonical = isCanonical && gapIndex == -1;
+
+		return true;
+	}
+
+	private void setBits(int offset, int length, long value) {
+		if(offset < 64) {
+			hi |= value << (64 - offset - length);
+		} else {
+			lo |= value << (128 - offset - length);
+		}
+	}
+
+	private void clearBitsFrom(int prefixLength) {
+		if(prefixLength == 0) {
+			hi = 0;
+			lo = 0;
+		} else if(prefixLength < 64) {
+			hi &= -1L << (64 - prefixLength);
+			lo  = 0;
+		} else if(prefixLength == 64) {
+			lo = 0;
+		} else if(prefixLength < 128) {
+			lo &= -1L << (128 - prefixLength);
+		}
+	}
+
+	private static int parseDecimal(String text, int from, int to) {
+		if(to <= from || to - from > 3) {
+			return -1;
+		}
+
+		int ret = 0;
+
+		for(int i = from; i < to; i++) {
+			char c = text.charAt(i);
+
+			if(c < '0' || c > '9') {
+				return -1;
+			}
+
+			ret = ret * 10 + (c - '0');
+		}
+
+		return ret > 255 ? -1 : ret;
+	}
+
+	private static int parseHex(String text, int from, int to) {
+		if(to <= from || to - from > 4) {
+			return -1;
+		}
+
+		int ret = 0;
+
+		for(int i = from; i < to; i++) {
+			int digit = Character.digit(text.charAt(i), 16);
+
+			if(digit == -1) {
+				return -1;
+			}
+
+			ret = (ret << 4) | digit;
+		}
+
+		return ret;
+	}
+
+	private static boolean isCanonicalGroup(String text, int from, int to) {
+		return to - from == 1 || text.charAt(from) != '0';
+	}
+}
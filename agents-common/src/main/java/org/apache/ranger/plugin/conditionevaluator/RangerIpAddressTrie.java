@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.conditionevaluator;
+
+
+/**
+ * Binary radix (path-compressed) trie of address prefixes, one for IPv4 and one for IPv6. A lookup walks at most
+ * one node per bit of the address, and allocates nothing.
+ *
+ * Each prefix is added either as a CIDR block, which matches any address under it, or as a text prefix (an exact ip
+ * or an ip with trailing wildcards), which matches only canonical addresses: for other text forms, the text of the
+ * address must be matched instead. See RangerIpAddress.
+ */
+final class RangerIpAddressTrie {
+	static final int MATCH_CIDR = 1;
+	static final int MATCH_TEXT = 2;
+
+	private final Node ipv4Root = new Node(0, 0, 0);
+	private final Node ipv6Root = new Node(0, 0, 0);
+	private       int  size     = 0;
+
+	void add(RangerIpAddress prefix, int prefixLength, int matchType) {
+		Node node = prefix.isIpv4() ? ipv4Root : ipv6Root;
+		long hi   = prefix.getHi();
+		long lo   = prefix.getLo();
+
+		while(true) {
+			if(prefixLength == node.length) {
+				node.matchTypes |= matchType;
+
+				break;
+			}
+
+			int  bit   = getBit(hi, lo, node.length);
+			Node child = node.children[bit];
+
+			if(child == null) {
+				node.children[bit] = new Node(hi, lo, prefixLength, matchType);
+
+				break;
+			}
+
+			int commonLength = Math.min(Math.min(getCommonPrefixLength(hi, lo, child.hi, child.lo), prefixLength), child.length);
+
+			if(commonLength == child.length) {
+				node = child;
+
+				continue;
+			}
+
+			Node split = new Node(hi, lo, commonLength, 0);
+
+			split.children[getBit(child.hi, child.lo, commonLength)] = child;
+			node.children[bit] = split;
+
+			if(commonLength == prefixLength) {
+				split.matchTypes = matchType;
+			} else {
+				split.children[getBit(hi, lo, commonLength)] = new Node(hi, lo, prefixLength, matchType);
+			}
+
+			break;
+		}
+
+		size++;
+	}
+
+	boolean isMatch(RangerIpAddress address) {
+		Node node        = address.isIpv4() ? ipv4Root : ipv6Root;
+		int  maxLength   = address.getBitCount();
+		long hi          = address.getHi();
+		long lo          = address.getLo();
+		int  matchTypes  = address.isCanonical() ? (MATCH_CIDR | MATCH_TEXT) : MATCH_CIDR;
+
+		while(node != null) {
+			if(node.length > 0 && getCommonPrefixLength(hi, lo, node.hi, node.lo) < node.length) {
+				return false;
+			}
+
+			if((node.matchTypes & matchTypes) != 0) {
+				return true;
+			}
+
+			if(node.length >= maxLength) {
+				break;
+			}
+
+			node = node.children[getBit(hi, lo, node.length)];
+		}
+
+		return false;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private static int getBit(long hi, long lo, int index) {
+		return (int) (index < 64 ? (hi >>> (63 - index)) & 1 : (lo >>> (127 - index)) & 1);
+	}
+
+	private static int getCommonPrefixLength(long hi1, long lo1, long hi2, long lo2) {
+		long diff = hi1 ^ hi2;
+
+		if(diff != 0) {
+			return Long.numberOfLeadingZeros(diff);
+		}
+
+		return 64 + Long.numberOfLeadingZeros(lo1 ^ lo2);
+	}
+
+	private static final class Node {
+		final long   hi;     // prefix bits, cleared after length
+		final long   lo;
+		final int    length;
+		final Node[] children = new Node[2];
+		int          matchTypes;
+
+		Node(long hi, long lo, int length, int matchTypes) {
+			this.hi         = length == 0 ? 0 : (length < 64 ? hi & (-1L << (64 - length)) : hi);
+			this.lo         = length <= 64 ? 0 : (length < 128 ? lo & (-1L << (128 - length)) : lo);
+			this.length     = length;
+			this.matchTypes = matchTypes;
+		}
+
+		Node(long hi, long lo, int length) {
+			this(hi, lo, length, 0);
+		}
+	}
+}
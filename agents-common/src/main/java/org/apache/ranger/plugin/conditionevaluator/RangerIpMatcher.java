@@ -44,6 +44,11 @@ public class RangerIpMatcher implements RangerConditionEvaluator {
 	private List<String> _exactIps = new ArrayList<String>();
 	private List<String> _wildCardIps = new ArrayList<String>();
 	private boolean _allowAny = false;
+	// CIDR blocks, and the exact/wildcard ips above that are made of canonical groups
+	private RangerIpAddressTrie _trie = null;
+	// exact/wildcard ips not in the trie: the only ones to match as text against canonical request ips
+	private List<String> _otherExactIps = new ArrayList<String>();
+	private List<String> _otherWildCardIps = new ArrayList<String>();
 	
 	@Override
 	public void init(final RangerPolicyConditionDef conditionDef, final RangerPolicyItemCondition condition) {
@@ -62,21 +67,47 @@ public class RangerIpMatcher implements RangerConditionEvaluator {
 			_allowAny = true;
 			LOG.debug("init: wildcard value found.  Will match always.");
 		} else {
+			RangerIpAddressTrie trie = new RangerIpAddressTrie();
+			RangerIpAddress     prefix = new RangerIpAddress();
+
 			for (String ip : condition.getValues()) {
+				int cidrPrefixLength = prefix.parseCidr(ip);
+				if (cidrPrefixLength != -1) {
+					trie.add(prefix, cidrPrefixLength, RangerIpAddressTrie.MATCH_CIDR);
+					continue;
+				}
+
 				String digestedIp = digestPolicyIp(ip);
 				if (digestedIp.isEmpty()) {
 					LOG.debug("init: digested ip was empty! Will match always");
 					_allowAny = true;
 				} else if (digestedIp.equals(ip)) {
 					_exactIps.add(ip);
+
+					if (prefix.parse(ip) && prefix.isCanonical()) {
+						trie.add(prefix, prefix.getBitCount(), RangerIpAddressTrie.MATCH_TEXT);
+					} else {
+						_otherExactIps.add(ip);
+					}
 				} else {
 					_wildCardIps.add(digestedIp);
+
+					int prefixLength = prefix.parseWildcardPrefix(digestedIp);
+					if (prefixLength != -1) {
+						trie.add(prefix, prefixLength, RangerIpAddressTrie.MATCH_TEXT);
+					} else {
+						_otherWildCardIps.add(digestedIp);
+					}
 				}
 			}
+
+			if (trie.size() > 0) {
+				_trie = trie;
+			}
 		}
 
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerIpMatcher.init(" + condition + "): exact-ips[" + _exactIps + "], wildcard-ips[" + _wildCardIps + "]");
+			LOG.debug("<== RangerIpMatcher.init(" + condition + "): exact-ips[" + _exactIps + "], wildcard-ips[" + _wildCardIps + "], trie-size[" + (_trie == null ? 0 : _trie.size()) + "]");
 		}
 	}
 
@@ -94,7 +125,7 @@ public class RangerIpMatcher implements RangerConditionEvaluator {
 			if (requestIp == null) {
 				LOG.debug("isMatched: couldn't get ip address from request.  Ok.  Implicitly matched!");
 			} else {
-				ipMatched = isWildcardMatched(_wildCardIps, requestIp) || isExactlyMatched(_exactIps, requestIp);
+				ipMatched = isMatched(requestIp);
 			}
 		}
 		
@@ -105,6 +136,26 @@ public class RangerIpMatcher implements RangerConditionEvaluator {
 		return ipMatched;
 	}
 	
+	/*
+	 * request ips that parse as addresses are looked up in the trie. Ips in the trie are matched as text only for
+	 * request ips that are not canonical, as text and bits could then disagree (like "fe80::1" and "fe80:0:0:0:0:0:0:1")
+	 */
+	boolean isMatched(final String requestIp) {
+		RangerIpAddress address = _trie == null ? null : RangerIpAddress.parseRequestIp(requestIp);
+
+		if (address != null && address.isValid()) {
+			if (_trie.isMatch(address)) {
+				return true;
+			}
+
+			if (address.isCanonical()) {
+				return isWildcardMatched(_otherWildCardIps, requestIp) || isExactlyMatched(_otherExactIps, requestIp);
+			}
+		}
+
+		return isWildcardMatched(_wildCardIps, requestIp) || isExactlyMatched(_exactIps, requestIp);
+	}
+
 	/**
 	 * Pre-digests the policy ip address to drop any trailing wildcard specifiers such that a simple beginsWith match can be done to check for match during authorization calls
 	 * @param ip
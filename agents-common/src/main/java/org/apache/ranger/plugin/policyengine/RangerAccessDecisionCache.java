@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+
+
+/**
+ * Cache of access decisions made by a policy engine, keyed by (user, groups, accessType, resource).
+ *
+ * A cache instance belongs to a single policy engine, hence to a single policy version; it is discarded along with
+ * the engine when new policies are installed. The engine must store only those decisions that don't depend on
+ * anything else in the request, i.e. decisions made without custom conditions and context enrichers.
+ */
+public class RangerAccessDecisionCache {
+	private static final Log LOG = LogFactory.getLog(RangerAccessDecisionCache.class);
+
+	private final RangerServiceDef                             serviceDef;
+	private final RangerConcurrentCache<DecisionKey, Decision> cache;
+
+	public RangerAccessDecisionCache(RangerServiceDef serviceDef, int maxSize) {
+		this.serviceDef = serviceDef;
+		this.cache      = new RangerConcurrentCache<DecisionKey, Decision>(maxSize, true);
+	}
+
+	public boolean setResultFromCache(RangerAccessRequest request, RangerAccessResult result) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerAccessDecisionCache.setResultFromCache(" + request + ")");
+		}
+
+		Decision decision = cache.get(new DecisionKey(request, serviceDef, false));
+
+		if(decision != null) {
+			decision.copyTo(result);
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerAccessDecisionCache.setResultFromCache(" + request + "): " + (decision != null));
+		}
+
+		return decision != null;
+	}
+
+	public void storeResultInCache(RangerAccessRequest request, RangerAccessResult result) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerAccessDecisionCache.storeResultInCache(" + request + ", " + result + ")");
+		}
+
+		cache.put(new DecisionKey(request, serviceDef, true), new Decision(result));
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerAccessDecisionCache.storeResultInCache(" + request + ", " + result + ")");
+		}
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	public long getHitCount() {
+		return cache.getHitCount();
+	}
+
+	public long getMissCount() {
+		return cache.getMissCount();
+	}
+
+	@Override
+	public String toString( ) {
+		StringBuilder sb = new StringBuilder();
+
+		toString(sb);
+
+		return sb.toString();
+	}
+
+	public StringBuilder toString(StringBuilder sb) {
+		sb.append("RangerAccessDecisionCache={");
+
+		cache.toString(sb);
+
+		sb.append("}");
+
+		return sb;
+	}
+
+	static final class DecisionKey {
+		private final String              user;
+		private final Set<String>         userGroups;
+		private final String              accessType;
+		private final RangerResourceKey   resource;
+		private final int                 hashCode;
+
+		/*
+		 * keys used only for lookup refer to the groups in the request; keys stored in the cache have their own copy.
+		 * The resource key is immutable, and is shared with the request
+		 */
+		DecisionKey(RangerAccessRequest request, RangerServiceDef serviceDef, boolean copyCollections) {
+			Set<String>       userGroups = request.getUserGroups();
+			RangerResourceKey resource   = request.getResource() == null ? new RangerResourceKey(null, serviceDef) : request.getResource().getResourceKey(serviceDef);
+
+			if(userGroups == null) {
+				userGroups = Collections.emptySet();
+			} else if(copyCollections) {
+				userGroups = new HashSet<String>(userGroups);
+			}
+
+			this.user       = request.getUser();
+			this.userGroups = userGroups;
+			this.accessType = request.getAccessType();
+			this.resource   = resource;
+
+			int hash = 7;
+
+			hash = 31 * hash + ObjectUtils.hashCode(user);
+			hash = 31 * hash + this.userGroups.hashCode();
+			hash = 31 * hash + ObjectUtils.hashCode(accessType);
+			hash = 31 * hash + this.resource.hashCode();
+
+			this.hashCode = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) {
+				return true;
+			}
+
+			if(!(obj instanceof DecisionKey)) {
+				return false;
+			}
+
+			DecisionKey other = (DecisionKey) obj;
+
+			return hashCode == other.hashCode &&
+				   ObjectUtils.equals(user, other.user) &&
+				   ObjectUtils.equals(accessType, other.accessType) &&
+				   userGroups.equals(other.userGroups) &&
+				   resource.equals(other.resource);
+		}
+	}
+
+	static final class Decision {
+		private final boolean isAccessDetermined;
+		private final boolean isAllowed;
+		private final boolean isAuditedDetermined;
+		private final boolean isAudited;
+		private final long    policyId;
+		private final String  reason;
+
+		Decision(RangerAccessResult result) {
+			this.isAccessDetermined  = result.getIsAccessDetermined();
+			this.isAllowed           = result.getIsAllowed();
+			this.isAuditedDetermined = result.getIsAuditedDetermined();
+			this.isAudited           = result.getIsAudited();
+			this.policyId            = result.getPolicyId();
+			this.reason              = result.getReason();
+		}
+
+		void copyTo(RangerAccessResult result) {
+			if(isAccessDetermined) {
+				result.setIsAllowed(isAllowed);
+			}
+
+			if(isAuditedDetermined) {
+				result.setIsAudited(isAudited);
+			}
+
+			result.setPolicyId(policyId);
+			result.setReason(reason);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Ring buffer of a random sample of recent access requests, to warm up the caches of a policy engine built for a new
+ * version of policies before it replaces the current one.
+ *
+ * One in sampleInterval requests is sampled. Sampled requests are copied, without their context: only what policy
+ * evaluation looks at is kept, i.e. resource, access-type, user, groups and client ip. Sampling doesn't take any lock.
+ */
+public class RangerAccessRequestSampler {
+	private static final Log LOG = LogFactory.getLog(RangerAccessRequestSampler.class);
+
+	private final AtomicReferenceArray<RangerAccessRequest> samples;
+	private final int                                       sampleInterval;
+	private final AtomicInteger                             nextIndex = new AtomicInteger();
+
+	public RangerAccessRequestSampler(int sampleSize, int sampleInterval) {
+		this.samples        = new AtomicReferenceArray<RangerAccessRequest>(Math.max(1, sampleSize));
+		this.sampleInterval = Math.max(1, sampleInterval);
+	}
+
+	public void sample(RangerAccessRequest request) {
+		if(request == null || request.getResource() == null) {
+			return;
+		}
+
+		if(sampleInterval > 1 && ThreadLocalRandom.current().nextInt(sampleInterval) != 0) {
+			return;
+		}
+
+		int index = (nextIndex.getAndIncrement() & Integer.MAX_VALUE) % samples.length();
+
+		samples.set(index, copyOf(request));
+	}
+
+	public List<RangerAccessRequest> getSamples() {
+		List<RangerAccessRequest> ret = new ArrayList<RangerAccessRequest>(samples.length());
+
+		for(int i = 0; i < samples.length(); i++) {
+			RangerAccessRequest request = samples.get(i);
+
+			if(request != null) {
+				ret.add(request);
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Evaluates the sampled requests in the given engine, without audit, to fill its caches.
+	 *
+	 * @return number of requests evaluated
+	 */
+	public int warmUp(RangerPolicyEngine policyEngine) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerAccessRequestSampler.warmUp()");
+		}
+
+		int ret = 0;
+
+		if(policyEngine != null) {
+			for(RangerAccessRequest request : getSamples()) {
+				try {
+					policyEngine.isAccessAllowed(request, null);
+
+					ret++;
+				} catch(Exception excp) {
+					LOG.warn("RangerAccessRequestSampler.warmUp(): failed to evaluate " + request, excp);
+				}
+			}
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerAccessRequestSampler.warmUp(): requestCount=" + ret);
+		}
+
+		return ret;
+	}
+
+	private static RangerAccessRequest copyOf(RangerAccessRequest request) {
+		RangerAccessResource resource = request.getResource();
+		Map<String, String>  elements = new HashMap<String, String>();
+
+		if(resource.getKeys() != null) {
+			for(String name : resource.getKeys()) {
+				elements.put(name, resource.getValue(name));
+			}
+		}
+
+		Set<String>             userGroups = request.getUserGroups() == null ? null : new HashSet<String>(request.getUserGroups());
+		RangerAccessRequestImpl ret        = new RangerAccessRequestImpl(new RangerAccessResourceImpl(elements, resource.getOwnerUser()), request.getAccessType(), request.getUser(), userGroups);
+
+		ret.setClientIPAddress(request.getClientIPAddress());
+
+		return ret;
+	}
+}
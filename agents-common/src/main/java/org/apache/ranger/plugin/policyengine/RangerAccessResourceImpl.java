@@ -36,6 +36,8 @@ public class RangerAccessResourceImpl implements RangerMutableResource {
 	private String              stringifiedValue = null;
 	private String              leafName         = null;
 
+	private volatile CachedResourceKey resourceKey = null; // key and service-def in one, read and written together
+
 
 	public RangerAccessResourceImpl() {
 		this(null, null);
@@ -106,6 +108,7 @@ public class RangerAccessResourceImpl implements RangerMutableResource {
 
 		// reset, so that these will be computed again with updated elements
 		stringifiedValue = leafName = null;
+		resourceKey      = null;
 	}
 
 	@Override
@@ -162,6 +165,23 @@ public class RangerAccessResourceImpl implements RangerMutableResource {
 		return ret;
 	}
 
+	/*
+	 * the key is computed once, and reused until a value is updated; an instance can therefore be reused for many
+	 * requests, with setValue() updating the values for each request
+	 */
+	@Override
+	public RangerResourceKey getResourceKey(RangerServiceDef serviceDef) {
+		CachedResourceKey cached = resourceKey;
+
+		if(cached == null || cached.serviceDef != serviceDef) {
+			cached = new CachedResourceKey(serviceDef, new RangerResourceKey(this, serviceDef));
+
+			resourceKey = cached;
+		}
+
+		return cached.key;
+	}
+
 	@Override
 	public Map<String, String> getAsMap() {
 		return Collections.unmodifiableMap(elements);
@@ -219,4 +239,18 @@ public class RangerAccessResourceImpl implements RangerMutableResource {
 
 		return sb;
 	}
+
+	/*
+	 * the key is built in the level order of serviceDef: engines with different service-defs, like the old and the
+	 * new engine during a policy refresh, must not get each other's key
+	 */
+	private static final class CachedResourceKey {
+		final RangerServiceDef  serviceDef;
+		final RangerResourceKey key;
+
+		CachedResourceKey(RangerServiceDef serviceDef, RangerResourceKey key) {
+			this.serviceDef = serviceDef;
+			this.key        = key;
+		}
+	}
 }
@@ -35,6 +35,15 @@ public class RangerAccessResult {
 	private String   reason    = null;
 
 	public RangerAccessResult(String serviceName, RangerServiceDef serviceDef, RangerAccessRequest request) {
+		reset(serviceName, serviceDef, request);
+	}
+
+	/**
+	 * Clears the result, for it to be reused for another request. Callers that make many access checks on a thread
+	 * can reuse a single result, via RangerPolicyEngine.isAccessAllowed(request, result, resultProcessor), instead of
+	 * creating one for every request; the result must not be reused until the result processor is done with it.
+	 */
+	public void reset(String serviceName, RangerServiceDef serviceDef, RangerAccessRequest request) {
 		this.serviceName = serviceName;
 		this.serviceDef  = serviceDef;
 		this.request     = request;
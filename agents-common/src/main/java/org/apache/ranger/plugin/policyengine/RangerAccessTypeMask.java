@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.BitSet;
+
+
+/**
+ * Immutable set of access-types, as their ids in a symbol table. The policy repository interns the access-types of
+ * the service-def before building evaluators, so that they have the lowest ids: the set is then a single long, and
+ * a BitSet is used only for ids 64 and above, i.e. for service-defs with more than 64 access-types.
+ */
+public final class RangerAccessTypeMask {
+	public static final RangerAccessTypeMask EMPTY = new RangerAccessTypeMask(0L, null);
+
+	private final long   bits;     // ids 0 to 63
+	private final BitSet moreBits; // ids 64 and above; null if there are none
+
+	private RangerAccessTypeMask(long bits, BitSet moreBits) {
+		this.bits     = bits;
+		this.moreBits = moreBits;
+	}
+
+	public boolean contains(int accessTypeId) {
+		if(accessTypeId < 0) {
+			return false;
+		}
+
+		if(accessTypeId < Long.SIZE) {
+			return (bits & (1L << accessTypeId)) != 0;
+		}
+
+		return moreBits != null && moreBits.get(accessTypeId - Long.SIZE);
+	}
+
+	public boolean containsAll(RangerAccessTypeMask other) {
+		if((bits & other.bits) != other.bits) {
+			return false;
+		}
+
+		if(other.moreBits == null) {
+			return true;
+		}
+
+		if(moreBits == null) {
+			return false;
+		}
+
+		BitSet missing = (BitSet) other.moreBits.clone();
+
+		missing.andNot(moreBits);
+
+		return missing.isEmpty();
+	}
+
+	public boolean isEmpty() {
+		return bits == 0 && moreBits == null;
+	}
+
+	public int size() {
+		return Long.bitCount(bits) + (moreBits == null ? 0 : moreBits.cardinality());
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (bits ^ (bits >>> 32)) + (moreBits == null ? 0 : moreBits.hashCode());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj) {
+			return true;
+		}
+
+		if(!(obj instanceof RangerAccessTypeMask)) {
+			return false;
+		}
+
+		RangerAccessTypeMask other = (RangerAccessTypeMask) obj;
+
+		return bits == other.bits && (moreBits == null ? other.moreBits == null : moreBits.equals(other.moreBits));
+	}
+
+	@Override
+	public String toString( ) {
+		StringBuilder sb = new StringBuilder();
+
+		toString(sb);
+
+		return sb.toString();
+	}
+
+	public StringBuilder toString(StringBuilder sb) {
+		sb.append("RangerAccessTypeMask={");
+
+		sb.append("bits={").append(Long.toBinaryString(bits)).append("} ");
+
+		if(moreBits != null) {
+			sb.append("moreBits={").append(moreBits).append("} ");
+		}
+
+		sb.append("}");
+
+		return sb;
+	}
+
+	public static class Builder {
+		private long   bits     = 0;
+		private BitSet moreBits = null;
+
+		public Builder add(int accessTypeId) {
+			if(accessTypeId >= 0) {
+				if(accessTypeId < Long.SIZE) {
+					bits |= 1L << accessTypeId;
+				} else {
+					if(moreBits == null) {
+						moreBits = new BitSet();
+					}
+
+					moreBits.set(accessTypeId - Long.SIZE);
+				}
+			}
+
+			return this;
+		}
+
+		public RangerAccessTypeMask build() {
+			if(bits == 0 && moreBits == null) {
+				return EMPTY;
+			}
+
+			return new RangerAccessTypeMask(bits, moreBits == null ? null : (BitSet) moreBits.clone());
+		}
+	}
+}
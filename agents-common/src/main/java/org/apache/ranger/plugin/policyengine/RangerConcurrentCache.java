@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache safe for concurrent use without external synchronization, replacing synchronized CacheMap.
+ *
+ * Reads don't take any lock: each entry records the value of a logical clock, advanced on every insert, when it
+ * was last accessed; entries read repeatedly within a clock tick are not written to again. When a put takes the cache over
+ * its maximum size, the thread that wins the eviction lock removes entries until the cache is back within
+ * bounds; each victim is the least recently accessed of a small sample of entries (approximate LRU). Threads
+ * that don't get the lock don't wait for eviction to complete.
+ *
+ * Hit, miss and eviction counts are kept in plain atomic counters, unless the cache is created with striped counters:
+ * these avoid contention between threads counting on a cache shared by all requests, at the cost of ~1KB per counter
+ * on hosts with many cores - too much for caches created per policy evaluator.
+ */
+public class RangerConcurrentCache<K, V> {
+    private static final Log LOG = LogFactory.getLog(RangerConcurrentCache.class);
+
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
+    private final int                                 maxSize;
+    private final ConcurrentHashMap<K, CacheEntry<V>> cache;
+    private final AtomicInteger                       size          = new AtomicInteger();
+    private final AtomicLong                          clock         = new AtomicLong();
+    private final ReentrantLock                       evictionLock  = new ReentrantLock();
+    private final Counter                             hitCount;
+    private final Counter                             missCount;
+    private final Counter                             evictionCount;
+    private Iterator<Map.Entry<K, CacheEntry<V>>>     evictionIter  = null; // guarded by evictionLock
+
+    public RangerConcurrentCache(int maxSize) {
+        this(maxSize, false);
+    }
+
+    /**
+     * @param useStripedCounters true for a cache shared by all requests to a policy engine; false for caches created in large numbers
+     */
+    public RangerConcurrentCache(int maxSize, boolean useStripedCounters) {
+        this.maxSize       = maxSize > 0 ? maxSize : 1;
+        this.cache         = new ConcurrentHashMap<K, CacheEntry<V>>(); // grows as entries are added: many caches (one per policy evaluator) stay small
+        this.hitCount      = useStripedCounters ? new StripedCounter() : new SimpleCounter();
+        this.missCount     = useStripedCounters ? new StripedCounter() : new SimpleCounter();
+        this.evictionCount = useStripedCounters ? new StripedCounter() : new SimpleCounter();
+    }
+
+    public V get(K key) {
+        CacheEntry<V> entry = cache.get(key);
+
+        if (entry == null) {
+            missCount.increment();
+
+            return null;
+        }
+
+        long now = clock.get();
+
+        if (entry.accessTime != now) {
+            entry.accessTime = now;
+        }
+
+        hitCount.increment();
+
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        CacheEntry<V> prev = cache.put(key, new CacheEntry<V>(value, clock.incrementAndGet()));
+
+        if (prev == null && size.incrementAndGet() > maxSize) {
+            evict();
+        }
+    }
+
+    public V remove(K key) {
+        CacheEntry<V> prev = cache.remove(key);
+
+        if (prev != null) {
+            size.decrementAndGet();
+        }
+
+        return prev == null ? null : prev.value;
+    }
+
+    public void clear() {
+        for (K key : cache.keySet()) {
+            remove(key);
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private void evict() {
+        // a thread that fails to get the lock leaves the eviction to the lock holder, which checks the size again after releasing the lock
+        while (size.get() > maxSize && evictionLock.tryLock()) {
+            try {
+                while (size.get() > maxSize) {
+                    Map.Entry<K, CacheEntry<V>> victim = null;
+
+                    for (int i = 0; i < EVICTION_SAMPLE_SIZE; i++) {
+                        if (evictionIter == null || !evictionIter.hasNext()) {
+                            evictionIter = cache.entrySet().iterator();
+
+                            if (!evictionIter.hasNext()) {
+                                break;
+                            }
+                        }
+
+                        Map.Entry<K, CacheEntry<V>> candidate = evictionIter.next();
+
+                        if (victim == null || candidate.getValue().accessTime < victim.getValue().accessTime) {
+                            victim = candidate;
+                        }
+                    }
+
+                    if (victim == null) {
+                        break;
+                    }
+
+                    if (cache.remove(victim.getKey(), victim.getValue())) {
+                        size.decrementAndGet();
+                        evictionCount.increment();
+                    }
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("RangerConcurrentCache.evict(): size=" + size.get() + ", evictionCount=" + evictionCount.get());
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        toString(sb);
+
+        return sb.toString();
+    }
+
+    public StringBuilder toString(StringBuilder sb) {
+        sb.append("RangerConcurrentCache={");
+
+        sb.append("maxSize={").append(maxSize).append("} ");
+        sb.append("size={").append(size()).append("} ");
+        sb.append("hitCount={").append(getHitCount()).append("} ");
+        sb.append("missCount={").append(getMissCount()).append("} ");
+        sb.append("evictionCount={").append(getEvictionCount()).append("} ");
+
+        sb.append("}");
+
+        return sb;
+    }
+
+    private static final class CacheEntry<V> {
+        final V       value;
+        volatile long accessTime;
+
+        CacheEntry(V value, long accessTime) {
+            this.value      = value;
+            this.accessTime = accessTime;
+        }
+    }
+
+    interface Counter {
+        void increment();
+
+        long get();
+    }
+
+    static final class SimpleCounter implements Counter {
+        private final AtomicLong value = new AtomicLong();
+
+        @Override
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        @Override
+        public long get() {
+            return value.get();
+        }
+    }
+
+    /*
+     * counter updated by many threads: each thread increments one of several cells, each in its own cache-line
+     */
+    static final class StripedCounter implements Counter {
+        private static final int CELL_COUNT   = cellCount(); // power of 2
+        private static final int CELL_PADDING = 8;           // longs per 64-byte cache-line
+
+        private final AtomicLongArray cells = new AtomicLongArray(CELL_COUNT * CELL_PADDING);
+
+        @Override
+        public void increment() {
+            add(1);
+        }
+
+        void add(long delta) {
+            int cell = (int) (Thread.currentThread().getId() & (CELL_COUNT - 1));
+
+            cells.addAndGet(cell * CELL_PADDING, delta);
+        }
+
+        @Override
+        public long get() {
+            long ret = 0;
+
+            for (int i = 0; i < CELL_COUNT; i++) {
+                ret += cells.get(i * CELL_PADDING);
+            }
+
+            return ret;
+        }
+
+        private static int cellCount() {
+            int processors = Math.min(Runtime.getRuntime().availableProcessors(), 16);
+
+            return processors <= 1 ? 1 : Integer.highestOneBit(processors - 1) << 1;
+        }
+    }
+}
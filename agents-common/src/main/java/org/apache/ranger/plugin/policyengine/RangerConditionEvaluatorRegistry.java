@@ -0,0 +1,335 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.conditionevaluator.RangerConditionEvaluator;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerPolicyConditionDef;
+
+
+/**
+ * Condition evaluators shared by the policy evaluators of a policy repository, and a per-request memo of their results.
+ *
+ * Conditions are identified by their definition (name, evaluator class and evaluator options) and their values, in
+ * the order given: the evaluator class is configurable per service-def, and an evaluator might depend on the order of
+ * values. All policy items having identical conditions thus share one evaluator.
+ *
+ * A policy engine calls beginRequest() before running the policy evaluators for a request and endRequest() after;
+ * in between, a shared evaluator calls its condition evaluator at most once for the request, in the calling thread.
+ * As with RangerSymbolTable, a registry can be shared by a policy engine and the engine built from the next version
+ * of the same policies. Conditions are never removed: conditions of policies deleted or updated since the registry was
+ * created stay registered until RangerPolicyRepository replaces the registry, along with the symbol table.
+ */
+public class RangerConditionEvaluatorRegistry {
+	private static final Log LOG = LogFactory.getLog(RangerConditionEvaluatorRegistry.class);
+
+	private static final ThreadLocal<RequestMemo> CURRENT_REQUEST = new ThreadLocal<RequestMemo>();
+
+	private final ConcurrentMap<ConditionKey, SharedConditionEvaluator> evaluators = new ConcurrentHashMap<ConditionKey, SharedConditionEvaluator>();
+
+	/**
+	 * @return the shared evaluator for the given condition; null if there is none yet, or if the condition can't be
+	 *         shared
+	 */
+	public RangerConditionEvaluator getEvaluator(RangerPolicyConditionDef conditionDef, RangerPolicyItemCondition condition) {
+		ConditionKey key = ConditionKey.create(conditionDef, condition);
+
+		return key == null ? null : evaluators.get(key);
+	}
+
+	/**
+	 * Shares an evaluator, already initialized for the given condition.
+	 *
+	 * @return the evaluator to use for the condition: the shared one, or the given evaluator if the condition can't
+	 *         be shared
+	 */
+	public synchronized RangerConditionEvaluator share(RangerPolicyConditionDef conditionDef, RangerPolicyItemCondition condition, RangerConditionEvaluator evaluator) {
+		ConditionKey key = ConditionKey.create(conditionDef, condition);
+
+		if(key == null) {
+			return evaluator;
+		}
+
+		SharedConditionEvaluator ret = evaluators.get(key);
+
+		if(ret == null) {
+			ret = new SharedConditionEvaluator(this, evaluators.size(), evaluator);
+
+			evaluators.put(key, ret);
+
+			if(LOG.isDebugEnabled()) {
+				LOG.debug("RangerConditionEvaluatorRegistry.share(): condition " + key + " shared as #" + ret.id);
+			}
+		}
+
+		return ret;
+	}
+
+	public int size() {
+		return evaluators.size();
+	}
+
+	/**
+	 * Starts memoizing results of shared evaluators for the given request in the calling thread, until endRequest() is
+	 * called with the returned object. Requests evaluated in the calling thread meanwhile, by this or by another
+	 * registry, get memos of their own.
+	 */
+	public RequestMemo beginRequest(RangerAccessRequest request) {
+		if(request == null || evaluators.isEmpty()) {
+			return null;
+		}
+
+		RequestMemo current = CURRENT_REQUEST.get();
+		RequestMemo ret;
+
+		if(current == null) {
+			ret = new RequestMemo(null);
+		} else if(current.request == null) { // idle memo of an earlier request in this thread
+			ret = current;
+		} else {
+			ret = new RequestMemo(current);
+		}
+
+		ret.begin(this, request);
+
+		CURRENT_REQUEST.set(ret);
+
+		return ret;
+	}
+
+	public void endRequest(RequestMemo memo) {
+		if(memo != null && CURRENT_REQUEST.get() == memo) {
+			memo.end();
+
+			// the last memo of the thread is kept, for reuse by its next request
+			if(memo.previous != null) {
+				CURRENT_REQUEST.set(memo.previous);
+			}
+		}
+	}
+
+	@Override
+	public String toString( ) {
+		StringBuilder sb = new StringBuilder();
+
+		toString(sb);
+
+		return sb.toString();
+	}
+
+	public StringBuilder toString(StringBuilder sb) {
+		sb.append("RangerConditionEvaluatorRegistry={");
+
+		sb.append("size={").append(evaluators.size()).append("} ");
+
+		sb.append("}");
+
+		return sb;
+	}
+
+	/**
+	 * Results of shared evaluators for a request, indexed by evaluator id. A result is valid only when its stamp is the
+	 * generation of the memo, which is incremented for every request: this avoids clearing the arrays between requests.
+	 */
+	public static final class RequestMemo {
+		private final RequestMemo                previous;
+		private RangerConditionEvaluatorRegistry registry   = null;
+		private RangerAccessRequest              request    = null;
+		private int                              generation = 0;
+		private int[]                            stamps     = new int[0];
+		private boolean[]                        results    = new boolean[0];
+
+		RequestMemo(RequestMemo previous) {
+			this.previous = previous;
+		}
+
+		void begin(RangerConditionEvaluatorRegistry registry, RangerAccessRequest request) {
+			this.registry = registry;
+			this.request  = request;
+
+			generation++;
+
+			if(generation == 0) { // wrapped around: earlier stamps might look valid
+				Arrays.fill(stamps, 0);
+
+				generation = 1;
+			}
+		}
+
+		void end() {
+			registry = null;
+			request  = null;
+		}
+
+		boolean isFor(RangerConditionEvaluatorRegistry registry, RangerAccessRequest request) {
+			return this.request == request && this.registry == registry;
+		}
+
+		boolean isMatched(SharedConditionEvaluator evaluator) {
+			int id = evaluator.id;
+
+			if(id >= stamps.length) {
+				int newLength = Math.max(id + 1, stamps.length * 2);
+
+				stamps  = Arrays.copyOf(stamps, newLength);
+				results = Arrays.copyOf(results, newLength);
+			}
+
+			if(stamps[id] != generation) {
+				results[id] = evaluator.evaluator.isMatched(request);
+				stamps[id]  = generation;
+			}
+
+			return results[id];
+		}
+	}
+
+	/*
+	 * evaluator of a condition shared by policy items; consults the memo of the request being evaluated in the calling
+	 * thread, if there is one
+	 */
+	static final class SharedConditionEvaluator implements RangerConditionEvaluator {
+		private final RangerConditionEvaluatorRegistry registry;
+		private final int                              id;
+		private final RangerConditionEvaluator         evaluator;
+
+		SharedConditionEvaluator(RangerConditionEvaluatorRegistry registry, int id, RangerConditionEvaluator evaluator) {
+			this.registry  = registry;
+			this.id        = id;
+			this.evaluator = evaluator;
+		}
+
+		/*
+		 * the evaluator is initialized before being shared
+		 */
+		@Override
+		public void init(RangerPolicyConditionDef conditionDef, RangerPolicyItemCondition condition) {
+		}
+
+		@Override
+		public boolean isMatched(RangerAccessRequest request) {
+			RequestMemo memo = CURRENT_REQUEST.get();
+
+			if(memo != null && memo.isFor(registry, request)) {
+				return memo.isMatched(this);
+			}
+
+			return evaluator.isMatched(request);
+		}
+
+		RangerConditionEvaluator getEvaluator() {
+			return evaluator;
+		}
+
+		@Override
+		public String toString() {
+			return "SharedConditionEvaluator={id={" + id + "} evaluator={" + evaluator + "}}";
+		}
+	}
+
+	static final class ConditionKey {
+		private final String              name;
+		private final String              evaluatorClassName;
+		private final Map<String, String> evaluatorOptions;
+		private final List<String>        values;
+		private final int                 hashCode;
+
+		private ConditionKey(String name, String evaluatorClassName, Map<String, String> evaluatorOptions, List<String> values) {
+			this.name               = name;
+			this.evaluatorClassName = evaluatorClassName;
+			this.evaluatorOptions   = evaluatorOptions;
+			this.values             = values;
+			this.hashCode           = ((name.hashCode() * 31 + evaluatorClassName.hashCode()) * 31 + evaluatorOptions.hashCode()) * 31 + values.hashCode();
+		}
+
+		/*
+		 * returns null for conditions that can't be identified, like ones with null values
+		 */
+		static ConditionKey create(RangerPolicyConditionDef conditionDef, RangerPolicyItemCondition condition) {
+			if(conditionDef == null || condition == null || conditionDef.getName() == null || conditionDef.getEvaluator() == null) {
+				return null;
+			}
+
+			Map<String, String> evaluatorOptions = new TreeMap<String, String>();
+			List<String>        values           = new ArrayList<String>();
+
+			if(conditionDef.getEvaluatorOptions() != null) {
+				for(Map.Entry<String, String> e : conditionDef.getEvaluatorOptions().entrySet()) {
+					if(e.getKey() == null) {
+						return null;
+					}
+
+					evaluatorOptions.put(e.getKey(), e.getValue());
+				}
+			}
+
+			if(condition.getValues() != null) {
+				for(String value : condition.getValues()) {
+					if(value == null) {
+						return null;
+					}
+
+					values.add(value);
+				}
+			}
+
+			return new ConditionKey(conditionDef.getName(), conditionDef.getEvaluator(), evaluatorOptions, values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) {
+				return true;
+			}
+
+			if(!(obj instanceof ConditionKey)) {
+				return false;
+			}
+
+			ConditionKey other = (ConditionKey) obj;
+
+			return hashCode == other.hashCode
+				&& name.equals(other.name)
+				&& evaluatorClassName.equals(other.evaluatorClassName)
+				&& evaluatorOptions.equals(other.evaluatorOptions)
+				&& values.equals(other.values);
+		}
+
+		@Override
+		public String toString() {
+			return "{name=" + name + ", evaluator=" + evaluatorClassName + ", evaluatorOptions=" + evaluatorOptions + ", values=" + values + "}";
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerResourceValueMatcher;
+import org.apache.ranger.plugin.util.RangerResourceTrie;
+
+
+/**
+ * Index of policy evaluators by the single value of each resource of their policies, to find the evaluators for
+ * which isSingleAndExactMatch() can be true for a resource without asking each of them.
+ *
+ * Like RangerPolicyResourceSignature, a key is the sorted map of resource names of a policy to their values, except
+ * that each value is normalized the way isSingleAndExactMatch() compares it: case folded by
+ * RangerResourceValueMatcher.fold(), as in the resource matchers, for resources that ignore case; no value and a value
+ * of only '*' are the same, as are an empty resource value and one of only '*'. Policies this normalization can't
+ * describe - with excludes, or with resources of other matchers - are not indexed, and are candidates for every
+ * resource. Candidates must still be matched with isSingleAndExactMatch().
+ */
+public class RangerExactMatchIndex {
+	private static final String              MATCH_EMPTY_OR_ANY = "*";
+	private static final Map<String, String> NEVER_EXACT_MATCH  = new TreeMap<String, String>();
+
+	private final Set<String>                                           resourceNames        = new HashSet<String>();
+	private final Map<String, Boolean>                                  ignoreCaseByResource = new HashMap<String, Boolean>();
+	private final Map<Map<String, String>, List<RangerPolicyEvaluator>> evaluatorsByKey      = new HashMap<Map<String, String>, List<RangerPolicyEvaluator>>();
+	private final List<RangerPolicyEvaluator>                           unindexedEvaluators  = new ArrayList<RangerPolicyEvaluator>();
+
+	public RangerExactMatchIndex(RangerServiceDef serviceDef, List<RangerPolicyEvaluator> evaluators) {
+		if(serviceDef != null && serviceDef.getResources() != null) {
+			for(RangerResourceDef resourceDef : serviceDef.getResources()) {
+				if(resourceDef != null && resourceDef.getName() != null) {
+					resourceNames.add(resourceDef.getName());
+
+					if(RangerResourceTrie.isIndexable(resourceDef)) {
+						ignoreCaseByResource.put(resourceDef.getName(), isIgnoreCase(resourceDef));
+					}
+				}
+			}
+		}
+
+		for(RangerPolicyEvaluator evaluator : evaluators) {
+			Map<String, String> key = getKey(evaluator.getPolicy());
+
+			if(key == null) {
+				unindexedEvaluators.add(evaluator);
+			} else if(key != NEVER_EXACT_MATCH) {
+				List<RangerPolicyEvaluator> list = evaluatorsByKey.get(key);
+
+				if(list == null) {
+					list = new ArrayList<RangerPolicyEvaluator>(1);
+
+					evaluatorsByKey.put(key, list);
+				}
+
+				list.add(evaluator);
+			}
+		}
+	}
+
+	/**
+	 * @return evaluators that might be a single and exact match for the resource, in no particular order
+	 */
+	public List<RangerPolicyEvaluator> getCandidates(RangerAccessResource resource) {
+		List<RangerPolicyEvaluator> indexed = null;
+
+		if(resource != null && resource.getKeys() != null && !resource.getKeys().isEmpty()) {
+			Map<String, String> key = new TreeMap<String, String>();
+
+			for(String resourceName : resource.getKeys()) {
+				Boolean ignoreCase = resourceName == null ? null : ignoreCaseByResource.get(resourceName);
+
+				if(ignoreCase == null) { // no indexed policy has this resource
+					key = null;
+
+					break;
+				}
+
+				key.put(resourceName, normalize(resource.getValue(resourceName), ignoreCase));
+			}
+
+			indexed = key == null ? null : evaluatorsByKey.get(key);
+		}
+
+		if(indexed == null) {
+			return unindexedEvaluators;
+		} else if(unindexedEvaluators.isEmpty()) {
+			return indexed;
+		}
+
+		List<RangerPolicyEvaluator> ret = new ArrayList<RangerPolicyEvaluator>(indexed.size() + unindexedEvaluators.size());
+
+		ret.addAll(indexed);
+		ret.addAll(unindexedEvaluators);
+
+		return ret;
+	}
+
+	public int getKeyCount() {
+		return evaluatorsByKey.size();
+	}
+
+	public int getUnindexedEvaluatorCount() {
+		return unindexedEvaluators.size();
+	}
+
+	/*
+	 * returns null for policies that can't be indexed, and NEVER_EXACT_MATCH for policies having more than one value
+	 * for a resource. Resources unknown to the service-def are ignored, as evaluators have no matcher for them.
+	 */
+	private Map<String, String> getKey(RangerPolicy policy) {
+		Map<String, RangerPolicyResource> resources = policy == null ? null : policy.getResources();
+		Map<String, String>               ret       = new TreeMap<String, String>();
+
+		if(resources != null) {
+			for(Map.Entry<String, RangerPolicyResource> e : resources.entrySet()) {
+				String               resourceName   = e.getKey();
+				RangerPolicyResource policyResource = e.getValue();
+
+				if(policyResource == null || !resourceNames.contains(resourceName)) {
+					continue;
+				}
+
+				Boolean ignoreCase = ignoreCaseByResource.get(resourceName);
+
+				if(ignoreCase == null || Boolean.TRUE.equals(policyResource.getIsExcludes())) {
+					return null;
+				}
+
+				String value = getSingleValue(policyResource.getValues());
+
+				if(value == null) {
+					return NEVER_EXACT_MATCH;
+				}
+
+				ret.put(resourceName, normalize(value, ignoreCase));
+			}
+		}
+
+		// a policy without any resource matcher is an exact match for a resource without values
+		return ret.isEmpty() ? null : ret;
+	}
+
+	/*
+	 * returns "" for no value - the matcher ignores empty values - and null for more than one value, which never
+	 * matches exactly
+	 */
+	private static String getSingleValue(List<String> values) {
+		String ret = "";
+
+		if(values != null) {
+			for(String value : values) {
+				if(StringUtils.isEmpty(value)) {
+					continue;
+				}
+
+				if(!ret.isEmpty()) {
+					return null;
+				}
+
+				ret = value;
+			}
+		}
+
+		return ret;
+	}
+
+	private static String normalize(String value, boolean ignoreCase) {
+		if(StringUtils.isEmpty(value) || StringUtils.containsOnly(value, RangerAbstractResourceMatcher.WILDCARD_ASTERISK)) {
+			return MATCH_EMPTY_OR_ANY;
+		}
+
+		return ignoreCase ? RangerResourceValueMatcher.fold(value) : value;
+	}
+
+	private static boolean isIgnoreCase(RangerResourceDef resourceDef) {
+		Map<String, String> matcherOptions = resourceDef.getMatcherOptions();
+		String              strVal         = matcherOptions == null ? null : matcherOptions.get(RangerAbstractResourceMatcher.OPTION_IGNORE_CASE);
+
+		return StringUtils.isEmpty(strVal) ? true : Boolean.parseBoolean(strVal);
+	}
+
+	@Override
+	public String toString( ) {
+		StringBuilder sb = new StringBuilder();
+
+		toString(sb);
+
+		return sb.toString();
+	}
+
+	public StringBuilder toString(StringBuilder sb) {
+		sb.append("RangerExactMatchIndex={");
+
+		sb.append("keyCount={").append(evaluatorsByKey.size()).append("} ");
+		sb.append("unindexedEvaluatorCount={").append(unindexedEvaluators.size()).append("} ");
+
+		sb.append("}");
+
+		return sb;
+	}
+}
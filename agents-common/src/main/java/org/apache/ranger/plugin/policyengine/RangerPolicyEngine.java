@@ -30,6 +30,8 @@ import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 public interface RangerPolicyEngine {
 	public static final String GROUP_PUBLIC   = "public";
 	public static final String ANY_ACCESS     = "_any";
@@ -54,8 +56,22 @@ public interface RangerPolicyEngine {
 
 	RangerAccessResult isAccessAllowed(RangerAccessRequest request, RangerAccessResultProcessor resultProcessor);
 
+	RangerAccessResult isAccessAllowed(RangerAccessRequest request, RangerAccessResult result, RangerAccessResultProcessor resultProcessor);
+
 	Collection<RangerAccessResult> isAccessAllowed(Collection<RangerAccessRequest> requests, RangerAccessResultProcessor resultProcessor);
 
+	/**
+	 * Evaluates the request in the async executor of the engine; unlike isAccessAllowed(), context enrichers of the
+	 * engine are run on the request there first, as they might block. The result is also given to resultProcessor
+	 * there, after the returned future is set.
+	 *
+	 * When the result is found in a cache of the engine, the returned future is already done; only the call to
+	 * resultProcessor is then passed to the executor.
+	 */
+	ListenableFuture<RangerAccessResult> isAccessAllowedAsync(RangerAccessRequest request, RangerAccessResultProcessor resultProcessor);
+
+	ListenableFuture<Collection<RangerAccessResult>> isAccessAllowedAsync(Collection<RangerAccessRequest> requests, RangerAccessResultProcessor resultProcessor);
+
 
 	boolean isAccessAllowed(RangerAccessResource resource, String user, Set<String> userGroups, String accessType);
 
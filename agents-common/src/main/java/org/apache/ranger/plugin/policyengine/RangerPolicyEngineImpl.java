@@ -19,26 +19,66 @@
 
 package org.apache.ranger.plugin.policyengine;
 
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.util.RangerResourceTrie;
 import org.apache.ranger.plugin.util.ServicePolicies;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 
 
 public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 	private static final Log LOG = LogFactory.getLog(RangerPolicyEngineImpl.class);
 
-	private final RangerPolicyRepository policyRepository;
+	private static final int RANGER_POLICYENGINE_DECISION_CACHE_SIZE         = 64*1024;
+	private static final int RANGER_POLICYENGINE_ALLOWED_POLICIES_CACHE_SIZE = 1024;
+
+	// shared by all engines, one pool per configured parallelism
+	private static final ConcurrentMap<Integer, ForkJoinPool> batchPools = new ConcurrentHashMap<Integer, ForkJoinPool>();
+
+	// shared by all engines not given an executor, one pool per configured size
+	private static final ConcurrentMap<Integer, ExecutorService> asyncPools = new ConcurrentHashMap<Integer, ExecutorService>();
+
+	private final RangerPolicyRepository                                        policyRepository;
+	private final RangerAccessDecisionCache                                     decisionCache;
+	private final RangerConcurrentCache<AllowedPoliciesKey, List<RangerPolicy>> allowedPoliciesCache;
+	private final int                                                           batchParallelThreshold;
+	private final int                                                           batchParallelism;
+	private final RangerPolicyEngineStats                                       stats;
+	private final Executor                                                      asyncExecutor;
 
 
 	public RangerPolicyEngineImpl(ServicePolicies servicePolicies) {
@@ -46,6 +86,14 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 	}
 
 	public RangerPolicyEngineImpl(ServicePolicies servicePolicies, RangerPolicyEngineOptions options) {
+		this(servicePolicies, options, null);
+	}
+
+	/**
+	 * @param previousEngine engine with an earlier version of policies for the same service; policy evaluators for
+	 *                       unchanged policies are reused from it, instead of being built again. Can be null.
+	 */
+	public RangerPolicyEngineImpl(ServicePolicies servicePolicies, RangerPolicyEngineOptions options, RangerPolicyEngineImpl previousEngine) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerPolicyEngineImpl(" + servicePolicies + ", " + options + ")");
 		}
@@ -54,7 +102,37 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			options = new RangerPolicyEngineOptions();
 		}
 
-		policyRepository = new RangerPolicyRepository(servicePolicies, options);
+		policyRepository = new RangerPolicyRepository(servicePolicies, options, previousEngine == null ? null : previousEngine.policyRepository);
+
+		// decisions can't be cached when context enrichers add request-specific data that conditions might look at
+		if(options.cacheAccessDecisions && CollectionUtils.isEmpty(policyRepository.getContextEnrichers())) {
+			String propertyName      = "ranger.plugin." + getServiceName() + ".policyengine.decisioncachesize";
+			int    decisionCacheSize = RangerConfiguration.getInstance().getInt(propertyName, RANGER_POLICYENGINE_DECISION_CACHE_SIZE);
+
+			decisionCache = new RangerAccessDecisionCache(getServiceDef(), decisionCacheSize);
+		} else {
+			decisionCache = null;
+		}
+
+		if(options.cacheAllowedPolicies) {
+			String propertyName             = "ranger.plugin." + getServiceName() + ".policyengine.allowedpoliciescachesize";
+			int    allowedPoliciesCacheSize = RangerConfiguration.getInstance().getInt(propertyName, RANGER_POLICYENGINE_ALLOWED_POLICIES_CACHE_SIZE);
+
+			allowedPoliciesCache = new RangerConcurrentCache<AllowedPoliciesKey, List<RangerPolicy>>(allowedPoliciesCacheSize, true);
+		} else {
+			allowedPoliciesCache = null;
+		}
+
+		batchParallelThreshold = options.batchParallelThreshold;
+		batchParallelism       = Math.max(1, options.batchParallelism);
+		stats                  = options.collectEvaluatorStats ? new RangerPolicyEngineStats() : null;
+		asyncExecutor          = options.asyncExecutor != null ? options.asyncExecutor : getAsyncPool(Math.max(1, options.asyncPoolSize));
+
+		if(options.evaluatorReorderIntervalMs > 0) {
+			// stats of evaluators reused from the previous engine can be used right away
+			policyRepository.reorderPolicyEvaluators();
+			policyRepository.scheduleReorderPolicyEvaluators(options.evaluatorReorderIntervalMs);
+		}
 
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerPolicyEngineImpl()");
@@ -86,6 +164,18 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		return policyRepository.getPolicyEvaluators();
 	}
 
+	/**
+	 * Reorders policy evaluators by the yield observed in their stats; this is done periodically when the
+	 * evaluatorReorderIntervalMs option is set. Access decisions don't change, but when several policies allow an
+	 * access, the policy reported in the result - and so in audit logs - is the first allowing one in the new order,
+	 * which need not be the first by eval-order.
+	 *
+	 * @return true if the order changed
+	 */
+	public boolean reorderPolicyEvaluators() {
+		return policyRepository.reorderPolicyEvaluators();
+	}
+
 	@Override
 	public List<RangerContextEnricher> getContextEnrichers() {
 		return policyRepository.getContextEnrichers();
@@ -115,6 +205,31 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		return ret;
 	}
 
+	/*
+	 * same as isAccessAllowed(request, resultProcessor), but updates the given result - after resetting it - instead
+	 * of creating one
+	 */
+	@Override
+	public RangerAccessResult isAccessAllowed(RangerAccessRequest request, RangerAccessResult result, RangerAccessResultProcessor resultProcessor) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.isAccessAllowed(" + request + ", result)");
+		}
+
+		result.reset(getServiceName(), getServiceDef(), request);
+
+		RangerAccessResult ret = isAccessAllowedNoAudit(request, result, null, null);
+
+		if(resultProcessor != null) {
+			resultProcessor.processResult(ret);
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.isAccessAllowed(" + request + ", result): " + ret);
+		}
+
+		return ret;
+	}
+
 	@Override
 	public Collection<RangerAccessResult> isAccessAllowed(Collection<RangerAccessRequest> requests, RangerAccessResultProcessor resultProcessor) {
 		if(LOG.isDebugEnabled()) {
@@ -123,7 +238,9 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		
 		Collection<RangerAccessResult> ret = new ArrayList<RangerAccessResult>();
 
-		if(requests != null) {
+		if(requests != null && batchParallelThreshold > 0 && requests.size() >= batchParallelThreshold) {
+			ret.addAll(isAccessAllowedInParallel(requests));
+		} else if(requests != null) {
 			for(RangerAccessRequest request : requests) {
 				RangerAccessResult result = isAccessAllowedNoAudit(request);
 
@@ -142,6 +259,82 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		return ret;
 	}
 
+	@Override
+	public ListenableFuture<RangerAccessResult> isAccessAllowedAsync(RangerAccessRequest request, RangerAccessResultProcessor resultProcessor) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.isAccessAllowedAsync(" + request + ")");
+		}
+
+		ListenableFuture<RangerAccessResult> ret;
+
+		RangerAccessResult result = decisionCache == null ? null : createAccessResult(request);
+
+		if(result != null && decisionCache.setResultFromCache(request, result)) {
+			if(resultProcessor != null) {
+				executeAsync(new ResultProcessingTask(resultProcessor, result, null));
+			}
+
+			ret = Futures.immediateFuture(result);
+		} else {
+			AsyncEvaluationTask task = new AsyncEvaluationTask(Collections.singletonList(request), false, resultProcessor);
+
+			executeAsync(task);
+
+			ret = task.result;
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.isAccessAllowedAsync(" + request + "): isDone=" + ret.isDone());
+		}
+
+		return ret;
+	}
+
+	@Override
+	public ListenableFuture<Collection<RangerAccessResult>> isAccessAllowedAsync(Collection<RangerAccessRequest> requests, RangerAccessResultProcessor resultProcessor) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.isAccessAllowedAsync(" + requests + ")");
+		}
+
+		ListenableFuture<Collection<RangerAccessResult>> ret;
+
+		Collection<RangerAccessResult> results = decisionCache == null ? null : new ArrayList<RangerAccessResult>();
+
+		if(results != null && requests != null) {
+			for(RangerAccessRequest request : requests) {
+				RangerAccessResult result = createAccessResult(request);
+
+				if(!decisionCache.setResultFromCache(request, result)) {
+					results = null;
+
+					break;
+				}
+
+				results.add(result);
+			}
+		}
+
+		if(results != null) {
+			if(resultProcessor != null) {
+				executeAsync(new ResultProcessingTask(resultProcessor, null, results));
+			}
+
+			ret = Futures.immediateFuture(results);
+		} else {
+			AsyncEvaluationTask task = new AsyncEvaluationTask(requests, true, resultProcessor);
+
+			executeAsync(task);
+
+			ret = task.batchResult;
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.isAccessAllowedAsync(" + requests + "): isDone=" + ret.isDone());
+		}
+
+		return ret;
+	}
+
 	@Override
 	public boolean isAccessAllowed(RangerAccessResource resource, String user, Set<String> userGroups, String accessType) {
 		if(LOG.isDebugEnabled()) {
@@ -150,12 +343,18 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 
 		boolean ret = false;
 
-		for(RangerPolicyEvaluator evaluator : policyRepository.getPolicyEvaluators()) {
-			ret = evaluator.isAccessAllowed(resource, user, userGroups, accessType);
+		RangerSymbolTable.RequestSymbols requestSymbols = policyRepository.getSymbolTable().beginRequest(user, userGroups, accessType);
 
-			if(ret) {
-				break;
+		try {
+			for(RangerPolicyEvaluator evaluator : policyRepository.getPolicyEvaluators(resource)) {
+				ret = evaluator.isAccessAllowed(resource, user, userGroups, accessType);
+
+				if(ret) {
+					break;
+				}
 			}
+		} finally {
+			policyRepository.getSymbolTable().endRequest(requestSymbols);
 		}
 
 		if(LOG.isDebugEnabled()) {
@@ -174,12 +373,18 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 
 		boolean ret = false;
 
-		for(RangerPolicyEvaluator evaluator : policyRepository.getPolicyEvaluators()) {
-			ret = evaluator.isAccessAllowed(resources, user, userGroups, accessType);
+		RangerSymbolTable.RequestSymbols requestSymbols = policyRepository.getSymbolTable().beginRequest(user, userGroups, accessType);
 
-			if(ret) {
-				break;
+		try {
+			for(RangerPolicyEvaluator evaluator : policyRepository.getPolicyEvaluators()) {
+				ret = evaluator.isAccessAllowed(resources, user, userGroups, accessType);
+
+				if(ret) {
+					break;
+				}
 			}
+		} finally {
+			policyRepository.getSymbolTable().endRequest(requestSymbols);
 		}
 
 		if(LOG.isDebugEnabled()) {
@@ -195,15 +400,8 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			LOG.debug("==> RangerPolicyEngineImpl.getExactMatchPolicy(" + resource + ")");
 		}
 
-		RangerPolicy ret = null;
-
-		for(RangerPolicyEvaluator evaluator : policyRepository.getPolicyEvaluators()) {
-			if(evaluator.isSingleAndExactMatch(resource)) {
-				ret = evaluator.getPolicy();
-
-				break;
-			}
-		}
+		RangerPolicyEvaluator evaluator = policyRepository.getExactMatchPolicyEvaluator(resource);
+		RangerPolicy          ret       = evaluator == null ? null : evaluator.getPolicy();
 
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerPolicyEngineImpl.getExactMatchPolicy(" + resource + "): " + ret);
@@ -212,57 +410,93 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		return ret;
 	}
 
+	/**
+	 * A policy is allowed if the access is allowed on all its resources, i.e. if some policy allowing the access to
+	 * the user matches all its resource values. Policies allowing the access are found first, in one pass over the
+	 * evaluators; then for each policy, its own evaluator is tried first - a policy usually contains its own resources -
+	 * and then only those allowing policies that the resource-tries find for one of its values.
+	 */
 	@Override
 	public List<RangerPolicy> getAllowedPolicies(String user, Set<String> userGroups, String accessType) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerPolicyEngineImpl.getAllowedPolicies(" + user + ", " + userGroups + ", " + accessType + ")");
 		}
 
-		List<RangerPolicy> ret = new ArrayList<RangerPolicy>();
-
-		for(RangerPolicyEvaluator evaluator : policyRepository.getPolicyEvaluators()) {
-			RangerPolicy policy = evaluator.getPolicy();
+		List<RangerPolicy> ret;
+		List<RangerPolicy> cached = allowedPoliciesCache == null ? null : allowedPoliciesCache.get(new AllowedPoliciesKey(user, userGroups, accessType, false));
 
-			boolean isAccessAllowed = isAccessAllowed(policy.getResources(), user, userGroups, accessType);
+		if(cached != null) {
+			ret = new ArrayList<RangerPolicy>(cached);
+		} else {
+			ret = computeAllowedPolicies(user, userGroups, accessType);
 
-			if(isAccessAllowed) {
-				ret.add(policy);
+			if(allowedPoliciesCache != null) {
+				allowedPoliciesCache.put(new AllowedPoliciesKey(user, userGroups, accessType, true), new ArrayList<RangerPolicy>(ret));
 			}
 		}
 
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerPolicyEngineImpl.getAllowedPolicies(" + user + ", " + userGroups + ", " + accessType + "): policyCount=" + ret.size());
+			LOG.debug("<== RangerPolicyEngineImpl.getAllowedPolicies(" + user + ", " + userGroups + ", " + accessType + "): policyCount=" + ret.size() + ", cached=" + (cached != null));
 		}
 
 		return ret;
 	}
 
 	protected RangerAccessResult isAccessAllowedNoAudit(RangerAccessRequest request) {
+		return isAccessAllowedNoAudit(request, createAccessResult(request), null, null);
+	}
+
+	/*
+	 * parentEvaluators: when not null, evaluators returned by the repository for the parent of request's resource, i.e.
+	 * the resource without its leaf value. This spares the lookup of resources of the parent for each request in a batch.
+	 */
+	private RangerAccessResult isAccessAllowedNoAudit(RangerAccessRequest request, RangerAccessResult ret, String leafResourceName, List<RangerPolicyEvaluator> parentEvaluators) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerPolicyEngineImpl.isAccessAllowedNoAudit(" + request + ")");
 		}
 
-		RangerAccessResult ret = createAccessResult(request);
-
 		if(ret != null && request != null) {
-			List<RangerPolicyEvaluator> evaluators = policyRepository.getPolicyEvaluators();
+			if(decisionCache != null && decisionCache.setResultFromCache(request, ret)) {
+				if(LOG.isDebugEnabled()) {
+					LOG.debug("<== RangerPolicyEngineImpl.isAccessAllowedNoAudit(" + request + "): " + ret + " (from decision cache)");
+				}
+
+				return ret;
+			}
+
+			List<RangerPolicyEvaluator> evaluators;
+
+			if(parentEvaluators == null) {
+				// evaluators that don't head match the resource can't allow ANY access, nor have it audited
+				evaluators = request.isAccessTypeAny() ? policyRepository.getHeadMatchEvaluators(request.getResource()) : policyRepository.getPolicyEvaluators(request.getResource());
+			} else {
+				evaluators = policyRepository.getPolicyEvaluators(request.getResource(), leafResourceName, parentEvaluators);
+			}
 
 			if(evaluators != null) {
 				boolean foundInCache = policyRepository.setAuditEnabledFromCache(request, ret);
 
-				for(RangerPolicyEvaluator evaluator : evaluators) {
-					evaluator.evaluate(request, ret);
+				RangerSymbolTable.RequestSymbols             requestSymbols    = policyRepository.getSymbolTable().beginRequest(request.getUser(), request.getUserGroups(), request.getAccessType());
+				RangerConditionEvaluatorRegistry             conditionRegistry = policyRepository.getConditionEvaluatorRegistry();
+				RangerConditionEvaluatorRegistry.RequestMemo conditionMemo     = conditionRegistry == null ? null : conditionRegistry.beginRequest(request);
 
-					// stop once allowed==true && auditedDetermined==true
-					if(ret.getIsAccessDetermined() && ret.getIsAuditedDetermined()) {
-						break;
+				try {
+					evaluatePolicies(request, ret, evaluators, requestSymbols);
+				} finally {
+					if(conditionRegistry != null) {
+						conditionRegistry.endRequest(conditionMemo);
 					}
+
+					policyRepository.getSymbolTable().endRequest(requestSymbols);
 				}
 
 				if(! foundInCache) {
 					policyRepository.storeAuditEnabledInCache(request, ret);
 				}
 
+				if(decisionCache != null && !hasConditions(evaluators)) {
+					decisionCache.storeResultInCache(request, ret);
+				}
 			}
 		}
 
@@ -273,6 +507,339 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		return ret;
 	}
 
+	/*
+	 * Runs the evaluators in two phases:
+	 *   - access phase: evaluators that can allow access to the user and groups of the request, per the principal
+	 *     index, determine access and - as they match the resource - audit
+	 *   - audit phase: if audit is still undetermined, the other evaluators are run to determine it. They can't allow
+	 *     the access, hence the result is the same as running all evaluators in order.
+	 */
+	private void evaluatePolicies(RangerAccessRequest request, RangerAccessResult ret, List<RangerPolicyEvaluator> evaluators, RangerSymbolTable.RequestSymbols requestSymbols) {
+		RangerPolicyPrincipalIndex principalIndex = policyRepository.getPrincipalIndex();
+
+		if(principalIndex == null) {
+			for(RangerPolicyEvaluator evaluator : evaluators) {
+				evaluator.evaluate(request, ret);
+
+				// stop once allowed==true && auditedDetermined==true
+				if(ret.getIsAccessDetermined() && ret.getIsAuditedDetermined()) {
+					break;
+				}
+			}
+
+			return;
+		}
+
+		RangerPolicyPrincipalIndex.ReachableEvaluators reachable = principalIndex.getReachableEvaluators(requestSymbols);
+
+		long startTime    = stats == null ? 0 : System.nanoTime();
+		int  evalCount    = 0;
+		int  skippedCount = 0;
+
+		for(RangerPolicyEvaluator evaluator : evaluators) {
+			if(!reachable.contains(evaluator)) {
+				skippedCount++;
+
+				continue;
+			}
+
+			evaluator.evaluate(request, ret);
+			evalCount++;
+
+			if(ret.getIsAccessDetermined() && ret.getIsAuditedDetermined()) {
+				break;
+			}
+		}
+
+		if(stats != null) {
+			stats.recordAccessPhase(evalCount, skippedCount, System.nanoTime() - startTime);
+		}
+
+		if(skippedCount > 0 && !ret.getIsAuditedDetermined()) {
+			startTime = stats == null ? 0 : System.nanoTime();
+			evalCount = 0;
+
+			for(RangerPolicyEvaluator evaluator : evaluators) {
+				if(reachable.contains(evaluator)) {
+					continue;
+				}
+
+				evaluator.evaluate(request, ret);
+				evalCount++;
+
+				if(ret.getIsAuditedDetermined()) {
+					break;
+				}
+			}
+
+			if(stats != null) {
+				stats.recordAuditPhase(evalCount, System.nanoTime() - startTime);
+			}
+		}
+	}
+
+	/*
+	 * Evaluates a batch of requests in a fork-join pool. Requests for resources under the same parent (like columns of
+	 * a table) are grouped together, so that the evaluators for the parent are looked up once per group. Results are
+	 * in the same order as the requests.
+	 */
+	private List<RangerAccessResult> isAccessAllowedInParallel(Collection<RangerAccessRequest> requests) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.isAccessAllowedInParallel(requestCount=" + requests.size() + ")");
+		}
+
+		RangerAccessRequest[] batch   = requests.toArray(new RangerAccessRequest[requests.size()]);
+		RangerAccessResult[]  results = new RangerAccessResult[batch.length];
+
+		Map<List<Object>, ResourceGroup> groups = new LinkedHashMap<List<Object>, ResourceGroup>();
+
+		for(int i = 0; i < batch.length; i++) {
+			RangerAccessResource resource       = batch[i] == null ? null : batch[i].getResource();
+			String               leafName       = resource == null ? null : resource.getLeafName(getServiceDef());
+			Map<String, String>  parentResource = new HashMap<String, String>();
+
+			if(resource != null && resource.getKeys() != null) {
+				for(String resourceName : resource.getKeys()) {
+					if(!resourceName.equals(leafName)) {
+						parentResource.put(resourceName, resource.getValue(resourceName));
+					}
+				}
+			}
+
+			List<Object>  groupKey = Arrays.<Object>asList(leafName, parentResource);
+			ResourceGroup group    = groups.get(groupKey);
+
+			if(group == null) {
+				group = new ResourceGroup(leafName, policyRepository.getPolicyEvaluators(new RangerAccessResourceImpl(parentResource)));
+
+				groups.put(groupKey, group);
+			}
+
+			group.requestIndexes.add(i);
+		}
+
+		// lay out requests group by group, so that splitting the batch keeps requests of a group together where possible
+		int[]           requestIndexes = new int[batch.length];
+		ResourceGroup[] requestGroups  = new ResourceGroup[batch.length];
+		int             count          = 0;
+
+		for(ResourceGroup group : groups.values()) {
+			for(Integer requestIndex : group.requestIndexes) {
+				requestIndexes[count] = requestIndex;
+				requestGroups[count]  = group;
+				count++;
+			}
+		}
+
+		int chunkSize = Math.max(1, batch.length / (batchParallelism * 4));
+
+		getBatchPool(batchParallelism).invoke(new BatchEvaluationTask(batch, results, requestIndexes, requestGroups, 0, batch.length, chunkSize));
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.isAccessAllowedInParallel(requestCount=" + requests.size() + "): groupCount=" + groups.size());
+		}
+
+		return Arrays.asList(results);
+	}
+
+	private void executeAsync(Runnable task) {
+		try {
+			asyncExecutor.execute(task);
+		} catch(RejectedExecutionException excp) {
+			LOG.warn("RangerPolicyEngineImpl.executeAsync(): async executor rejected the task; running it in the caller thread", excp);
+
+			task.run();
+		}
+	}
+
+	private void enrichRequest(RangerAccessRequest request) {
+		List<RangerContextEnricher> enrichers = getContextEnrichers();
+
+		if(request != null && CollectionUtils.isNotEmpty(enrichers)) {
+			for(RangerContextEnricher enricher : enrichers) {
+				enricher.enrich(request);
+			}
+		}
+	}
+
+	private static Executor getAsyncPool(int poolSize) {
+		ExecutorService ret = asyncPools.get(poolSize);
+
+		if(ret == null) {
+			ExecutorService pool = Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+				private final AtomicInteger threadCount = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread ret = new Thread(runnable, "RangerPolicyEngineAsync-" + threadCount.incrementAndGet());
+
+					ret.setDaemon(true);
+
+					return ret;
+				}
+			});
+
+			ret = asyncPools.putIfAbsent(poolSize, pool);
+
+			if(ret == null) {
+				ret = pool;
+			} else {
+				pool.shutdown();
+			}
+		}
+
+		return ret;
+	}
+
+	private static ForkJoinPool getBatchPool(int parallelism) {
+		ForkJoinPool ret = batchPools.get(parallelism);
+
+		if(ret == null) {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+			ret = batchPools.putIfAbsent(parallelism, pool);
+
+			if(ret == null) {
+				ret = pool;
+			} else {
+				pool.shutdown();
+			}
+		}
+
+		return ret;
+	}
+
+	public long getBuildTimeMs() {
+		return policyRepository.getBuildTimeMs();
+	}
+
+	public int getReusedEvaluatorCount() {
+		return policyRepository.getReusedEvaluatorCount();
+	}
+
+	/**
+	 * @return counts of the access and audit phases of request evaluation; null unless the engine options ask for
+	 *         evaluator stats to be collected
+	 */
+	public RangerPolicyEngineStats getStats() {
+		return stats;
+	}
+
+	RangerPolicyRepository getPolicyRepository() {
+		return policyRepository;
+	}
+
+	RangerAccessDecisionCache getDecisionCache() {
+		return decisionCache;
+	}
+
+	private List<RangerPolicy> computeAllowedPolicies(String user, Set<String> userGroups, String accessType) {
+		List<RangerPolicy>          ret        = new ArrayList<RangerPolicy>();
+		List<RangerPolicyEvaluator> evaluators = policyRepository.getPolicyEvaluators();
+
+		RangerSymbolTable.RequestSymbols requestSymbols = policyRepository.getSymbolTable().beginRequest(user, userGroups, accessType);
+
+		try {
+			RangerPolicyPrincipalIndex                     principalIndex = policyRepository.getPrincipalIndex();
+			RangerPolicyPrincipalIndex.ReachableEvaluators reachable      = principalIndex == null ? null : principalIndex.getReachableEvaluators(requestSymbols);
+
+			List<RangerPolicyEvaluator> allowingEvaluators   = new ArrayList<RangerPolicyEvaluator>();
+			Set<RangerPolicyEvaluator>  allowingEvaluatorSet = Collections.newSetFromMap(new IdentityHashMap<RangerPolicyEvaluator, Boolean>());
+
+			for(RangerPolicyEvaluator evaluator : evaluators) {
+				if((reachable == null || reachable.contains(evaluator)) && evaluator.isAccessAllowed(user, userGroups, accessType)) {
+					allowingEvaluators.add(evaluator);
+					allowingEvaluatorSet.add(evaluator);
+				}
+			}
+
+			if(!allowingEvaluators.isEmpty()) {
+				Map<String, RangerResourceTrie> allowingTries = policyRepository.buildResourceTries(allowingEvaluators);
+
+				for(RangerPolicyEvaluator evaluator : evaluators) {
+					if(isContainedInAny(evaluator, allowingEvaluators, allowingEvaluatorSet, allowingTries)) {
+						ret.add(evaluator.getPolicy());
+					}
+				}
+			}
+		} finally {
+			policyRepository.getSymbolTable().endRequest(requestSymbols);
+		}
+
+		return ret;
+	}
+
+	/*
+	 * an allowing evaluator that matches all resource values of the policy matches the first value of each resource:
+	 * hence only the candidates that the tries of allowing evaluators find for one such value need to be matched
+	 */
+	private boolean isContainedInAny(RangerPolicyEvaluator evaluator, List<RangerPolicyEvaluator> allowingEvaluators, Set<RangerPolicyEvaluator> allowingEvaluatorSet, Map<String, RangerResourceTrie> allowingTries) {
+		Map<String, RangerPolicyResource> resources = evaluator.getPolicy().getResources();
+
+		if(allowingEvaluatorSet.contains(evaluator) && evaluator.isMatch(resources)) {
+			return true;
+		}
+
+		List<RangerPolicyEvaluator> candidates = allowingEvaluators;
+
+		if(allowingTries != null && resources != null) {
+			RangerResourceTrie selectedTrie  = null;
+			String             selectedValue = null;
+			int                selectedCount = candidates.size();
+
+			for(Map.Entry<String, RangerPolicyResource> e : resources.entrySet()) {
+				RangerResourceTrie trie  = allowingTries.get(e.getKey());
+				String             value = trie == null ? null : getFirstValue(e.getValue());
+
+				if(value == null) {
+					continue;
+				}
+
+				int count = trie.getEvaluatorCountUpperBound(value);
+
+				if(count < selectedCount) {
+					selectedTrie  = trie;
+					selectedValue = value;
+					selectedCount = count;
+				}
+			}
+
+			if(selectedTrie != null) {
+				candidates = selectedCount == 0 ? Collections.<RangerPolicyEvaluator>emptyList() : selectedTrie.getEvaluatorsForResource(selectedValue);
+			}
+		}
+
+		for(RangerPolicyEvaluator candidate : candidates) {
+			if(candidate != evaluator && candidate.isMatch(resources)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static String getFirstValue(RangerPolicyResource resource) {
+		if(resource != null && resource.getValues() != null) {
+			for(String value : resource.getValues()) {
+				if(StringUtils.isNotEmpty(value)) {
+					return value;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	private boolean hasConditions(List<RangerPolicyEvaluator> evaluators) {
+		for(RangerPolicyEvaluator evaluator : evaluators) {
+			if(evaluator.hasConditions()) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
 	@Override
 	public String toString( ) {
 		StringBuilder sb = new StringBuilder();
@@ -292,4 +859,190 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 
 		return sb;
 	}
+
+	/*
+	 * as with decision keys, keys used only for lookup refer to the given groups; keys stored in the cache have their
+	 * own copy
+	 */
+	private static final class AllowedPoliciesKey {
+		private final String      user;
+		private final Set<String> userGroups;
+		private final String      accessType;
+		private final int         hashCode;
+
+		AllowedPoliciesKey(String user, Set<String> userGroups, String accessType, boolean copyCollections) {
+			if(userGroups == null) {
+				userGroups = Collections.emptySet();
+			} else if(copyCollections) {
+				userGroups = new HashSet<String>(userGroups);
+			}
+
+			this.user       = user;
+			this.userGroups = userGroups;
+			this.accessType = accessType;
+
+			int hash = 7;
+
+			hash = 31 * hash + ObjectUtils.hashCode(user);
+			hash = 31 * hash + this.userGroups.hashCode();
+			hash = 31 * hash + ObjectUtils.hashCode(accessType);
+
+			this.hashCode = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) {
+				return true;
+			}
+
+			if(!(obj instanceof AllowedPoliciesKey)) {
+				return false;
+			}
+
+			AllowedPoliciesKey other = (AllowedPoliciesKey) obj;
+
+			return hashCode == other.hashCode &&
+				   ObjectUtils.equals(user, other.user) &&
+				   ObjectUtils.equals(accessType, other.accessType) &&
+				   userGroups.equals(other.userGroups);
+		}
+	}
+
+	private static class ResourceGroup {
+		final String                      leafResourceName;
+		final List<RangerPolicyEvaluator> parentEvaluators;
+		final List<Integer>               requestIndexes = new ArrayList<Integer>();
+
+		ResourceGroup(String leafResourceName, List<RangerPolicyEvaluator> parentEvaluators) {
+			this.leafResourceName = leafResourceName;
+			this.parentEvaluators = parentEvaluators;
+		}
+	}
+
+	/*
+	 * enriches and evaluates requests in the async executor, then gives the results to the result processor
+	 */
+	private class AsyncEvaluationTask implements Runnable {
+		final Collection<RangerAccessRequest>                requests;
+		final boolean                                        isBatch;
+		final RangerAccessResultProcessor                    resultProcessor;
+		final SettableFuture<RangerAccessResult>             result;
+		final SettableFuture<Collection<RangerAccessResult>> batchResult;
+
+		AsyncEvaluationTask(Collection<RangerAccessRequest> requests, boolean isBatch, RangerAccessResultProcessor resultProcessor) {
+			this.requests        = requests;
+			this.isBatch         = isBatch;
+			this.resultProcessor = resultProcessor;
+			this.result          = isBatch ? null : SettableFuture.<RangerAccessResult>create();
+			this.batchResult     = isBatch ? SettableFuture.<Collection<RangerAccessResult>>create() : null;
+		}
+
+		@Override
+		public void run() {
+			RangerAccessResult             singleResult = null;
+			Collection<RangerAccessResult> batchResults = null;
+
+			try {
+				if(requests != null) {
+					for(RangerAccessRequest request : requests) {
+						enrichRequest(request);
+					}
+				}
+
+				if(isBatch) {
+					batchResults = isAccessAllowed(requests, null);
+
+					batchResult.set(batchResults);
+				} else {
+					singleResult = isAccessAllowedNoAudit(requests.iterator().next());
+
+					result.set(singleResult);
+				}
+			} catch(Throwable excp) {
+				LOG.error("RangerPolicyEngineImpl.AsyncEvaluationTask.run(): failed to evaluate " + requests, excp);
+
+				if(isBatch) {
+					batchResult.setException(excp);
+				} else {
+					result.setException(excp);
+				}
+
+				return;
+			}
+
+			if(resultProcessor != null) {
+				new ResultProcessingTask(resultProcessor, singleResult, batchResults).run();
+			}
+		}
+	}
+
+	private static class ResultProcessingTask implements Runnable {
+		final RangerAccessResultProcessor    resultProcessor;
+		final RangerAccessResult             result;
+		final Collection<RangerAccessResult> results;
+
+		ResultProcessingTask(RangerAccessResultProcessor resultProcessor, RangerAccessResult result, Collection<RangerAccessResult> results) {
+			this.resultProcessor = resultProcessor;
+			this.result          = result;
+			this.results         = results;
+		}
+
+		@Override
+		public void run() {
+			try {
+				if(results != null) {
+					resultProcessor.processResults(results);
+				} else {
+					resultProcessor.processResult(result);
+				}
+			} catch(Throwable excp) {
+				LOG.error("RangerPolicyEngineImpl.ResultProcessingTask.run(): failed to process results", excp);
+			}
+		}
+	}
+
+	private class BatchEvaluationTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final RangerAccessRequest[] batch;
+		private final RangerAccessResult[]  results;
+		private final int[]                 requestIndexes;
+		private final ResourceGroup[]       requestGroups;
+		private final int                   from;
+		private final int                   to;
+		private final int                   chunkSize;
+
+		BatchEvaluationTask(RangerAccessRequest[] batch, RangerAccessResult[] results, int[] requestIndexes, ResourceGroup[] requestGroups, int from, int to, int chunkSize) {
+			this.batch          = batch;
+			this.results        = results;
+			this.requestIndexes = requestIndexes;
+			this.requestGroups  = requestGroups;
+			this.from           = from;
+			this.to             = to;
+			this.chunkSize      = chunkSize;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= chunkSize) {
+				for(int i = from; i < to; i++) {
+					int           requestIndex = requestIndexes[i];
+					ResourceGroup group        = requestGroups[i];
+
+					results[requestIndex] = isAccessAllowedNoAudit(batch[requestIndex], createAccessResult(batch[requestIndex]), group.leafResourceName, group.parentEvaluators);
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+
+				invokeAll(new BatchEvaluationTask(batch, results, requestIndexes, requestGroups, from, mid, chunkSize),
+						  new BatchEvaluationTask(batch, results, requestIndexes, requestGroups, mid, to, chunkSize));
+			}
+		}
+	}
 }
@@ -19,12 +19,30 @@
 
 package org.apache.ranger.plugin.policyengine;
 
+import java.util.concurrent.Executor;
+
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 
 
 public class RangerPolicyEngineOptions {
-	public String  evaluatorType           = RangerPolicyEvaluator.EVALUATOR_TYPE_CACHED;
-	public boolean cacheAuditResults       = true;
-	public boolean disableContextEnrichers = false;
-	public boolean disableCustomConditions = false;
+	public String   evaluatorType              = RangerPolicyEvaluator.EVALUATOR_TYPE_CACHED;
+	public boolean  cacheAuditResults          = true;
+	public boolean  disableContextEnrichers    = false;
+	public boolean  disableCustomConditions    = false;
+	public boolean  disableSharedConditions    = false; // when false, identical conditions share an evaluator, which runs once per request
+	public boolean  disableTrieLookupPrefilter = false;
+	public boolean  disablePrincipalIndex      = false;
+	public boolean  disableHeadMatchCache      = false; // when false, evaluators matching the resource of ANY-access requests are cached by resource
+	public boolean  lazyEvaluators             = false; // when true, policy evaluators are initialized when first reached by a request
+	public boolean  cacheAccessDecisions       = false;
+	public boolean  cacheAllowedPolicies       = false; // caches results of getAllowedPolicies(), by user, groups and access-type
+	public int      batchParallelThreshold     = 0; // batches with fewer requests are evaluated in the caller thread; 0 disables parallel evaluation
+	public int      batchParallelism           = Runtime.getRuntime().availableProcessors();
+	public boolean  collectEvaluatorStats      = false;
+	// evaluators are periodically reordered by their observed yield; 0 disables reordering. Decisions don't change, but
+	// when several policies allow an access, the policy id reported in results and audit logs can differ from the one
+	// reported without reordering, and change between reorders
+	public long     evaluatorReorderIntervalMs = 0;
+	public Executor asyncExecutor              = null; // runs isAccessAllowedAsync() evaluations; null for a pool shared by engines
+	public int      asyncPoolSize              = Runtime.getRuntime().availableProcessors(); // threads of the shared pool
 }
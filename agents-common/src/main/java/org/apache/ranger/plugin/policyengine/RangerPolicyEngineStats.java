@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.policyengine.RangerConcurrentCache.StripedCounter;
+
+
+/**
+ * Counts of the two phases of request evaluation in a policy engine:
+ *   - access phase: evaluators that can allow access to the user of the request determine access and audit
+ *   - audit phase: when audit is still undetermined, other evaluators determine it
+ * Counters are shared by all threads evaluating requests, hence are striped.
+ */
+public class RangerPolicyEngineStats {
+	private final StripedCounter requestCount          = new StripedCounter();
+	private final StripedCounter accessPhaseEvalCount  = new StripedCounter();
+	private final StripedCounter accessPhaseTimeNanos  = new StripedCounter();
+	private final StripedCounter auditPhaseCount       = new StripedCounter();
+	private final StripedCounter auditPhaseEvalCount   = new StripedCounter();
+	private final StripedCounter auditPhaseTimeNanos   = new StripedCounter();
+	private final StripedCounter skippedEvaluatorCount = new StripedCounter();
+
+	void recordAccessPhase(int evalCount, int skippedCount, long timeNanos) {
+		requestCount.increment();
+		accessPhaseEvalCount.add(evalCount);
+		accessPhaseTimeNanos.add(timeNanos);
+		skippedEvaluatorCount.add(skippedCount);
+	}
+
+	void recordAuditPhase(int evalCount, long timeNanos) {
+		auditPhaseCount.increment();
+		auditPhaseEvalCount.add(evalCount);
+		auditPhaseTimeNanos.add(timeNanos);
+	}
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	public long getAccessPhaseEvalCount() {
+		return accessPhaseEvalCount.get();
+	}
+
+	public long getAccessPhaseTimeNanos() {
+		return accessPhaseTimeNanos.get();
+	}
+
+	/**
+	 * @return number of candidate evaluators skipped in the access phase, as they can't allow access to the user
+	 */
+	public long getSkippedEvaluatorCount() {
+		return skippedEvaluatorCount.get();
+	}
+
+	/**
+	 * @return number of requests that needed the audit phase
+	 */
+	public long getAuditPhaseCount() {
+		return auditPhaseCount.get();
+	}
+
+	public long getAuditPhaseEvalCount() {
+		return auditPhaseEvalCount.get();
+	}
+
+	public long getAuditPhaseTimeNanos() {
+		return auditPhaseTimeNanos.get();
+	}
+
+	@Override
+	public String toString( ) {
+		StringBuilder sb = new StringBuilder();
+
+		toString(sb);
+
+		return sb.toString();
+	}
+
+	public StringBuilder toString(StringBuilder sb) {
+		sb.append("RangerPolicyEngineStats={");
+
+		sb.append("requestCount={").append(getRequestCount()).append("} ");
+		sb.append("accessPhaseEvalCount={").append(getAccessPhaseEvalCount()).append("} ");
+		sb.append("accessPhaseTimeNanos={").append(getAccessPhaseTimeNanos()).append("} ");
+		sb.append("skippedEvaluatorCount={").append(getSkippedEvaluatorCount()).append("} ");
+		sb.append("auditPhaseCount={").append(getAuditPhaseCount()).append("} ");
+		sb.append("auditPhaseEvalCount={").append(getAuditPhaseEvalCount()).append("} ");
+		sb.append("auditPhaseTimeNanos={").append(getAuditPhaseTimeNanos()).append("} ");
+
+		sb.append("}");
+
+		return sb;
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.policyengine.RangerSymbolTable.RequestSymbols;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+
+
+/**
+ * Index of policy evaluators by the users and groups named in the items of their policies. Only evaluators indexed
+ * under the user of a request, under one of its groups or under the group public can allow the access; others can
+ * still determine whether the access is audited, hence the index only tells the engine which evaluators to skip in
+ * the access phase.
+ *
+ * Users and groups are indexed by their ids in the symbol table of the repository; evaluators by their position in
+ * the list given to the constructor. Each user and group has a sorted array of evaluator positions, which keeps the
+ * index small even for groups named in most policies.
+ */
+public class RangerPolicyPrincipalIndex {
+	private static final int[] NO_EVALUATORS = new int[0];
+
+	private final IdentityHashMap<RangerPolicyEvaluator, Integer> evaluatorIds;
+	private final int[][]                                         userEvaluators;  // index: user id
+	private final int[][]                                         groupEvaluators; // index: group id
+	private final int[]                                           publicEvaluators;
+
+	public RangerPolicyPrincipalIndex(List<RangerPolicyEvaluator> evaluators, RangerSymbolTable symbolTable) {
+		Map<Integer, List<Integer>> userLists   = new HashMap<Integer, List<Integer>>();
+		Map<Integer, List<Integer>> groupLists  = new HashMap<Integer, List<Integer>>();
+		List<Integer>               publicList  = new ArrayList<Integer>();
+
+		evaluatorIds = new IdentityHashMap<RangerPolicyEvaluator, Integer>(evaluators.size());
+
+		for(int i = 0; i < evaluators.size(); i++) {
+			RangerPolicyEvaluator evaluator = evaluators.get(i);
+			RangerPolicy          policy    = evaluator.getPolicy();
+
+			evaluatorIds.put(evaluator, i);
+
+			if(policy == null || policy.getPolicyItems() == null) {
+				continue;
+			}
+
+			boolean isPublic = false;
+
+			for(RangerPolicyItem policyItem : policy.getPolicyItems()) {
+				if(policyItem == null) {
+					continue;
+				}
+
+				if(policyItem.getUsers() != null) {
+					for(String user : policyItem.getUsers()) {
+						add(userLists, symbolTable.internUser(user), i);
+					}
+				}
+
+				if(policyItem.getGroups() != null) {
+					for(String group : policyItem.getGroups()) {
+						if(RangerPolicyEngine.GROUP_PUBLIC.equals(group)) {
+							isPublic = true;
+						} else {
+							add(groupLists, symbolTable.internGroup(group), i);
+						}
+					}
+				}
+			}
+
+			if(isPublic) {
+				publicList.add(i);
+			}
+		}
+
+		userEvaluators   = toArrays(userLists, symbolTable.getUserCount());
+		groupEvaluators  = toArrays(groupLists, symbolTable.getGroupCount());
+		publicEvaluators = toArray(publicList);
+	}
+
+	/**
+	 * @return evaluators that can allow access to the user and groups of the request
+	 */
+	public ReachableEvaluators getReachableEvaluators(RequestSymbols requestSymbols) {
+		int[]   groupIds = requestSymbols.getGroupIds();
+		int[][] lists    = new int[groupIds.length + 2][];
+		int     count    = 0;
+
+		count = addList(lists, count, get(userEvaluators, requestSymbols.getUserId()));
+
+		// as in policy evaluation, groups (including public) don't count when the request has no groups
+		if(requestSymbols.hasUserGroups()) {
+			count = addList(lists, count, publicEvaluators);
+
+			for(int groupId : groupIds) {
+				count = addList(lists, count, get(groupEvaluators, groupId));
+			}
+		}
+
+		return new ReachableEvaluators(this, Arrays.copyOf(lists, count));
+	}
+
+	public int getIndexedEvaluatorCount() {
+		return evaluatorIds.size();
+	}
+
+	public int getPublicEvaluatorCount() {
+		return publicEvaluators.length;
+	}
+
+	/**
+	 * Evaluators that can allow access to the user and groups of a request: union of the evaluator lists of the user,
+	 * of its groups and of public.
+	 */
+	public static final class ReachableEvaluators {
+		private final RangerPolicyPrincipalIndex index;
+		private final int[][]                    lists;
+
+		ReachableEvaluators(RangerPolicyPrincipalIndex index, int[][] lists) {
+			this.index = index;
+			this.lists = lists;
+		}
+
+		/**
+		 * @return true if the evaluator is in the union; also true for evaluators not in the index, which the index
+		 *         knows nothing about
+		 */
+		public boolean contains(RangerPolicyEvaluator evaluator) {
+			Integer id = index.evaluatorIds.get(evaluator);
+
+			if(id == null) {
+				return true;
+			}
+
+			for(int[] list : lists) {
+				if(Arrays.binarySearch(list, id) >= 0) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		public boolean isEmpty() {
+			return lists.length == 0;
+		}
+	}
+
+	private static void add(Map<Integer, List<Integer>> lists, int principalId, int evaluatorId) {
+		if(principalId == RangerSymbolTable.NOT_FOUND) {
+			return;
+		}
+
+		List<Integer> list = lists.get(principalId);
+
+		if(list == null) {
+			list = new ArrayList<Integer>();
+
+			lists.put(principalId, list);
+		}
+
+		// evaluators are added in increasing order: a principal named in several items of a policy is at the end
+		if(list.isEmpty() || list.get(list.size() - 1) != evaluatorId) {
+			list.add(evaluatorId);
+		}
+	}
+
+	private static int[][] toArrays(Map<Integer, List<Integer>> lists, int size) {
+		int[][] ret = new int[size][];
+
+		for(Map.Entry<Integer, List<Integer>> e : lists.entrySet()) {
+			ret[e.getKey()] = toArray(e.getValue());
+		}
+
+		return ret;
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		if(list.isEmpty()) {
+			return NO_EVALUATORS;
+		}
+
+		int[] ret = new int[list.size()];
+
+		for(int i = 0; i < ret.length; i++) {
+			ret[i] = list.get(i);
+		}
+
+		return ret;
+	}
+
+	private static int[] get(int[][] lists, int id) {
+		return id >= 0 && id < lists.length ? lists[id] : null;
+	}
+
+	private static int addList(int[][] lists, int count, int[] list) {
+		if(list != null && list.length > 0) {
+			lists[count++] = list;
+		}
+
+		return count;
+	}
+}
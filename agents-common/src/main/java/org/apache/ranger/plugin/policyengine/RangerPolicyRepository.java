@@ -29,31 +29,71 @@ import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.policyevaluator.RangerCachedPolicyEvaluator;
 import org.apache.ranger.plugin.policyevaluator.RangerDefaultPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerLazyPolicyEvaluator;
 import org.apache.ranger.plugin.policyevaluator.RangerOptimizedPolicyEvaluator;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluatorStats;
+import org.apache.ranger.plugin.util.RangerResourceTrie;
 import org.apache.ranger.plugin.util.ServicePolicies;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 public class RangerPolicyRepository {
     private static final Log LOG = LogFactory.getLog(RangerPolicyRepository.class);
 
-    private final String                      serviceName;
-    private final RangerServiceDef            serviceDef;
-    private final List<RangerPolicy>          policies;
-    private final long                        policyVersion;
-    private final List<RangerContextEnricher> contextEnrichers;
-    private final List<RangerPolicyEvaluator> policyEvaluators;
-    private final Map<String, Boolean>        accessAuditCache;
+    private final String                                 serviceName;
+    private final RangerServiceDef                       serviceDef;
+    private final List<RangerPolicy>                     policies;
+    private final long                                   policyVersion;
+    private final List<RangerContextEnricher>            contextEnrichers;
+    private volatile EvaluatorOrder                      evaluatorOrder;
+    private final Map<String, RangerResourceTrie>        resourceTries;
+    private final RangerPolicyPrincipalIndex             principalIndex;
+    private final RangerExactMatchIndex                  exactMatchIndex;
+    private final RangerConcurrentCache<RangerResourceKey, Boolean> accessAuditCache;
+    private final RangerConcurrentCache<RangerResourceKey, HeadMatchEvaluators> headMatchCache;
+    private final RangerSymbolTable                      symbolTable;
+    private final RangerConditionEvaluatorRegistry       conditionEvaluatorRegistry;
+    private final String                                 evaluatorType;
+    private final boolean                                disableCustomConditions;
+    private final boolean                                disableSharedConditions;
+    private final boolean                                lazyEvaluators;
+    private final int                                    reusedEvaluatorCount;
+    private final int                                    retiredEvaluatorCount;
+    private final long                                   buildTimeMs;
 
     private static int RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE = 64*1024;
+    private static int RANGER_POLICYENGINE_HEADMATCH_CACHE_SIZE   = 16*1024;
+
+    private static final int MIN_EVALUATIONS_TO_REORDER = 100; // evaluators evaluated fewer times keep their eval-order
+
+    private static ScheduledExecutorService reorderScheduler = null;
 
     RangerPolicyRepository(ServicePolicies servicePolicies, RangerPolicyEngineOptions options) {
+        this(servicePolicies, options, null);
+    }
+
+    /**
+     * @param previous repository built from an earlier version of the policies of this service; evaluators of policies
+     *                 whose id and version are unchanged are reused from it. Can be null.
+     */
+    RangerPolicyRepository(ServicePolicies servicePolicies, RangerPolicyEngineOptions options, RangerPolicyRepository previous) {
         super();
 
+        long startTimeMs = System.currentTimeMillis();
+
         serviceName   = servicePolicies.getServiceName();
         serviceDef    = servicePolicies.getServiceDef();
         policies      = Collections.unmodifiableList(servicePolicies.getPolicies());
@@ -75,30 +115,102 @@ public class RangerPolicyRepository {
         }
         this.contextEnrichers = Collections.unmodifiableList(contextEnrichers);
 
+        evaluatorType           = options.evaluatorType;
+        disableCustomConditions = options.disableCustomConditions;
+        disableSharedConditions = options.disableSharedConditions;
+        lazyEvaluators          = options.lazyEvaluators;
+
+        Map<Long, RangerPolicyEvaluator> reusableEvaluators = getReusableEvaluators(previous, servicePolicies.getPolicies());
+        int                              reusedCount        = 0;
+
+        // symbols of evaluators that are not reused stay in the symbol table, and their shared conditions in the
+        // registry, neither of which is ever compacted: once these evaluators outnumber the reused ones, a new table and
+        // a new registry are started - with all evaluators built afresh
+        int retiredCount = reusableEvaluators.isEmpty() ? 0 : previous.retiredEvaluatorCount + previous.getPolicyEvaluators().size() - reusableEvaluators.size();
+
+        if (retiredCount > reusableEvaluators.size()) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("RangerPolicyRepository(" + serviceName + ", policyVersion=" + policyVersion + "): " + retiredCount + " evaluators retired since the symbol table was created, "
+                          + reusableEvaluators.size() + " reusable; building all evaluators with a new symbol table and condition registry");
+            }
+
+            reusableEvaluators.clear();
+
+            retiredCount = 0;
+        }
+
+        retiredEvaluatorCount = retiredCount;
+
+        // reused evaluators hold ids from the symbol table of the previous repository
+        symbolTable = reusableEvaluators.isEmpty() ? new RangerSymbolTable() : previous.symbolTable;
+
+        // reused evaluators hold condition evaluators shared in the registry of the previous repository; the registry is
+        // replaced along with the symbol table
+        if (disableCustomConditions || disableSharedConditions) {
+            conditionEvaluatorRegistry = null;
+        } else {
+            conditionEvaluatorRegistry = reusableEvaluators.isEmpty() ? new RangerConditionEvaluatorRegistry() : previous.conditionEvaluatorRegistry;
+        }
+
+        // access-types of the service-def get the lowest ids, which are the bits of RangerAccessTypeMask
+        if (serviceDef.getAccessTypes() != null) {
+            for (RangerServiceDef.RangerAccessTypeDef accessTypeDef : serviceDef.getAccessTypes()) {
+                symbolTable.internAccessType(accessTypeDef.getName());
+            }
+        }
+
         List<RangerPolicyEvaluator> policyEvaluators = new ArrayList<RangerPolicyEvaluator>();
         for (RangerPolicy policy : servicePolicies.getPolicies()) {
             if (!policy.getIsEnabled()) {
                 continue;
             }
 
-            RangerPolicyEvaluator evaluator = buildPolicyEvaluator(policy, serviceDef, options);
+            RangerPolicyEvaluator evaluator = reusableEvaluators.get(policy.getId());
+
+            if (evaluator != null && policy.getVersion() != null && policy.getVersion().equals(evaluator.getPolicy().getVersion())) {
+                reusedCount++;
+            } else {
+                evaluator = buildPolicyEvaluator(policy, serviceDef, options);
+            }
 
             if (evaluator != null) {
                 policyEvaluators.add(evaluator);
             }
         }
         Collections.sort(policyEvaluators);
-        this.policyEvaluators = Collections.unmodifiableList(policyEvaluators);
+        this.evaluatorOrder = new EvaluatorOrder(policyEvaluators);
+
+        principalIndex = options.disablePrincipalIndex ? null : new RangerPolicyPrincipalIndex(policyEvaluators, symbolTable);
+
+        resourceTries  = options.disableTrieLookupPrefilter ? null : buildResourceTries(serviceDef, policyEvaluators);
+
+        exactMatchIndex = new RangerExactMatchIndex(serviceDef, policyEvaluators);
 
         String propertyName = "ranger.plugin." + serviceName + ".policyengine.auditcachesize";
 
         if(options.cacheAuditResults) {
 	        int auditResultCacheSize = RangerConfiguration.getInstance().getInt(propertyName, RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE);
 
-	        accessAuditCache = Collections.synchronizedMap(new CacheMap<String, Boolean>(auditResultCacheSize));
+	        accessAuditCache = new RangerConcurrentCache<RangerResourceKey, Boolean>(auditResultCacheSize, true);
         } else {
         	accessAuditCache = null;
         }
+
+        if (options.disableHeadMatchCache) {
+            headMatchCache = null;
+        } else {
+            int headMatchCacheSize = RangerConfiguration.getInstance().getInt("ranger.plugin." + serviceName + ".policyengine.headmatchcachesize", RANGER_POLICYENGINE_HEADMATCH_CACHE_SIZE);
+
+            headMatchCache = new RangerConcurrentCache<RangerResourceKey, HeadMatchEvaluators>(headMatchCacheSize, true);
+        }
+
+        reusedEvaluatorCount = reusedCount;
+        buildTimeMs          = System.currentTimeMillis() - startTimeMs;
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("RangerPolicyRepository(" + serviceName + ", policyVersion=" + policyVersion + "): built in " + buildTimeMs + "ms; reused "
+                      + reusedEvaluatorCount + " of " + policyEvaluators.size() + " policy evaluators");
+        }
     }
 
     public String getServiceName() {
@@ -122,7 +234,365 @@ public class RangerPolicyRepository {
     }
 
     public List<RangerPolicyEvaluator> getPolicyEvaluators() {
-        return policyEvaluators;
+        return evaluatorOrder.evaluators;
+    }
+
+    /**
+     * @return number of policy evaluators taken from the previous repository, instead of being built
+     */
+    public int getReusedEvaluatorCount() {
+        return reusedEvaluatorCount;
+    }
+
+    /**
+     * @return number of policy evaluators that were built with the symbol table and condition registry of this
+     *         repository, and are no longer in use; 0 for a repository having a symbol table of its own
+     */
+    public int getRetiredEvaluatorCount() {
+        return retiredEvaluatorCount;
+    }
+
+    public long getBuildTimeMs() {
+        return buildTimeMs;
+    }
+
+    public RangerSymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * @return condition evaluators shared by the policy evaluators; null if custom conditions or their sharing are
+     *         disabled in engine options
+     */
+    public RangerConditionEvaluatorRegistry getConditionEvaluatorRegistry() {
+        return conditionEvaluatorRegistry;
+    }
+
+    /**
+     * Builds resource-tries like those of this repository, for lookups among the given evaluators only.
+     *
+     * @return resource-tries by resource name; null if the trie lookup prefilter is disabled in engine options
+     */
+    public Map<String, RangerResourceTrie> buildResourceTries(List<RangerPolicyEvaluator> evaluators) {
+        return resourceTries == null ? null : buildResourceTries(getServiceDef(), evaluators);
+    }
+
+    /**
+     * @return index of evaluators by the users and groups their policies name; null if disabled in engine options
+     */
+    public RangerPolicyPrincipalIndex getPrincipalIndex() {
+        return principalIndex;
+    }
+
+    /**
+     * @return the first evaluator, in the order of getPolicyEvaluators(), that is a single and exact match for the
+     *         given resource; null if there is none
+     */
+    public RangerPolicyEvaluator getExactMatchPolicyEvaluator(RangerAccessResource resource) {
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("==> RangerPolicyRepository.getExactMatchPolicyEvaluator(" + resource + ")");
+        }
+
+        EvaluatorOrder              order      = this.evaluatorOrder;
+        List<RangerPolicyEvaluator> candidates = exactMatchIndex.getCandidates(resource);
+        RangerPolicyEvaluator       ret        = null;
+
+        for (RangerPolicyEvaluator evaluator : candidates) {
+            if ((ret == null || order.comparator.compare(evaluator, ret) < 0) && evaluator.isSingleAndExactMatch(resource)) {
+                ret = evaluator;
+            }
+        }
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerPolicyRepository.getExactMatchPolicyEvaluator(" + resource + "): candidateCount=" + candidates.size() + ", ret=" + ret);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the evaluators that could match the given resource, in the same order as getPolicyEvaluators().
+     * Candidates are looked up in the resource-trie of the resource level, present in the request, that has the
+     * fewest candidates. Callers must still match the resource against each returned evaluator.
+     */
+    public List<RangerPolicyEvaluator> getPolicyEvaluators(RangerAccessResource resource) {
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("==> RangerPolicyRepository.getPolicyEvaluators(" + resource + ")");
+        }
+
+        EvaluatorOrder              order = this.evaluatorOrder;
+        List<RangerPolicyEvaluator> ret   = null;
+
+        if (resourceTries != null && resource != null && resource.getKeys() != null) {
+            RangerResourceTrie selectedTrie  = null;
+            String             selectedValue = null;
+            int                selectedCount = Integer.MAX_VALUE;
+
+            // only the trie with the fewest candidates is asked for its evaluators: a level like column='*' can
+            // have a large share of all policies as candidates, and copying them would cost more than evaluating
+            for (String resourceName : resource.getKeys()) {
+                RangerResourceTrie trie          = resourceTries.get(resourceName);
+                String             resourceValue = trie == null ? null : resource.getValue(resourceName);
+
+                if (StringUtils.isEmpty(resourceValue)) {
+                    continue;
+                }
+
+                int count = trie.getEvaluatorCountUpperBound(resourceValue);
+
+                if (count < selectedCount) {
+                    selectedTrie  = trie;
+                    selectedValue = resourceValue;
+                    selectedCount = count;
+
+                    if (count == 0) {
+                        break;
+                    }
+                }
+            }
+
+            if (selectedTrie != null) {
+                ret = selectedTrie.getEvaluatorsForResource(selectedValue);
+            }
+        }
+
+        if (ret == null) {
+            ret = order.evaluators;
+        } else if (ret.size() > 1) {
+            Collections.sort(ret, order.comparator);
+        }
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerPolicyRepository.getPolicyEvaluators(" + resource + "): evaluatorCount=" + ret.size());
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the evaluators that match the given resource or its head, i.e. those that can allow ANY access on it, in
+     * the same order as getPolicyEvaluators(). Unlike getPolicyEvaluators(resource), the others need not be tried.
+     * Lists are cached by resource: requests for ANY access, like listing databases or directories, tend to ask about
+     * the same partially specified resources again and again.
+     */
+    public List<RangerPolicyEvaluator> getHeadMatchEvaluators(RangerAccessResource resource) {
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("==> RangerPolicyRepository.getHeadMatchEvaluators(" + resource + ")");
+        }
+
+        EvaluatorOrder              order  = this.evaluatorOrder;
+        RangerResourceKey           key    = headMatchCache == null || resource == null ? null : resource.getResourceKey(serviceDef);
+        HeadMatchEvaluators         cached = key == null ? null : headMatchCache.get(key);
+        List<RangerPolicyEvaluator> ret;
+
+        if (cached != null && cached.order == order) {
+            ret = cached.evaluators;
+        } else {
+            if (cached != null) { // evaluators have been reordered since
+                ret = new ArrayList<RangerPolicyEvaluator>(cached.evaluators);
+
+                Collections.sort(ret, order.comparator);
+            } else {
+                ret = new ArrayList<RangerPolicyEvaluator>();
+
+                for (RangerPolicyEvaluator evaluator : getPolicyEvaluators(resource)) {
+                    if (evaluator.isMatchOrHeadMatch(resource)) {
+                        ret.add(evaluator);
+                    }
+                }
+            }
+
+            ret = Collections.unmodifiableList(ret);
+
+            if (key != null) {
+                headMatchCache.put(key, new HeadMatchEvaluators(order, ret));
+            }
+        }
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerPolicyRepository.getHeadMatchEvaluators(" + resource + "): evaluatorCount=" + ret.size() + ", cached=" + (cached != null));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the evaluators that could match the given resource, like getPolicyEvaluators(resource), given the evaluators
+     * returned earlier for a resource having the same values as this one except for resourceName; only the resource-trie
+     * of resourceName is looked up.
+     * Used to share the lookup among requests for resources under the same parent, like columns of a table.
+     */
+    public List<RangerPolicyEvaluator> getPolicyEvaluators(RangerAccessResource resource, String resourceName, List<RangerPolicyEvaluator> parentEvaluators) {
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("==> RangerPolicyRepository.getPolicyEvaluators(" + resource + ", " + resourceName + ", parentEvaluatorCount=" + parentEvaluators.size() + ")");
+        }
+
+        List<RangerPolicyEvaluator> ret = parentEvaluators;
+
+        RangerResourceTrie trie          = resourceTries == null || resourceName == null ? null : resourceTries.get(resourceName);
+        String             resourceValue = trie == null || resource == null ? null : resource.getValue(resourceName);
+
+        if (!StringUtils.isEmpty(resourceValue) && trie.getEvaluatorCountUpperBound(resourceValue) < parentEvaluators.size()) {
+            ret = trie.getEvaluatorsForResource(resourceValue);
+
+            if (ret.size() > 1) {
+                Collections.sort(ret, evaluatorOrder.comparator);
+            }
+        }
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerPolicyRepository.getPolicyEvaluators(" + resource + ", " + resourceName + "): evaluatorCount=" + ret.size());
+        }
+
+        return ret;
+    }
+
+    /**
+     * Reorders the evaluators by the yield observed in their stats: evaluators that more often completed the result
+     * (determined both access and audit, ending the evaluation) for the time spent in them come first, and the
+     * others keep the order given by their eval-order. Evaluation of a request
+     * continues until both access and audit are determined, so the order doesn't change decisions. But when several
+     * policies allow an access, the one reported in the result - the policy id in audit logs - is the first allowing
+     * one in the current order, so it can change with each reorder. The new order is published copy-on-write:
+     * requests being evaluated continue with the evaluators they got.
+     *
+     * Counts in the stats are halved after each reorder, so that the order follows recent traffic.
+     *
+     * @return true if the order changed
+     */
+    public synchronized boolean reorderPolicyEvaluators() {
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("==> RangerPolicyRepository.reorderPolicyEvaluators(" + serviceName + ")");
+        }
+
+        boolean ret = false;
+
+        List<RangerPolicyEvaluator> current  = evaluatorOrder.evaluators;
+        List<ScoredEvaluator>       scored   = new ArrayList<ScoredEvaluator>(current.size());
+        boolean                     hasStats = false;
+
+        // scores are computed upfront: stats keep changing while the evaluators are being sorted
+        for (RangerPolicyEvaluator evaluator : current) {
+            RangerPolicyEvaluatorStats stats = evaluator.getStats();
+            double                     score = 0;
+
+            if (stats != null) {
+                hasStats = true;
+
+                if (stats.getEvaluationCount() >= MIN_EVALUATIONS_TO_REORDER && stats.getCompletedCount() > 0) {
+                    score = (double) stats.getCompletedCount() / Math.max(1, stats.getEvalTimeNanos());
+                }
+
+                stats.decay();
+            }
+
+            scored.add(new ScoredEvaluator(evaluator, score));
+        }
+
+        if (hasStats) {
+            // stable sort: evaluators with the same score keep their current relative order
+            Collections.sort(scored, new Comparator<ScoredEvaluator>() {
+                @Override
+                public int compare(ScoredEvaluator me, ScoredEvaluator other) {
+                    int ret = Double.compare(other.score, me.score);
+
+                    return ret != 0 || me.score > 0 ? ret : me.evaluator.compareTo(other.evaluator);
+                }
+            });
+
+            List<RangerPolicyEvaluator> reordered = new ArrayList<RangerPolicyEvaluator>(scored.size());
+
+            for (int i = 0; i < scored.size(); i++) {
+                RangerPolicyEvaluator evaluator = scored.get(i).evaluator;
+
+                if (evaluator != current.get(i)) {
+                    ret = true;
+                }
+
+                reordered.add(evaluator);
+            }
+
+            if (ret) {
+                evaluatorOrder = new EvaluatorOrder(reordered);
+            }
+        }
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerPolicyRepository.reorderPolicyEvaluators(" + serviceName + "): " + ret);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Reorders the evaluators every intervalMs, in a background thread shared by all repositories, for as long as this
+     * repository is referenced from elsewhere.
+     */
+    void scheduleReorderPolicyEvaluators(long intervalMs) {
+        ReorderTask task = new ReorderTask(this);
+
+        task.future = getReorderScheduler().scheduleWithFixedDelay(task, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized ScheduledExecutorService getReorderScheduler() {
+        if (reorderScheduler == null) {
+            reorderScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread ret = new Thread(runnable, "RangerPolicyEvaluatorReorderer");
+
+                    ret.setDaemon(true);
+
+                    return ret;
+                }
+            });
+        }
+
+        return reorderScheduler;
+    }
+
+    /*
+     * returns evaluators of the previous repository for the enabled policies, among the given ones, whose id and version are unchanged
+     */
+    private Map<Long, RangerPolicyEvaluator> getReusableEvaluators(RangerPolicyRepository previous, List<RangerPolicy> policies) {
+        Map<Long, RangerPolicyEvaluator> ret = new HashMap<Long, RangerPolicyEvaluator>();
+
+        // evaluators depend on the service-def and on the options they were built with
+        boolean isReusable = previous != null
+                             && StringUtils.equals(serviceName, previous.serviceName)
+                             && isSameVersion(serviceDef, previous.serviceDef)
+                             && StringUtils.equalsIgnoreCase(evaluatorType, previous.evaluatorType)
+                             && disableCustomConditions == previous.disableCustomConditions
+                             && disableSharedConditions == previous.disableSharedConditions
+                             && lazyEvaluators == previous.lazyEvaluators;
+
+        if (isReusable) {
+            Map<Long, RangerPolicyEvaluator> previousEvaluators = new HashMap<Long, RangerPolicyEvaluator>();
+
+            for (RangerPolicyEvaluator evaluator : previous.getPolicyEvaluators()) {
+                RangerPolicy policy = evaluator.getPolicy();
+
+                if (policy != null && policy.getId() != null && policy.getVersion() != null) {
+                    previousEvaluators.put(policy.getId(), evaluator);
+                }
+            }
+
+            for (RangerPolicy policy : policies) {
+                RangerPolicyEvaluator evaluator = policy.getIsEnabled() ? previousEvaluators.get(policy.getId()) : null;
+
+                if (evaluator != null && policy.getVersion() != null && policy.getVersion().equals(evaluator.getPolicy().getVersion())) {
+                    ret.put(policy.getId(), evaluator);
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private static boolean isSameVersion(RangerServiceDef serviceDef, RangerServiceDef other) {
+        return serviceDef != null && other != null
+               && serviceDef.getId() != null && serviceDef.getId().equals(other.getId())
+               && serviceDef.getVersion() != null && serviceDef.getVersion().equals(other.getVersion());
     }
 
     private RangerContextEnricher buildContextEnricher(RangerServiceDef.RangerContextEnricherDef enricherDef) {
@@ -161,18 +631,24 @@ public class RangerPolicyRepository {
             LOG.debug("==> RangerPolicyRepository.buildPolicyEvaluator(" + policy + "," + serviceDef + ", " + options + ")");
         }
 
-        RangerPolicyEvaluator ret = null;
+        RangerDefaultPolicyEvaluator evaluator = null;
+        RangerPolicyEvaluator        ret       = null;
 
         if(StringUtils.equalsIgnoreCase(options.evaluatorType, RangerPolicyEvaluator.EVALUATOR_TYPE_DEFAULT)) {
-            ret = new RangerDefaultPolicyEvaluator();
+            evaluator = new RangerDefaultPolicyEvaluator();
         } else if(StringUtils.equalsIgnoreCase(options.evaluatorType, RangerPolicyEvaluator.EVALUATOR_TYPE_OPTIMIZED)) {
-            ret = new RangerOptimizedPolicyEvaluator();
+            evaluator = new RangerOptimizedPolicyEvaluator();
         } else if(StringUtils.equalsIgnoreCase(options.evaluatorType, RangerPolicyEvaluator.EVALUATOR_TYPE_CACHED)) {
-            ret = new RangerCachedPolicyEvaluator();
+            evaluator = new RangerCachedPolicyEvaluator();
         } else {
-            ret = new RangerDefaultPolicyEvaluator();
+            evaluator = new RangerDefaultPolicyEvaluator();
         }
 
+        evaluator.setSymbolTable(symbolTable);
+        evaluator.setConditionEvaluatorRegistry(conditionEvaluatorRegistry);
+
+        ret = options.lazyEvaluators ? new RangerLazyPolicyEvaluator(evaluator) : evaluator;
+
         ret.init(policy, serviceDef, options);
 
         if(LOG.isDebugEnabled()) {
@@ -182,6 +658,20 @@ public class RangerPolicyRepository {
         return ret;
     }
 
+    private static Map<String, RangerResourceTrie> buildResourceTries(RangerServiceDef serviceDef, List<RangerPolicyEvaluator> evaluators) {
+        Map<String, RangerResourceTrie> ret = new HashMap<String, RangerResourceTrie>();
+
+        if (serviceDef != null && serviceDef.getResources() != null) {
+            for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
+                if (RangerResourceTrie.isIndexable(resourceDef)) {
+                    ret.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, evaluators));
+                }
+            }
+        }
+
+        return ret;
+    }
+
     boolean setAuditEnabledFromCache(RangerAccessRequest request, RangerAccessResult result) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> RangerPolicyRepository.setAuditEnabledFromCache()");
@@ -190,7 +680,7 @@ public class RangerPolicyRepository {
         Boolean value = null;
 
         if (accessAuditCache != null) {
-	        value = accessAuditCache.get(request.getResource().getAsString(getServiceDef()));
+	        value = accessAuditCache.get(request.getResource().getResourceKey(getServiceDef()));
         }
 
         if ((value != null)) {
@@ -210,12 +700,12 @@ public class RangerPolicyRepository {
         }
 
         if ((ret.getIsAuditedDetermined() == true)) {
-            String strResource = request.getResource().getAsString(getServiceDef());
+            RangerResourceKey resourceKey = request.getResource().getResourceKey(getServiceDef());
 
             Boolean value = ret.getIsAudited() ? Boolean.TRUE : Boolean.FALSE;
 
             if (accessAuditCache != null) {
-	            accessAuditCache.put(strResource, value);
+	            accessAuditCache.put(resourceKey, value);
 	        }
         }
 
@@ -240,8 +730,8 @@ public class RangerPolicyRepository {
         sb.append("serviceName={").append(serviceName).append("} ");
         sb.append("serviceDef={").append(serviceDef).append("} ");
         sb.append("policyEvaluators={");
-        if (policyEvaluators != null) {
-            for (RangerPolicyEvaluator policyEvaluator : policyEvaluators) {
+        if (evaluatorOrder != null) {
+            for (RangerPolicyEvaluator policyEvaluator : evaluatorOrder.evaluators) {
                 if (policyEvaluator != null) {
                     sb.append(policyEvaluator).append(" ");
                 }
@@ -260,4 +750,81 @@ public class RangerPolicyRepository {
         return sb;
     }
 
+    /*
+     * evaluators in evaluation order; replaced as a whole when evaluators are reordered
+     */
+    private static final class EvaluatorOrder {
+        final List<RangerPolicyEvaluator>         evaluators;
+        final Map<RangerPolicyEvaluator, Integer> ordinals;
+        final Comparator<RangerPolicyEvaluator>   comparator;
+
+        EvaluatorOrder(List<RangerPolicyEvaluator> evaluators) {
+            this.evaluators = Collections.unmodifiableList(new ArrayList<RangerPolicyEvaluator>(evaluators));
+            this.ordinals   = new IdentityHashMap<RangerPolicyEvaluator, Integer>(evaluators.size());
+
+            for (int i = 0; i < evaluators.size(); i++) {
+                ordinals.put(evaluators.get(i), i);
+            }
+
+            this.comparator = new Comparator<RangerPolicyEvaluator>() {
+                @Override
+                public int compare(RangerPolicyEvaluator me, RangerPolicyEvaluator other) {
+                    return ordinals.get(me).compareTo(ordinals.get(other));
+                }
+            };
+        }
+    }
+
+    private static final class HeadMatchEvaluators {
+        final EvaluatorOrder              order; // order the evaluators are sorted in
+        final List<RangerPolicyEvaluator> evaluators;
+
+        HeadMatchEvaluators(EvaluatorOrder order, List<RangerPolicyEvaluator> evaluators) {
+            this.order      = order;
+            this.evaluators = evaluators;
+        }
+    }
+
+    private static final class ScoredEvaluator {
+        final RangerPolicyEvaluator evaluator;
+        final double                score;
+
+        ScoredEvaluator(RangerPolicyEvaluator evaluator, double score) {
+            this.evaluator = evaluator;
+            this.score     = score;
+        }
+    }
+
+    /*
+     * reorders evaluators of a repository periodically, until the repository is no longer in use
+     */
+    private static final class ReorderTask implements Runnable {
+        private final WeakReference<RangerPolicyRepository> repositoryRef;
+        private volatile ScheduledFuture<?>                 future = null;
+
+        ReorderTask(RangerPolicyRepository repository) {
+            this.repositoryRef = new WeakReference<RangerPolicyRepository>(repository);
+        }
+
+        @Override
+        public void run() {
+            RangerPolicyRepository repository = repositoryRef.get();
+
+            if (repository == null) {
+                ScheduledFuture<?> future = this.future;
+
+                if (future != null) {
+                    future.cancel(false);
+                }
+
+                return;
+            }
+
+            try {
+                repository.reorderPolicyEvaluators();
+            } catch (Throwable excp) {
+                LOG.error("RangerPolicyRepository.ReorderTask(" + repository.getServiceName() + "): failed to reorder policy evaluators", excp);
+            }
+        }
+    }
 }
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+
+
+/**
+ * Immutable key for the values of a resource, to be used by caches in place of the string built by
+ * RangerAccessResource.getAsString(). Values are held in the order of resources in the service-def; a 64-bit hash of
+ * them is computed once, when the key is created, and equals() compares the hashes before comparing the values.
+ *
+ * Unlike getAsString(), the key tells apart resources whose values contain the separator, like {a/b, c} and {a, b/c}.
+ * The owner of the resource is not part of the key.
+ */
+public final class RangerResourceKey {
+	private static final long FNV64_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV64_PRIME        = 0x100000001b3L;
+
+	private final String[]            values; // index: position of the resource in service-def; null if the resource has no value
+	private final Map<String, String> others; // values of resources not in service-def; null if there are none
+	private final long                hash64;
+
+	public RangerResourceKey(RangerAccessResource resource, RangerServiceDef serviceDef) {
+		List<RangerResourceDef> resourceDefs = serviceDef == null ? null : serviceDef.getResources();
+		Set<String>             names        = resource == null ? null : resource.getKeys();
+		int                     valueCount   = 0;
+
+		values = new String[resourceDefs == null ? 0 : resourceDefs.size()];
+
+		if(names != null && !names.isEmpty()) {
+			for(int i = 0; i < values.length; i++) {
+				RangerResourceDef resourceDef = resourceDefs.get(i);
+
+				if(resourceDef != null && resource.exists(resourceDef.getName())) {
+					values[i] = resource.getValue(resourceDef.getName());
+
+					valueCount++;
+				}
+			}
+		}
+
+		if(names != null && names.size() > valueCount) {
+			Map<String, String> others = new TreeMap<String, String>();
+
+			for(String name : names) {
+				if(getIndex(resourceDefs, name) == -1) {
+					others.put(name, resource.getValue(name));
+				}
+			}
+
+			this.others = others;
+		} else {
+			this.others = null;
+		}
+
+		hash64 = computeHash64(values, others);
+	}
+
+	public long getHash64() {
+		return hash64;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (hash64 ^ (hash64 >>> 32));
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj) {
+			return true;
+		}
+
+		if(!(obj instanceof RangerResourceKey)) {
+			return false;
+		}
+
+		RangerResourceKey other = (RangerResourceKey) obj;
+
+		return hash64 == other.hash64 &&
+			   Arrays.equals(values, other.values) &&
+			   ObjectUtils.equals(others, other.others);
+	}
+
+	@Override
+	public String toString( ) {
+		StringBuilder sb = new StringBuilder();
+
+		toString(sb);
+
+		return sb.toString();
+	}
+
+	public StringBuilder toString(StringBuilder sb) {
+		sb.append("RangerResourceKey={");
+
+		sb.append("values={").append(Arrays.toString(values)).append("} ");
+
+		if(others != null) {
+			sb.append("others={").append(others).append("} ");
+		}
+
+		sb.append("hash64={").append(Long.toHexString(hash64)).append("} ");
+
+		sb.append("}");
+
+		return sb;
+	}
+
+	private static int getIndex(List<RangerResourceDef> resourceDefs, String name) {
+		if(resourceDefs != null) {
+			for(int i = 0; i < resourceDefs.size(); i++) {
+				RangerResourceDef resourceDef = resourceDefs.get(i);
+
+				if(resourceDef != null && name.equals(resourceDef.getName())) {
+					return i;
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	/*
+	 * FNV-1a over the characters of the values, with a marker before each value (distinct for absent values) so that
+	 * values can't run into their neighbours; then a finalizer to spread the bits, since hashCode() keeps only 32 of them
+	 */
+	private static long computeHash64(String[] values, Map<String, String> others) {
+		long ret = FNV64_OFFSET_BASIS;
+
+		for(String value : values) {
+			ret = update(ret, value);
+		}
+
+		if(others != null) {
+			for(Map.Entry<String, String> e : others.entrySet()) {
+				ret = update(ret, e.getKey());
+				ret = update(ret, e.getValue());
+			}
+		}
+
+		ret ^= ret >>> 33;
+		ret *= 0xff51afd7ed558ccdL;
+		ret ^= ret >>> 33;
+		ret *= 0xc4ceb9fe1a85ec53L;
+		ret ^= ret >>> 33;
+
+		return ret;
+	}
+
+	private static long update(long hash, String value) {
+		hash ^= value == null ? 0xfffe : 0xffff;
+		hash *= FNV64_PRIME;
+
+		if(value != null) {
+			for(int i = 0; i < value.length(); i++) {
+				hash ^= value.charAt(i);
+				hash *= FNV64_PRIME;
+			}
+		}
+
+		return hash;
+	}
+}
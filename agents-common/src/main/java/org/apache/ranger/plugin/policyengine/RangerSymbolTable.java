@@ -0,0 +1,341 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Interns names of users, groups and access-types referenced in policies to small integer ids, so that policy
+ * evaluators can test membership by comparing ints instead of hashing strings.
+ *
+ * Each kind of name has its own id space. Ids are assigned while policies are loaded and are never reassigned,
+ * hence a table can be shared by a policy engine and the engine built from the next version of the same policies
+ * (which reuses evaluators of unchanged policies). Names are never removed either: RangerPolicyRepository starts a new
+ * table, building all evaluators afresh, once the evaluators no longer in use outnumber the reused ones. Lookups don't
+ * take any lock. Access-type names are case-insensitive, as in policy evaluation.
+ *
+ * Names in a request are translated once per request: a policy engine calls beginRequest() before running the
+ * evaluators and endRequest() after; evaluators then get the translated request from getRequestSymbols().
+ */
+public class RangerSymbolTable {
+    public static final int NOT_FOUND = -1;
+
+    private static final int[] EMPTY_IDS = new int[0];
+
+    private static final ThreadLocal<RequestSymbols> CURRENT_REQUEST = new ThreadLocal<RequestSymbols>();
+
+    private final Namespace users       = new Namespace();
+    private final Namespace groups      = new Namespace();
+    private final Namespace accessTypes = new Namespace();
+
+    public int internUser(String user) {
+        return users.intern(user);
+    }
+
+    public int internGroup(String group) {
+        return groups.intern(group);
+    }
+
+    public int internAccessType(String accessType) {
+        return accessTypes.intern(toAccessTypeKey(accessType));
+    }
+
+    /**
+     * @return ids of the given users, sorted and without duplicates
+     */
+    public int[] internUsers(Collection<String> users) {
+        return internAll(this.users, users);
+    }
+
+    /**
+     * @return ids of the given groups, sorted and without duplicates
+     */
+    public int[] internGroups(Collection<String> groups) {
+        return internAll(this.groups, groups);
+    }
+
+    public int getUserId(String user) {
+        return users.getId(user);
+    }
+
+    public int getGroupId(String group) {
+        return groups.getId(group);
+    }
+
+    public int getAccessTypeId(String accessType) {
+        return StringUtils.isEmpty(accessType) ? NOT_FOUND : accessTypes.getId(toAccessTypeKey(accessType));
+    }
+
+    /**
+     * @return ids of the given groups, sorted and without duplicates; groups not in this table are left out
+     */
+    public int[] getGroupIds(Collection<String> groups) {
+        if (groups == null || groups.isEmpty()) {
+            return EMPTY_IDS;
+        }
+
+        int[] ret   = new int[groups.size()];
+        int   count = 0;
+
+        for (String group : groups) {
+            int id = this.groups.getId(group);
+
+            if (id != NOT_FOUND) {
+                ret[count++] = id;
+            }
+        }
+
+        return toSortedUnique(ret, count);
+    }
+
+    public int getUserCount() {
+        return users.size();
+    }
+
+    public int getGroupCount() {
+        return groups.size();
+    }
+
+    public int getAccessTypeCount() {
+        return accessTypes.size();
+    }
+
+    /**
+     * Translates the user, groups and access-type of a request and makes the translation available to
+     * getRequestSymbols() in the calling thread, until endRequest() is called with the returned object.
+     */
+    public RequestSymbols beginRequest(String user, Collection<String> userGroups, String accessType) {
+        RequestSymbols ret = new RequestSymbols(this, user, userGroups, accessType, CURRENT_REQUEST.get());
+
+        CURRENT_REQUEST.set(ret);
+
+        return ret;
+    }
+
+    public void endRequest(RequestSymbols requestSymbols) {
+        if (requestSymbols != null && CURRENT_REQUEST.get() == requestSymbols) {
+            if (requestSymbols.previous != null) {
+                CURRENT_REQUEST.set(requestSymbols.previous);
+            } else {
+                CURRENT_REQUEST.remove();
+            }
+        }
+    }
+
+    /**
+     * @return translation of the given user, groups and access-type: the one made by beginRequest() in the calling
+     *         thread if it was for the very same objects, otherwise a new one
+     */
+    public RequestSymbols getRequestSymbols(String user, Collection<String> userGroups, String accessType) {
+        RequestSymbols ret = CURRENT_REQUEST.get();
+
+        if (ret == null || !ret.isFor(this, user, userGroups, accessType)) {
+            ret = new RequestSymbols(this, user, userGroups, accessType, null);
+        }
+
+        return ret;
+    }
+
+    public static boolean contains(int[] sortedIds, int id) {
+        return id != NOT_FOUND && sortedIds.length > 0 && Arrays.binarySearch(sortedIds, id) >= 0;
+    }
+
+    public static boolean containsAny(int[] sortedIds, int[] otherSortedIds) {
+        if (sortedIds.length == 0 || otherSortedIds.length == 0) {
+            return false;
+        }
+
+        // look up each id of the smaller array in the larger one
+        int[] small = sortedIds.length <= otherSortedIds.length ? sortedIds : otherSortedIds;
+        int[] large = small == sortedIds ? otherSortedIds : sortedIds;
+
+        if (small[small.length - 1] < large[0] || large[large.length - 1] < small[0]) {
+            return false;
+        }
+
+        int fromIndex = 0;
+
+        for (int id : small) {
+            int idx = Arrays.binarySearch(large, fromIndex, large.length, id);
+
+            if (idx >= 0) {
+                return true;
+            }
+
+            fromIndex = -idx - 1;
+
+            if (fromIndex == large.length) {
+                break;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        toString(sb);
+
+        return sb.toString();
+    }
+
+    public StringBuilder toString(StringBuilder sb) {
+        sb.append("RangerSymbolTable={");
+
+        sb.append("userCount={").append(getUserCount()).append("} ");
+        sb.append("groupCount={").append(getGroupCount()).append("} ");
+        sb.append("accessTypeCount={").append(getAccessTypeCount()).append("} ");
+
+        sb.append("}");
+
+        return sb;
+    }
+
+    private static int[] internAll(Namespace namespace, Collection<String> names) {
+        if (names == null || names.isEmpty()) {
+            return EMPTY_IDS;
+        }
+
+        int[] ret   = new int[names.size()];
+        int   count = 0;
+
+        for (String name : names) {
+            if (name != null) {
+                ret[count++] = namespace.intern(name);
+            }
+        }
+
+        return toSortedUnique(ret, count);
+    }
+
+    private static int[] toSortedUnique(int[] ids, int count) {
+        if (count == 0) {
+            return EMPTY_IDS;
+        }
+
+        Arrays.sort(ids, 0, count);
+
+        int uniqueCount = 1;
+
+        for (int i = 1; i < count; i++) {
+            if (ids[i] != ids[uniqueCount - 1]) {
+                ids[uniqueCount++] = ids[i];
+            }
+        }
+
+        return uniqueCount == ids.length ? ids : Arrays.copyOf(ids, uniqueCount);
+    }
+
+    private static String toAccessTypeKey(String accessType) {
+        return accessType == null ? null : accessType.toLowerCase(Locale.ENGLISH);
+    }
+
+    private static final class Namespace {
+        private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+        int getId(String name) {
+            Integer ret = name == null ? null : ids.get(name);
+
+            return ret == null ? NOT_FOUND : ret.intValue();
+        }
+
+        int intern(String name) {
+            if (name == null) {
+                return NOT_FOUND;
+            }
+
+            Integer ret = ids.get(name);
+
+            if (ret == null) {
+                synchronized (this) {
+                    ret = ids.get(name);
+
+                    if (ret == null) {
+                        ret = Integer.valueOf(ids.size());
+
+                        ids.put(name, ret);
+                    }
+                }
+            }
+
+            return ret.intValue();
+        }
+
+        int size() {
+            return ids.size();
+        }
+    }
+
+    /**
+     * User, groups and access-type of a request, translated to ids of a symbol table
+     */
+    public static final class RequestSymbols {
+        private final RangerSymbolTable  symbolTable;
+        private final String             user;
+        private final Collection<String> userGroups;
+        private final String             accessType;
+        private final int                userId;
+        private final int[]              groupIds;
+        private final int                accessTypeId;
+        private final RequestSymbols     previous;
+
+        RequestSymbols(RangerSymbolTable symbolTable, String user, Collection<String> userGroups, String accessType, RequestSymbols previous) {
+            this.symbolTable  = symbolTable;
+            this.user         = user;
+            this.userGroups   = userGroups;
+            this.accessType   = accessType;
+            this.userId       = symbolTable.getUserId(user);
+            this.groupIds     = symbolTable.getGroupIds(userGroups);
+            this.accessTypeId = symbolTable.getAccessTypeId(accessType);
+            this.previous     = previous;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        /**
+         * @return ids of the request groups known to the symbol table, sorted
+         */
+        public int[] getGroupIds() {
+            return groupIds;
+        }
+
+        public int getAccessTypeId() {
+            return accessTypeId;
+        }
+
+        public boolean hasUserGroups() {
+            return userGroups != null;
+        }
+
+        boolean isFor(RangerSymbolTable symbolTable, String user, Collection<String> userGroups, String accessType) {
+            return this.symbolTable == symbolTable && this.user == user && this.userGroups == userGroups && this.accessType == accessType;
+        }
+    }
+}
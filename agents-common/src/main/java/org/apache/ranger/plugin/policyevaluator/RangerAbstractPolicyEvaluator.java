@@ -22,20 +22,26 @@ package org.apache.ranger.plugin.policyevaluator;
 
 import java.util.Map;
 
+import org.apache.commons.collections.MapUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.plugin.conditionevaluator.RangerConditionEvaluator;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyengine.RangerConditionEvaluatorRegistry;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyengine.RangerSymbolTable;
 
 
 public abstract class RangerAbstractPolicyEvaluator implements RangerPolicyEvaluator {
 	private static final Log LOG = LogFactory.getLog(RangerAbstractPolicyEvaluator.class);
 
-	private RangerPolicy     policy     = null;
-	private RangerServiceDef serviceDef = null;
-	private int              evalOrder  = 0;
+	private RangerPolicy                     policy                     = null;
+	private RangerServiceDef                 serviceDef                 = null;
+	private RangerSymbolTable                symbolTable                = null;
+	private RangerConditionEvaluatorRegistry conditionEvaluatorRegistry = null;
+	private int                              evalOrder                  = 0;
+	private RangerPolicyEvaluatorStats       stats                      = null;
 
 
 	@Override
@@ -47,6 +53,14 @@ public abstract class RangerAbstractPolicyEvaluator implements RangerPolicyEvalu
 		this.policy     = policy;
 		this.serviceDef = serviceDef;
 
+		if(symbolTable == null) {
+			symbolTable = new RangerSymbolTable();
+		}
+
+		if(options != null && (options.collectEvaluatorStats || options.evaluatorReorderIntervalMs > 0)) {
+			stats = new RangerPolicyEvaluatorStats();
+		}
+
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerAbstractPolicyEvaluator.init(" + policy + ", " + serviceDef + ")");
 		}
@@ -62,11 +76,45 @@ public abstract class RangerAbstractPolicyEvaluator implements RangerPolicyEvalu
 		return serviceDef;
 	}
 
+	@Override
+	public boolean hasConditions() {
+		return MapUtils.isNotEmpty(getConditionEvaluators());
+	}
+
+	public RangerSymbolTable getSymbolTable() {
+		return symbolTable;
+	}
+
+	/**
+	 * Sets the symbol table to intern names referenced in the policy; must be called before init(). When not set,
+	 * the evaluator uses a symbol table of its own.
+	 */
+	public void setSymbolTable(RangerSymbolTable symbolTable) {
+		this.symbolTable = symbolTable;
+	}
+
+	public RangerConditionEvaluatorRegistry getConditionEvaluatorRegistry() {
+		return conditionEvaluatorRegistry;
+	}
+
+	/**
+	 * Sets the registry of condition evaluators shared with other policy evaluators; must be called before init().
+	 * When not set, the evaluator creates condition evaluators of its own.
+	 */
+	public void setConditionEvaluatorRegistry(RangerConditionEvaluatorRegistry conditionEvaluatorRegistry) {
+		this.conditionEvaluatorRegistry = conditionEvaluatorRegistry;
+	}
+
 	@Override
 	public int getEvalOrder() {
 		return evalOrder;
 	}
 
+	@Override
+	public RangerPolicyEvaluatorStats getStats() {
+		return stats;
+	}
+
 	@Override
 	public int compareTo(RangerPolicyEvaluator other) {
 		if(LOG.isDebugEnabled()) {
@@ -19,11 +19,13 @@
 
 package org.apache.ranger.plugin.policyevaluator;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -44,8 +46,12 @@ import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerAccessTypeMask;
+import org.apache.ranger.plugin.policyengine.RangerConditionEvaluatorRegistry;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyengine.RangerSymbolTable;
+import org.apache.ranger.plugin.policyengine.RangerSymbolTable.RequestSymbols;
 import org.apache.ranger.plugin.resourcematcher.RangerDefaultResourceMatcher;
 import org.apache.ranger.plugin.resourcematcher.RangerResourceMatcher;
 
@@ -58,6 +64,7 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 
 	private Map<String, RangerResourceMatcher>    matchers;
 	private Map<String, RangerConditionEvaluator> conditionEvaluators;
+	private List<PolicyItemSymbols>               policyItemSymbols;
 
 	@Override
 	public void init(RangerPolicy policy, RangerServiceDef serviceDef, RangerPolicyEngineOptions options) {
@@ -69,6 +76,8 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 
 		super.init(policy, serviceDef, options);
 
+		this.policyItemSymbols = initializePolicyItemSymbols(policy, getSymbolTable());
+
 		this.matchers = new HashMap<String, RangerResourceMatcher>();
 
 		if(policy != null && policy.getResources() != null && serviceDef != null) {
@@ -108,7 +117,8 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 	 * Non-private only for testability.
 	 * @param policy
 	 * @param serviceDef
-	 * @return a Map of condition name to a new evaluator object of the class configured in service definition for that condition name
+	 * @return a Map of condition name to a new evaluator object of the class configured in service definition for that condition name,
+	 *         or to the evaluator shared by all policies having the same condition, when a registry of condition evaluators is set
 	 */
 	Map<String, RangerConditionEvaluator> initializeConditionEvaluators(RangerPolicy policy, RangerServiceDef serviceDef) {
 		if(LOG.isDebugEnabled()) {
@@ -141,12 +151,21 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 							if (Strings.isNullOrEmpty(evaluatorClassName)) {
 								LOG.error("initializeConditionEvaluators: Serious Configuration error: Couldn't get condition evaluator class name for condition[" + conditionName + "]!  Disabling all checks for this condition.");
 							} else {
-								RangerConditionEvaluator anEvaluator = newConditionEvaluator(evaluatorClassName);
-								if (anEvaluator == null) {
-									LOG.error("initializeConditionEvaluators: Serious Configuration error: Couldn't instantiate condition evaluator for class[" + evaluatorClassName + "].  All checks for condition[" + conditionName + "] disabled.");
-								} else {
-									anEvaluator.init(conditionDef, condition);
+								RangerConditionEvaluatorRegistry registry    = getConditionEvaluatorRegistry();
+								RangerConditionEvaluator         anEvaluator = registry == null ? null : registry.getEvaluator(conditionDef, condition);
+								if (anEvaluator != null) {
 									result.put(conditionName, anEvaluator);
+								} else {
+									anEvaluator = newConditionEvaluator(evaluatorClassName);
+									if (anEvaluator == null) {
+										LOG.error("initializeConditionEvaluators: Serious Configuration error: Couldn't instantiate condition evaluator for class[" + evaluatorClassName + "].  All checks for condition[" + conditionName + "] disabled.");
+									} else {
+										anEvaluator.init(conditionDef, condition);
+										if (registry != null) {
+											anEvaluator = registry.share(conditionDef, condition, anEvaluator);
+										}
+										result.put(conditionName, anEvaluator);
+									}
 								}
 							}
 						}
@@ -217,30 +236,47 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> RangerDefaultPolicyEvaluator.evaluate(" + request + ", " + result + ")");
         }
+
+        RangerPolicyEvaluatorStats stats = getStats();
+
+        if (stats == null) {
+            evaluatePolicy(request, result);
+        } else {
+            boolean wasAllowed   = result != null && result.getIsAllowed();
+            boolean wasCompleted = result != null && result.getIsAccessDetermined() && result.getIsAuditedDetermined();
+            long    startTime    = System.nanoTime();
+            boolean isMatched    = evaluatePolicy(request, result);
+            boolean isAllowed    = !wasAllowed && result != null && result.getIsAllowed();
+            boolean isCompleted  = !wasCompleted && result != null && result.getIsAccessDetermined() && result.getIsAuditedDetermined();
+
+            stats.recordEvaluation(isMatched, isAllowed, isCompleted, System.nanoTime() - startTime);
+        }
+
+        if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerDefaultPolicyEvaluator.evaluate(" + request + ", " + result + ")");
+		}
+	}
+
+    /*
+     * returns true if the resource in the request matched the policy (head-matched, for ANY access)
+     */
+    private boolean evaluatePolicy(RangerAccessRequest request, RangerAccessResult result) {
+        boolean ret = false;
+
         RangerPolicy policy = getPolicy();
 
         if (policy != null && request != null && result != null) {
             boolean isMatchAttempted = false;
             boolean matchResult = false;
-            boolean isHeadMatchAttempted = false;
-            boolean headMatchResult = false;
 
             if (!result.getIsAuditedDetermined()) {
-                // Need to match request.resource first. If it matches (or head matches), then only more progress can be made
+                // Need to match request.resource first. If it matches (or head matches, for ANY access), then only more progress can be made
                 if (!isMatchAttempted) {
-                    matchResult = isMatch(request.getResource());
+                    matchResult = isMatch(request);
                     isMatchAttempted = true;
                 }
 
-                // Try head match only if match was not found and ANY access was requested
-                if (!matchResult) {
-                    if (request.isAccessTypeAny() && !isHeadMatchAttempted) {
-                        headMatchResult = matchResourceHead(request.getResource());
-                        isHeadMatchAttempted = true;
-                    }
-                }
-
-                if (matchResult || headMatchResult) {
+                if (matchResult) {
                     // We are done for determining if audit is needed for this policy
                     if (policy.getIsAuditEnabled()) {
                         result.setIsAudited(true);
@@ -251,38 +287,40 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
             if (!result.getIsAccessDetermined()) {
                 // Try Match only if it was not attempted as part of evaluating Audit requirement
                 if (!isMatchAttempted) {
-                    matchResult = isMatch(request.getResource());
+                    matchResult = isMatch(request);
 	                isMatchAttempted = true;
                 }
 
-                // Try Head Match only if no match was found so far AND a head match was not attempted as part of evaluating
-                // Audit requirement
-                if (!matchResult) {
-                    if (request.isAccessTypeAny() && !isHeadMatchAttempted) {
-                        headMatchResult = matchResourceHead(request.getResource());
-	                    isHeadMatchAttempted = true;
-                    }
-                }
                 // Go further to evaluate access only if match or head match was found at this point
-                if (matchResult || headMatchResult) {
+                if (matchResult) {
                     evaluatePolicyItemsForAccess(policy, request, result);
                 }
             }
+
+            ret = matchResult;
         }
 
-        if(LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerDefaultPolicyEvaluator.evaluate(" + request + ", " + result + ")");
-		}
-	}
+        return ret;
+    }
+
+    /*
+     * ANY access is allowed on a resource whose head matches the policy: both are matched in a single pass
+     */
+    private boolean isMatch(RangerAccessRequest request) {
+        return request.isAccessTypeAny() ? isMatchOrHeadMatch(request.getResource()) : isMatch(request.getResource());
+    }
 
     protected void evaluatePolicyItemsForAccess(RangerPolicy policy, RangerAccessRequest request, RangerAccessResult result) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> RangerDefaultPolicyEvaluator.evaluatePolicyItemsForAccess(" + request + ", " + result + ")");
         }
 
-        for (RangerPolicy.RangerPolicyItem policyItem : policy.getPolicyItems()) {
+        RequestSymbols requestSymbols = getSymbolTable().getRequestSymbols(request.getUser(), request.getUserGroups(), request.getAccessType());
 
-            boolean isUserGroupMatch = matchUserGroup(policyItem, request.getUser(), request.getUserGroups());
+        for (PolicyItemSymbols itemSymbols : policyItemSymbols) {
+            RangerPolicyItem policyItem = itemSymbols.policyItem;
+
+            boolean isUserGroupMatch = itemSymbols.matchUserGroup(requestSymbols);
 
             if (!isUserGroupMatch) {
                 continue;
@@ -303,20 +341,11 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
                 continue;
             }
 
-            boolean accessAllowed = false;
+            boolean accessAllowed;
             if (request.isAccessTypeAny()) {
-                for (RangerPolicy.RangerPolicyItemAccess access : policyItem.getAccesses()) {
-                    if (access.getIsAllowed()) {
-                        accessAllowed = true;
-                        break;
-                    }
-                }
+                accessAllowed = itemSymbols.hasAllowedAccess;
             } else {
-                RangerPolicy.RangerPolicyItemAccess access = getAccess(policyItem, request.getAccessType());
-
-                if (access != null && access.getIsAllowed()) {
-                    accessAllowed = true;
-                }
+                accessAllowed = itemSymbols.isAccessAllowed(requestSymbols.getAccessTypeId());
             }
             if (accessAllowed == false) {
                 continue;
@@ -465,6 +494,58 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 	}
 
 
+	/**
+	 * Same as isMatch(resource) || matchResourceHead(resource), with each resource value matched only once.
+	 */
+	@Override
+	public boolean isMatchOrHeadMatch(RangerAccessResource resource) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerDefaultPolicyEvaluator.isMatchOrHeadMatch(" + resource + ")");
+		}
+
+		boolean ret;
+
+		RangerServiceDef serviceDef = getServiceDef();
+		RangerPolicy     policy     = getPolicy();
+
+		if(resource == null || CollectionUtils.isEmpty(resource.getKeys())) {
+			ret = true; // head of a resource without values matches anything
+		} else if(serviceDef == null || serviceDef.getResources() == null || matchers == null || !matchers.keySet().containsAll(resource.getKeys())) {
+			ret = false;
+		} else {
+			boolean isFullMatch = true;
+			boolean isHeadMatch = policy != null && policy.getResources() != null && matchers.size() == policy.getResources().size();
+			boolean skipped     = false; // once a level is skipped, lower levels can't head match
+
+			for(RangerResourceDef resourceDef : serviceDef.getResources()) {
+				String                resourceValue = resource.getValue(resourceDef.getName());
+				RangerResourceMatcher matcher       = matchers.get(resourceDef.getName());
+
+				if(StringUtils.isEmpty(resourceValue)) {
+					isFullMatch = isFullMatch && (matcher == null || matcher.isMatch(resourceValue));
+					skipped     = skipped || matcher != null;
+				} else {
+					boolean isValueMatch = matcher != null && matcher.isMatch(resourceValue);
+
+					isFullMatch = isFullMatch && isValueMatch;
+					isHeadMatch = isHeadMatch && !skipped && isValueMatch;
+				}
+
+				if(!isFullMatch && !isHeadMatch) {
+					break;
+				}
+			}
+
+			ret = isFullMatch || isHeadMatch;
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerDefaultPolicyEvaluator.isMatchOrHeadMatch(" + resource + "): " + ret);
+		}
+
+		return ret;
+	}
+
 	protected boolean matchResourceHead(RangerAccessResource resource) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerDefaultPolicyEvaluator.matchResourceHead(" + resource + ")");
@@ -662,7 +743,8 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 		return ret;
 	}
 
-	protected boolean isMatch(Map<String, RangerPolicyResource> resources) {
+	@Override
+	public boolean isMatch(Map<String, RangerPolicyResource> resources) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerDefaultPolicyEvaluator.isMatch(" + resources + ")");
 		}
@@ -714,7 +796,8 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 		return ret;
 	}
 
-	protected boolean isAccessAllowed(String user, Set<String> userGroups, String accessType) {
+	@Override
+	public boolean isAccessAllowed(String user, Set<String> userGroups, String accessType) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerDefaultPolicyEvaluator.isAccessAllowed(" + user + ", " + userGroups + ", " + accessType + ")");
 		}
@@ -724,14 +807,14 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 		RangerPolicy policy = getPolicy();
 
 		if(policy != null) {
-			if (StringUtils.isEmpty(accessType)) {
-				accessType = RangerPolicyEngine.ANY_ACCESS;
-			}
+			RequestSymbols requestSymbols = getSymbolTable().getRequestSymbols(user, userGroups, accessType);
 
-			boolean isAnyAccess   = StringUtils.equals(accessType, RangerPolicyEngine.ANY_ACCESS);
+			boolean isAnyAccess   = StringUtils.isEmpty(accessType) || StringUtils.equals(accessType, RangerPolicyEngine.ANY_ACCESS);
 			boolean isAdminAccess = StringUtils.equals(accessType, RangerPolicyEngine.ADMIN_ACCESS);
 
-			for (RangerPolicy.RangerPolicyItem policyItem : policy.getPolicyItems()) {
+			for (PolicyItemSymbols itemSymbols : policyItemSymbols) {
+				RangerPolicyItem policyItem = itemSymbols.policyItem;
+
 				if (isAdminAccess) {
 					if(! policyItem.getDelegateAdmin()) {
 						continue;
@@ -739,26 +822,16 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 				} else if (CollectionUtils.isEmpty(policyItem.getAccesses())) {
 					continue;
 				} else if (isAnyAccess) {
-					boolean accessAllowed = false;
-
-					for (RangerPolicy.RangerPolicyItemAccess access : policyItem.getAccesses()) {
-						if (access.getIsAllowed()) {
-							accessAllowed = true;
-							break;
-						}
-					}
-
-					if(! accessAllowed) {
+					if(! itemSymbols.hasAllowedAccess) {
 						continue;
 					}
 				} else {
-					RangerPolicy.RangerPolicyItemAccess access = getAccess(policyItem, accessType);
-					if (access == null || !access.getIsAllowed()) {
+					if (! itemSymbols.isAccessAllowed(requestSymbols.getAccessTypeId())) {
 						continue;
 					}
 				}
 
-				boolean isUserGroupMatch = matchUserGroup(policyItem, user, userGroups);
+				boolean isUserGroupMatch = itemSymbols.matchUserGroup(requestSymbols);
 
 				if (!isUserGroupMatch) {
 					continue;
@@ -794,7 +867,24 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 		return sb;
 	}
 
-	private void preprocessPolicy(RangerPolicy policy, RangerServiceDef serviceDef) {
+	static List<PolicyItemSymbols> initializePolicyItemSymbols(RangerPolicy policy, RangerSymbolTable symbolTable) {
+		List<PolicyItemSymbols> ret = new ArrayList<PolicyItemSymbols>();
+
+		if(policy != null && policy.getPolicyItems() != null) {
+			for(RangerPolicyItem policyItem : policy.getPolicyItems()) {
+				if(policyItem != null) {
+					ret.add(new PolicyItemSymbols(policyItem, symbolTable));
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	/*
+	 * adds implied grants of the service-def to the accesses of policy items; calling it again has no effect
+	 */
+	void preprocessPolicy(RangerPolicy policy, RangerServiceDef serviceDef) {
 		if(policy == null || CollectionUtils.isEmpty(policy.getPolicyItems()) || serviceDef == null) {
 			return;
 		}
@@ -866,4 +956,59 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 
 		return ret;
 	}
+
+	/*
+	 * users, groups and allowed access-types of a policy item, as ids in the symbol table
+	 */
+	static final class PolicyItemSymbols {
+		final RangerPolicyItem     policyItem;
+		final int[]                userIds;
+		final int[]                groupIds;
+		final boolean              hasPublicGroup;
+		final RangerAccessTypeMask allowedAccessTypes;
+		final boolean              hasAllowedAccess;
+
+		/*
+		 * accesses of the policy item include implied grants, added by preprocessPolicy() before this is called
+		 */
+		PolicyItemSymbols(RangerPolicyItem policyItem, RangerSymbolTable symbolTable) {
+			RangerAccessTypeMask.Builder allowed          = new RangerAccessTypeMask.Builder();
+			boolean                      hasAllowedAccess = false;
+
+			if(policyItem.getAccesses() != null) {
+				Set<Integer> accessTypeIds = new HashSet<Integer>();
+
+				for(RangerPolicyItemAccess access : policyItem.getAccesses()) {
+					if(access == null || access.getType() == null) {
+						continue;
+					}
+
+					int accessTypeId = symbolTable.internAccessType(access.getType());
+
+					// same as getAccess(): only the first access of a type counts
+					if(accessTypeIds.add(accessTypeId) && access.getIsAllowed()) {
+						allowed.add(accessTypeId);
+					}
+
+					hasAllowedAccess = hasAllowedAccess || access.getIsAllowed();
+				}
+			}
+
+			this.policyItem         = policyItem;
+			this.userIds            = symbolTable.internUsers(policyItem.getUsers());
+			this.groupIds           = symbolTable.internGroups(policyItem.getGroups());
+			this.hasPublicGroup     = policyItem.getGroups() != null && policyItem.getGroups().contains(RangerPolicyEngine.GROUP_PUBLIC);
+			this.allowedAccessTypes = allowed.build();
+			this.hasAllowedAccess   = hasAllowedAccess;
+		}
+
+		boolean matchUserGroup(RequestSymbols requestSymbols) {
+			return RangerSymbolTable.contains(userIds, requestSymbols.getUserId())
+				|| (requestSymbols.hasUserGroups() && (hasPublicGroup || RangerSymbolTable.containsAny(groupIds, requestSymbols.getGroupIds())));
+		}
+
+		boolean isAccessAllowed(int accessTypeId) {
+			return allowedAccessTypes.contains(accessTypeId);
+		}
+	}
 }
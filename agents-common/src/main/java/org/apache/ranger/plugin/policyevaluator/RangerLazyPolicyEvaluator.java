@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyevaluator;
+
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.conditionevaluator.RangerConditionEvaluator;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerPolicyConditionDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResource;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyengine.RangerSymbolTable;
+
+
+/**
+ * Policy evaluator that initializes the evaluator it wraps - resource matchers, condition evaluators, caches - only
+ * when a request first needs it. Until then it keeps just the policy, and what the policy repository needs to order
+ * and index evaluators: the eval-order and the number of conditions, computed as the wrapped evaluator would.
+ *
+ * The wrapped evaluator is initialized once, by the first thread needing it; others wait for it. Its users, groups
+ * and access-types are interned in the symbol table by init(), before any request can be translated with it.
+ */
+public class RangerLazyPolicyEvaluator implements RangerPolicyEvaluator {
+	private static final Log LOG = LogFactory.getLog(RangerLazyPolicyEvaluator.class);
+
+	private final RangerDefaultPolicyEvaluator evaluator;
+
+	private RangerPolicy              policy         = null;
+	private RangerServiceDef          serviceDef     = null;
+	private RangerPolicyEngineOptions options        = null;
+	private int                       evalOrder      = 0;
+	private int                       conditionCount = 0;
+	private volatile boolean          isInitialized  = false;
+
+	/**
+	 * @param evaluator evaluator to initialize on demand, with its symbol table and condition evaluator registry set
+	 */
+	public RangerLazyPolicyEvaluator(RangerDefaultPolicyEvaluator evaluator) {
+		this.evaluator = evaluator;
+	}
+
+	@Override
+	public void init(RangerPolicy policy, RangerServiceDef serviceDef, RangerPolicyEngineOptions options) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerLazyPolicyEvaluator.init(" + policy + ", " + serviceDef + ")");
+		}
+
+		this.policy     = policy;
+		this.serviceDef = serviceDef;
+		this.options    = options;
+
+		// as the wrapped evaluator's init() does first: indexes built from the policy see the implied grants
+		evaluator.preprocessPolicy(policy, serviceDef);
+
+		if(evaluator.getSymbolTable() == null) {
+			evaluator.setSymbolTable(new RangerSymbolTable());
+		}
+
+		// requests are translated with the ids interned when they start: names of the policy must be interned now
+		RangerDefaultPolicyEvaluator.initializePolicyItemSymbols(policy, evaluator.getSymbolTable());
+
+		if(evaluator instanceof RangerOptimizedPolicyEvaluator) {
+			evalOrder = RangerOptimizedPolicyEvaluator.computeEvalOrder(policy, serviceDef, evaluator.getSymbolTable());
+		}
+
+		conditionCount = options != null && options.disableCustomConditions ? 0 : getConditionCount(policy, serviceDef);
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerLazyPolicyEvaluator.init(" + policy + ", " + serviceDef + "): evalOrder=" + evalOrder + ", conditionCount=" + conditionCount);
+		}
+	}
+
+	/**
+	 * @return true once the wrapped evaluator has been initialized
+	 */
+	public boolean isInitialized() {
+		return isInitialized;
+	}
+
+	@Override
+	public RangerPolicy getPolicy() {
+		return policy;
+	}
+
+	@Override
+	public RangerServiceDef getServiceDef() {
+		return serviceDef;
+	}
+
+	@Override
+	public Map<String, RangerConditionEvaluator> getConditionEvaluators() {
+		return getEvaluator().getConditionEvaluators();
+	}
+
+	/*
+	 * from conditions counted in init(): true also for a condition whose evaluator fails to be created
+	 */
+	@Override
+	public boolean hasConditions() {
+		return conditionCount > 0;
+	}
+
+	@Override
+	public int getEvalOrder() {
+		return evalOrder;
+	}
+
+	@Override
+	public RangerPolicyEvaluatorStats getStats() {
+		return isInitialized ? evaluator.getStats() : null;
+	}
+
+	@Override
+	public void evaluate(RangerAccessRequest request, RangerAccessResult result) {
+		getEvaluator().evaluate(request, result);
+	}
+
+	@Override
+	public boolean isMatch(RangerAccessResource resource) {
+		return getEvaluator().isMatch(resource);
+	}
+
+	@Override
+	public boolean isMatchOrHeadMatch(RangerAccessResource resource) {
+		return getEvaluator().isMatchOrHeadMatch(resource);
+	}
+
+	@Override
+	public boolean isMatch(Map<String, RangerPolicyResource> resources) {
+		return getEvaluator().isMatch(resources);
+	}
+
+	@Override
+	public boolean isSingleAndExactMatch(RangerAccessResource resource) {
+		return getEvaluator().isSingleAndExactMatch(resource);
+	}
+
+	@Override
+	public boolean isAccessAllowed(RangerAccessResource resource, String user, Set<String> userGroups, String accessType) {
+		return getEvaluator().isAccessAllowed(resource, user, userGroups, accessType);
+	}
+
+	@Override
+	public boolean isAccessAllowed(Map<String, RangerPolicyResource> resources, String user, Set<String> userGroups, String accessType) {
+		return getEvaluator().isAccessAllowed(resources, user, userGroups, accessType);
+	}
+
+	@Override
+	public boolean isAccessAllowed(String user, Set<String> userGroups, String accessType) {
+		return getEvaluator().isAccessAllowed(user, userGroups, accessType);
+	}
+
+	/*
+	 * same order as RangerAbstractPolicyEvaluator.compareTo(), without initializing the evaluators compared
+	 */
+	@Override
+	public int compareTo(RangerPolicyEvaluator other) {
+		int ret = Integer.compare(getEvalOrder(), other.getEvalOrder());
+
+		if(ret == 0) {
+			int otherConditionCount;
+
+			if(other instanceof RangerLazyPolicyEvaluator) {
+				otherConditionCount = ((RangerLazyPolicyEvaluator)other).conditionCount;
+			} else {
+				Map<String, RangerConditionEvaluator> otherConditionEvaluators = other.getConditionEvaluators();
+
+				otherConditionCount = otherConditionEvaluators == null ? 0 : otherConditionEvaluators.size();
+			}
+
+			ret = Integer.compare(conditionCount, otherConditionCount);
+		}
+
+		return ret;
+	}
+
+	private RangerPolicyEvaluator getEvaluator() {
+		if(!isInitialized) {
+			synchronized(this) {
+				if(!isInitialized) {
+					long startTimeNanos = System.nanoTime();
+
+					evaluator.init(policy, serviceDef, options);
+
+					isInitialized = true;
+
+					if(LOG.isDebugEnabled()) {
+						LOG.debug("RangerLazyPolicyEvaluator.getEvaluator(policyId=" + policy.getId() + "): initialized in " + (System.nanoTime() - startTimeNanos) / 1000 + "us");
+					}
+				}
+			}
+		}
+
+		return evaluator;
+	}
+
+	/*
+	 * number of condition evaluators the wrapped evaluator's init() creates, unless one fails to be instantiated
+	 */
+	private int getConditionCount(RangerPolicy policy, RangerServiceDef serviceDef) {
+		Set<String> conditionNames = new HashSet<String>();
+
+		if(policy != null && policy.getPolicyItems() != null) {
+			for(RangerPolicyItem policyItem : policy.getPolicyItems()) {
+				if(policyItem.getConditions() == null) {
+					continue;
+				}
+
+				for(RangerPolicyItemCondition condition : policyItem.getConditions()) {
+					String conditionName = condition.getType();
+
+					if(conditionNames.contains(conditionName)) {
+						continue;
+					}
+
+					RangerPolicyConditionDef conditionDef = evaluator.getConditionDef(serviceDef, conditionName);
+
+					if(conditionDef != null && StringUtils.isNotEmpty(conditionDef.getEvaluator())) {
+						conditionNames.add(conditionName);
+					}
+				}
+			}
+		}
+
+		return conditionNames.size();
+	}
+
+	@Override
+	public String toString( ) {
+		StringBuilder sb = new StringBuilder();
+
+		toString(sb);
+
+		return sb.toString();
+	}
+
+	public StringBuilder toString(StringBuilder sb) {
+		sb.append("RangerLazyPolicyEvaluator={");
+
+		sb.append("isInitialized={").append(isInitialized).append("} ");
+		sb.append("evaluator={").append(evaluator).append("} ");
+
+		sb.append("}");
+
+		return sb;
+	}
+}
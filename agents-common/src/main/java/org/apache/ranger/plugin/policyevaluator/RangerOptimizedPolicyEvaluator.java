@@ -19,7 +19,6 @@
 
 package org.apache.ranger.plugin.policyevaluator;
 
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -27,8 +26,11 @@ import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerAccessTypeMask;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyengine.RangerSymbolTable;
+import org.apache.ranger.plugin.policyengine.RangerSymbolTable.RequestSymbols;
 
 import java.util.*;
 import java.lang.Math;
@@ -36,9 +38,10 @@ import java.lang.Math;
 public class RangerOptimizedPolicyEvaluator extends RangerDefaultPolicyEvaluator {
     private static final Log LOG = LogFactory.getLog(RangerOptimizedPolicyEvaluator.class);
 
-    private Set<String> groups         = null;
-    private Set<String> users          = null;
-    private Set<String> accessPerms    = null;
+    // ids in the symbol table, sorted
+    private int[]       groups         = null;
+    private int[]       users          = null;
+    private RangerAccessTypeMask accessPerms = RangerAccessTypeMask.EMPTY;
     private boolean     delegateAdmin  = false;
     private boolean     hasAllPerms    = false;
     private boolean     hasPublicGroup = false;
@@ -65,9 +68,11 @@ public class RangerOptimizedPolicyEvaluator extends RangerDefaultPolicyEvaluator
 
         super.init(policy, serviceDef, options);
 
-        accessPerms = new HashSet<String>();
-        groups = new HashSet<String>();
-        users = new HashSet<String>();
+        RangerSymbolTable symbolTable = getSymbolTable();
+
+        RangerAccessTypeMask.Builder accessPermIds = new RangerAccessTypeMask.Builder();
+        Set<String>                  groupNames    = new HashSet<String>();
+        Set<String>                  userNames     = new HashSet<String>();
 
         for (RangerPolicy.RangerPolicyItem item : policy.getPolicyItems()) {
             delegateAdmin = delegateAdmin || item.getDelegateAdmin();
@@ -77,22 +82,27 @@ public class RangerOptimizedPolicyEvaluator extends RangerDefaultPolicyEvaluator
 
                 if (policyItemAccess.getIsAllowed()) {
                     String accessType = policyItemAccess.getType();
-                    accessPerms.add(accessType);
+                    accessPermIds.add(symbolTable.internAccessType(accessType));
                 }
             }
 
-            groups.addAll(item.getGroups());
-            users.addAll(item.getUsers());
+            groupNames.addAll(item.getGroups());
+            userNames.addAll(item.getUsers());
         }
 
-        hasAllPerms = checkIfHasAllPerms();
-
-        for (String group : groups) {
+        for (String group : groupNames) {
             if (group.equalsIgnoreCase(RangerPolicyEngine.GROUP_PUBLIC)) {
                 hasPublicGroup = true;
             }
         }
 
+        accessPerms = accessPermIds.build();
+
+        groups = symbolTable.internGroups(groupNames);
+        users  = symbolTable.internUsers(userNames);
+
+        hasAllPerms = checkIfHasAllPerms();
+
         setEvalOrder(computeEvalOrder());
 
         if(LOG.isDebugEnabled()) {
@@ -101,11 +111,47 @@ public class RangerOptimizedPolicyEvaluator extends RangerDefaultPolicyEvaluator
     }
 
     public int computeEvalOrder() {
+        return computeEvalOrder(getPolicy(), getServiceDef(), hasPublicGroup, groups.length, users.length, accessPerms.size());
+    }
+
+    /**
+     * @return the eval-order init() would compute for the policy, without initializing an evaluator: for evaluators
+     *         initialized on demand. Like init(), interns the users, groups and access-types of the policy in the
+     *         symbol table. The policy must have been preprocessed as by RangerDefaultPolicyEvaluator.init().
+     */
+    static int computeEvalOrder(RangerPolicy policy, RangerServiceDef serviceDef, RangerSymbolTable symbolTable) {
+        Set<Integer> accessPermIds  = new HashSet<Integer>();
+        Set<String>  groupNames     = new HashSet<String>();
+        Set<String>  userNames      = new HashSet<String>();
+        boolean      hasPublicGroup = false;
+
+        for (RangerPolicy.RangerPolicyItem item : policy.getPolicyItems()) {
+            for (RangerPolicy.RangerPolicyItemAccess policyItemAccess : item.getAccesses()) {
+                if (policyItemAccess.getIsAllowed()) {
+                    accessPermIds.add(symbolTable.internAccessType(policyItemAccess.getType()));
+                }
+            }
+
+            groupNames.addAll(item.getGroups());
+            userNames.addAll(item.getUsers());
+        }
+
+        for (String group : groupNames) {
+            if (group.equalsIgnoreCase(RangerPolicyEngine.GROUP_PUBLIC)) {
+                hasPublicGroup = true;
+            }
+        }
+
+        int groupCount = symbolTable.internGroups(groupNames).length;
+        int userCount  = symbolTable.internUsers(userNames).length;
+
+        return computeEvalOrder(policy, serviceDef, hasPublicGroup, groupCount, userCount, accessPermIds.size());
+    }
+
+    private static int computeEvalOrder(RangerPolicy policy, RangerServiceDef serviceDef, boolean hasPublicGroup, int groupCount, int userCount, int accessPermCount) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> RangerOptimizedPolicyEvaluator.computeEvalOrder()");
         }
-        RangerServiceDef serviceDef = getServiceDef();
-        RangerPolicy policy = getPolicy();
 
         class LevelResourceNames implements Comparable<LevelResourceNames> {
             int level;
@@ -190,11 +236,11 @@ public class RangerOptimizedPolicyEvaluator extends RangerDefaultPolicyEvaluator
         if (hasPublicGroup) {
             priorityLevel -= RANGER_POLICY_EVAL_PUBLIC_GROUP_ACCESS_PREMIUM;
         } else {
-            priorityLevel -= groups.size();
+            priorityLevel -= groupCount;
         }
-        priorityLevel -= users.size();
+        priorityLevel -= userCount;
 
-        priorityLevel -= Math.round(((float)RANGER_POLICY_EVAL_ALL_ACCESS_TYPES_PREMIUM * accessPerms.size()) / serviceDef.getAccessTypes().size());
+        priorityLevel -= Math.round(((float)RANGER_POLICY_EVAL_ALL_ACCESS_TYPES_PREMIUM * accessPermCount) / serviceDef.getAccessTypes().size());
 
         if(LOG.isDebugEnabled()) {
             LOG.debug("<== RangerOptimizedPolicyEvaluator.computeEvalOrder(), policyName:" + policy.getName() + ", priority:" + priorityLevel);
@@ -203,22 +249,20 @@ public class RangerOptimizedPolicyEvaluator extends RangerDefaultPolicyEvaluator
     }
 
 	@Override
-	protected boolean isAccessAllowed(String user, Set<String> userGroups, String accessType) {
+	public boolean isAccessAllowed(String user, Set<String> userGroups, String accessType) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerOptimizedPolicyEvaluator.isAccessAllowed(" + user + ", " + userGroups + ", " + accessType + ")");
 		}
 
 		boolean ret = false;
 
-		if (hasPublicGroup || users.contains(user) || CollectionUtils.containsAny(groups, userGroups)) {
-			if (StringUtils.isEmpty(accessType)) {
-				accessType = RangerPolicyEngine.ANY_ACCESS;
-			}
+		RequestSymbols requestSymbols = getSymbolTable().getRequestSymbols(user, userGroups, accessType);
 
-			boolean isAnyAccess   = StringUtils.equals(accessType, RangerPolicyEngine.ANY_ACCESS);
+		if (matchUserGroup(requestSymbols)) {
+			boolean isAnyAccess   = StringUtils.isEmpty(accessType) || StringUtils.equals(accessType, RangerPolicyEngine.ANY_ACCESS);
 			boolean isAdminAccess = StringUtils.equals(accessType, RangerPolicyEngine.ADMIN_ACCESS);
 
-            if (isAnyAccess || (isAdminAccess && delegateAdmin) || hasAllPerms || accessPerms.contains(accessType)) {
+            if (isAnyAccess || (isAdminAccess && delegateAdmin) || hasAllPerms || accessPerms.contains(requestSymbols.getAccessTypeId())) {
                 ret = super.isAccessAllowed(user, userGroups, accessType);
             }
         }
@@ -236,10 +280,12 @@ public class RangerOptimizedPolicyEvaluator extends RangerDefaultPolicyEvaluator
             LOG.debug("==> RangerOptimizedPolicyEvaluator.evaluatePolicyItemsForAccess()");
         }
 
-        if (hasPublicGroup || users.contains(request.getUser()) || CollectionUtils.containsAny(groups, request.getUserGroups())) {
+        RequestSymbols requestSymbols = getSymbolTable().getRequestSymbols(request.getUser(), request.getUserGroups(), request.getAccessType());
+
+        if (matchUserGroup(requestSymbols)) {
             // No need to reject based on users and groups
 
-            if (request.isAccessTypeAny() || (request.isAccessTypeDelegatedAdmin() && delegateAdmin) || hasAllPerms || accessPerms.contains(request.getAccessType())) {
+            if (request.isAccessTypeAny() || (request.isAccessTypeDelegatedAdmin() && delegateAdmin) || hasAllPerms || accessPerms.contains(requestSymbols.getAccessTypeId())) {
                 // No need to reject based on aggregated access permissions
                 super.evaluatePolicyItemsForAccess(policy, request, result);
             }
@@ -249,6 +295,10 @@ public class RangerOptimizedPolicyEvaluator extends RangerDefaultPolicyEvaluator
         }
 
     }
+    private boolean matchUserGroup(RequestSymbols requestSymbols) {
+        return hasPublicGroup || RangerSymbolTable.contains(users, requestSymbols.getUserId()) || RangerSymbolTable.containsAny(groups, requestSymbols.getGroupIds());
+    }
+
     private boolean checkIfHasAllPerms() {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> RangerOptimizedPolicyEvaluator.checkIfHasAllPerms()");
@@ -257,7 +307,7 @@ public class RangerOptimizedPolicyEvaluator extends RangerDefaultPolicyEvaluator
 
         List<RangerServiceDef.RangerAccessTypeDef> serviceAccessTypes = getServiceDef().getAccessTypes();
         for (RangerServiceDef.RangerAccessTypeDef serviceAccessType : serviceAccessTypes) {
-            if(! accessPerms.contains(serviceAccessType.getName())) {
+            if(! accessPerms.contains(getSymbolTable().getAccessTypeId(serviceAccessType.getName()))) {
 		result = false;
                 break;
             }
@@ -45,15 +45,42 @@ public interface RangerPolicyEvaluator extends Comparable<RangerPolicyEvaluator>
 
 	Map<String, RangerConditionEvaluator> getConditionEvaluators();
 
+	/**
+	 * @return true if the policy has custom conditions to evaluate; unlike getConditionEvaluators(), doesn't
+	 *         initialize an evaluator initialized on demand
+	 */
+	boolean hasConditions();
+
 	int getEvalOrder();
 
+	/**
+	 * @return counts of evaluate() calls on this evaluator; null unless the engine options ask for them to be collected
+	 */
+	RangerPolicyEvaluatorStats getStats();
+
 	void evaluate(RangerAccessRequest request, RangerAccessResult result);
 
 	boolean isMatch(RangerAccessResource resource);
 
+	/**
+	 * @return true if the resource matches the policy or, as for ANY access, its values match the leading resource
+	 *         levels of the policy
+	 */
+	boolean isMatchOrHeadMatch(RangerAccessResource resource);
+
+	/**
+	 * @return true if the policy matches all values of the given resources, taken as literal values
+	 */
+	boolean isMatch(Map<String, RangerPolicyResource> resources);
+
 	boolean isSingleAndExactMatch(RangerAccessResource resource);
 
 	boolean isAccessAllowed(RangerAccessResource resource, String user, Set<String> userGroups, String accessType);
 
 	boolean isAccessAllowed(Map<String, RangerPolicyResource> resources, String user, Set<String> userGroups, String accessType);
+
+	/**
+	 * @return true if the policy allows the access to the user or groups, on its resources; conditions are ignored
+	 */
+	boolean isAccessAllowed(String user, Set<String> userGroups, String accessType);
 }
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyevaluator;
+
+
+/**
+ * Counts of evaluate() calls on a policy evaluator: how many were made, how many matched the resource, how many
+ * allowed the access, how many completed the result (both access and audit determined, which ends the evaluation
+ * of a request) and how long they took.
+ *
+ * Counters are updated without synchronization, to keep the cost off the evaluation path; concurrent updates can be
+ * lost, so the counts are approximate. That is good enough to compare evaluators with one another.
+ */
+public class RangerPolicyEvaluatorStats {
+	private long evaluationCount = 0;
+	private long matchCount      = 0;
+	private long allowedCount    = 0;
+	private long completedCount  = 0;
+	private long evalTimeNanos   = 0;
+
+	public void recordEvaluation(boolean isMatched, boolean isAllowed, boolean isCompleted, long timeNanos) {
+		evaluationCount++;
+		evalTimeNanos += timeNanos;
+
+		if(isMatched) {
+			matchCount++;
+		}
+
+		if(isAllowed) {
+			allowedCount++;
+		}
+
+		if(isCompleted) {
+			completedCount++;
+		}
+	}
+
+	public long getEvaluationCount() {
+		return evaluationCount;
+	}
+
+	public long getMatchCount() {
+		return matchCount;
+	}
+
+	public long getAllowedCount() {
+		return allowedCount;
+	}
+
+	public long getCompletedCount() {
+		return completedCount;
+	}
+
+	public long getEvalTimeNanos() {
+		return evalTimeNanos;
+	}
+
+	/**
+	 * Halves the counts, so that recent evaluations weigh more than older ones.
+	 */
+	public void decay() {
+		evaluationCount /= 2;
+		matchCount      /= 2;
+		allowedCount    /= 2;
+		completedCount  /= 2;
+		evalTimeNanos   /= 2;
+	}
+
+	@Override
+	public String toString( ) {
+		StringBuilder sb = new StringBuilder();
+
+		toString(sb);
+
+		return sb.toString();
+	}
+
+	public StringBuilder toString(StringBuilder sb) {
+		sb.append("RangerPolicyEvaluatorStats={");
+
+		sb.append("evaluationCount={").append(evaluationCount).append("} ");
+		sb.append("matchCount={").append(matchCount).append("} ");
+		sb.append("allowedCount={").append(allowedCount).append("} ");
+		sb.append("completedCount={").append(completedCount).append("} ");
+		sb.append("evalTimeNanos={").append(evalTimeNanos).append("} ");
+
+		sb.append("}");
+
+		return sb;
+	}
+}
@@ -52,6 +52,8 @@ public abstract class RangerAbstractResourceMatcher implements RangerResourceMat
 	protected boolean      policyIsExcludes = false;
 	protected boolean      isMatchAny       = false;
 
+	protected List<RangerResourceValueMatcher> policyValueMatchers = null;
+
 	@Override
 	public void init(Map<String, String> options, RangerPolicyResource policyResource) {
 		if(LOG.isDebugEnabled()) {
@@ -85,11 +87,26 @@ public abstract class RangerAbstractResourceMatcher implements RangerResourceMat
 			isMatchAny = true;
 		}
 
+		policyValueMatchers = new ArrayList<RangerResourceValueMatcher>(policyValues.size());
+
+		if(! isMatchAny) {
+			for(String policyValue : policyValues) {
+				policyValueMatchers.add(compileValueMatcher(policyValue, policyResource));
+			}
+		}
+
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerAbstractResourceMatcher.init(" + resourceDef + ", " + policyResource + ")");
 		}
 	}
 
+	/**
+	 * Called once for each policy value from init(), after the options have been read.
+	 */
+	protected RangerResourceValueMatcher compileValueMatcher(String policyValue, RangerPolicyResource policyResource) {
+		return RangerResourceValueMatcher.compile(policyValue, optIgnoreCase, optWildCard);
+	}
+
 	@Override
 	public boolean isSingleAndExactMatch(String resource) {
 		if(LOG.isDebugEnabled()) {
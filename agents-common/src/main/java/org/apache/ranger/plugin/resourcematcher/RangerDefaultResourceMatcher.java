@@ -20,9 +20,6 @@
 package org.apache.ranger.plugin.resourcematcher;
 
 
-import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOCase;
-import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -41,14 +38,8 @@ public class RangerDefaultResourceMatcher extends RangerAbstractResourceMatcher
 		if(resource == null || isMatchAny) {
 			ret = isMatchAny;
 		} else {
-			for(String policyValue : policyValues) {
-				if(optWildCard) {
-					ret = optIgnoreCase ? FilenameUtils.wildcardMatch(resource, policyValue, IOCase.INSENSITIVE)
-										: FilenameUtils.wildcardMatch(resource, policyValue, IOCase.SENSITIVE);
-				} else {
-					ret = optIgnoreCase ? StringUtils.equalsIgnoreCase(resource, policyValue)
-										: StringUtils.equals(resource, policyValue);
-				}
+			for(RangerResourceValueMatcher policyValueMatcher : policyValueMatchers) {
+				ret = policyValueMatcher.isMatch(resource);
 
 				if(ret) {
 					break;
@@ -20,14 +20,8 @@
 package org.apache.ranger.plugin.resourcematcher;
 
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOCase;
-import org.apache.commons.lang.ArrayUtils;
-import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
@@ -41,7 +35,6 @@ public class RangerPathResourceMatcher extends RangerAbstractResourceMatcher {
 
 	private boolean      policyIsRecursive    = false;
 	private char         pathSeparatorChar    = DEFAULT_PATH_SEPERATOR_CHAR;
-	private List<String> policyValuesForMatch = null;
 
 	@Override
 	public void init(Map<String, String> options, RangerPolicyResource policyResource) {
@@ -54,23 +47,32 @@ public class RangerPathResourceMatcher extends RangerAbstractResourceMatcher {
 		policyIsRecursive = policyResource == null ? false : policyResource.getIsRecursive();
 		pathSeparatorChar = getCharOption(OPTION_PATH_SEPERATOR, DEFAULT_PATH_SEPERATOR_CHAR);
 
-		if(policyIsRecursive && optWildCard && !isMatchAny) {
-			policyValuesForMatch = new ArrayList<String>();
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPathResourceMatcher.init(" + options + ", " + policyResource + ")");
+		}
+	}
 
-			for(String policyValue : policyValues) {
-				if(policyValue.charAt(policyValue.length() - 1) == pathSeparatorChar) {
-					policyValuesForMatch.add(policyValue + WILDCARD_ASTERISK);
-				} else {
-					policyValuesForMatch.add(policyValue);
-				}
+	@Override
+	protected RangerResourceValueMatcher compileValueMatcher(String policyValue, RangerPolicyResource policyResource) {
+		// called from super.init(), before policyIsRecursive and pathSeparatorChar are initialized
+		boolean isRecursive   = policyResource == null ? false : policyResource.getIsRecursive();
+		char    separatorChar = getCharOption(OPTION_PATH_SEPERATOR, DEFAULT_PATH_SEPERATOR_CHAR);
+
+		RangerResourceValueMatcher ret;
+
+		if(isRecursive && optWildCard) {
+			if(policyValue.charAt(policyValue.length() - 1) == separatorChar) {
+				policyValue += WILDCARD_ASTERISK;
 			}
+
+			ret = RangerResourceValueMatcher.compileRecursivePath(policyValue, optIgnoreCase, separatorChar);
+		} else if(isRecursive) {
+			ret = RangerResourceValueMatcher.compileStartsWith(policyValue, optIgnoreCase);
 		} else {
-			policyValuesForMatch = policyValues;
+			ret = RangerResourceValueMatcher.compile(policyValue, optIgnoreCase, optWildCard);
 		}
 
-		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerPathResourceMatcher.init(" + options + ", " + policyResource + ")");
-		}
+		return ret;
 	}
 
 	@Override
@@ -84,20 +86,8 @@ public class RangerPathResourceMatcher extends RangerAbstractResourceMatcher {
 		if(resource == null || isMatchAny) {
 			ret = isMatchAny;
 		} else {
-			IOCase caseSensitivity = optIgnoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE;
-
-			for(String policyValue : policyValuesForMatch) {
-				if(policyIsRecursive && optWildCard) {
-					ret = isRecursiveWildCardMatch(resource, policyValue, pathSeparatorChar, caseSensitivity);
-				} else if(policyIsRecursive) {
-					ret = optIgnoreCase ? StringUtils.startsWithIgnoreCase(resource, policyValue)
-										: StringUtils.startsWith(resource, policyValue);
-				} else if(optWildCard) {
-					ret = FilenameUtils.wildcardMatch(resource, policyValue, caseSensitivity);
-				} else {
-					ret = optIgnoreCase ? StringUtils.equalsIgnoreCase(resource, policyValue)
-										: StringUtils.equals(resource, policyValue);
-				}
+			for(RangerResourceValueMatcher policyValueMatcher : policyValueMatchers) {
+				ret = policyValueMatcher.isMatch(resource);
 
 				if(ret) {
 					break;
@@ -116,48 +106,6 @@ public class RangerPathResourceMatcher extends RangerAbstractResourceMatcher {
 		return ret;
 	}
 
-	private boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath, char pathSeparatorChar, IOCase caseSensitivity) {
-		if(LOG.isDebugEnabled()) {
-			LOG.debug("==> RangerPathResourceMatcher.isRecursiveWildCardMatch(" + pathToCheck + ", " + wildcardPath + ", " + pathSeparatorChar + ")");
-		}
-
-		boolean ret = false;
-
-		if (! StringUtils.isEmpty(pathToCheck)) {
-			String[] pathElements = StringUtils.split(pathToCheck, pathSeparatorChar);
-
-			if(! ArrayUtils.isEmpty(pathElements)) {
-				StringBuilder sb = new StringBuilder();
-
-				if(pathToCheck.charAt(0) == pathSeparatorChar) {
-					sb.append(pathSeparatorChar); // preserve the initial pathSeparatorChar
-				}
-
-				for(String p : pathElements) {
-					sb.append(p);
-
-					ret = FilenameUtils.wildcardMatch(sb.toString(), wildcardPath, caseSensitivity) ;
-
-					if (ret) {
-						break;
-					}
-
-					sb.append(pathSeparatorChar) ;
-				}
-
-				sb = null;
-			} else { // pathToCheck consists of only pathSeparatorChar
-				ret = FilenameUtils.wildcardMatch(pathToCheck, wildcardPath, caseSensitivity) ;
-			}
-		}
-
-		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerPathResourceMatcher.isRecursiveWildCardMatch(" + pathToCheck + ", " + wildcardPath + ", " + pathSeparatorChar + "): " + ret);
-		}
-
-		return ret;
-	}
-
 	public StringBuilder toString(StringBuilder sb) {
 		sb.append("RangerPathResourceMatcher={");
 
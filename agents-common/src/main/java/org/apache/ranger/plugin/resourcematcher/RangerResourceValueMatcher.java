@@ -0,0 +1,482 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.resourcematcher;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+
+/**
+ * Matcher for a single policy value, compiled once when the resource matcher is initialized.
+ *
+ * Wildcards have the same semantics as FilenameUtils.wildcardMatch(): '*' matches zero or more characters
+ * and '?' matches exactly one character. Case-insensitive comparison follows String.equalsIgnoreCase();
+ * the policy value is folded at compile time, so only the characters of the resource are folded per match.
+ *
+ * FilenameUtils.wildcardMatch() fails to match some inputs when '*' is followed by '?' (like "a*?c" and "abc");
+ * such values are still matched with FilenameUtils, so that compiling a policy never grants additional access.
+ */
+public abstract class RangerResourceValueMatcher {
+	public static final char WILDCARD_ASTERISK = '*';
+	public static final char WILDCARD_QUESTION = '?';
+
+	protected final String  value;
+	protected final boolean ignoreCase;
+	protected final char[]  pattern;
+
+	protected RangerResourceValueMatcher(String value, boolean ignoreCase) {
+		this.value      = value;
+		this.ignoreCase = ignoreCase;
+		this.pattern    = fold(value.toCharArray(), ignoreCase);
+	}
+
+	public abstract boolean isMatch(String resource);
+
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the most specific matcher for the given policy value
+	 */
+	public static RangerResourceValueMatcher compile(String value, boolean ignoreCase, boolean wildCard) {
+		if(! wildCard || ! hasWildcard(value)) {
+			return new ExactMatcher(value, ignoreCase);
+		}
+
+		String glob     = collapseAsterisks(value);
+		int    len      = glob.length();
+		int    idxAny   = glob.indexOf(WILDCARD_QUESTION);
+		int    idxFirst = glob.indexOf(WILDCARD_ASTERISK);
+		int    idxLast  = glob.lastIndexOf(WILDCARD_ASTERISK);
+
+		if(idxAny == -1) {
+			if(idxFirst == len - 1) { // abc*
+				return new StartsWithMatcher(glob.substring(0, len - 1), ignoreCase);
+			} else if(idxLast == 0) { // *abc
+				return new EndsWithMatcher(glob.substring(1), ignoreCase);
+			} else if(idxFirst == 0 && idxLast == len - 1 && glob.indexOf(WILDCARD_ASTERISK, 1) == idxLast) { // *abc*
+				return new ContainsMatcher(glob.substring(1, len - 1), ignoreCase);
+			}
+		}
+
+		return newWildcardMatcher(glob, ignoreCase);
+	}
+
+	public static RangerResourceValueMatcher compileStartsWith(String value, boolean ignoreCase) {
+		return new StartsWithMatcher(value, ignoreCase);
+	}
+
+	/**
+	 * Recursive path match: true if the path, or any of its parent paths, matches the wildcard value.
+	 * Repeated separators in the path are treated as one and a trailing separator is ignored.
+	 */
+	public static RangerResourceValueMatcher compileRecursivePath(String value, boolean ignoreCase, char pathSeparatorChar) {
+		String glob = collapseAsterisks(value);
+
+		if(glob.length() < RecursivePathMatcher.MAX_PATTERN_LENGTH && !isStarFollowedByAnyChar(glob)) {
+			return new RecursivePathMatcher(glob, ignoreCase, pathSeparatorChar);
+		}
+
+		return new LongRecursivePathMatcher(newWildcardMatcher(glob, ignoreCase), pathSeparatorChar);
+	}
+
+	private static WildcardMatcher newWildcardMatcher(String glob, boolean ignoreCase) {
+		return isStarFollowedByAnyChar(glob) ? new FilenameUtilsMatcher(glob, ignoreCase) : new GlobMatcher(glob, ignoreCase);
+	}
+
+	private static boolean isStarFollowedByAnyChar(String glob) {
+		return glob.indexOf("" + WILDCARD_ASTERISK + WILDCARD_QUESTION) != -1;
+	}
+
+	/**
+	 * Folds the case of a character such that folded characters are equal if and only if the characters are equal
+	 * by String.equalsIgnoreCase(). Values compared case-insensitively elsewhere, like in an index of policy values,
+	 * must be folded with this so that they agree with the matchers.
+	 */
+	public static char fold(char ch) {
+		return Character.toLowerCase(Character.toUpperCase(ch));
+	}
+
+	/**
+	 * @return value with each character folded by fold(char)
+	 */
+	public static String fold(String value) {
+		return value == null ? null : new String(fold(value.toCharArray(), true));
+	}
+
+	private static char[] fold(char[] chars, boolean ignoreCase) {
+		if(ignoreCase) {
+			for(int i = 0; i < chars.length; i++) {
+				chars[i] = fold(chars[i]);
+			}
+		}
+
+		return chars;
+	}
+
+	private static boolean hasWildcard(String value) {
+		return value.indexOf(WILDCARD_ASTERISK) != -1 || value.indexOf(WILDCARD_QUESTION) != -1;
+	}
+
+	private static String collapseAsterisks(String value) {
+		if(value.indexOf("**") == -1) {
+			return value;
+		}
+
+		StringBuilder sb = new StringBuilder(value.length());
+
+		for(int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+
+			if(ch == WILDCARD_ASTERISK && i > 0 && value.charAt(i - 1) == WILDCARD_ASTERISK) {
+				continue;
+			}
+
+			sb.append(ch);
+		}
+
+		return sb.toString();
+	}
+
+	protected final boolean regionMatches(CharSequence str, int offset, char[] chars, int from, int to) {
+		if(ignoreCase) {
+			for(int i = from; i < to; i++) {
+				if(fold(str.charAt(offset++)) != chars[i]) {
+					return false;
+				}
+			}
+		} else {
+			for(int i = from; i < to; i++) {
+				if(str.charAt(offset++) != chars[i]) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "={value={" + value + "} ignoreCase={" + ignoreCase + "}}";
+	}
+
+	static final class ExactMatcher extends RangerResourceValueMatcher {
+		ExactMatcher(String value, boolean ignoreCase) {
+			super(value, ignoreCase);
+		}
+
+		@Override
+		public boolean isMatch(String resource) {
+			return resource.length() == pattern.length && regionMatches(resource, 0, pattern, 0, pattern.length);
+		}
+	}
+
+	static final class StartsWithMatcher extends RangerResourceValueMatcher {
+		StartsWithMatcher(String value, boolean ignoreCase) {
+			super(value, ignoreCase);
+		}
+
+		@Override
+		public boolean isMatch(String resource) {
+			return resource.length() >= pattern.length && regionMatches(resource, 0, pattern, 0, pattern.length);
+		}
+	}
+
+	static final class EndsWithMatcher extends RangerResourceValueMatcher {
+		EndsWithMatcher(String value, boolean ignoreCase) {
+			super(value, ignoreCase);
+		}
+
+		@Override
+		public boolean isMatch(String resource) {
+			int offset = resource.length() - pattern.length;
+
+			return offset >= 0 && regionMatches(resource, offset, pattern, 0, pattern.length);
+		}
+	}
+
+	static final class ContainsMatcher extends RangerResourceValueMatcher {
+		ContainsMatcher(String value, boolean ignoreCase) {
+			super(value, ignoreCase);
+		}
+
+		@Override
+		public boolean isMatch(String resource) {
+			int maxOffset = resource.length() - pattern.length;
+
+			for(int offset = 0; offset <= maxOffset; offset++) {
+				if(regionMatches(resource, offset, pattern, 0, pattern.length)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+
+	abstract static class WildcardMatcher extends RangerResourceValueMatcher {
+		WildcardMatcher(String value, boolean ignoreCase) {
+			super(value, ignoreCase);
+		}
+
+		@Override
+		public boolean isMatch(String resource) {
+			return isMatch(resource, resource.length());
+		}
+
+		abstract boolean isMatch(CharSequence str, int length);
+	}
+
+	static final class GlobMatcher extends WildcardMatcher {
+		GlobMatcher(String value, boolean ignoreCase) {
+			super(value, ignoreCase);
+		}
+
+		/*
+		 * greedy match with backtracking to the last '*' seen; no allocation and O(length * pattern.length) worst case
+		 */
+		@Override
+		boolean isMatch(CharSequence str, int length) {
+			int idxStr      = 0;
+			int idxPattern  = 0;
+			int idxLastStar = -1;
+			int idxStarStr  = 0;
+
+			while(idxStr < length) {
+				char pch = idxPattern < pattern.length ? pattern[idxPattern] : 0;
+
+				if(idxPattern < pattern.length && pch != WILDCARD_ASTERISK && (pch == WILDCARD_QUESTION || pch == foldChar(str.charAt(idxStr)))) {
+					idxStr++;
+					idxPattern++;
+				} else if(idxPattern < pattern.length && pch == WILDCARD_ASTERISK) {
+					idxLastStar = idxPattern++;
+					idxStarStr  = idxStr;
+				} else if(idxLastStar != -1) {
+					idxPattern = idxLastStar + 1;
+					idxStr     = ++idxStarStr;
+				} else {
+					return false;
+				}
+			}
+
+			while(idxPattern < pattern.length && pattern[idxPattern] == WILDCARD_ASTERISK) {
+				idxPattern++;
+			}
+
+			return idxPattern == pattern.length;
+		}
+
+		private char foldChar(char ch) {
+			return ignoreCase ? fold(ch) : ch;
+		}
+	}
+
+	static final class FilenameUtilsMatcher extends WildcardMatcher {
+		private final IOCase caseSensitivity;
+
+		FilenameUtilsMatcher(String value, boolean ignoreCase) {
+			super(value, ignoreCase);
+
+			this.caseSensitivity = ignoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE;
+		}
+
+		@Override
+		boolean isMatch(CharSequence str, int length) {
+			return FilenameUtils.wildcardMatch(str.subSequence(0, length).toString(), value, caseSensitivity);
+		}
+	}
+
+	/*
+	 * Bit-parallel simulation of the glob automaton: bit i of the state is set when the first i characters of
+	 * the pattern match the input consumed so far. The path is normalized while it is being scanned and the
+	 * accept state is checked at the end of each path element, so all parent paths are tried in a single pass.
+	 */
+	static final class RecursivePathMatcher extends RangerResourceValueMatcher {
+		static final int MAX_PATTERN_LENGTH = Long.SIZE - 1;
+
+		private final char        pathSeparatorChar;
+		private final GlobMatcher globMatcher;
+		private final long        starMask;
+		private final long        anyCharMask;
+		private final long[]      asciiCharMasks = new long[128];
+		private final long        initialState;
+		private final long        acceptState;
+
+		RecursivePathMatcher(String value, boolean ignoreCase, char pathSeparatorChar) {
+			super(value, ignoreCase);
+
+			long starMask    = 0;
+			long anyCharMask = 0;
+
+			for(int i = 0; i < pattern.length; i++) {
+				char ch = pattern[i];
+
+				if(ch == WILDCARD_ASTERISK) {
+					starMask |= (1L << i);
+				} else if(ch == WILDCARD_QUESTION) {
+					anyCharMask |= (1L << i);
+				} else if(ch < asciiCharMasks.length) {
+					asciiCharMasks[ch] |= (1L << i);
+				}
+			}
+
+			this.pathSeparatorChar = pathSeparatorChar;
+			this.globMatcher       = new GlobMatcher(value, ignoreCase);
+			this.starMask          = starMask;
+			this.anyCharMask       = anyCharMask;
+			this.initialState      = closure(1L);
+			this.acceptState       = 1L << pattern.length;
+		}
+
+		@Override
+		public boolean isMatch(String path) {
+			final int length = path.length();
+
+			if(length == 0) {
+				return false;
+			}
+
+			long    state      = initialState;
+			boolean hasElement = false;
+			int     idx        = 0;
+
+			if(path.charAt(0) == pathSeparatorChar) { // preserve the initial pathSeparatorChar
+				state = step(state, pathSeparatorChar);
+			}
+
+			while(idx < length) {
+				while(idx < length && path.charAt(idx) == pathSeparatorChar) {
+					idx++;
+				}
+
+				if(idx == length) {
+					break;
+				}
+
+				if(hasElement) {
+					state = step(state, pathSeparatorChar);
+				}
+
+				hasElement = true;
+
+				while(idx < length && path.charAt(idx) != pathSeparatorChar) {
+					state = step(state, path.charAt(idx++));
+				}
+
+				if((state & acceptState) != 0) {
+					return true;
+				}
+
+				if(state == 0) {
+					return false;
+				}
+			}
+
+			// path consists of only pathSeparatorChar
+			return !hasElement && globMatcher.isMatch(path);
+		}
+
+		private long closure(long state) {
+			// consecutive '*' are collapsed at compile time, so a single shift is enough
+			return state | ((state & starMask) << 1);
+		}
+
+		private long step(long state, char ch) {
+			char fch = ignoreCase ? fold(ch) : ch;
+
+			return closure(((state & (charMask(fch) | anyCharMask)) << 1) | (state & starMask));
+		}
+
+		private long charMask(char ch) {
+			if(ch < asciiCharMasks.length) {
+				return asciiCharMasks[ch];
+			}
+
+			long ret = 0;
+
+			for(int i = 0; i < pattern.length; i++) {
+				if(pattern[i] == ch) {
+					ret |= (1L << i);
+				}
+			}
+
+			return ret;
+		}
+	}
+
+	/*
+	 * for patterns not handled by RecursivePathMatcher: normalizes the path once, then matches each parent path
+	 */
+	static final class LongRecursivePathMatcher extends RangerResourceValueMatcher {
+		private final char            pathSeparatorChar;
+		private final WildcardMatcher globMatcher;
+
+		LongRecursivePathMatcher(WildcardMatcher globMatcher, char pathSeparatorChar) {
+			super(globMatcher.getValue(), globMatcher.ignoreCase);
+
+			this.pathSeparatorChar = pathSeparatorChar;
+			this.globMatcher       = globMatcher;
+		}
+
+		@Override
+		public boolean isMatch(String path) {
+			final int length = path.length();
+
+			if(length == 0) {
+				return false;
+			}
+
+			StringBuilder normalizedPath = new StringBuilder(length);
+			boolean       hasElement     = false;
+			int           idx            = 0;
+
+			if(path.charAt(0) == pathSeparatorChar) {
+				normalizedPath.append(pathSeparatorChar);
+			}
+
+			while(idx < length) {
+				while(idx < length && path.charAt(idx) == pathSeparatorChar) {
+					idx++;
+				}
+
+				if(idx == length) {
+					break;
+				}
+
+				if(hasElement) {
+					normalizedPath.append(pathSeparatorChar);
+				}
+
+				hasElement = true;
+
+				while(idx < length && path.charAt(idx) != pathSeparatorChar) {
+					normalizedPath.append(path.charAt(idx++));
+				}
+
+				if(globMatcher.isMatch(normalizedPath, normalizedPath.length())) {
+					return true;
+				}
+			}
+
+			return !hasElement && globMatcher.isMatch(path);
+		}
+	}
+}
@@ -21,6 +21,7 @@ package org.apache.ranger.plugin.service;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
@@ -33,6 +34,7 @@ import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestSampler;
 import org.apache.ranger.plugin.policyengine.RangerAccessResult;
 import org.apache.ranger.plugin.policyengine.RangerAccessResultProcessor;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
@@ -44,6 +46,9 @@ import org.apache.ranger.plugin.util.GrantRevokeRequest;
 import org.apache.ranger.plugin.util.PolicyRefresher;
 import org.apache.ranger.plugin.util.ServicePolicies;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 
 public class RangerBasePlugin {
 	private static final Log LOG = LogFactory.getLog(RangerBasePlugin.class);
@@ -52,9 +57,13 @@ public class RangerBasePlugin {
 	private String                    appId        = null;
 	private String                    serviceName  = null;
 	private PolicyRefresher           refresher    = null;
-	private RangerPolicyEngine        policyEngine = null;
+	private volatile RangerPolicyEngine policyEngine = null;
 	private RangerPolicyEngineOptions policyEngineOptions = new RangerPolicyEngineOptions();
 	private RangerAccessResultProcessor resultProcessor = null;
+	private RangerAccessRequestSampler  requestSampler  = null;
+	private volatile long               lastBuildTimeMs        = 0;
+	private volatile long               lastWarmUpTimeMs       = 0;
+	private volatile int                lastWarmUpRequestCount = 0;
 
 
 	public RangerBasePlugin(String serviceType, String appId) {
@@ -98,10 +107,28 @@ public class RangerBasePlugin {
 
 		serviceName = RangerConfiguration.getInstance().get(propertyPrefix + ".service.name");
 
-		policyEngineOptions.evaluatorType           = RangerConfiguration.getInstance().get(propertyPrefix + ".policyengine.option.evaluator.type", RangerPolicyEvaluator.EVALUATOR_TYPE_CACHED);
-		policyEngineOptions.cacheAuditResults       = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.cache.audit.results", true);
-		policyEngineOptions.disableContextEnrichers = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.disable.context.enrichers", false);
-		policyEngineOptions.disableCustomConditions = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.disable.custom.conditions", false);
+		policyEngineOptions.evaluatorType              = RangerConfiguration.getInstance().get(propertyPrefix + ".policyengine.option.evaluator.type", RangerPolicyEvaluator.EVALUATOR_TYPE_CACHED);
+		policyEngineOptions.cacheAuditResults          = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.cache.audit.results", true);
+		policyEngineOptions.disableContextEnrichers    = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.disable.context.enrichers", false);
+		policyEngineOptions.disableCustomConditions    = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.disable.custom.conditions", false);
+		policyEngineOptions.disableSharedConditions    = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.disable.shared.conditions", false);
+		policyEngineOptions.disableTrieLookupPrefilter = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.disable.trie.lookup.prefilter", false);
+		policyEngineOptions.disablePrincipalIndex      = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.disable.principal.index", false);
+		policyEngineOptions.disableHeadMatchCache      = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.disable.head.match.cache", false);
+		policyEngineOptions.lazyEvaluators             = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.lazy.evaluators", false);
+		policyEngineOptions.cacheAccessDecisions       = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.cache.access.decisions", false);
+		policyEngineOptions.cacheAllowedPolicies       = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.cache.allowed.policies", false);
+		policyEngineOptions.batchParallelThreshold     = RangerConfiguration.getInstance().getInt(propertyPrefix + ".policyengine.option.batch.parallel.threshold", 0);
+		policyEngineOptions.batchParallelism           = RangerConfiguration.getInstance().getInt(propertyPrefix + ".policyengine.option.batch.parallelism", Runtime.getRuntime().availableProcessors());
+		policyEngineOptions.collectEvaluatorStats      = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policyengine.option.collect.evaluator.stats", false);
+		// with reordering, the policy id audited for an access allowed by several policies can change between reorders
+		policyEngineOptions.evaluatorReorderIntervalMs = RangerConfiguration.getInstance().getLong(propertyPrefix + ".policyengine.option.evaluator.reorder.interval.ms", 0);
+		policyEngineOptions.asyncPoolSize              = RangerConfiguration.getInstance().getInt(propertyPrefix + ".policyengine.option.async.pool.size", Runtime.getRuntime().availableProcessors());
+
+		int warmUpSampleSize     = RangerConfiguration.getInstance().getInt(propertyPrefix + ".policyengine.warmup.sample.size", 256);
+		int warmUpSampleInterval = RangerConfiguration.getInstance().getInt(propertyPrefix + ".policyengine.warmup.sample.interval", 64);
+
+		requestSampler = warmUpSampleSize > 0 ? new RangerAccessRequestSampler(warmUpSampleSize, warmUpSampleInterval) : null;
 
 
 		RangerAdminClient admin = createAdminClient(propertyPrefix);
@@ -110,12 +137,52 @@ public class RangerBasePlugin {
 		refresher.startRefresher();
 	}
 
-	public void setPolicies(ServicePolicies policies) {
-		RangerPolicyEngine policyEngine = new RangerPolicyEngineImpl(policies, policyEngineOptions);
+	/*
+	 * Builds a policy engine for the given policies in the calling thread, which is the policy refresher thread except
+	 * at startup, and warms it up by evaluating recently sampled requests. Only then is the engine published: until
+	 * then, requests are evaluated with the current engine, with its caches intact.
+	 */
+	public synchronized void setPolicies(ServicePolicies policies) {
+		RangerPolicyEngine     currentEngine  = this.policyEngine;
+		RangerPolicyEngineImpl previousEngine = currentEngine instanceof RangerPolicyEngineImpl ? (RangerPolicyEngineImpl)currentEngine : null;
+		RangerPolicyEngineImpl policyEngine   = new RangerPolicyEngineImpl(policies, policyEngineOptions, previousEngine);
+
+		RangerAccessRequestSampler requestSampler    = this.requestSampler;
+		long                       warmUpStartTimeMs = System.currentTimeMillis();
+		int                        warmUpCount       = (requestSampler != null && currentEngine != null) ? requestSampler.warmUp(policyEngine) : 0;
+
+		lastBuildTimeMs        = policyEngine.getBuildTimeMs();
+		lastWarmUpTimeMs       = System.currentTimeMillis() - warmUpStartTimeMs;
+		lastWarmUpRequestCount = warmUpCount;
+
+		if(LOG.isInfoEnabled()) {
+			LOG.info("RangerBasePlugin.setPolicies(" + serviceName + ", policyVersion=" + policyEngine.getPolicyVersion() + "): policy engine built in "
+					 + lastBuildTimeMs + "ms; reused " + policyEngine.getReusedEvaluatorCount() + " of " + policyEngine.getPolicyEvaluators().size() + " policy evaluators; "
+					 + "warmed up with " + lastWarmUpRequestCount + " requests in " + lastWarmUpTimeMs + "ms");
+		}
 
+		// the access decision cache belongs to the engine, so decisions made with earlier policies are dropped along with it
 		this.policyEngine = policyEngine;
 	}
 
+	/**
+	 * @return time taken to build the policy engine for the last policies set
+	 */
+	public long getLastBuildTimeMs() {
+		return lastBuildTimeMs;
+	}
+
+	/**
+	 * @return time taken to warm up the policy engine for the last policies set, before it replaced the previous one
+	 */
+	public long getLastWarmUpTimeMs() {
+		return lastWarmUpTimeMs;
+	}
+
+	public int getLastWarmUpRequestCount() {
+		return lastWarmUpRequestCount;
+	}
+
 	public void cleanup() {
 		PolicyRefresher refresher = this.refresher;
 
@@ -148,6 +215,7 @@ public class RangerBasePlugin {
 		RangerPolicyEngine policyEngine = this.policyEngine;
 
 		if(policyEngine != null) {
+			sampleRequest(request);
 			enrichRequest(request, policyEngine);
 
 			return policyEngine.isAccessAllowed(request, resultProcessor);
@@ -156,10 +224,27 @@ public class RangerBasePlugin {
 		return null;
 	}
 
+	/*
+	 * for callers that make many access checks: the given result is reset and updated, instead of a new one created
+	 */
+	public RangerAccessResult isAccessAllowed(RangerAccessRequest request, RangerAccessResult result, RangerAccessResultProcessor resultProcessor) {
+		RangerPolicyEngine policyEngine = this.policyEngine;
+
+		if(policyEngine != null) {
+			sampleRequest(request);
+			enrichRequest(request, policyEngine);
+
+			return policyEngine.isAccessAllowed(request, result, resultProcessor);
+		}
+
+		return null;
+	}
+
 	public Collection<RangerAccessResult> isAccessAllowed(Collection<RangerAccessRequest> requests, RangerAccessResultProcessor resultProcessor) {
 		RangerPolicyEngine policyEngine = this.policyEngine;
 
 		if(policyEngine != null) {
+			sampleRequests(requests);
 			enrichRequests(requests, policyEngine);
 
 			return policyEngine.isAccessAllowed(requests, resultProcessor);
@@ -168,6 +253,51 @@ public class RangerBasePlugin {
 		return null;
 	}
 
+	public ListenableFuture<RangerAccessResult> isAccessAllowedAsync(RangerAccessRequest request) {
+		return isAccessAllowedAsync(request, resultProcessor);
+	}
+
+	public ListenableFuture<Collection<RangerAccessResult>> isAccessAllowedAsync(Collection<RangerAccessRequest> requests) {
+		return isAccessAllowedAsync(requests, resultProcessor);
+	}
+
+	/*
+	 * for callers that must not block, like event-loop threads: context enrichers, evaluation and audit are run in the
+	 * async executor of the policy engine; see setAsyncExecutor()
+	 */
+	public ListenableFuture<RangerAccessResult> isAccessAllowedAsync(RangerAccessRequest request, RangerAccessResultProcessor resultProcessor) {
+		RangerPolicyEngine policyEngine = this.policyEngine;
+
+		if(policyEngine != null) {
+			sampleRequest(request);
+
+			return policyEngine.isAccessAllowedAsync(request, resultProcessor);
+		}
+
+		return Futures.immediateFuture(null);
+	}
+
+	public ListenableFuture<Collection<RangerAccessResult>> isAccessAllowedAsync(Collection<RangerAccessRequest> requests, RangerAccessResultProcessor resultProcessor) {
+		RangerPolicyEngine policyEngine = this.policyEngine;
+
+		if(policyEngine != null) {
+			sampleRequests(requests);
+
+			return policyEngine.isAccessAllowedAsync(requests, resultProcessor);
+		}
+
+		return Futures.immediateFuture(null);
+	}
+
+	/**
+	 * Sets the executor to run isAccessAllowedAsync() calls in, for policy engines built afterwards; call it before
+	 * init(). By default, a pool shared by all plugins is used; its size is set by property
+	 * ranger.plugin.&lt;serviceType&gt;.policyengine.option.async.pool.size.
+	 */
+	public void setAsyncExecutor(Executor asyncExecutor) {
+		policyEngineOptions.asyncExecutor = asyncExecutor;
+	}
+
 	public RangerAccessResult createAccessResult(RangerAccessRequest request) {
 		RangerPolicyEngine policyEngine = this.policyEngine;
 
@@ -271,6 +401,24 @@ public class RangerBasePlugin {
 		return ret;
 	}
 
+	private void sampleRequest(RangerAccessRequest request) {
+		RangerAccessRequestSampler requestSampler = this.requestSampler;
+
+		if(requestSampler != null) {
+			requestSampler.sample(request);
+		}
+	}
+
+	private void sampleRequests(Collection<RangerAccessRequest> requests) {
+		RangerAccessRequestSampler requestSampler = this.requestSampler;
+
+		if(requestSampler != null && requests != null) {
+			for(RangerAccessRequest request : requests) {
+				requestSampler.sample(request);
+			}
+		}
+	}
+
 	private void enrichRequest(RangerAccessRequest request, RangerPolicyEngine policyEngine) {
 		if(request == null || policyEngine == null) {
 			return;
@@ -124,6 +124,14 @@ public class EmbeddedServiceDefsUtil {
 		return getId(kmsServiceDef);
 	}
 	
+	/**
+	 * Loads the embedded service-def of the given type, without looking it up in or adding it to a store. Each call
+	 * returns a new instance, which the caller can modify.
+	 */
+	public RangerServiceDef getEmbeddedServiceDef(String serviceType) throws Exception {
+		return loadEmbeddedServiceDef(serviceType);
+	}
+
 	private long getId(RangerServiceDef serviceDef) {
 		return serviceDef == null || serviceDef.getId() == null ? -1 : serviceDef.getId().longValue();
 	}
@@ -167,7 +175,9 @@ public class EmbeddedServiceDefsUtil {
 
 		InputStreamReader reader = new InputStreamReader(inStream);
 
-		ret = gsonBuilder.fromJson(reader, RangerServiceDef.class);
+		Gson gson = gsonBuilder != null ? gsonBuilder : new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").create();
+
+		ret = gson.fromJson(reader, RangerServiceDef.class);
 
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> EmbeddedServiceDefsUtil.loadEmbeddedServiceDef(" + serviceType + ")");
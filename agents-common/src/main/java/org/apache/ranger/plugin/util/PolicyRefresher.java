@@ -29,6 +29,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.admin.client.RangerAdminClient;
+import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
 
 import com.google.gson.Gson;
@@ -38,16 +39,28 @@ import com.google.gson.GsonBuilder;
 public class PolicyRefresher extends Thread {
 	private static final Log LOG = LogFactory.getLog(PolicyRefresher.class);
 
+	public static final String CACHE_FORMAT_BINARY = "binary";
+	public static final String CACHE_FORMAT_JSON   = "json";
+
+	static final long STOP_WAIT_TIMEOUT_MS = 1000;
+
 	private final RangerBasePlugin  plugIn;
 	private final String            serviceType;
 	private final String            serviceName;
 	private final RangerAdminClient rangerAdmin;
 	private final String            cacheFile;
+	private final String            binaryCacheFile; // null when the cache is to be kept as JSON only
 	private final Gson              gson;
 
 	private long pollingIntervalMs = 30 * 1000;
+	private long longPollTimeoutMs = 30 * 1000; // 0 to poll without waiting in Ranger Admin for changes
 	private long lastKnownVersion  = -1;
 
+	private final boolean   isPolicyDeltaEnabled;
+	private ServicePolicies lastKnownPolicies = null; // all policies at lastKnownVersion, to apply deltas to
+
+	private volatile boolean isStopped = false;
+
 
 
 	public PolicyRefresher(RangerBasePlugin plugIn, String serviceType, String appId, String serviceName, RangerAdminClient rangerAdmin, long pollingIntervalMs, String cacheDir) {
@@ -71,6 +84,14 @@ public class PolicyRefresher extends Thread {
 
 		this.cacheFile = cacheDir == null ? null : (cacheDir + File.separator + cacheFilename);
 
+		String  cacheFormat   = RangerConfiguration.getInstance().get("ranger.plugin." + serviceType + ".policy.cache.format", CACHE_FORMAT_BINARY);
+		boolean isBinaryCache = !StringUtils.equalsIgnoreCase(cacheFormat, CACHE_FORMAT_JSON);
+
+		this.binaryCacheFile = this.cacheFile == null || !isBinaryCache ? null : (this.cacheFile.substring(0, this.cacheFile.length() - ".json".length()) + ".bin");
+
+		this.longPollTimeoutMs    = RangerConfiguration.getInstance().getLong("ranger.plugin." + serviceType + ".policy.longpoll.timeout.ms", longPollTimeoutMs);
+		this.isPolicyDeltaEnabled = RangerConfiguration.getInstance().getBoolean("ranger.plugin." + serviceType + ".policy.delta.enabled", true);
+
 		Gson gson = null;
 		try {
 			gson = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").setPrettyPrinting().create();
@@ -79,6 +100,9 @@ public class PolicyRefresher extends Thread {
 		}
 		this.gson = gson;
 
+		// a download in progress must not keep the JVM from exiting; see stopRefresher()
+		setDaemon(true);
+
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== PolicyRefresher(serviceName=" + serviceName + ").PolicyRefresher()");
 		}
@@ -126,6 +150,20 @@ public class PolicyRefresher extends Thread {
 		this.pollingIntervalMs = pollingIntervalMilliSeconds;
 	}
 
+	/**
+	 * @return the longest time Ranger Admin is asked to wait for a policy change, before returning no update
+	 */
+	public long getLongPollTimeoutMs() {
+		return longPollTimeoutMs;
+	}
+
+	/**
+	 * @param longPollTimeoutMs the longPollTimeoutMs to set; 0 to poll every pollingIntervalMs without waiting
+	 */
+	public void setLongPollTimeoutMs(long longPollTimeoutMs) {
+		this.longPollTimeoutMs = longPollTimeoutMs;
+	}
+
 
 	public void startRefresher() {
 		loadFromCache();
@@ -133,14 +171,26 @@ public class PolicyRefresher extends Thread {
 		super.start();
 	}
 
+	/**
+	 * Stops the refresher thread. Interrupting the thread doesn't abort a download in progress, which can take up to
+	 * longPollTimeoutMs while Ranger Admin waits for a policy change; so, instead of waiting for the download to
+	 * complete, this returns after waiting up to STOP_WAIT_TIMEOUT_MS. Policies downloaded after stopRefresher() are
+	 * discarded - neither cached nor given to the plugin.
+	 */
 	public void stopRefresher() {
+		isStopped = true;
+
 		super.interrupt();
 
-	    try {
-	        super.join();
-	      } catch (InterruptedException excp) {
-	        LOG.warn("PolicyRefresher(serviceName=" + serviceName + "): error while waiting for thread to exit", excp);
-	      }
+		try {
+			super.join(STOP_WAIT_TIMEOUT_MS);
+		} catch (InterruptedException excp) {
+			LOG.warn("PolicyRefresher(serviceName=" + serviceName + "): error while waiting for thread to exit", excp);
+		}
+
+		if(super.isAlive()) {
+			LOG.info("PolicyRefresher(serviceName=" + serviceName + "): policy download in progress; thread will exit once it completes");
+		}
 	}
 
 	public void run() {
@@ -148,12 +198,31 @@ public class PolicyRefresher extends Thread {
 			LOG.debug("==> PolicyRefresher(serviceName=" + serviceName + ").run()");
 		}
 
-		while(true) {
+		while(!isStopped) {
+			long sleepTimeMs = pollingIntervalMs;
+
 			try {
-				ServicePolicies svcPolicies = rangerAdmin.getServicePoliciesIfUpdated(lastKnownVersion);
+				long            startTimeMs = System.currentTimeMillis();
+				ServicePolicies svcPolicies = rangerAdmin.getServicePoliciesIfUpdated(lastKnownVersion, longPollTimeoutMs, isPolicyDeltaEnabled && lastKnownPolicies != null);
+
+				if(isStopped) {
+					LOG.info("PolicyRefresher(serviceName=" + serviceName + ").run(): stopped during policy download. Exiting thread");
+
+					break;
+				}
+
+				if(svcPolicies != null && svcPolicies.getBasePolicyVersion() != null) {
+					svcPolicies = applyDelta(svcPolicies);
+				}
 
 				boolean isUpdated = svcPolicies != null;
 
+				if(longPollTimeoutMs > 0) {
+					// Ranger Admin waited for a change: ask again right away. Versions that don't wait return early,
+					// and are polled every pollingIntervalMs as before
+					sleepTimeMs = isUpdated ? 0 : Math.max(0, pollingIntervalMs - (System.currentTimeMillis() - startTimeMs));
+				}
+
 				if(isUpdated) {
 					long newVersion = svcPolicies.getPolicyVersion() == null ? -1 : svcPolicies.getPolicyVersion().longValue();
 
@@ -167,7 +236,8 @@ public class PolicyRefresher extends Thread {
 
 					saveToCache(svcPolicies);
 
-		        	lastKnownVersion = newVersion;
+		        	lastKnownVersion  = newVersion;
+		        	lastKnownPolicies = svcPolicies;
 
 					plugIn.setPolicies(svcPolicies);
 				} else {
@@ -180,7 +250,11 @@ public class PolicyRefresher extends Thread {
 			}
 
 			try {
-				Thread.sleep(pollingIntervalMs);
+				if(sleepTimeMs > 0) {
+					Thread.sleep(sleepTimeMs);
+				} else if(Thread.interrupted()) {
+					throw new InterruptedException();
+				}
 			} catch(InterruptedException excp) {
 				LOG.info("PolicyRefresher(serviceName=" + serviceName + ").run(): interrupted! Exiting thread", excp);
 
@@ -193,7 +267,7 @@ public class PolicyRefresher extends Thread {
 		}
 	}
 
-	private void loadFromCache() {
+	void loadFromCache() {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> PolicyRefresher(serviceName=" + serviceName + ").loadFromCache()");
 		}
@@ -201,41 +275,45 @@ public class PolicyRefresher extends Thread {
 		RangerBasePlugin plugIn = this.plugIn;
 
 		if(plugIn != null) {
-	    	File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
+	    	File            cacheFile       = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
+	    	File            binaryCacheFile = StringUtils.isEmpty(this.binaryCacheFile) ? null : new File(this.binaryCacheFile);
+	    	ServicePolicies policies        = null;
+
+	    	boolean         isJsonUsable    = isReadable(cacheFile);
+
+	    	// the snapshot is used unless the JSON file is newer: for caches saved before snapshots, and when the last
+	    	// snapshot could not be saved. The JSON file saved with the snapshot, of the same time, is used when the
+	    	// snapshot can't be read; an older JSON file is not, as it might have policies long since changed
+	    	if(isReadable(binaryCacheFile)) {
+	    		if(isJsonUsable && cacheFile.lastModified() < binaryCacheFile.lastModified()) {
+	    			isJsonUsable = false;
+	    		}
+
+	    		if(!(isJsonUsable && cacheFile.lastModified() > binaryCacheFile.lastModified())) {
+	    			policies = loadFromBinaryCache(binaryCacheFile);
+	    		}
+	    	}
 
-	    	if(cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
-	    		Reader reader = null;
+	    	if(policies == null) {
+	    		if(isJsonUsable) {
+	    			policies = loadFromJsonCache(cacheFile);
+	    		} else {
+	    			LOG.warn("cache file does not exist, not readble or older than the snapshot '" + (cacheFile == null ? null : cacheFile.getAbsolutePath()) + "'");
+	    		}
+	    	}
 
-	    		try {
-		        	reader = new FileReader(cacheFile);
-
-			        ServicePolicies policies = gson.fromJson(reader, ServicePolicies.class);
-
-			        if(policies != null) {
-			        	if(!StringUtils.equals(serviceName, policies.getServiceName())) {
-			        		LOG.warn("ignoring unexpected serviceName '" + policies.getServiceName() + "' in cache file '" + cacheFile.getAbsolutePath() + "'");
-
-			        		policies.setServiceName(serviceName);
-			        	}
-
-			        	lastKnownVersion = policies.getPolicyVersion() == null ? -1 : policies.getPolicyVersion().longValue();
-
-			        	plugIn.setPolicies(policies);
-			        }
-		        } catch (Exception excp) {
-		        	LOG.error("failed to load policies from cache file " + cacheFile.getAbsolutePath(), excp);
-		        } finally {
-		        	if(reader != null) {
-		        		try {
-		        			reader.close();
-		        		} catch(Exception excp) {
-		        			LOG.error("error while closing opened cache file " + cacheFile.getAbsolutePath(), excp);
-		        		}
-		        	}
-		        }
-			} else {
-				LOG.warn("cache file does not exist or not readble '" + (cacheFile == null ? null : cacheFile.getAbsolutePath()) + "'");
-			}
+	        if(policies != null) {
+	        	if(!StringUtils.equals(serviceName, policies.getServiceName())) {
+	        		LOG.warn("ignoring unexpected serviceName '" + policies.getServiceName() + "' in cache of service '" + serviceName + "'");
+
+	        		policies.setServiceName(serviceName);
+	        	}
+
+	        	lastKnownVersion  = policies.getPolicyVersion() == null ? -1 : policies.getPolicyVersion().longValue();
+	        	lastKnownPolicies = policies;
+
+	        	plugIn.setPolicies(policies);
+	        }
 		} else {
 			LOG.warn("policyEngine is null");
 		}
@@ -245,7 +323,71 @@ public class PolicyRefresher extends Thread {
 		}
 	}
 
-	private void saveToCache(ServicePolicies policies) {
+	/*
+	 * returns all policies at the version of the delta: the delta applied to lastKnownPolicies, or - for a delta to
+	 * another version - policies downloaded in full
+	 */
+	private ServicePolicies applyDelta(ServicePolicies delta) throws Exception {
+		ServicePolicies ret;
+
+		if(lastKnownPolicies != null && delta.getBasePolicyVersion().longValue() == lastKnownVersion) {
+			ret = ServicePolicies.applyDelta(lastKnownPolicies, delta);
+
+			LOG.info("PolicyRefresher(serviceName=" + serviceName + "): applied changes since version " + lastKnownVersion + ": " + getPolicyCount(delta) + " policies created or updated, "
+					 + (delta.getDeletedPolicyIds() == null ? 0 : delta.getDeletedPolicyIds().size()) + " deleted");
+		} else {
+			LOG.warn("PolicyRefresher(serviceName=" + serviceName + "): ignoring changes since version " + delta.getBasePolicyVersion() + ", as lastKnownVersion=" + lastKnownVersion + ". Downloading all policies");
+
+			ret = rangerAdmin.getServicePoliciesIfUpdated(-1, 0, false);
+		}
+
+		return ret;
+	}
+
+	private ServicePolicies loadFromBinaryCache(File cacheFile) {
+		ServicePolicies ret = null;
+
+		try {
+			long startTimeMs = System.currentTimeMillis();
+
+			ret = ServicePoliciesSnapshot.read(cacheFile, gson);
+
+			LOG.info("PolicyRefresher(serviceName=" + serviceName + "): loaded " + getPolicyCount(ret) + " policies from cache file '" + cacheFile.getAbsolutePath() + "' in " + (System.currentTimeMillis() - startTimeMs) + "ms");
+		} catch (Exception excp) {
+			LOG.error("failed to load policies from cache file " + cacheFile.getAbsolutePath(), excp);
+		}
+
+		return ret;
+	}
+
+	private ServicePolicies loadFromJsonCache(File cacheFile) {
+		ServicePolicies ret    = null;
+		Reader          reader = null;
+
+		try {
+			long startTimeMs = System.currentTimeMillis();
+
+			reader = new FileReader(cacheFile);
+
+			ret = gson.fromJson(reader, ServicePolicies.class);
+
+			LOG.info("PolicyRefresher(serviceName=" + serviceName + "): loaded " + getPolicyCount(ret) + " policies from cache file '" + cacheFile.getAbsolutePath() + "' in " + (System.currentTimeMillis() - startTimeMs) + "ms");
+		} catch (Exception excp) {
+			LOG.error("failed to load policies from cache file " + cacheFile.getAbsolutePath(), excp);
+		} finally {
+			if(reader != null) {
+				try {
+					reader.close();
+				} catch(Exception excp) {
+					LOG.error("error while closing opened cache file " + cacheFile.getAbsolutePath(), excp);
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	void saveToCache(ServicePolicies policies) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> PolicyRefresher(serviceName=" + serviceName + ").saveToCache()");
 		}
@@ -253,24 +395,22 @@ public class PolicyRefresher extends Thread {
 		if(policies != null) {
 	    	File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
 
-	    	if(cacheFile != null) {
-				Writer writer = null;
-	
-				try {
-					writer = new FileWriter(cacheFile);
-	
-			        gson.toJson(policies, writer);
-		        } catch (Exception excp) {
-		        	LOG.error("failed to save policies to cache file '" + cacheFile.getAbsolutePath() + "'", excp);
-		        } finally {
-		        	if(writer != null) {
-		        		try {
-		        			writer.close();
-		        		} catch(Exception excp) {
-		        			LOG.error("error while closing opened cache file '" + cacheFile.getAbsolutePath() + "'", excp);
-		        		}
-		        	}
-		        }
+	    	// the JSON file is kept as a fallback, for when the snapshot can't be read - e.g. after a plugin downgrade
+	    	boolean isJsonSaved = cacheFile != null && saveToJsonCache(policies, cacheFile);
+
+	    	if(!StringUtils.isEmpty(binaryCacheFile)) {
+	    		File binaryCacheFile = new File(this.binaryCacheFile);
+
+	    		try {
+	    			ServicePoliciesSnapshot.write(policies, binaryCacheFile, gson);
+
+	    			// same time as the snapshot, of the same policies: the snapshot is loaded, the JSON file used if it can't be
+	    			if(isJsonSaved && !cacheFile.setLastModified(binaryCacheFile.lastModified())) {
+	    				LOG.warn("failed to set last-modified time of cache file '" + cacheFile.getAbsolutePath() + "'");
+	    			}
+	    		} catch (Exception excp) {
+	    			LOG.error("failed to save policies to cache file '" + binaryCacheFile.getAbsolutePath() + "'", excp);
+	    		}
 	    	}
 		} else {
 			LOG.info("policies is null. Nothing to save in cache");
@@ -280,4 +420,39 @@ public class PolicyRefresher extends Thread {
 			LOG.debug("<== PolicyRefresher(serviceName=" + serviceName + ").saveToCache()");
 		}
 	}
+
+	private boolean saveToJsonCache(ServicePolicies policies, File cacheFile) {
+		boolean ret    = false;
+		Writer  writer = null;
+
+		try {
+			writer = new FileWriter(cacheFile);
+
+			gson.toJson(policies, writer);
+
+			ret = true;
+		} catch (Exception excp) {
+			LOG.error("failed to save policies to cache file '" + cacheFile.getAbsolutePath() + "'", excp);
+		} finally {
+			if(writer != null) {
+				try {
+					writer.close();
+				} catch(Exception excp) {
+					LOG.error("error while closing opened cache file '" + cacheFile.getAbsolutePath() + "'", excp);
+
+					ret = false;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private static boolean isReadable(File file) {
+		return file != null && file.isFile() && file.canRead();
+	}
+
+	private static int getPolicyCount(ServicePolicies policies) {
+		return policies == null || policies.getPolicies() == null ? 0 : policies.getPolicies().size();
+	}
 }
@@ -45,6 +45,8 @@ public class RangerRESTUtils {
 
 	public static final String REST_PARAM_LAST_KNOWN_POLICY_VERSION = "lastKnownVersion";
 	public static final String REST_PARAM_PLUGIN_ID                 = "pluginId";
+	public static final String REST_PARAM_POLICY_WAIT_TIMEOUT_MS    = "waitTimeoutMs";
+	public static final String REST_PARAM_SUPPORTS_POLICY_DELTAS    = "supportsPolicyDeltas";
 
 	private static final int MAX_PLUGIN_ID_LEN = 255 ;
 
@@ -0,0 +1,388 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerDefaultResourceMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher;
+
+/**
+ * Index of policy evaluators on the values of a single resource level (like database, table or path).
+ *
+ * Policy values without wildcards are stored in exact-value buckets, values with wildcards (and values of
+ * recursive policies) are stored at the trie node of the literal prefix preceding the first wildcard, and
+ * policies that match any value (empty values, '*', excludes) are kept in a separate bucket. A lookup returns
+ * a superset of the evaluators whose matcher can match the given value; the matchers must still be run on them.
+ */
+public class RangerResourceTrie {
+	private static final Log LOG = LogFactory.getLog(RangerResourceTrie.class);
+
+	private static final char WILDCARD_ASTERISK = '*';
+	private static final char WILDCARD_QUESTION = '?';
+
+	private final String                      resourceName;
+	private final boolean                     optIgnoreCase;
+	private final boolean                     optWildCard;
+	private final boolean                     isPathResource;
+	private final char                        pathSeparatorChar;
+	private final TrieNode                    root;
+	private final List<RangerPolicyEvaluator> evaluatorsMatchingAny;
+
+
+	public RangerResourceTrie(RangerResourceDef resourceDef, List<RangerPolicyEvaluator> evaluators) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ")");
+		}
+
+		Map<String, String> matcherOptions = resourceDef.getMatcherOptions();
+
+		this.resourceName          = resourceDef.getName();
+		this.optIgnoreCase         = getBooleanOption(matcherOptions, RangerAbstractResourceMatcher.OPTION_IGNORE_CASE, true);
+		this.optWildCard           = getBooleanOption(matcherOptions, RangerAbstractResourceMatcher.OPTION_WILD_CARD, true);
+		this.isPathResource        = StringUtils.equals(resourceDef.getMatcher(), RangerPathResourceMatcher.class.getName());
+		this.pathSeparatorChar     = getCharOption(matcherOptions, RangerPathResourceMatcher.OPTION_PATH_SEPERATOR, RangerPathResourceMatcher.DEFAULT_PATH_SEPERATOR_CHAR);
+		this.root                  = new TrieNode();
+		this.evaluatorsMatchingAny = new ArrayList<RangerPolicyEvaluator>();
+
+		for(RangerPolicyEvaluator evaluator : evaluators) {
+			RangerPolicy                      policy    = evaluator.getPolicy();
+			Map<String, RangerPolicyResource> resources = policy == null ? null : policy.getResources();
+			RangerPolicyResource              resource  = resources == null ? null : resources.get(resourceName);
+
+			if(resource == null) { // policy can't match a request that has a value for this resource
+				continue;
+			}
+
+			if(Boolean.TRUE.equals(resource.getIsExcludes()) || isMatchAny(resource.getValues())) {
+				evaluatorsMatchingAny.add(evaluator);
+
+				continue;
+			}
+
+			boolean isRecursive = Boolean.TRUE.equals(resource.getIsRecursive());
+
+			for(String value : resource.getValues()) {
+				if(StringUtils.isEmpty(value)) {
+					continue;
+				}
+
+				insert(value, isRecursive, evaluator);
+			}
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + "): " + toString());
+		}
+	}
+
+	/**
+	 * @return true if the matcher configured for the resource-def has semantics known to this index
+	 */
+	public static boolean isIndexable(RangerResourceDef resourceDef) {
+		String matcher = resourceDef == null ? null : resourceDef.getMatcher();
+
+		return StringUtils.isEmpty(matcher)
+				|| StringUtils.equals(matcher, RangerDefaultResourceMatcher.class.getName())
+				|| StringUtils.equals(matcher, RangerPathResourceMatcher.class.getName());
+	}
+
+	public String getResourceName() {
+		return resourceName;
+	}
+
+	/**
+	 * @param resource value of this resource level in the request; must not be empty
+	 * @return evaluators that might match the given value, without duplicates and in no particular order
+	 */
+	public List<RangerPolicyEvaluator> getEvaluatorsForResource(String resource) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerResourceTrie.getEvaluatorsForResource(" + resource + ")");
+		}
+
+		List<RangerPolicyEvaluator> ret = new ArrayList<RangerPolicyEvaluator>(evaluatorsMatchingAny);
+
+		collectEvaluators(resource, ret);
+
+		if(isPathResource) {
+			// recursive path matching ignores repeated separators, like '/a//b' matching '/a/b'
+			String normalizedPath = collapseRepeatedSeparators(resource);
+
+			if(normalizedPath != resource) {
+				collectEvaluators(normalizedPath, ret);
+			}
+		}
+
+		removeDuplicates(ret);
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerResourceTrie.getEvaluatorsForResource(" + resource + "): evaluatorCount=" + ret.size());
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @param resource value of this resource level in the request; must not be empty
+	 * @return number of evaluators getEvaluatorsForResource() would collect before removing duplicates; it is
+	 *         computed without copying any evaluator, to pick the most selective resource level of a request cheaply
+	 */
+	public int getEvaluatorCountUpperBound(String resource) {
+		int ret = evaluatorsMatchingAny.size() + countEvaluators(resource);
+
+		if(isPathResource) {
+			String normalizedPath = collapseRepeatedSeparators(resource);
+
+			if(normalizedPath != resource) {
+				ret += countEvaluators(normalizedPath);
+			}
+		}
+
+		return ret;
+	}
+
+	private int countEvaluators(String resource) {
+		TrieNode node = root;
+		int      ret  = node.wildcardEvaluators.size();
+
+		for(int i = 0; i < resource.length(); i++) {
+			node = node.getChild(fold(resource.charAt(i)));
+
+			if(node == null) {
+				break;
+			}
+
+			ret += node.wildcardEvaluators.size();
+		}
+
+		if(node != null) {
+			ret += node.exactEvaluators.size();
+		}
+
+		return ret;
+	}
+
+	private void collectEvaluators(String resource, List<RangerPolicyEvaluator> evaluators) {
+		TrieNode node = root;
+
+		evaluators.addAll(node.wildcardEvaluators);
+
+		for(int i = 0; i < resource.length(); i++) {
+			node = node.getChild(fold(resource.charAt(i)));
+
+			if(node == null) {
+				break;
+			}
+
+			evaluators.addAll(node.wildcardEvaluators);
+		}
+
+		if(node != null) {
+			evaluators.addAll(node.exactEvaluators);
+		}
+	}
+
+	private String collapseRepeatedSeparators(String path) {
+		String ret = path;
+
+		if(path.indexOf(pathSeparatorChar) != path.lastIndexOf(pathSeparatorChar)) {
+			StringBuilder sb = null;
+
+			for(int i = 0; i < path.length(); i++) {
+				char ch = path.charAt(i);
+
+				if(ch == pathSeparatorChar && i > 0 && path.charAt(i - 1) == pathSeparatorChar) {
+					if(sb == null) {
+						sb = new StringBuilder(path.length()).append(path, 0, i);
+					}
+
+					continue;
+				}
+
+				if(sb != null) {
+					sb.append(ch);
+				}
+			}
+
+			if(sb != null) {
+				ret = sb.toString();
+			}
+		}
+
+		return ret;
+	}
+
+	private void insert(String value, boolean isRecursive, RangerPolicyEvaluator evaluator) {
+		TrieNode node       = root;
+		boolean  isWildcard = isRecursive;
+
+		for(int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+
+			if(optWildCard && (ch == WILDCARD_ASTERISK || ch == WILDCARD_QUESTION)) {
+				isWildcard = true;
+
+				break;
+			}
+
+			node = node.getOrCreateChild(fold(ch));
+		}
+
+		if(isWildcard) {
+			node.addWildcardEvaluator(evaluator);
+		} else {
+			node.addExactEvaluator(evaluator);
+		}
+	}
+
+	private char fold(char ch) {
+		// same equivalence as String.equalsIgnoreCase()
+		return optIgnoreCase ? Character.toLowerCase(Character.toUpperCase(ch)) : ch;
+	}
+
+	private static boolean isMatchAny(List<String> values) {
+		boolean ret = true;
+
+		if(values != null) {
+			for(String value : values) {
+				if(StringUtils.isEmpty(value)) {
+					continue;
+				}
+
+				if(StringUtils.containsOnly(value, RangerAbstractResourceMatcher.WILDCARD_ASTERISK)) {
+					ret = true;
+
+					break;
+				}
+
+				ret = false;
+			}
+		}
+
+		return ret;
+	}
+
+	private static void removeDuplicates(List<RangerPolicyEvaluator> evaluators) {
+		if(evaluators.size() > 1) {
+			Map<RangerPolicyEvaluator, Boolean> seen = new IdentityHashMap<RangerPolicyEvaluator, Boolean>(evaluators.size());
+
+			int idx = 0;
+
+			for(RangerPolicyEvaluator evaluator : evaluators) {
+				if(seen.put(evaluator, Boolean.TRUE) == null) {
+					evaluators.set(idx++, evaluator);
+				}
+			}
+
+			while(evaluators.size() > idx) {
+				evaluators.remove(evaluators.size() - 1);
+			}
+		}
+	}
+
+	private static boolean getBooleanOption(Map<String, String> options, String name, boolean defaultValue) {
+		String strVal = options == null ? null : options.get(name);
+
+		return StringUtils.isEmpty(strVal) ? defaultValue : Boolean.parseBoolean(strVal);
+	}
+
+	private static char getCharOption(Map<String, String> options, String name, char defaultValue) {
+		String strVal = options == null ? null : options.get(name);
+
+		return StringUtils.isEmpty(strVal) ? defaultValue : strVal.charAt(0);
+	}
+
+	@Override
+	public String toString( ) {
+		StringBuilder sb = new StringBuilder();
+
+		toString(sb);
+
+		return sb.toString();
+	}
+
+	public StringBuilder toString(StringBuilder sb) {
+		sb.append("RangerResourceTrie={");
+
+		sb.append("resourceName={").append(resourceName).append("} ");
+		sb.append("optIgnoreCase={").append(optIgnoreCase).append("} ");
+		sb.append("optWildCard={").append(optWildCard).append("} ");
+		sb.append("evaluatorsMatchingAny={").append(evaluatorsMatchingAny.size()).append("} ");
+
+		sb.append("}");
+
+		return sb;
+	}
+
+	private static class TrieNode {
+		private Map<Character, TrieNode>    children           = null;
+		private List<RangerPolicyEvaluator> exactEvaluators    = Collections.emptyList();
+		private List<RangerPolicyEvaluator> wildcardEvaluators = Collections.emptyList();
+
+		TrieNode getChild(char ch) {
+			return children == null ? null : children.get(ch);
+		}
+
+		TrieNode getOrCreateChild(char ch) {
+			if(children == null) {
+				children = new HashMap<Character, TrieNode>(4);
+			}
+
+			TrieNode ret = children.get(ch);
+
+			if(ret == null) {
+				ret = new TrieNode();
+
+				children.put(ch, ret);
+			}
+
+			return ret;
+		}
+
+		void addExactEvaluator(RangerPolicyEvaluator evaluator) {
+			if(exactEvaluators.isEmpty()) {
+				exactEvaluators = new ArrayList<RangerPolicyEvaluator>(1);
+			}
+
+			exactEvaluators.add(evaluator);
+		}
+
+		void addWildcardEvaluator(RangerPolicyEvaluator evaluator) {
+			if(wildcardEvaluators.isEmpty()) {
+				wildcardEvaluators = new ArrayList<RangerPolicyEvaluator>(1);
+			}
+
+			wildcardEvaluators.add(evaluator);
+		}
+	}
+}
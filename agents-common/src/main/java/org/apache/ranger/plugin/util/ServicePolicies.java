@@ -20,8 +20,13 @@
 package org.apache.ranger.plugin.util;
 
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -50,6 +55,8 @@ public class ServicePolicies implements java.io.Serializable {
 	private Date               policyUpdateTime;
 	private List<RangerPolicy> policies;
 	private RangerServiceDef   serviceDef;
+	private Long               basePolicyVersion; // not null for deltas: changes since this version
+	private List<Long>         deletedPolicyIds;  // for deltas: ids of policies deleted since basePolicyVersion
 
 
 	/**
@@ -124,6 +131,84 @@ public class ServicePolicies implements java.io.Serializable {
 	public void setServiceDef(RangerServiceDef serviceDef) {
 		this.serviceDef = serviceDef;
 	}
+	/**
+	 * @return the policy version this delta applies to; null if this is not a delta, but all policies of the service
+	 */
+	public Long getBasePolicyVersion() {
+		return basePolicyVersion;
+	}
+	/**
+	 * @param basePolicyVersion the basePolicyVersion to set
+	 */
+	public void setBasePolicyVersion(Long basePolicyVersion) {
+		this.basePolicyVersion = basePolicyVersion;
+	}
+	/**
+	 * @return the deletedPolicyIds
+	 */
+	public List<Long> getDeletedPolicyIds() {
+		return deletedPolicyIds;
+	}
+	/**
+	 * @param deletedPolicyIds the deletedPolicyIds to set
+	 */
+	public void setDeletedPolicyIds(List<Long> deletedPolicyIds) {
+		this.deletedPolicyIds = deletedPolicyIds;
+	}
+
+	/**
+	 * Applies a delta - policies created or updated since policies.policyVersion, and ids of policies deleted since -
+	 * to all policies of a service.
+	 *
+	 * @return all policies of the service at delta.policyVersion; the serviceDef of policies, unless the delta has one
+	 */
+	public static ServicePolicies applyDelta(ServicePolicies policies, ServicePolicies delta) {
+		Map<Long, RangerPolicy> changedPolicies = new HashMap<Long, RangerPolicy>();
+		Set<Long>               deletedIds      = new HashSet<Long>();
+
+		if(delta.getPolicies() != null) {
+			for(RangerPolicy policy : delta.getPolicies()) {
+				changedPolicies.put(policy.getId(), policy);
+			}
+		}
+
+		if(delta.getDeletedPolicyIds() != null) {
+			deletedIds.addAll(delta.getDeletedPolicyIds());
+		}
+
+		List<RangerPolicy> mergedPolicies = new ArrayList<RangerPolicy>();
+
+		if(policies.getPolicies() != null) {
+			for(RangerPolicy policy : policies.getPolicies()) {
+				if(deletedIds.contains(policy.getId())) {
+					continue;
+				}
+
+				RangerPolicy changedPolicy = changedPolicies.remove(policy.getId());
+
+				mergedPolicies.add(changedPolicy != null ? changedPolicy : policy);
+			}
+		}
+
+		if(delta.getPolicies() != null) {
+			for(RangerPolicy policy : delta.getPolicies()) {
+				if(changedPolicies.containsKey(policy.getId())) { // created since policies.policyVersion
+					mergedPolicies.add(policy);
+				}
+			}
+		}
+
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceName(delta.getServiceName());
+		ret.setServiceId(delta.getServiceId());
+		ret.setPolicyVersion(delta.getPolicyVersion());
+		ret.setPolicyUpdateTime(delta.getPolicyUpdateTime());
+		ret.setPolicies(mergedPolicies);
+		ret.setServiceDef(delta.getServiceDef() != null ? delta.getServiceDef() : policies.getServiceDef());
+
+		return ret;
+	}
 	
 	@Override
 	public String toString() {
@@ -134,6 +219,8 @@ public class ServicePolicies implements java.io.Serializable {
 			.add("policyUpdateTime", policyUpdateTime)
 			.add("policies", policies)
 			.add("serviceDef", serviceDef)
+			.add("basePolicyVersion", basePolicyVersion)
+			.add("deletedPolicyIds", deletedPolicyIds)
 			.toString();
 	}
 }
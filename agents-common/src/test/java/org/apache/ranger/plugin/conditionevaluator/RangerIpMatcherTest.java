@@ -224,6 +224,60 @@ public class RangerIpMatcherTest {
 		assertFalse(ipMatcher.isMatched(createRequest("10.20.33.10")));
 	}
 	
+	@Test
+	public void test_cidr() {
+		RangerIpMatcher ipMatcher = createMatcher(new String[]{"10.0.0.0/8", "192.168.1.128/25", "fe80::/10", "2001:db8:0:0:0:0:0:1/128"} );
+		assertTrue(ipMatcher.isMatched(createRequest("10.1.2.3")));
+		assertTrue(ipMatcher.isMatched(createRequest("10.255.255.255")));
+		assertFalse(ipMatcher.isMatched(createRequest("11.0.0.1")));
+		assertTrue(ipMatcher.isMatched(createRequest("192.168.1.200")));
+		assertFalse(ipMatcher.isMatched(createRequest("192.168.1.100")));
+		assertTrue(ipMatcher.isMatched(createRequest("fe80::1")));
+		assertTrue(ipMatcher.isMatched(createRequest("FEBF:0:0:0:0:0:0:1")));
+		assertFalse(ipMatcher.isMatched(createRequest("fec0::1")));
+		assertTrue(ipMatcher.isMatched(createRequest("2001:db8::1")));
+		assertFalse(ipMatcher.isMatched(createRequest("2001:db8::2")));
+		// not an address
+		assertFalse(ipMatcher.isMatched(createRequest("10.1.2.boo")));
+
+		// host bits of a CIDR block are ignored; /0 matches every address of its kind
+		ipMatcher = createMatcher(new String[]{"10.1.2.3/16", "0.0.0.0/0"} );
+		assertTrue(ipMatcher.isMatched(createRequest("172.16.0.1")));
+		assertFalse(ipMatcher.isMatched(createRequest("fe80::1")));
+
+		// invalid CIDR blocks are treated as before, i.e. as exact ips
+		ipMatcher = createMatcher(new String[]{"10.0.0.0/33"} );
+		assertFalse(ipMatcher.isMatched(createRequest("10.0.0.1")));
+		assertTrue(ipMatcher.isMatched(createRequest("10.0.0.0/33")));
+	}
+
+	@Test
+	public void test_nonCanonicalRequestIps() {
+		// exact and wildcard ips are matched against the text of request ips that have other forms
+		RangerIpMatcher ipMatcher = createMatcher(new String[]{"fe80:0:0:0:0:0:0:1", "a0:b0:0:*", "10.20.*"} );
+		assertTrue(ipMatcher.isMatched(createRequest("fe80:0:0:0:0:0:0:1")));
+		assertFalse(ipMatcher.isMatched(createRequest("fe80::1")));
+		assertTrue(ipMatcher.isMatched(createRequest("a0:b0:0:1:2:3:4:5")));
+		assertFalse(ipMatcher.isMatched(createRequest("a0:b0::1")));
+		assertTrue(ipMatcher.isMatched(createRequest("10.20.1.2")));
+		assertFalse(ipMatcher.isMatched(createRequest("10.020.1.2")));
+	}
+
+	@Test
+	public void test_largeIpList() {
+		String[] ips = new String[3000];
+		for (int i = 0; i < ips.length; i++) {
+			ips[i] = i % 3 == 0 ? ("10." + (i % 256) + "." + (i / 256) + ".*") : (i % 3 == 1 ? ("172." + (i % 256) + "." + (i / 256) + ".1") : ("fd00:" + Integer.toHexString(i) + "::/32"));
+		}
+		RangerIpMatcher ipMatcher = createMatcher(ips);
+		assertTrue(ipMatcher.isMatched(createRequest("10.3.0.77")));
+		assertTrue(ipMatcher.isMatched(createRequest("172.1.0.1")));
+		assertTrue(ipMatcher.isMatched(createRequest("fd00:b::1")));
+		assertFalse(ipMatcher.isMatched(createRequest("10.1.0.77")));
+		assertFalse(ipMatcher.isMatched(createRequest("172.1.0.2")));
+		assertFalse(ipMatcher.isMatched(createRequest("fd00:c::1")));
+	}
+
 	RangerIpMatcher createMatcher(String[] ipArray) {
 		RangerIpMatcher matcher = new RangerIpMatcher();
 
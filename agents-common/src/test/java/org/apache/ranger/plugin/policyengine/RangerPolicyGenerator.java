@@ -0,0 +1,304 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.plugin.conditionevaluator.RangerIpMatcher;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerAccessTypeDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerPolicyConditionDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+
+/**
+ * Generates policies, and requests to evaluate against them, for an embedded service-def (hdfs, hive, hbase). The
+ * same settings and seed always generate the same policies and requests.
+ *
+ * Each policy has a value for every resource of one hierarchy of the service-def, like database/table/column; values
+ * are drawn from a vocabulary sized by policyCount, so that the number of policies on a resource stays about the same
+ * as policyCount grows. Requests use values from the same vocabulary.
+ */
+public class RangerPolicyGenerator {
+	public static final String CONDITION_IP_RANGE = "ip-range";
+
+	public String  serviceType          = EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HIVE_NAME;
+	public int     policyCount          = 1000;
+	public double  wildcardRatio        = 0.1; // of resource values: half of them '*', the others a prefix followed by '*'
+	public double  recursiveRatio       = 0.5; // of policies on resources supporting recursion
+	public int     policyItemsPerPolicy = 2;
+	public int     usersPerPolicyItem   = 2;
+	public int     groupsPerPolicyItem  = 1;
+	public double  conditionRatio       = 0.0; // of policy items: ip-range condition
+	public int     userCount            = 1000;
+	public int     groupCount           = 100;
+	public int     groupsPerUser        = 3;
+	public long    seed                 = 20150701L;
+
+	private static final int VALUES_PER_LEVEL = 20;
+	private static final int MAX_PATH_DEPTH   = 4;
+
+	private RangerServiceDef              serviceDef  = null;
+	private List<List<RangerResourceDef>> hierarchies = null;
+	private List<String>                  accessTypes = null;
+
+	public ServicePolicies generateServicePolicies() throws Exception {
+		init();
+
+		Random             random   = new Random(seed);
+		List<RangerPolicy> policies = new ArrayList<RangerPolicy>(policyCount);
+
+		for(int i = 1; i <= policyCount; i++) {
+			List<RangerResourceDef>           hierarchy = hierarchies.get(random.nextInt(hierarchies.size()));
+			Map<String, RangerPolicyResource> resources = new HashMap<String, RangerPolicyResource>();
+
+			for(int level = 0; level < hierarchy.size(); level++) {
+				RangerResourceDef resourceDef = hierarchy.get(level);
+				boolean           isRecursive = Boolean.TRUE.equals(resourceDef.getRecursiveSupported()) && random.nextDouble() < recursiveRatio;
+				String            value       = isPathResource(resourceDef) ? generatePolicyPath(random) : generatePolicyValue(random, resourceDef, level);
+
+				resources.put(resourceDef.getName(), new RangerPolicyResource(value, Boolean.FALSE, isRecursive));
+			}
+
+			List<RangerPolicyItem> policyItems = new ArrayList<RangerPolicyItem>(policyItemsPerPolicy);
+
+			for(int j = 0; j < policyItemsPerPolicy; j++) {
+				policyItems.add(generatePolicyItem(random));
+			}
+
+			RangerPolicy policy = new RangerPolicy(getServiceName(), "policy-" + i, 0, null, resources, policyItems, null);
+
+			policy.setId((long) i);
+			policy.setVersion(1L);
+			policy.setIsEnabled(Boolean.TRUE);
+			policy.setIsAuditEnabled(random.nextBoolean());
+
+			policies.add(policy);
+		}
+
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceName(getServiceName());
+		ret.setServiceDef(serviceDef);
+		ret.setPolicies(policies);
+		ret.setPolicyVersion(1L);
+
+		return ret;
+	}
+
+	public RangerAccessRequest[] generateRequests(int count) throws Exception {
+		init();
+
+		Random                random = new Random(seed + 1);
+		RangerAccessRequest[] ret    = new RangerAccessRequest[count];
+
+		for(int i = 0; i < count; i++) {
+			List<RangerResourceDef>  hierarchy = hierarchies.get(random.nextInt(hierarchies.size()));
+			RangerAccessResourceImpl resource  = new RangerAccessResourceImpl();
+
+			for(int level = 0; level < hierarchy.size(); level++) {
+				RangerResourceDef resourceDef = hierarchy.get(level);
+
+				if(isPathResource(resourceDef)) {
+					resource.setValue(resourceDef.getName(), generatePath(random, 1 + random.nextInt(MAX_PATH_DEPTH + 1)));
+				} else {
+					resource.setValue(resourceDef.getName(), getValuePrefix(resourceDef) + random.nextInt(getValueCount(level)));
+				}
+			}
+
+			Set<String> userGroups = new HashSet<String>();
+
+			for(int j = 0; j < groupsPerUser; j++) {
+				userGroups.add("group" + random.nextInt(groupCount));
+			}
+
+			RangerAccessRequestImpl request = new RangerAccessRequestImpl(resource, accessTypes.get(random.nextInt(accessTypes.size())), "user" + random.nextInt(userCount), userGroups);
+
+			request.setClientIPAddress("10." + random.nextInt(VALUES_PER_LEVEL) + "." + random.nextInt(256) + "." + random.nextInt(256));
+
+			ret[i] = request;
+		}
+
+		return ret;
+	}
+
+	public String getServiceName() {
+		return serviceType + "dev";
+	}
+
+	private void init() throws Exception {
+		if(serviceDef != null) {
+			return;
+		}
+
+		serviceDef  = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(serviceType);
+		hierarchies = new ArrayList<List<RangerResourceDef>>();
+		accessTypes = new ArrayList<String>();
+
+		for(RangerResourceDef resourceDef : serviceDef.getResources()) {
+			if(isLeaf(resourceDef)) {
+				hierarchies.add(getHierarchy(resourceDef));
+			}
+		}
+
+		for(RangerAccessTypeDef accessTypeDef : serviceDef.getAccessTypes()) {
+			accessTypes.add(accessTypeDef.getName());
+		}
+
+		if(conditionRatio > 0) {
+			List<RangerPolicyConditionDef> conditionDefs = new ArrayList<RangerPolicyConditionDef>();
+
+			if(serviceDef.getPolicyConditions() != null) {
+				conditionDefs.addAll(serviceDef.getPolicyConditions());
+			}
+
+			conditionDefs.add(new RangerPolicyConditionDef(100L, CONDITION_IP_RANGE, RangerIpMatcher.class.getName(), null));
+
+			serviceDef.setPolicyConditions(conditionDefs);
+		}
+	}
+
+	private RangerPolicyItem generatePolicyItem(Random random) {
+		List<RangerPolicyItemAccess> accesses  = new ArrayList<RangerPolicyItemAccess>();
+		Set<String>                  accessSet = new HashSet<String>();
+		int                          numAccess = 1 + random.nextInt(Math.min(3, accessTypes.size()));
+
+		while(accessSet.size() < numAccess) {
+			String accessType = accessTypes.get(random.nextInt(accessTypes.size()));
+
+			if(accessSet.add(accessType)) {
+				accesses.add(new RangerPolicyItemAccess(accessType, Boolean.TRUE));
+			}
+		}
+
+		List<String> users  = new ArrayList<String>(usersPerPolicyItem);
+		List<String> groups = new ArrayList<String>(groupsPerPolicyItem);
+
+		for(int i = 0; i < usersPerPolicyItem; i++) {
+			users.add("user" + random.nextInt(userCount));
+		}
+
+		for(int i = 0; i < groupsPerPolicyItem; i++) {
+			groups.add("group" + random.nextInt(groupCount));
+		}
+
+		List<RangerPolicyItemCondition> conditions = null;
+
+		if(conditionRatio > 0 && random.nextDouble() < conditionRatio) {
+			conditions = Collections.singletonList(new RangerPolicyItemCondition(CONDITION_IP_RANGE, Collections.singletonList("10." + random.nextInt(VALUES_PER_LEVEL) + ".*")));
+		}
+
+		return new RangerPolicyItem(accesses, users, groups, conditions, Boolean.FALSE);
+	}
+
+	private String generatePolicyValue(Random random, RangerResourceDef resourceDef, int level) {
+		String prefix = getValuePrefix(resourceDef);
+
+		if(random.nextDouble() < wildcardRatio) {
+			return random.nextBoolean() ? "*" : prefix + random.nextInt(10) + "*";
+		}
+
+		return prefix + random.nextInt(getValueCount(level));
+	}
+
+	private String generatePolicyPath(Random random) {
+		String ret = generatePath(random, 1 + random.nextInt(MAX_PATH_DEPTH));
+
+		if(random.nextDouble() < wildcardRatio) {
+			ret = random.nextBoolean() ? "/*" : ret.substring(0, ret.lastIndexOf('/') + 1) + "dir" + random.nextInt(10) + "*";
+		}
+
+		return ret;
+	}
+
+	private String generatePath(Random random, int depth) {
+		StringBuilder sb = new StringBuilder();
+
+		for(int level = 0; level < depth; level++) {
+			sb.append("/dir").append(random.nextInt(getValueCount(level)));
+		}
+
+		return sb.toString();
+	}
+
+	/*
+	 * top level values grow with policyCount; there are VALUES_PER_LEVEL values at each level below it
+	 */
+	private int getValueCount(int level) {
+		return level == 0 ? Math.max(VALUES_PER_LEVEL, policyCount / VALUES_PER_LEVEL) : VALUES_PER_LEVEL;
+	}
+
+	private String getValuePrefix(RangerResourceDef resourceDef) {
+		return StringUtils.remove(resourceDef.getName(), '-');
+	}
+
+	private boolean isPathResource(RangerResourceDef resourceDef) {
+		return StringUtils.equals(resourceDef.getMatcher(), RangerPathResourceMatcher.class.getName());
+	}
+
+	private boolean isLeaf(RangerResourceDef resourceDef) {
+		for(RangerResourceDef other : serviceDef.getResources()) {
+			if(StringUtils.equals(other.getParent(), resourceDef.getName())) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private List<RangerResourceDef> getHierarchy(RangerResourceDef leaf) {
+		List<RangerResourceDef> ret = new ArrayList<RangerResourceDef>();
+
+		for(RangerResourceDef resourceDef = leaf; resourceDef != null; resourceDef = getResourceDef(resourceDef.getParent())) {
+			ret.add(0, resourceDef);
+		}
+
+		return ret;
+	}
+
+	private RangerResourceDef getResourceDef(String name) {
+		if(StringUtils.isEmpty(name)) {
+			return null;
+		}
+
+		for(RangerResourceDef resourceDef : serviceDef.getResources()) {
+			if(StringUtils.equals(resourceDef.getName(), name)) {
+				return resourceDef;
+			}
+		}
+
+		return null;
+	}
+}
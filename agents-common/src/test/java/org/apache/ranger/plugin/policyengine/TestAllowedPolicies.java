@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+public class TestAllowedPolicies {
+	private static final String[] ACCESS_TYPES = { "select", RangerPolicyEngine.ANY_ACCESS, RangerPolicyEngine.ADMIN_ACCESS };
+
+	// small enough for the scan, which checks every policy against every evaluator; see RangerAllowedPoliciesBenchmark
+	// for large policy sets
+	@Test
+	public void testSameResultsAsScan() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount   = 100;
+		generator.userCount     = 4;
+		generator.groupCount    = 2;
+		generator.wildcardRatio = 0.3;
+
+		ServicePolicies        servicePolicies = generator.generateServicePolicies();
+		RangerPolicyEngineImpl policyEngine    = new RangerPolicyEngineImpl(servicePolicies, new RangerPolicyEngineOptions());
+		int                    allowedCount    = 0;
+
+		for(int i = 0; i < generator.userCount; i++) {
+			String      user   = "user" + i;
+			Set<String> groups = new HashSet<String>(Arrays.asList("group" + (i % generator.groupCount)));
+
+			for(String accessType : ACCESS_TYPES) {
+				List<RangerPolicy> expected = getAllowedPoliciesByScan(policyEngine, user, groups, accessType);
+				List<RangerPolicy> result   = policyEngine.getAllowedPolicies(user, groups, accessType);
+
+				assertEquals(user + "/" + accessType, expected, result);
+
+				allowedCount += result.size();
+			}
+		}
+
+		assertTrue(allowedCount > 0);
+	}
+
+	@Test
+	public void testCache() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount = 100;
+		generator.userCount   = 10;
+
+		ServicePolicies           servicePolicies = generator.generateServicePolicies();
+		RangerPolicyEngineOptions options         = new RangerPolicyEngineOptions();
+
+		options.cacheAllowedPolicies = true;
+
+		RangerPolicyEngineImpl policyEngine = new RangerPolicyEngineImpl(servicePolicies, options);
+		Set<String>            groups       = new HashSet<String>(Arrays.asList("group1"));
+		List<RangerPolicy>     expected     = getAllowedPoliciesByScan(policyEngine, "user1", groups, "select");
+		List<RangerPolicy>     result1      = policyEngine.getAllowedPolicies("user1", groups, "select");
+
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, result1);
+
+		// callers own the returned list
+		result1.clear();
+		groups.add("group2");
+
+		assertEquals(expected, policyEngine.getAllowedPolicies("user1", new HashSet<String>(Arrays.asList("group1")), "select"));
+	}
+
+	// as getAllowedPolicies() used to be: every policy checked against every evaluator
+	private static List<RangerPolicy> getAllowedPoliciesByScan(RangerPolicyEngineImpl policyEngine, String user, Set<String> userGroups, String accessType) {
+		List<RangerPolicy> ret = new ArrayList<RangerPolicy>();
+
+		for(RangerPolicyEvaluator evaluator : policyEngine.getPolicyRepository().getPolicyEvaluators()) {
+			RangerPolicy policy = evaluator.getPolicy();
+
+			if(policyEngine.isAccessAllowed(policy.getResources(), user, userGroups, accessType)) {
+				ret.add(policy);
+			}
+		}
+
+		return ret;
+	}
+}
@@ -24,11 +24,16 @@ import static org.junit.Assert.*;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.policyengine.TestPolicyEngine.PolicyEngineTestCase.TestData;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 import org.apache.ranger.plugin.util.ServicePolicies;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -81,6 +86,124 @@ public class TestPolicyEngine {
 		runTestsFromResourceFiles(hbaseTestResourceFiles);
 	}
 
+	@Test
+	public void testPolicyEngine_incrementalRebuild() {
+		String resourceName = "/policyengine/test_policyengine_hive.json";
+
+		PolicyEngineTestCase testCase1 = readTestCase(resourceName);
+		PolicyEngineTestCase testCase2 = readTestCase(resourceName);
+
+		for(PolicyEngineTestCase testCase : new PolicyEngineTestCase[] { testCase1, testCase2 }) {
+			testCase.serviceDef.setVersion(1L);
+
+			for(RangerPolicy policy : testCase.policies) {
+				policy.setVersion(1L);
+			}
+		}
+
+		RangerPolicy updatedPolicy = testCase2.policies.get(0);
+		updatedPolicy.setVersion(2L);
+
+		RangerPolicyEngineImpl engine1 = new RangerPolicyEngineImpl(createServicePolicies(testCase1), null);
+		RangerPolicyEngineImpl engine2 = new RangerPolicyEngineImpl(createServicePolicies(testCase2), null, engine1);
+
+		assertEquals(0, engine1.getReusedEvaluatorCount());
+		assertEquals(engine1.getPolicyEvaluators().size() - 1, engine2.getReusedEvaluatorCount());
+
+		for(RangerPolicyEvaluator evaluator : engine2.getPolicyEvaluators()) {
+			boolean isReused = engine1.getPolicyEvaluators().contains(evaluator);
+
+			assertEquals("policy " + evaluator.getPolicy().getId(), !evaluator.getPolicy().getId().equals(updatedPolicy.getId()), isReused);
+		}
+
+		for(TestData test : testCase2.tests) {
+			RangerAccessResult expected = test.result;
+			RangerAccessResult result   = engine2.isAccessAllowed(test.request, null);
+
+			assertEquals("isAllowed mismatched after rebuild! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
+			assertEquals("isAudited mismatched after rebuild! - " + test.name, expected.getIsAudited(), result.getIsAudited());
+			assertEquals("policyId mismatched after rebuild! - " + test.name, expected.getPolicyId(), result.getPolicyId());
+		}
+	}
+
+	@Test
+	public void testPolicyEngine_symbolTableAndConditionRegistryRenewal() {
+		String resourceName = "/policyengine/test_policyengine_hive.json";
+
+		PolicyEngineTestCase   testCase    = readTestCase(resourceName, 1L);
+		int                    policyCount = testCase.policies.size();
+		RangerPolicyEngineImpl engine      = new RangerPolicyEngineImpl(createServicePolicies(testCase), null);
+		RangerSymbolTable      symbolTable = engine.getPolicyRepository().getSymbolTable();
+
+		RangerConditionEvaluatorRegistry conditionRegistry = engine.getPolicyRepository().getConditionEvaluatorRegistry();
+
+		assertNotNull(conditionRegistry);
+
+		// one more policy updated in each version: evaluators of the other policies are reused, until more evaluators
+		// have been retired than are reusable
+		for(int i = 0; i < policyCount; i++) {
+			testCase = readTestCase(resourceName, 1L);
+
+			for(int j = 0; j <= i; j++) {
+				testCase.policies.get(j).setVersion(2L);
+			}
+
+			engine = new RangerPolicyEngineImpl(createServicePolicies(testCase), null, engine);
+
+			int retiredCount = i + 1;
+
+			if(retiredCount <= policyCount - 1) {
+				assertEquals(policyCount - 1, engine.getReusedEvaluatorCount());
+				assertEquals(retiredCount, engine.getPolicyRepository().getRetiredEvaluatorCount());
+				assertSame(symbolTable, engine.getPolicyRepository().getSymbolTable());
+				assertSame(conditionRegistry, engine.getPolicyRepository().getConditionEvaluatorRegistry());
+			} else {
+				assertEquals(0, engine.getReusedEvaluatorCount());
+				assertEquals(0, engine.getPolicyRepository().getRetiredEvaluatorCount());
+				assertNotSame(symbolTable, engine.getPolicyRepository().getSymbolTable());
+				assertNotSame(conditionRegistry, engine.getPolicyRepository().getConditionEvaluatorRegistry());
+			}
+		}
+
+		for(TestData test : testCase.tests) {
+			RangerAccessResult expected = test.result;
+			RangerAccessResult result   = engine.isAccessAllowed(test.request, null);
+
+			assertEquals("isAllowed mismatched after rebuild! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
+			assertEquals("isAudited mismatched after rebuild! - " + test.name, expected.getIsAudited(), result.getIsAudited());
+			assertEquals("policyId mismatched after rebuild! - " + test.name, expected.getPolicyId(), result.getPolicyId());
+		}
+	}
+
+	private PolicyEngineTestCase readTestCase(String resourceName, Long version) {
+		PolicyEngineTestCase ret = readTestCase(resourceName);
+
+		ret.serviceDef.setVersion(version);
+
+		for(RangerPolicy policy : ret.policies) {
+			policy.setVersion(version);
+		}
+
+		return ret;
+	}
+
+	private PolicyEngineTestCase readTestCase(String resourceName) {
+		InputStream       inStream = this.getClass().getResourceAsStream(resourceName);
+		InputStreamReader reader   = new InputStreamReader(inStream);
+
+		return gsonBuilder.fromJson(reader, PolicyEngineTestCase.class);
+	}
+
+	private ServicePolicies createServicePolicies(PolicyEngineTestCase testCase) {
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceName(testCase.serviceName);
+		ret.setServiceDef(testCase.serviceDef);
+		ret.setPolicies(testCase.policies);
+
+		return ret;
+	}
+
 	private void runTestsFromResourceFiles(String[] resourceNames) {
 		for(String resourceName : resourceNames) {
 			InputStream       inStream = this.getClass().getResourceAsStream(resourceName);
@@ -100,8 +223,17 @@ public class TestPolicyEngine {
 		servicePolicies.setServiceDef(testCase.serviceDef);
 		servicePolicies.setPolicies(testCase.policies);
 
+		RangerPolicyEngineOptions noTrieOptions = new RangerPolicyEngineOptions();
+		noTrieOptions.disableTrieLookupPrefilter = true;
+
+		RangerPolicyEngineOptions decisionCacheOptions = new RangerPolicyEngineOptions();
+		decisionCacheOptions.cacheAccessDecisions = true;
+
 		policyEngine = new RangerPolicyEngineImpl(servicePolicies);
 
+		RangerPolicyEngine noTriePolicyEngine        = new RangerPolicyEngineImpl(servicePolicies, noTrieOptions);
+		RangerPolicyEngine decisionCachePolicyEngine = new RangerPolicyEngineImpl(servicePolicies, decisionCacheOptions);
+
 		for(TestData test : testCase.tests) {
 			RangerAccessResult expected = test.result;
 			RangerAccessResult result   = policyEngine.isAccessAllowed(test.request, null);
@@ -110,6 +242,110 @@ public class TestPolicyEngine {
 			assertEquals("isAllowed mismatched! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
 			assertEquals("isAudited mismatched! - " + test.name, expected.getIsAudited(), result.getIsAudited());
 			assertEquals("policyId mismatched! - " + test.name, expected.getPolicyId(), result.getPolicyId());
+
+			result = noTriePolicyEngine.isAccessAllowed(test.request, null);
+
+			assertEquals("isAllowed mismatched without trie! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
+			assertEquals("isAudited mismatched without trie! - " + test.name, expected.getIsAudited(), result.getIsAudited());
+			assertEquals("policyId mismatched without trie! - " + test.name, expected.getPolicyId(), result.getPolicyId());
+
+			for(int i = 0; i < 2; i++) { // second iteration gets the result from the decision cache, when cached
+				result = decisionCachePolicyEngine.isAccessAllowed(test.request, null);
+
+				assertEquals("isAllowed mismatched with decision cache! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
+				assertEquals("isAudited mismatched with decision cache! - " + test.name, expected.getIsAudited(), result.getIsAudited());
+				assertEquals("policyId mismatched with decision cache! - " + test.name, expected.getPolicyId(), result.getPolicyId());
+			}
+		}
+
+		// none of the test policies have custom conditions, so all repeated requests should be served from the decision cache
+		RangerAccessDecisionCache decisionCache = ((RangerPolicyEngineImpl)decisionCachePolicyEngine).getDecisionCache();
+
+		assertNotNull("decision cache was null! - " + testName, decisionCache);
+		assertTrue("decision cache was not used! - " + testName, decisionCache.getHitCount() >= testCase.tests.size());
+
+		runTestsAsParallelBatch(servicePolicies, testCase, testName);
+		runTestsWithReorderedEvaluators(servicePolicies, testCase, testName);
+	}
+
+	private void runTestsWithReorderedEvaluators(ServicePolicies servicePolicies, PolicyEngineTestCase testCase, String testName) {
+		RangerPolicyEngineOptions statsOptions = new RangerPolicyEngineOptions();
+		statsOptions.collectEvaluatorStats = true;
+
+		RangerPolicyEngineImpl statsPolicyEngine = new RangerPolicyEngineImpl(servicePolicies, statsOptions);
+
+		for(int i = 0; i < 20; i++) {
+			for(TestData test : testCase.tests) {
+				statsPolicyEngine.isAccessAllowed(test.request, null);
+			}
+		}
+
+		long evaluationCount = 0;
+
+		for(RangerPolicyEvaluator evaluator : statsPolicyEngine.getPolicyEvaluators()) {
+			assertNotNull("evaluator stats were null! - " + testName, evaluator.getStats());
+
+			evaluationCount += evaluator.getStats().getEvaluationCount();
+		}
+
+		assertTrue("evaluator stats were not collected! - " + testName, evaluationCount > 0);
+
+		statsPolicyEngine.reorderPolicyEvaluators();
+
+		assertEquals("evaluator count changed by reorder! - " + testName, testCase.policies.size(), statsPolicyEngine.getPolicyEvaluators().size());
+
+		// the reported policyId can change with the order, when more than one policy allows the access
+		for(TestData test : testCase.tests) {
+			RangerAccessResult expected = test.result;
+			RangerAccessResult result   = statsPolicyEngine.isAccessAllowed(test.request, null);
+
+			assertEquals("isAllowed mismatched with reordered evaluators! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
+			assertEquals("isAudited mismatched with reordered evaluators! - " + test.name, expected.getIsAudited(), result.getIsAudited());
+		}
+	}
+
+	private void runTestsAsParallelBatch(ServicePolicies servicePolicies, PolicyEngineTestCase testCase, String testName) {
+		RangerPolicyEngineOptions parallelBatchOptions = new RangerPolicyEngineOptions();
+		parallelBatchOptions.batchParallelThreshold = 1;
+		parallelBatchOptions.batchParallelism       = 4;
+
+		RangerPolicyEngine parallelBatchPolicyEngine = new RangerPolicyEngineImpl(servicePolicies, parallelBatchOptions);
+
+		List<RangerAccessRequest> requests = new ArrayList<RangerAccessRequest>();
+
+		for(TestData test : testCase.tests) {
+			requests.add(test.request);
+		}
+
+		final AtomicInteger processResultsCount = new AtomicInteger();
+
+		RangerAccessResultProcessor resultProcessor = new RangerAccessResultProcessor() {
+			@Override
+			public void processResult(RangerAccessResult result) {
+				fail("processResult() called for a batch");
+			}
+
+			@Override
+			public void processResults(Collection<RangerAccessResult> results) {
+				processResultsCount.incrementAndGet();
+			}
+		};
+
+		Collection<RangerAccessResult> results = parallelBatchPolicyEngine.isAccessAllowed(requests, resultProcessor);
+
+		assertEquals("processResults() call count - " + testName, 1, processResultsCount.get());
+		assertEquals("result count - " + testName, testCase.tests.size(), results.size());
+
+		Iterator<RangerAccessResult> iter = results.iterator();
+
+		for(TestData test : testCase.tests) {
+			RangerAccessResult expected = test.result;
+			RangerAccessResult result   = iter.next();
+
+			assertSame("result out of order in parallel batch! - " + test.name, test.request, result.getAccessRequest());
+			assertEquals("isAllowed mismatched in parallel batch! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
+			assertEquals("isAudited mismatched in parallel batch! - " + test.name, expected.getIsAudited(), result.getIsAudited());
+			assertEquals("policyId mismatched in parallel batch! - " + test.name, expected.getPolicyId(), result.getPolicyId());
 		}
 	}
 
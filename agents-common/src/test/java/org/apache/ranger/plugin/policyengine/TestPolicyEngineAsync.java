@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+public class TestPolicyEngineAsync {
+
+	@Test
+	public void testSameResultsAsSync() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount = 200;
+
+		ServicePolicies           servicePolicies = generator.generateServicePolicies();
+		RangerAccessRequest[]     requests        = generator.generateRequests(500);
+		ExecutorService           executor        = Executors.newFixedThreadPool(2);
+		RangerPolicyEngineOptions options         = new RangerPolicyEngineOptions();
+
+		options.asyncExecutor = executor;
+
+		try {
+			RangerPolicyEngineImpl policyEngine    = new RangerPolicyEngineImpl(servicePolicies, options);
+			ResultCollector        resultCollector = new ResultCollector(requests.length + 1);
+
+			List<ListenableFuture<RangerAccessResult>> futures = new ArrayList<ListenableFuture<RangerAccessResult>>();
+
+			for(RangerAccessRequest request : requests) {
+				futures.add(policyEngine.isAccessAllowedAsync(request, resultCollector));
+			}
+
+			ListenableFuture<Collection<RangerAccessResult>> batchFuture = policyEngine.isAccessAllowedAsync(Arrays.asList(requests), resultCollector);
+
+			Iterator<RangerAccessResult> batchResults = batchFuture.get(30, TimeUnit.SECONDS).iterator();
+
+			for(int i = 0; i < requests.length; i++) {
+				RangerAccessResult expected    = policyEngine.isAccessAllowed(requests[i], null);
+				RangerAccessResult result      = futures.get(i).get(30, TimeUnit.SECONDS);
+				RangerAccessResult batchResult = batchResults.next();
+
+				assertEquals(expected.getIsAllowed(), result.getIsAllowed());
+				assertEquals(expected.getPolicyId(), result.getPolicyId());
+				assertEquals(expected.getIsAllowed(), batchResult.getIsAllowed());
+				assertEquals(expected.getPolicyId(), batchResult.getPolicyId());
+			}
+
+			assertTrue(resultCollector.latch.await(30, TimeUnit.SECONDS));
+			assertFalse(resultCollector.calledInCallerThread);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testDoneOnCacheHit() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount = 50;
+
+		ServicePolicies           servicePolicies = generator.generateServicePolicies();
+		RangerAccessRequest       request         = generator.generateRequests(1)[0];
+		RangerPolicyEngineOptions options         = new RangerPolicyEngineOptions();
+
+		options.cacheAccessDecisions = true;
+
+		RangerPolicyEngineImpl policyEngine = new RangerPolicyEngineImpl(servicePolicies, options);
+		RangerAccessResult     expected     = policyEngine.isAccessAllowed(request, null);
+
+		ResultCollector                      resultCollector = new ResultCollector(1);
+		ListenableFuture<RangerAccessResult> future          = policyEngine.isAccessAllowedAsync(request, resultCollector);
+
+		assertTrue(future.isDone());
+		assertEquals(expected.getIsAllowed(), future.get().getIsAllowed());
+		assertEquals(expected.getPolicyId(), future.get().getPolicyId());
+
+		assertTrue(resultCollector.latch.await(30, TimeUnit.SECONDS));
+		assertFalse(resultCollector.calledInCallerThread);
+	}
+
+	private static class ResultCollector implements RangerAccessResultProcessor {
+		final Thread         callerThread = Thread.currentThread();
+		final CountDownLatch latch;
+		volatile boolean     calledInCallerThread = false;
+
+		ResultCollector(int count) {
+			latch = new CountDownLatch(count);
+		}
+
+		@Override
+		public void processResult(RangerAccessResult result) {
+			calledInCallerThread |= Thread.currentThread() == callerThread;
+
+			latch.countDown();
+		}
+
+		@Override
+		public void processResults(Collection<RangerAccessResult> results) {
+			calledInCallerThread |= Thread.currentThread() == callerThread;
+
+			latch.countDown();
+		}
+	}
+}
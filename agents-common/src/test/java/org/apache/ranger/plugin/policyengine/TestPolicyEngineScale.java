@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Builds policy engines on generated policies and reports build time, heap retained per policy and request latency
+ * percentiles, with 1,000, 10,000 and 100,000 policies. These are measurements taking minutes, and run only with
+ * -Dranger.test.scale=true; by default, only a small engine is built on generated policies of each service type
+ */
+public class TestPolicyEngineScale {
+	private static final Log LOG = LogFactory.getLog(TestPolicyEngineScale.class);
+
+	private static final String   PROP_SCALE_TESTS = "ranger.test.scale";
+	private static final int      REQUEST_COUNT    = 10000;
+	private static final String[] SERVICE_TYPES    = { EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HDFS_NAME,
+	                                                   EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HIVE_NAME,
+	                                                   EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HBASE_NAME };
+
+	@Test
+	public void testGeneratedPolicies() throws Exception {
+		for(String serviceType : SERVICE_TYPES) {
+			RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+			generator.serviceType    = serviceType;
+			generator.policyCount    = 100;
+			generator.conditionRatio = 0.05;
+
+			ServicePolicies        servicePolicies = generator.generateServicePolicies();
+			RangerPolicyEngineImpl policyEngine    = new RangerPolicyEngineImpl(servicePolicies, new RangerPolicyEngineOptions());
+
+			assertEquals(generator.policyCount, policyEngine.getPolicyEvaluators().size());
+
+			for(RangerAccessRequest request : generator.generateRequests(100)) {
+				assertNotNull(policyEngine.isAccessAllowed(request, null));
+			}
+		}
+	}
+
+	@Test
+	public void testPolicyEngine_1k() throws Exception {
+		Assume.assumeTrue(Boolean.getBoolean(PROP_SCALE_TESTS));
+
+		runScaleTests(1000);
+	}
+
+	@Test
+	public void testPolicyEngine_10k() throws Exception {
+		Assume.assumeTrue(Boolean.getBoolean(PROP_SCALE_TESTS));
+
+		runScaleTests(10000);
+	}
+
+	@Test
+	public void testPolicyEngine_100k() throws Exception {
+		Assume.assumeTrue(Boolean.getBoolean(PROP_SCALE_TESTS));
+
+		runScaleTests(100000);
+	}
+
+	private void runScaleTests(int policyCount) throws Exception {
+		for(String serviceType : SERVICE_TYPES) {
+			runScaleTest(serviceType, policyCount);
+		}
+	}
+
+	private void runScaleTest(String serviceType, int policyCount) throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.serviceType    = serviceType;
+		generator.policyCount    = policyCount;
+		generator.conditionRatio = 0.05;
+
+		ServicePolicies       servicePolicies = generator.generateServicePolicies();
+		RangerAccessRequest[] requests        = generator.generateRequests(REQUEST_COUNT);
+
+		long heapBefore = getUsedHeap();
+		long startTime  = System.nanoTime();
+
+		RangerPolicyEngineImpl policyEngine = new RangerPolicyEngineImpl(servicePolicies, new RangerPolicyEngineOptions());
+
+		long buildTimeNanos = System.nanoTime() - startTime;
+		long heapAfter      = getUsedHeap(); // policies were retained before the build too: this is what the engine adds
+
+		assertEquals(policyCount, policyEngine.getPolicyEvaluators().size());
+
+		for(RangerAccessRequest request : requests) { // warm-up
+			assertNotNull(policyEngine.isAccessAllowed(request, null));
+		}
+
+		long[] latencies = new long[requests.length];
+		int    allowed   = 0;
+
+		for(int i = 0; i < requests.length; i++) {
+			long requestStartTime = System.nanoTime();
+
+			RangerAccessResult result = policyEngine.isAccessAllowed(requests[i], null);
+
+			latencies[i] = System.nanoTime() - requestStartTime;
+
+			if(result.getIsAllowed()) {
+				allowed++;
+			}
+		}
+
+		Arrays.sort(latencies);
+
+		LOG.info(String.format("TestPolicyEngineScale.runScaleTest(): %s: policies=%d, build=%dms, heap/policy=%d bytes, requests=%d, allowed=%d, latency(us): p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f",
+		                       serviceType, policyCount, buildTimeNanos / 1000000, (heapAfter - heapBefore) / policyCount, requests.length, allowed,
+		                       getPercentile(latencies, 50), getPercentile(latencies, 90), getPercentile(latencies, 99), getPercentile(latencies, 99.9),
+		                       latencies[latencies.length - 1] / 1000.0));
+	}
+
+	private static double getPercentile(long[] sortedNanos, double percentile) {
+		int idx = (int) Math.ceil(percentile / 100 * sortedNanos.length) - 1;
+
+		return sortedNanos[Math.max(0, idx)] / 1000.0;
+	}
+
+	private static long getUsedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+
+		for(int i = 0; i < 3; i++) {
+			System.gc();
+
+			Thread.sleep(50);
+		}
+
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
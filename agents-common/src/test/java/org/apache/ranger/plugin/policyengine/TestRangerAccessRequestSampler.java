@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+public class TestRangerAccessRequestSampler {
+
+	@Test
+	public void testSampleAndWarmUp() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount = 200;
+
+		ServicePolicies            servicePolicies = generator.generateServicePolicies();
+		RangerAccessRequest[]      requests        = generator.generateRequests(1000);
+		RangerAccessRequestSampler sampler         = new RangerAccessRequestSampler(100, 1);
+
+		for(RangerAccessRequest request : requests) {
+			sampler.sample(request);
+		}
+
+		List<RangerAccessRequest> samples = sampler.getSamples();
+
+		assertEquals(100, samples.size());
+
+		// samples are copies of the most recent requests
+		RangerAccessRequest sample  = samples.get(99);
+		RangerAccessRequest request = requests[999];
+
+		assertNotSame(request, sample);
+		assertEquals(request.getResource(), sample.getResource());
+		assertEquals(request.getUser(), sample.getUser());
+		assertEquals(request.getUserGroups(), sample.getUserGroups());
+		assertEquals(request.getAccessType(), sample.getAccessType());
+
+		RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+
+		options.cacheAccessDecisions = true;
+
+		RangerPolicyEngineImpl policyEngine = new RangerPolicyEngineImpl(servicePolicies, options);
+
+		assertEquals(100, sampler.warmUp(policyEngine));
+		assertTrue(policyEngine.getDecisionCache().size() > 0);
+
+		long hitCount = policyEngine.getDecisionCache().getHitCount();
+
+		policyEngine.isAccessAllowed(request, null);
+
+		assertEquals(hitCount + 1, policyEngine.getDecisionCache().getHitCount());
+	}
+
+	@Test
+	public void testSampleInterval() throws Exception {
+		RangerAccessRequestSampler sampler  = new RangerAccessRequestSampler(1000, 10);
+		RangerAccessRequest[]      requests = new RangerPolicyGenerator().generateRequests(1000);
+
+		for(RangerAccessRequest request : requests) {
+			sampler.sample(request);
+		}
+
+		int sampleCount = sampler.getSamples().size();
+
+		assertTrue("sampleCount=" + sampleCount, sampleCount > 20 && sampleCount < 300);
+	}
+}
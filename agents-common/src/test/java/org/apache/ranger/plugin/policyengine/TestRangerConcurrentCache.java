@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Test;
+
+
+public class TestRangerConcurrentCache {
+	private static final Log LOG = LogFactory.getLog(TestRangerConcurrentCache.class);
+
+	private static final int THREAD_COUNT   = 16;
+	private static final int OPS_PER_THREAD = 200000;
+	private static final int KEY_COUNT      = 4096;
+	private static final int CACHE_SIZE     = 1024;
+
+	@Test
+	public void testBoundedSizeAndCounters() {
+		// with fewer entries than the eviction sample size, the least recently used entry is always evicted
+		RangerConcurrentCache<String, String> cache = new RangerConcurrentCache<String, String>(4);
+
+		for(int i = 0; i < 4; i++) {
+			cache.put(String.valueOf(i), String.valueOf(i));
+		}
+
+		assertEquals(4, cache.size());
+		assertEquals(0, cache.getEvictionCount());
+
+		assertEquals("0", cache.get("0"));
+		assertEquals("1", cache.get("1"));
+		assertNull(cache.get("missing"));
+
+		cache.put("4", "4");
+		cache.put("5", "5");
+
+		assertEquals(4, cache.size());
+		assertEquals(2, cache.getEvictionCount());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		assertNull(cache.get("2"));
+		assertNull(cache.get("3"));
+		assertEquals("0", cache.get("0"));
+		assertEquals("1", cache.get("1"));
+		assertEquals("5", cache.get("5"));
+
+		cache.put("5", "five");
+
+		assertEquals("five", cache.get("5"));
+		assertEquals(4, cache.size());
+
+		cache.clear();
+
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		final RangerConcurrentCache<String, Boolean> cache    = new RangerConcurrentCache<String, Boolean>(CACHE_SIZE, true);
+		final Map<String, Boolean>                   cacheMap = Collections.synchronizedMap(new CacheMap<String, Boolean>(CACHE_SIZE));
+
+		CacheOperations concurrentCacheOps = new CacheOperations() {
+			@Override
+			public Boolean get(String key) {
+				return cache.get(key);
+			}
+
+			@Override
+			public void put(String key, Boolean value) {
+				cache.put(key, value);
+			}
+		};
+
+		CacheOperations cacheMapOps = new CacheOperations() {
+			@Override
+			public Boolean get(String key) {
+				return cacheMap.get(key);
+			}
+
+			@Override
+			public void put(String key, Boolean value) {
+				cacheMap.put(key, value);
+			}
+		};
+
+		runConcurrently(concurrentCacheOps); // warm-up
+		runConcurrently(cacheMapOps);
+
+		long cacheMapTimeMs        = runConcurrently(cacheMapOps);
+		long concurrentCacheTimeMs = runConcurrently(concurrentCacheOps);
+
+		assertTrue("cache size " + cache.size() + " exceeds max size " + CACHE_SIZE, cache.size() <= CACHE_SIZE);
+		assertEquals((long)THREAD_COUNT * OPS_PER_THREAD * 2, cache.getHitCount() + cache.getMissCount());
+		assertTrue(cache.getEvictionCount() > 0);
+
+		LOG.info("TestRangerConcurrentCache.testConcurrentAccess(): threads=" + THREAD_COUNT + ", opsPerThread=" + OPS_PER_THREAD
+				+ ", synchronized CacheMap=" + cacheMapTimeMs + "ms, RangerConcurrentCache=" + concurrentCacheTimeMs + "ms; " + cache);
+	}
+
+	private long runConcurrently(final CacheOperations ops) throws Exception {
+		final CountDownLatch             startLatch = new CountDownLatch(1);
+		final AtomicReference<Throwable> error      = new AtomicReference<Throwable>();
+		Thread[]                         threads    = new Thread[THREAD_COUNT];
+
+		for(int t = 0; t < THREAD_COUNT; t++) {
+			final long seed = t;
+
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						Random random = new Random(seed);
+
+						startLatch.await();
+
+						for(int i = 0; i < OPS_PER_THREAD; i++) {
+							// skewed key distribution: most lookups are for a small set of hot keys
+							int    keyIdx = random.nextInt(4) == 0 ? random.nextInt(KEY_COUNT) : random.nextInt(CACHE_SIZE / 4);
+							String key    = "/data/warehouse/db" + keyIdx;
+
+							if(ops.get(key) == null) {
+								ops.put(key, Boolean.TRUE);
+							}
+						}
+					} catch(Throwable excp) {
+						error.compareAndSet(null, excp);
+					}
+				}
+			};
+
+			threads[t].start();
+		}
+
+		long startTimeMs = System.currentTimeMillis();
+
+		startLatch.countDown();
+
+		for(Thread thread : threads) {
+			thread.join();
+		}
+
+		long ret = System.currentTimeMillis() - startTimeMs;
+
+		if(error.get() != null) {
+			throw new AssertionError(error.get());
+		}
+
+		return ret;
+	}
+
+	private interface CacheOperations {
+		Boolean get(String key);
+
+		void put(String key, Boolean value);
+	}
+}
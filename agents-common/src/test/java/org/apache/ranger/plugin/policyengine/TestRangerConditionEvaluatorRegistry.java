@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.apache.ranger.plugin.conditionevaluator.RangerConditionEvaluator;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerPolicyConditionDef;
+import org.apache.ranger.plugin.policyengine.RangerConditionEvaluatorRegistry.RequestMemo;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+public class TestRangerConditionEvaluatorRegistry {
+
+	@Test
+	public void testSharedEvaluators() {
+		RangerConditionEvaluatorRegistry registry     = new RangerConditionEvaluatorRegistry();
+		RangerPolicyConditionDef         conditionDef = new RangerPolicyConditionDef(1L, "c1", CountingEvaluator.class.getName(), null);
+		RangerPolicyItemCondition        condition1   = new RangerPolicyItemCondition("c1", Arrays.asList("a", "b"));
+		RangerPolicyItemCondition        condition2   = new RangerPolicyItemCondition("c1", Arrays.asList("b", "a", "b"));
+		RangerPolicyItemCondition        condition3   = new RangerPolicyItemCondition("c1", Arrays.asList("a"));
+		RangerPolicyItemCondition        condition4   = new RangerPolicyItemCondition("c1", Arrays.asList("a", "b"));
+
+		assertNull(registry.getEvaluator(conditionDef, condition1));
+
+		CountingEvaluator        evaluator = new CountingEvaluator();
+		RangerConditionEvaluator shared    = registry.share(conditionDef, condition1, evaluator);
+
+		assertSame(shared, registry.getEvaluator(conditionDef, condition1));
+		assertSame(shared, registry.getEvaluator(conditionDef, condition4));
+		assertNull(registry.getEvaluator(conditionDef, condition3));
+
+		// values are compared in order, duplicates included: an evaluator might depend on their positions
+		assertNull(registry.getEvaluator(conditionDef, condition2));
+		assertEquals(1, registry.size());
+
+		RangerAccessRequest request = new RangerAccessRequestImpl();
+		RequestMemo         memo    = registry.beginRequest(request);
+
+		assertTrue(shared.isMatched(request));
+		assertTrue(shared.isMatched(request));
+		assertEquals(1, evaluator.count);
+
+		// other requests are not memoized
+		assertTrue(shared.isMatched(new RangerAccessRequestImpl()));
+		assertEquals(2, evaluator.count);
+
+		registry.endRequest(memo);
+
+		assertTrue(shared.isMatched(request));
+		assertEquals(3, evaluator.count);
+
+		memo = registry.beginRequest(request);
+
+		assertTrue(shared.isMatched(request));
+		assertTrue(shared.isMatched(request));
+		assertEquals(4, evaluator.count);
+
+		registry.endRequest(memo);
+	}
+
+	@Test
+	public void testSameResultsWithoutSharing() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount    = 500;
+		generator.conditionRatio = 0.5;
+
+		ServicePolicies           servicePolicies  = generator.generateServicePolicies();
+		RangerAccessRequest[]     requests         = generator.generateRequests(2000);
+		RangerPolicyEngineOptions noSharingOptions = new RangerPolicyEngineOptions();
+
+		noSharingOptions.disableSharedConditions = true;
+
+		RangerPolicyEngineImpl policyEngine          = new RangerPolicyEngineImpl(servicePolicies, new RangerPolicyEngineOptions());
+		RangerPolicyEngineImpl noSharingPolicyEngine = new RangerPolicyEngineImpl(servicePolicies, noSharingOptions);
+
+		for(RangerAccessRequest request : requests) {
+			RangerAccessResult expected = noSharingPolicyEngine.isAccessAllowed(request, null);
+			RangerAccessResult result   = policyEngine.isAccessAllowed(request, null);
+
+			assertEquals(expected.getIsAllowed(), result.getIsAllowed());
+			assertEquals(expected.getIsAudited(), result.getIsAudited());
+			assertEquals(expected.getPolicyId(), result.getPolicyId());
+		}
+
+		RangerConditionEvaluatorRegistry registry = policyEngine.getPolicyRepository().getConditionEvaluatorRegistry();
+
+		assertNotNull(registry);
+		assertNull(noSharingPolicyEngine.getPolicyRepository().getConditionEvaluatorRegistry());
+		assertTrue(registry.size() > 0);
+		assertTrue(registry.size() < servicePolicies.getPolicies().size() / 4); // generated conditions use a few ip ranges
+	}
+
+	public static class CountingEvaluator implements RangerConditionEvaluator {
+		int count = 0;
+
+		@Override
+		public void init(RangerPolicyConditionDef conditionDef, RangerPolicyItemCondition condition) {
+		}
+
+		@Override
+		public boolean isMatched(RangerAccessRequest request) {
+			count++;
+
+			return true;
+		}
+	}
+}
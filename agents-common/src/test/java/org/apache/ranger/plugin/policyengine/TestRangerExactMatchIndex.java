@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+public class TestRangerExactMatchIndex {
+
+	@Test
+	public void testSameResultsAsScan() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount   = 1000;
+		generator.wildcardRatio = 0.3;
+
+		ServicePolicies    servicePolicies = generator.generateServicePolicies();
+		List<RangerPolicy> policies        = servicePolicies.getPolicies();
+
+		// some policies the index can't describe: with excludes, with more than one value
+		for(int i = 0; i < policies.size(); i += 10) {
+			RangerPolicyResource resource = policies.get(i).getResources().values().iterator().next();
+
+			if(i % 20 == 0) {
+				resource.setIsExcludes(Boolean.TRUE);
+			} else {
+				resource.getValues().add("other");
+			}
+		}
+
+		RangerPolicyEngineImpl     policyEngine = new RangerPolicyEngineImpl(servicePolicies, new RangerPolicyEngineOptions());
+		List<RangerAccessResource> resources    = new ArrayList<RangerAccessResource>();
+
+		for(RangerPolicy policy : policies) {
+			Map<String, String> values      = new HashMap<String, String>();
+			Map<String, String> upperValues = new HashMap<String, String>();
+			Map<String, String> emptyValues = new HashMap<String, String>();
+
+			for(Map.Entry<String, RangerPolicyResource> e : policy.getResources().entrySet()) {
+				String value = e.getValue().getValues().get(0);
+
+				values.put(e.getKey(), value);
+				upperValues.put(e.getKey(), value.toUpperCase());
+				emptyValues.put(e.getKey(), value.equals("*") ? "" : value);
+			}
+
+			resources.add(new RangerAccessResourceImpl(values));
+			resources.add(new RangerAccessResourceImpl(upperValues));
+			resources.add(new RangerAccessResourceImpl(emptyValues));
+		}
+
+		int matchCount = 0;
+
+		for(RangerAccessResource resource : resources) {
+			RangerPolicy expected = getExactMatchPolicyByScan(policyEngine, resource);
+
+			assertSame(resource.toString(), expected, policyEngine.getExactMatchPolicy(resource));
+
+			if(expected != null) {
+				matchCount++;
+			}
+		}
+
+		assertTrue(matchCount > resources.size() / 2);
+
+		RangerExactMatchIndex index = new RangerExactMatchIndex(servicePolicies.getServiceDef(), policyEngine.getPolicyRepository().getPolicyEvaluators());
+
+		assertEquals(policies.size() / 20, index.getUnindexedEvaluatorCount());
+	}
+
+	// as getExactMatchPolicy() used to be: the first evaluator that matches
+	private static RangerPolicy getExactMatchPolicyByScan(RangerPolicyEngineImpl policyEngine, RangerAccessResource resource) {
+		for(RangerPolicyEvaluator evaluator : policyEngine.getPolicyRepository().getPolicyEvaluators()) {
+			if(evaluator.isSingleAndExactMatch(resource)) {
+				return evaluator.getPolicy();
+			}
+		}
+
+		return null;
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import static org.junit.Assert.*;
+
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+public class TestRangerHeadMatch {
+
+	@Test
+	public void testAnyAccessSameResultsWithoutCache() throws Exception {
+		for(String serviceType : new String[] { "hive", "hdfs" }) {
+			RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+			generator.serviceType   = serviceType;
+			generator.policyCount   = 500;
+			generator.wildcardRatio = 0.3;
+
+			ServicePolicies           servicePolicies = generator.generateServicePolicies();
+			RangerAccessRequest[]     requests        = generator.generateRequests(1000);
+			RangerPolicyEngineOptions noCacheOptions  = new RangerPolicyEngineOptions();
+
+			noCacheOptions.disableHeadMatchCache      = true;
+			noCacheOptions.disableTrieLookupPrefilter = true;
+
+			RangerPolicyEngineImpl policyEngine        = new RangerPolicyEngineImpl(servicePolicies, new RangerPolicyEngineOptions());
+			RangerPolicyEngineImpl noCachePolicyEngine = new RangerPolicyEngineImpl(servicePolicies, noCacheOptions);
+			RangerPolicyRepository repository          = policyEngine.getPolicyRepository();
+			int                    allowedCount        = 0;
+
+			for(int i = 0; i < requests.length; i++) {
+				RangerAccessRequestImpl request = getAnyAccessRequest(servicePolicies, requests[i], 1 + i % 2);
+
+				for(int pass = 0; pass < 2; pass++) { // the second from the cache
+					RangerAccessResult expected = noCachePolicyEngine.isAccessAllowed(request, null);
+					RangerAccessResult result   = policyEngine.isAccessAllowed(request, null);
+
+					assertEquals(request.toString(), expected.getIsAllowed(), result.getIsAllowed());
+					assertEquals(request.toString(), expected.getIsAudited(), result.getIsAudited());
+					assertEquals(request.toString(), expected.getPolicyId(), result.getPolicyId());
+				}
+
+				if(policyEngine.isAccessAllowed(request, null).getIsAllowed()) {
+					allowedCount++;
+				}
+
+				// head-match evaluators are exactly those of all evaluators that match or head match
+				int headMatchCount = 0;
+
+				for(RangerPolicyEvaluator evaluator : repository.getPolicyEvaluators()) {
+					if(evaluator.isMatchOrHeadMatch(request.getResource())) {
+						headMatchCount++;
+					}
+				}
+
+				assertEquals(request.toString(), headMatchCount, repository.getHeadMatchEvaluators(request.getResource()).size());
+			}
+
+			assertTrue(serviceType, allowedCount > 0);
+		}
+	}
+
+	// ANY access on the leading levels of the resource of the given request, as for listing databases or tables
+	private static RangerAccessRequestImpl getAnyAccessRequest(ServicePolicies servicePolicies, RangerAccessRequest request, int levels) {
+		RangerAccessResourceImpl resource   = new RangerAccessResourceImpl();
+		int                      levelCount = 0;
+
+		for(RangerResourceDef resourceDef : servicePolicies.getServiceDef().getResources()) {
+			String value = request.getResource().getValue(resourceDef.getName());
+
+			if(value != null && levelCount < levels) {
+				resource.setValue(resourceDef.getName(), value);
+
+				levelCount++;
+			}
+		}
+
+		return new RangerAccessRequestImpl(resource, RangerPolicyEngine.ANY_ACCESS, request.getUser(), request.getUserGroups());
+	}
+}
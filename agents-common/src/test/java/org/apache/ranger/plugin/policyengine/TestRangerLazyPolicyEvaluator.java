@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ranger.plugin.policyevaluator.RangerLazyPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+public class TestRangerLazyPolicyEvaluator {
+
+	@Test
+	public void testSameResultsAsEager() throws Exception {
+		for(String evaluatorType : new String[] { RangerPolicyEvaluator.EVALUATOR_TYPE_CACHED, RangerPolicyEvaluator.EVALUATOR_TYPE_DEFAULT }) {
+			RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+			generator.policyCount    = 1000;
+			generator.conditionRatio = 0.2;
+
+			ServicePolicies        servicePolicies = generator.generateServicePolicies();
+			RangerAccessRequest[]  requests        = generator.generateRequests(200);
+			RangerPolicyEngineImpl eagerEngine     = createPolicyEngine(servicePolicies, evaluatorType, false);
+			RangerPolicyEngineImpl lazyEngine      = createPolicyEngine(servicePolicies, evaluatorType, true);
+
+			assertEquals(evaluatorType, getPolicyIds(eagerEngine), getPolicyIds(lazyEngine));
+			assertEquals(evaluatorType, 0, getInitializedCount(lazyEngine));
+
+			for(RangerAccessRequest request : requests) {
+				assertSameResult(eagerEngine.isAccessAllowed(request, null), lazyEngine.isAccessAllowed(request, null));
+			}
+
+			int initializedCount = getInitializedCount(lazyEngine);
+
+			assertTrue(evaluatorType + ": initializedCount=" + initializedCount, initializedCount > 0 && initializedCount < lazyEngine.getPolicyRepository().getPolicyEvaluators().size());
+		}
+	}
+
+	@Test
+	public void testConcurrentInit() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount = 500;
+
+		ServicePolicies                    servicePolicies = generator.generateServicePolicies();
+		final RangerAccessRequest[]        requests        = generator.generateRequests(500);
+		RangerPolicyEngineImpl             eagerEngine     = createPolicyEngine(servicePolicies, RangerPolicyEvaluator.EVALUATOR_TYPE_CACHED, false);
+		final RangerPolicyEngineImpl       lazyEngine      = createPolicyEngine(servicePolicies, RangerPolicyEvaluator.EVALUATOR_TYPE_CACHED, true);
+		ExecutorService                    executor        = Executors.newFixedThreadPool(8);
+		List<Future<RangerAccessResult[]>> futures         = new ArrayList<Future<RangerAccessResult[]>>();
+
+		try {
+			// every thread goes through the same requests, to race for the same evaluators
+			for(int i = 0; i < 8; i++) {
+				futures.add(executor.submit(new Callable<RangerAccessResult[]>() {
+					@Override
+					public RangerAccessResult[] call() {
+						RangerAccessResult[] ret = new RangerAccessResult[requests.length];
+
+						for(int j = 0; j < requests.length; j++) {
+							ret[j] = lazyEngine.isAccessAllowed(requests[j], null);
+						}
+
+						return ret;
+					}
+				}));
+			}
+
+			for(Future<RangerAccessResult[]> future : futures) {
+				RangerAccessResult[] results = future.get();
+
+				for(int j = 0; j < requests.length; j++) {
+					assertSameResult(eagerEngine.isAccessAllowed(requests[j], null), results[j]);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testNotInitializedByDecisionCache() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		// without conditions, every candidate evaluator is checked for conditions before a decision is cached
+		generator.policyCount    = 1000;
+		generator.conditionRatio = 0;
+
+		ServicePolicies        servicePolicies    = generator.generateServicePolicies();
+		RangerAccessRequest[]  requests           = generator.generateRequests(200);
+		RangerPolicyEngineImpl lazyEngine         = createPolicyEngine(servicePolicies, RangerPolicyEvaluator.EVALUATOR_TYPE_CACHED, true, false);
+		RangerPolicyEngineImpl decisionCacheEngine = createPolicyEngine(servicePolicies, RangerPolicyEvaluator.EVALUATOR_TYPE_CACHED, true, true);
+
+		for(RangerAccessRequest request : requests) {
+			assertSameResult(lazyEngine.isAccessAllowed(request, null), decisionCacheEngine.isAccessAllowed(request, null));
+		}
+
+		// whether a decision can be cached is known without initializing the candidate evaluators
+		int initializedCount              = getInitializedCount(lazyEngine);
+		int decisionCacheInitializedCount = getInitializedCount(decisionCacheEngine);
+
+		assertTrue("initializedCount=" + initializedCount + ", decisionCacheInitializedCount=" + decisionCacheInitializedCount, decisionCacheInitializedCount <= initializedCount);
+	}
+
+	private static RangerPolicyEngineImpl createPolicyEngine(ServicePolicies servicePolicies, String evaluatorType, boolean lazyEvaluators) {
+		return createPolicyEngine(servicePolicies, evaluatorType, lazyEvaluators, false);
+	}
+
+	private static RangerPolicyEngineImpl createPolicyEngine(ServicePolicies servicePolicies, String evaluatorType, boolean lazyEvaluators, boolean cacheAccessDecisions) {
+		RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+
+		options.evaluatorType        = evaluatorType;
+		options.lazyEvaluators       = lazyEvaluators;
+		options.cacheAccessDecisions = cacheAccessDecisions;
+
+		return new RangerPolicyEngineImpl(servicePolicies, options);
+	}
+
+	private static List<Long> getPolicyIds(RangerPolicyEngineImpl policyEngine) {
+		List<Long> ret = new ArrayList<Long>();
+
+		for(RangerPolicyEvaluator evaluator : policyEngine.getPolicyRepository().getPolicyEvaluators()) {
+			ret.add(evaluator.getPolicy().getId());
+		}
+
+		return ret;
+	}
+
+	private static int getInitializedCount(RangerPolicyEngineImpl policyEngine) {
+		int ret = 0;
+
+		for(RangerPolicyEvaluator evaluator : policyEngine.getPolicyRepository().getPolicyEvaluators()) {
+			if(((RangerLazyPolicyEvaluator)evaluator).isInitialized()) {
+				ret++;
+			}
+		}
+
+		return ret;
+	}
+
+	private static void assertSameResult(RangerAccessResult expected, RangerAccessResult result) {
+		String message = expected.getAccessRequest().toString();
+
+		assertEquals(message, expected.getIsAllowed(), result.getIsAllowed());
+		assertEquals(message, expected.getIsAudited(), result.getIsAudited());
+		assertEquals(message, expected.getPolicyId(), result.getPolicyId());
+	}
+}
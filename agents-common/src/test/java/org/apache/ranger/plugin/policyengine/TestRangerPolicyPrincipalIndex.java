@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.policyengine.RangerPolicyPrincipalIndex.ReachableEvaluators;
+import org.apache.ranger.plugin.policyengine.RangerSymbolTable.RequestSymbols;
+import org.apache.ranger.plugin.policyevaluator.RangerDefaultPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+public class TestRangerPolicyPrincipalIndex {
+
+	@Test
+	public void testReachableEvaluators() {
+		RangerSymbolTable     symbolTable  = new RangerSymbolTable();
+		RangerPolicyEvaluator userPolicy   = createEvaluator(Arrays.asList("user1", "user2"), null);
+		RangerPolicyEvaluator groupPolicy  = createEvaluator(null, Arrays.asList("group1"));
+		RangerPolicyEvaluator publicPolicy = createEvaluator(Arrays.asList("user3"), Arrays.asList(RangerPolicyEngine.GROUP_PUBLIC));
+		RangerPolicyEvaluator otherPolicy  = createEvaluator(null, null);
+
+		RangerPolicyPrincipalIndex index = new RangerPolicyPrincipalIndex(Arrays.asList(userPolicy, groupPolicy, publicPolicy), symbolTable);
+
+		assertEquals(3, index.getIndexedEvaluatorCount());
+		assertEquals(1, index.getPublicEvaluatorCount());
+
+		ReachableEvaluators reachable = index.getReachableEvaluators(new RequestSymbols(symbolTable, "user1", Collections.singleton("group1"), "read", null));
+
+		assertTrue(reachable.contains(userPolicy));
+		assertTrue(reachable.contains(groupPolicy));
+		assertTrue(reachable.contains(publicPolicy));
+		assertTrue(reachable.contains(otherPolicy)); // not in the index
+
+		reachable = index.getReachableEvaluators(new RequestSymbols(symbolTable, "user2", null, "read", null));
+
+		assertTrue(reachable.contains(userPolicy));
+		assertFalse(reachable.contains(groupPolicy));
+		assertFalse(reachable.contains(publicPolicy));
+
+		reachable = index.getReachableEvaluators(new RequestSymbols(symbolTable, "unknown", Collections.singleton("unknown"), "read", null));
+
+		assertFalse(reachable.contains(userPolicy));
+		assertFalse(reachable.contains(groupPolicy));
+		assertTrue(reachable.contains(publicPolicy));
+
+		reachable = index.getReachableEvaluators(new RequestSymbols(symbolTable, "unknown", null, "read", null));
+
+		assertTrue(reachable.isEmpty());
+	}
+
+	@Test
+	public void testSameResultsWithoutIndex() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount = 500;
+
+		ServicePolicies           servicePolicies = generator.generateServicePolicies();
+		RangerAccessRequest[]     requests        = generator.generateRequests(2000);
+		RangerPolicyEngineOptions options         = new RangerPolicyEngineOptions();
+		RangerPolicyEngineOptions noIndexOptions  = new RangerPolicyEngineOptions();
+
+		options.collectEvaluatorStats        = true;
+		noIndexOptions.disablePrincipalIndex = true;
+
+		RangerPolicyEngineImpl policyEngine        = new RangerPolicyEngineImpl(servicePolicies, options);
+		RangerPolicyEngineImpl noIndexPolicyEngine = new RangerPolicyEngineImpl(servicePolicies, noIndexOptions);
+
+		for(RangerAccessRequest request : requests) {
+			RangerAccessResult expected = noIndexPolicyEngine.isAccessAllowed(request, null);
+			RangerAccessResult result   = policyEngine.isAccessAllowed(request, null);
+
+			assertEquals(expected.getIsAllowed(), result.getIsAllowed());
+			assertEquals(expected.getIsAudited(), result.getIsAudited());
+			assertEquals(expected.getPolicyId(), result.getPolicyId());
+		}
+
+		RangerPolicyEngineStats stats = policyEngine.getStats();
+
+		assertNotNull(stats);
+		assertNull(noIndexPolicyEngine.getStats());
+		assertEquals(requests.length, stats.getRequestCount());
+		assertTrue(stats.getSkippedEvaluatorCount() > 0);
+	}
+
+	private RangerPolicyEvaluator createEvaluator(List<String> users, List<String> groups) {
+		RangerPolicyItem policyItem = new RangerPolicyItem(Collections.singletonList(new RangerPolicyItemAccess("read")), users, groups, null, Boolean.FALSE);
+		RangerPolicy     policy     = new RangerPolicy("svc", "policy", 0, null, null, Collections.singletonList(policyItem), null);
+
+		return new TestEvaluator(policy);
+	}
+
+	private static class TestEvaluator extends RangerDefaultPolicyEvaluator {
+		private final RangerPolicy policy;
+
+		TestEvaluator(RangerPolicy policy) {
+			this.policy = policy;
+		}
+
+		@Override
+		public RangerPolicy getPolicy() {
+			return policy;
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+public class TestRangerResourceKey {
+	private static RangerServiceDef serviceDef;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		serviceDef = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HIVE_NAME);
+	}
+
+	@Test
+	public void testEquality() {
+		RangerResourceKey key1 = createResource("database", "db1", "table", "tbl1", "column", "col1").getResourceKey(serviceDef);
+		RangerResourceKey key2 = createResource("column", "col1", "table", "tbl1", "database", "db1").getResourceKey(serviceDef);
+		RangerResourceKey key3 = createResource("database", "db1", "table", "tbl1", "column", "col2").getResourceKey(serviceDef);
+
+		assertEquals(key1, key2);
+		assertEquals(key1.hashCode(), key2.hashCode());
+		assertEquals(key1.getHash64(), key2.getHash64());
+		assertNotEquals(key1, key3);
+		assertNotEquals(key1.getHash64(), key3.getHash64());
+	}
+
+	@Test
+	public void testValuesWithSeparator() {
+		RangerAccessResource resource1 = createResource("database", "db1/tbl1", "table", "col1");
+		RangerAccessResource resource2 = createResource("database", "db1", "table", "tbl1/col1");
+
+		assertEquals(resource1.getAsString(serviceDef), resource2.getAsString(serviceDef));
+		assertNotEquals(resource1.getResourceKey(serviceDef), resource2.getResourceKey(serviceDef));
+	}
+
+	@Test
+	public void testAbsentAndEmptyValues() {
+		RangerResourceKey key1 = createResource("database", "db1", "table", "").getResourceKey(serviceDef);
+		RangerResourceKey key2 = createResource("database", "db1").getResourceKey(serviceDef);
+		RangerResourceKey key3 = createResource("database", "db1", "udf", "").getResourceKey(serviceDef);
+
+		assertNotEquals(key1, key2);
+		assertNotEquals(key1, key3);
+		assertNotEquals(key2, key3);
+	}
+
+	@Test
+	public void testResourcesNotInServiceDef() {
+		RangerResourceKey key1 = createResource("database", "db1", "unknown", "v1").getResourceKey(serviceDef);
+		RangerResourceKey key2 = createResource("database", "db1", "unknown", "v2").getResourceKey(serviceDef);
+		RangerResourceKey key3 = createResource("database", "db1", "unknown", "v1").getResourceKey(serviceDef);
+
+		assertNotEquals(key1, key2);
+		assertEquals(key1, key3);
+	}
+
+	@Test
+	public void testKeyUpdatedWithValues() {
+		RangerAccessResourceImpl resource = createResource("database", "db1", "table", "tbl1");
+		RangerResourceKey        key1     = resource.getResourceKey(serviceDef);
+
+		assertSame(key1, resource.getResourceKey(serviceDef));
+
+		resource.setValue("table", "tbl2");
+
+		RangerResourceKey key2 = resource.getResourceKey(serviceDef);
+
+		assertNotEquals(key1, key2);
+		assertEquals(createResource("database", "db1", "table", "tbl2").getResourceKey(serviceDef), key2);
+	}
+
+	@Test
+	public void testKeyPerServiceDef() throws Exception {
+		// same resources, in the reverse level order
+		Gson             gson        = new Gson();
+		RangerServiceDef serviceDef2 = gson.fromJson(gson.toJson(serviceDef), RangerServiceDef.class);
+
+		Collections.reverse(serviceDef2.getResources());
+
+		final RangerAccessResourceImpl resource = createResource("database", "db1", "table", "tbl1", "column", "col1");
+		final RangerResourceKey        key1     = createResource("database", "db1", "table", "tbl1", "column", "col1").getResourceKey(serviceDef);
+		final RangerResourceKey        key2     = createResource("database", "db1", "table", "tbl1", "column", "col1").getResourceKey(serviceDef2);
+
+		assertNotEquals(key1, key2);
+
+		// the old and the new engine of a policy refresh, getting the key of a resource at the same time
+		final AtomicReference<String> failure = new AtomicReference<String>();
+
+		Thread[] threads = new Thread[] { new KeyReader(resource, serviceDef, key1, failure), new KeyReader(resource, serviceDef2, key2, failure) };
+
+		for(Thread thread : threads) {
+			thread.start();
+		}
+
+		for(Thread thread : threads) {
+			thread.join();
+		}
+
+		assertNull(failure.get(), failure.get());
+	}
+
+	@Test
+	public void testReusedResult() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount = 100;
+
+		RangerPolicyEngine    policyEngine = new RangerPolicyEngineImpl(generator.generateServicePolicies(), new RangerPolicyEngineOptions());
+		RangerAccessResult    result       = new RangerAccessResult(null, null, null);
+		RangerAccessRequest[] requests     = generator.generateRequests(1000);
+
+		for(RangerAccessRequest request : requests) {
+			RangerAccessResult expected = policyEngine.isAccessAllowed(request, null);
+
+			assertSame(result, policyEngine.isAccessAllowed(request, result, null));
+			assertSame(request, result.getAccessRequest());
+			assertEquals(expected.getIsAllowed(), result.getIsAllowed());
+			assertEquals(expected.getIsAudited(), result.getIsAudited());
+			assertEquals(expected.getPolicyId(), result.getPolicyId());
+		}
+	}
+
+	private static class KeyReader extends Thread {
+		private final RangerAccessResourceImpl resource;
+		private final RangerServiceDef         serviceDef;
+		private final RangerResourceKey        expected;
+		private final AtomicReference<String>  failure;
+
+		KeyReader(RangerAccessResourceImpl resource, RangerServiceDef serviceDef, RangerResourceKey expected, AtomicReference<String> failure) {
+			this.resource   = resource;
+			this.serviceDef = serviceDef;
+			this.expected   = expected;
+			this.failure    = failure;
+		}
+
+		@Override
+		public void run() {
+			for(int i = 0; i < 100000 && failure.get() == null; i++) {
+				if(!expected.equals(resource.getResourceKey(serviceDef))) {
+					failure.compareAndSet(null, "key of another service-def returned, after " + i + " calls");
+				}
+			}
+		}
+	}
+
+	private RangerAccessResourceImpl createResource(String... nameValues) {
+		RangerAccessResourceImpl ret = new RangerAccessResourceImpl();
+
+		for(int i = 0; i + 1 < nameValues.length; i += 2) {
+			ret.setValue(nameValues[i], nameValues[i + 1]);
+		}
+
+		return ret;
+	}
+}
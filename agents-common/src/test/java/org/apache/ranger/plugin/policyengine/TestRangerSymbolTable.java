@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.ranger.plugin.policyengine.RangerSymbolTable.RequestSymbols;
+import org.junit.Test;
+
+
+public class TestRangerSymbolTable {
+	@Test
+	public void testIntern() {
+		RangerSymbolTable symbolTable = new RangerSymbolTable();
+
+		int[] groupIds = symbolTable.internGroups(Arrays.asList("finance", "hr", "finance", "admin"));
+
+		assertEquals(3, groupIds.length);
+		assertTrue(groupIds[0] < groupIds[1] && groupIds[1] < groupIds[2]);
+		assertEquals(symbolTable.getGroupId("hr"), symbolTable.internGroup("hr"));
+		assertEquals(RangerSymbolTable.NOT_FOUND, symbolTable.getGroupId("Finance"));
+		assertEquals(RangerSymbolTable.NOT_FOUND, symbolTable.getUserId("finance"));
+
+		assertEquals(symbolTable.internAccessType("select"), symbolTable.getAccessTypeId("SELECT"));
+		assertEquals(RangerSymbolTable.NOT_FOUND, symbolTable.getAccessTypeId(""));
+	}
+
+	@Test
+	public void testContainsAny() {
+		int[] ids = new int[] { 1, 5, 9, 200 };
+
+		assertTrue(RangerSymbolTable.containsAny(ids, new int[] { 9 }));
+		assertTrue(RangerSymbolTable.containsAny(new int[] { 0, 2, 3, 4, 200, 300 }, ids));
+		assertFalse(RangerSymbolTable.containsAny(ids, new int[] { 0, 2, 3, 4, 201 }));
+		assertFalse(RangerSymbolTable.containsAny(ids, new int[] { 201, 300 }));
+		assertFalse(RangerSymbolTable.containsAny(ids, new int[0]));
+
+		assertTrue(RangerSymbolTable.contains(ids, 200));
+		assertFalse(RangerSymbolTable.contains(ids, RangerSymbolTable.NOT_FOUND));
+	}
+
+	@Test
+	public void testRequestSymbols() {
+		RangerSymbolTable symbolTable = new RangerSymbolTable();
+		Set<String>       userGroups  = new HashSet<String>(Arrays.asList("finance", "unknown-group", "hr"));
+
+		symbolTable.internGroups(Arrays.asList("admin", "hr", "finance"));
+		symbolTable.internUser("user1");
+
+		RequestSymbols requestSymbols = symbolTable.beginRequest("user1", userGroups, "read");
+
+		try {
+			assertSame(requestSymbols, symbolTable.getRequestSymbols("user1", userGroups, "read"));
+			assertNotSame(requestSymbols, symbolTable.getRequestSymbols("user1", new HashSet<String>(userGroups), "read"));
+			assertNotSame(requestSymbols, new RangerSymbolTable().getRequestSymbols("user1", userGroups, "read"));
+
+			assertEquals(symbolTable.getUserId("user1"), requestSymbols.getUserId());
+			assertEquals(2, requestSymbols.getGroupIds().length);
+			assertEquals(RangerSymbolTable.NOT_FOUND, requestSymbols.getAccessTypeId());
+		} finally {
+			symbolTable.endRequest(requestSymbols);
+		}
+
+		assertNotSame(requestSymbols, symbolTable.getRequestSymbols("user1", userGroups, "read"));
+	}
+
+	@Test
+	public void testAccessTypeMask() {
+		RangerAccessTypeMask mask = new RangerAccessTypeMask.Builder().add(0).add(5).add(63).build();
+
+		assertTrue(mask.contains(0) && mask.contains(5) && mask.contains(63));
+		assertFalse(mask.contains(1) || mask.contains(64) || mask.contains(RangerSymbolTable.NOT_FOUND));
+		assertEquals(3, mask.size());
+
+		// service-defs with more than 64 access-types
+		RangerAccessTypeMask largeMask = new RangerAccessTypeMask.Builder().add(0).add(5).add(63).add(64).add(130).build();
+
+		assertTrue(largeMask.contains(64) && largeMask.contains(130));
+		assertFalse(largeMask.contains(65) || largeMask.contains(129));
+		assertEquals(5, largeMask.size());
+
+		assertTrue(largeMask.containsAll(mask));
+		assertFalse(mask.containsAll(largeMask));
+		assertTrue(mask.containsAll(RangerAccessTypeMask.EMPTY));
+		assertTrue(RangerAccessTypeMask.EMPTY.isEmpty());
+		assertSame(RangerAccessTypeMask.EMPTY, new RangerAccessTypeMask.Builder().add(RangerSymbolTable.NOT_FOUND).build());
+		assertEquals(mask, new RangerAccessTypeMask.Builder().add(63).add(5).add(0).build());
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.resourcematcher;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+
+public class TestRangerResourceValueMatcher {
+	private static final char[] PATTERN_CHARS  = { 'a', 'B', 'c', '/', '*', '?' };
+	private static final char[] RESOURCE_CHARS = { 'a', 'A', 'b', 'B', 'c', '/' };
+	private static final int    ITERATIONS     = 20000;
+
+	@Test
+	public void testCompiledMatcherKinds() {
+		assertTrue(RangerResourceValueMatcher.compile("finance", true, true) instanceof RangerResourceValueMatcher.ExactMatcher);
+		assertTrue(RangerResourceValueMatcher.compile("fin*", true, true) instanceof RangerResourceValueMatcher.StartsWithMatcher);
+		assertTrue(RangerResourceValueMatcher.compile("*nce", true, true) instanceof RangerResourceValueMatcher.EndsWithMatcher);
+		assertTrue(RangerResourceValueMatcher.compile("**nan**", true, true) instanceof RangerResourceValueMatcher.ContainsMatcher);
+		assertTrue(RangerResourceValueMatcher.compile("f?n*e", true, true) instanceof RangerResourceValueMatcher.GlobMatcher);
+		assertTrue(RangerResourceValueMatcher.compile("fin*", true, false) instanceof RangerResourceValueMatcher.ExactMatcher);
+	}
+
+	@Test
+	public void testWildcardMatchIsSameAsFilenameUtils() {
+		Random random = new Random(20150701L);
+
+		for(int i = 0; i < ITERATIONS; i++) {
+			String  pattern    = randomString(random, PATTERN_CHARS, 1, 8);
+			String  resource   = randomString(random, RESOURCE_CHARS, 0, 10);
+			boolean ignoreCase = random.nextBoolean();
+
+			boolean expected = FilenameUtils.wildcardMatch(resource, pattern, ignoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE);
+			boolean actual   = RangerResourceValueMatcher.compile(pattern, ignoreCase, true).isMatch(resource);
+
+			assertEquals("pattern=" + pattern + ", resource=" + resource + ", ignoreCase=" + ignoreCase, expected, actual);
+		}
+	}
+
+	@Test
+	public void testRecursivePathMatchIsSameAsSplitAndMatch() {
+		Random random = new Random(20150702L);
+
+		for(int i = 0; i < ITERATIONS; i++) {
+			String  pattern    = randomString(random, PATTERN_CHARS, 1, 8);
+			String  path       = randomString(random, RESOURCE_CHARS, 0, 12);
+			boolean ignoreCase = random.nextBoolean();
+
+			boolean expected = isRecursiveWildCardMatch(path, pattern, '/', ignoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE);
+			boolean actual   = RangerResourceValueMatcher.compileRecursivePath(pattern, ignoreCase, '/').isMatch(path);
+
+			assertEquals("pattern=" + pattern + ", path=" + path + ", ignoreCase=" + ignoreCase, expected, actual);
+		}
+	}
+
+	@Test
+	public void testRecursivePathMatchWithLongPattern() {
+		String pattern = "/" + StringUtils.repeat("abcdefgh/", 8) + "*/data";
+		String path    = "/" + StringUtils.repeat("ABCDEFGH/", 8) + "2015//data/part-0000";
+
+		assertTrue(RangerResourceValueMatcher.compileRecursivePath(pattern, true, '/').isMatch(path));
+		assertFalse(RangerResourceValueMatcher.compileRecursivePath(pattern, false, '/').isMatch(path));
+		assertTrue(isRecursiveWildCardMatch(path, pattern, '/', IOCase.INSENSITIVE));
+	}
+
+	private static String randomString(Random random, char[] chars, int minLength, int maxLength) {
+		int           length = minLength + random.nextInt(maxLength - minLength + 1);
+		StringBuilder sb     = new StringBuilder(length);
+
+		for(int i = 0; i < length; i++) {
+			sb.append(chars[random.nextInt(chars.length)]);
+		}
+
+		return sb.toString();
+	}
+
+	// reference implementation: matcher used by RangerPathResourceMatcher before policy values were compiled
+	private static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath, char pathSeparatorChar, IOCase caseSensitivity) {
+		boolean ret = false;
+
+		if (! StringUtils.isEmpty(pathToCheck)) {
+			String[] pathElements = StringUtils.split(pathToCheck, pathSeparatorChar);
+
+			if(! ArrayUtils.isEmpty(pathElements)) {
+				StringBuilder sb = new StringBuilder();
+
+				if(pathToCheck.charAt(0) == pathSeparatorChar) {
+					sb.append(pathSeparatorChar);
+				}
+
+				for(String p : pathElements) {
+					sb.append(p);
+
+					ret = FilenameUtils.wildcardMatch(sb.toString(), wildcardPath, caseSensitivity) ;
+
+					if (ret) {
+						break;
+					}
+
+					sb.append(pathSeparatorChar) ;
+				}
+			} else {
+				ret = FilenameUtils.wildcardMatch(pathToCheck, wildcardPath, caseSensitivity) ;
+			}
+		}
+
+		return ret;
+	}
+}
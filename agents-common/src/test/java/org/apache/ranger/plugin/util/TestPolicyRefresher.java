@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.ranger.plugin.util;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ranger.admin.client.RangerAdminClient;
+import org.apache.ranger.plugin.service.RangerBasePlugin;
+import org.junit.Test;
+
+
+public class TestPolicyRefresher {
+
+	@Test
+	public void testStopDuringLongPoll() throws Exception {
+		TestPlugin      plugin      = new TestPlugin();
+		BlockingAdmin   rangerAdmin = new BlockingAdmin();
+		PolicyRefresher refresher   = new PolicyRefresher(plugin, "hive", "test", "cl1_hive", rangerAdmin, 30 * 1000, null);
+
+		refresher.startRefresher();
+
+		assertTrue(rangerAdmin.downloadStarted.await(10, TimeUnit.SECONDS));
+
+		long startTimeMs = System.currentTimeMillis();
+
+		refresher.stopRefresher();
+
+		long stopTimeMs = System.currentTimeMillis() - startTimeMs;
+
+		assertTrue("stopRefresher() took " + stopTimeMs + "ms", stopTimeMs < PolicyRefresher.STOP_WAIT_TIMEOUT_MS + 5 * 1000);
+		assertTrue(refresher.isAlive());
+		assertTrue(refresher.isDaemon());
+
+		// the download completes after stopRefresher(): the policies are discarded and the thread exits
+		rangerAdmin.completeDownload.countDown();
+
+		refresher.join(10 * 1000);
+
+		assertFalse(refresher.isAlive());
+		assertNull(plugin.policies);
+		assertEquals(1, rangerAdmin.downloadCount);
+	}
+
+	private static class BlockingAdmin implements RangerAdminClient {
+		final CountDownLatch downloadStarted  = new CountDownLatch(1);
+		final CountDownLatch completeDownload = new CountDownLatch(1);
+
+		volatile int downloadCount = 0;
+
+		@Override
+		public void init(String serviceName, String appId, String configPropertyPrefix) {
+		}
+
+		@Override
+		public ServicePolicies getServicePoliciesIfUpdated(long lastKnownVersion) throws Exception {
+			return getServicePoliciesIfUpdated(lastKnownVersion, 0, false);
+		}
+
+		@Override
+		public ServicePolicies getServicePoliciesIfUpdated(long lastKnownVersion, long waitTimeoutMs, boolean supportsPolicyDeltas) throws Exception {
+			downloadCount++;
+
+			downloadStarted.countDown();
+
+			// like a blocking HTTP read, which Thread.interrupt() doesn't abort
+			while(true) {
+				try {
+					completeDownload.await();
+
+					break;
+				} catch(InterruptedException excp) {
+					// ignore
+				}
+			}
+
+			ServicePolicies ret = new ServicePolicies();
+
+			ret.setServiceName("cl1_hive");
+			ret.setPolicyVersion(lastKnownVersion + 1);
+
+			return ret;
+		}
+
+		@Override
+		public void grantAccess(GrantRevokeRequest request) throws Exception {
+		}
+
+		@Override
+		public void revokeAccess(GrantRevokeRequest request) throws Exception {
+		}
+	}
+
+	private static class TestPlugin extends RangerBasePlugin {
+		volatile ServicePolicies policies = null;
+
+		TestPlugin() {
+			super("hive", "test");
+		}
+
+		@Override
+		public void setPolicies(ServicePolicies policies) {
+			this.policies = policies;
+		}
+	}
+}
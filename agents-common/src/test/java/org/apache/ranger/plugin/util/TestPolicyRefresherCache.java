@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+
+import org.apache.ranger.plugin.policyengine.RangerPolicyGenerator;
+import org.apache.ranger.plugin.service.RangerBasePlugin;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+
+public class TestPolicyRefresherCache {
+	private final Gson gson = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").setPrettyPrinting().create();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testJsonCacheFallback() throws Exception {
+		TestPlugin      plugin    = new TestPlugin();
+		PolicyRefresher refresher = new PolicyRefresher(plugin, "hive", "test", "cl1_hive", null, 30 * 1000, folder.getRoot().getAbsolutePath());
+		File            jsonFile  = new File(folder.getRoot(), "test_cl1_hive.json");
+		File            binFile   = new File(folder.getRoot(), "test_cl1_hive.bin");
+
+		// cache saved before snapshots
+		writeJson(generatePolicies(1L), jsonFile);
+
+		refresher.saveToCache(generatePolicies(2L));
+
+		// the JSON file is saved with the snapshot, with the same time
+		assertTrue(binFile.isFile());
+		assertTrue(jsonFile.isFile());
+		assertEquals(binFile.lastModified(), jsonFile.lastModified());
+
+		refresher.loadFromCache();
+
+		assertEquals(Long.valueOf(2L), plugin.policies.getPolicyVersion());
+
+		// the JSON file saved with the snapshot is used when the snapshot can't be read
+		corrupt(binFile);
+
+		plugin.policies = null;
+
+		refresher.loadFromCache();
+
+		assertEquals(Long.valueOf(2L), plugin.policies.getPolicyVersion());
+
+		// an old JSON file, left behind, is not used when the snapshot can't be read
+		writeJson(generatePolicies(1L), jsonFile);
+		jsonFile.setLastModified(binFile.lastModified() - 60 * 1000);
+		corrupt(binFile);
+
+		plugin.policies = null;
+
+		refresher.loadFromCache();
+
+		assertNull(plugin.policies);
+
+		// a JSON file saved after the snapshot is used
+		jsonFile.setLastModified(binFile.lastModified() + 60 * 1000);
+
+		refresher.loadFromCache();
+
+		assertEquals(Long.valueOf(1L), plugin.policies.getPolicyVersion());
+	}
+
+	private ServicePolicies generatePolicies(Long policyVersion) throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount = 10;
+
+		ServicePolicies ret = generator.generateServicePolicies();
+
+		ret.setServiceName("cl1_hive");
+		ret.setPolicyVersion(policyVersion);
+
+		return ret;
+	}
+
+	private void writeJson(ServicePolicies policies, File file) throws Exception {
+		Writer writer = new FileWriter(file);
+
+		try {
+			gson.toJson(policies, writer);
+		} finally {
+			writer.close();
+		}
+	}
+
+	private void corrupt(File file) throws Exception {
+		long lastModified = file.lastModified();
+
+		Writer writer = new FileWriter(file);
+
+		try {
+			writer.write("not a snapshot");
+		} finally {
+			writer.close();
+		}
+
+		file.setLastModified(lastModified);
+	}
+
+	private static class TestPlugin extends RangerBasePlugin {
+		ServicePolicies policies = null;
+
+		TestPlugin() {
+			super("hive", "test");
+		}
+
+		@Override
+		public void setPolicies(ServicePolicies policies) {
+			this.policies = policies;
+		}
+	}
+}
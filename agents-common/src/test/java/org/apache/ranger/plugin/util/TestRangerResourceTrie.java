@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyevaluator.RangerDefaultPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher;
+import org.junit.Test;
+
+
+public class TestRangerResourceTrie {
+	private final RangerServiceDef serviceDef = new RangerServiceDef();
+
+	private final RangerResourceDef pathDef = new RangerResourceDef(1L, "path", "path", 1, null, true, true, true, true, RangerPathResourceMatcher.class.getName(), null, null, null, null, null, null, null, null, null);
+
+	@Test
+	public void testPathLookup() {
+		serviceDef.setResources(Arrays.asList(pathDef));
+
+		RangerPolicyEvaluator exact     = createEvaluator(1, "/finance/restricted", false, false);
+		RangerPolicyEvaluator recursive = createEvaluator(2, "/finance", false, true);
+		RangerPolicyEvaluator wildcard  = createEvaluator(3, "/user/*/data", false, false);
+		RangerPolicyEvaluator any       = createEvaluator(4, "*", false, false);
+		RangerPolicyEvaluator excludes  = createEvaluator(5, "/tmp", true, false);
+		RangerPolicyEvaluator other     = createEvaluator(6, "/sales", false, false);
+
+		RangerResourceTrie trie = new RangerResourceTrie(pathDef, Arrays.asList(exact, recursive, wildcard, any, excludes, other));
+
+		assertSameEvaluators(trie.getEvaluatorsForResource("/finance/restricted"), exact, recursive, any, excludes);
+		assertSameEvaluators(trie.getEvaluatorsForResource("/FINANCE/Restricted"), exact, recursive, any, excludes);
+		assertSameEvaluators(trie.getEvaluatorsForResource("/finance/restricted/2015"), recursive, any, excludes);
+		assertSameEvaluators(trie.getEvaluatorsForResource("/user/ranger/data"), wildcard, any, excludes);
+		assertSameEvaluators(trie.getEvaluatorsForResource("/sales"), other, any, excludes);
+		assertSameEvaluators(trie.getEvaluatorsForResource("/sales/2015"), any, excludes);
+		assertSameEvaluators(trie.getEvaluatorsForResource("//finance//2015"), recursive, any, excludes);
+
+		assertEquals(4, trie.getEvaluatorCountUpperBound("/finance/restricted"));
+		assertEquals(2, trie.getEvaluatorCountUpperBound("/sales/2015"));
+	}
+
+	private void assertSameEvaluators(List<RangerPolicyEvaluator> actual, RangerPolicyEvaluator... expected) {
+		List<Long> actualIds   = new ArrayList<Long>();
+		List<Long> expectedIds = new ArrayList<Long>();
+
+		for(RangerPolicyEvaluator evaluator : actual) {
+			actualIds.add(evaluator.getPolicy().getId());
+		}
+
+		for(RangerPolicyEvaluator evaluator : expected) {
+			expectedIds.add(evaluator.getPolicy().getId());
+		}
+
+		assertEquals(expectedIds.size(), actualIds.size());
+		assertTrue("expected " + expectedIds + "; found " + actualIds, actualIds.containsAll(expectedIds));
+	}
+
+	private RangerPolicyEvaluator createEvaluator(long id, String path, boolean isExcludes, boolean isRecursive) {
+		Map<String, RangerPolicyResource> resources = new HashMap<String, RangerPolicyResource>();
+
+		resources.put(pathDef.getName(), new RangerPolicyResource(path, isExcludes, isRecursive));
+
+		RangerPolicy policy = new RangerPolicy("hdfsdev", "policy-" + id, 0, null, resources, null, null);
+
+		policy.setId(id);
+
+		RangerPolicyEvaluator ret = new RangerDefaultPolicyEvaluator();
+
+		ret.init(policy, serviceDef, new RangerPolicyEngineOptions());
+
+		return ret;
+	}
+}
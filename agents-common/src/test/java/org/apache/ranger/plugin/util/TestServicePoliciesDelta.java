@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerAccessTypeDef;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyengine.RangerPolicyGenerator;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+
+public class TestServicePoliciesDelta {
+
+	@Test
+	public void testApplyDelta() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount = 100;
+
+		ServicePolicies    policies    = generator.generateServicePolicies();
+		List<RangerPolicy> allPolicies = policies.getPolicies();
+
+		policies.setPolicyVersion(10L);
+
+		// a policy updated, a policy deleted, and a policy created
+		RangerPolicy updated = copyOf(allPolicies.get(5));
+		RangerPolicy deleted = allPolicies.get(7);
+		RangerPolicy created = copyOf(allPolicies.get(9));
+
+		updated.setVersion(updated.getVersion() == null ? 2L : updated.getVersion() + 1);
+		updated.setIsEnabled(Boolean.FALSE);
+		created.setId(1000L);
+
+		ServicePolicies delta = new ServicePolicies();
+
+		delta.setServiceName(policies.getServiceName());
+		delta.setServiceId(policies.getServiceId());
+		delta.setPolicyVersion(13L);
+		delta.setBasePolicyVersion(10L);
+		delta.setPolicies(Arrays.asList(created, updated));
+		delta.setDeletedPolicyIds(Arrays.asList(deleted.getId()));
+
+		ServicePolicies merged = ServicePolicies.applyDelta(policies, delta);
+
+		assertEquals(Long.valueOf(13L), merged.getPolicyVersion());
+		assertNull(merged.getBasePolicyVersion());
+		assertSame(policies.getServiceDef(), merged.getServiceDef());
+		assertEquals(allPolicies.size(), merged.getPolicies().size());
+
+		List<RangerPolicy> expected = new ArrayList<RangerPolicy>(allPolicies);
+
+		expected.set(5, updated);
+		expected.remove(7);
+		expected.add(created);
+
+		assertEquals(expected, merged.getPolicies());
+
+		// the merged policies can be used as downloaded in full
+		RangerPolicyEngineImpl policyEngine = new RangerPolicyEngineImpl(merged, new RangerPolicyEngineOptions());
+
+		assertEquals(expected.size(), policyEngine.getPolicies().size());
+	}
+
+	@Test
+	public void testApplyDeltaWithServiceDefChange() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount = 10;
+
+		ServicePolicies policies = generator.generateServicePolicies();
+
+		policies.setPolicyVersion(10L);
+
+		// service-def updated between the base and the delta: an access type added
+		RangerServiceDef serviceDef = copyOf(policies.getServiceDef());
+
+		serviceDef.setVersion(serviceDef.getVersion() == null ? 2L : serviceDef.getVersion() + 1);
+		serviceDef.getAccessTypes().add(new RangerAccessTypeDef(100L, "refresh", "refresh", null, null));
+
+		RangerPolicy updated = copyOf(policies.getPolicies().get(3));
+
+		updated.setVersion(updated.getVersion() == null ? 2L : updated.getVersion() + 1);
+
+		ServicePolicies delta = new ServicePolicies();
+
+		delta.setServiceName(policies.getServiceName());
+		delta.setServiceId(policies.getServiceId());
+		delta.setPolicyVersion(11L);
+		delta.setBasePolicyVersion(10L);
+		delta.setPolicies(Arrays.asList(updated));
+		delta.setDeletedPolicyIds(new ArrayList<Long>());
+		delta.setServiceDef(serviceDef);
+
+		ServicePolicies merged = ServicePolicies.applyDelta(policies, delta);
+
+		assertSame(serviceDef, merged.getServiceDef());
+		assertEquals(policies.getPolicies().size(), merged.getPolicies().size());
+
+		RangerPolicyEngineImpl policyEngine = new RangerPolicyEngineImpl(merged, new RangerPolicyEngineOptions());
+
+		assertEquals(serviceDef.getVersion(), policyEngine.getServiceDef().getVersion());
+		assertTrue(hasAccessType(policyEngine.getServiceDef(), "refresh"));
+		assertFalse(hasAccessType(policies.getServiceDef(), "refresh"));
+	}
+
+	private static boolean hasAccessType(RangerServiceDef serviceDef, String accessType) {
+		for(RangerAccessTypeDef accessTypeDef : serviceDef.getAccessTypes()) {
+			if(accessType.equals(accessTypeDef.getName())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static RangerServiceDef copyOf(RangerServiceDef serviceDef) {
+		Gson gson = new Gson();
+
+		return gson.fromJson(gson.toJson(serviceDef), RangerServiceDef.class);
+	}
+
+	private static RangerPolicy copyOf(RangerPolicy policy) {
+		RangerPolicy ret = new RangerPolicy(policy.getService(), policy.getName(), policy.getPolicyType(), policy.getDescription(), policy.getResources(), policy.getPolicyItems(), policy.getResourceSignature());
+
+		ret.setId(policy.getId());
+		ret.setVersion(policy.getVersion());
+		ret.setIsEnabled(policy.getIsEnabled());
+		ret.setIsAuditEnabled(policy.getIsAuditEnabled());
+
+		return ret;
+	}
+}
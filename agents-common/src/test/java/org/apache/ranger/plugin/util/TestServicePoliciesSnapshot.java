@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.policyengine.RangerPolicyGenerator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+
+public class TestServicePoliciesSnapshot {
+	private static final Log LOG = LogFactory.getLog(TestServicePoliciesSnapshot.class);
+
+	private final Gson gson = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").setPrettyPrinting().create();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testWriteAndRead() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount    = 1000;
+		generator.conditionRatio = 0.2;
+
+		ServicePolicies policies = generator.generateServicePolicies();
+		File            file     = new File(folder.getRoot(), "hive_cl1_hive.bin");
+
+		policies.getPolicies().get(0).setDescription("unicode é中😀");
+		policies.getPolicies().get(1).setDescription(null);
+		policies.getPolicies().get(1).setIsAuditEnabled(Boolean.FALSE);
+
+		ServicePoliciesSnapshot.write(policies, file, gson);
+
+		ServicePolicies loaded = ServicePoliciesSnapshot.read(file, gson);
+
+		assertEquals(gson.toJson(policies), gson.toJson(loaded));
+
+		// rewrite replaces the file, leaving no temporary file behind
+		policies.setPolicyVersion(policies.getPolicyVersion() == null ? 1L : policies.getPolicyVersion() + 1);
+
+		ServicePoliciesSnapshot.write(policies, file, gson);
+
+		assertEquals(policies.getPolicyVersion(), ServicePoliciesSnapshot.read(file, gson).getPolicyVersion());
+		assertEquals(1, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testInvalidSnapshot() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount = 10;
+
+		File file = new File(folder.getRoot(), "hive_cl1_hive.bin");
+
+		ServicePoliciesSnapshot.write(generator.generateServicePolicies(), file, gson);
+
+		long length = file.length();
+
+		// corrupt payload
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+		try {
+			raf.seek(length - 10);
+			raf.write(raf.read() ^ 0xff);
+		} finally {
+			raf.close();
+		}
+
+		assertReadFails(file, "checksum");
+
+		// unsupported format version
+		raf = new RandomAccessFile(file, "rw");
+
+		try {
+			raf.seek(4);
+			raf.writeInt(ServicePoliciesSnapshot.FORMAT_VERSION + 1);
+		} finally {
+			raf.close();
+		}
+
+		assertReadFails(file, "format version");
+
+		// a JSON cache file
+		Writer writer = new FileWriter(file);
+
+		try {
+			gson.toJson(generator.generateServicePolicies(), writer);
+		} finally {
+			writer.close();
+		}
+
+		assertReadFails(file, "not a policy snapshot");
+	}
+
+	@Test
+	public void testLoadTime() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.policyCount = 20000;
+
+		ServicePolicies policies = generator.generateServicePolicies();
+		File            jsonFile = new File(folder.getRoot(), "hive_cl1_hive.json");
+		File            binFile  = new File(folder.getRoot(), "hive_cl1_hive.bin");
+		Writer          writer   = new FileWriter(jsonFile);
+
+		try {
+			gson.toJson(policies, writer);
+		} finally {
+			writer.close();
+		}
+
+		ServicePoliciesSnapshot.write(policies, binFile, gson);
+
+		long jsonTimeMs = Long.MAX_VALUE;
+		long binTimeMs  = Long.MAX_VALUE;
+
+		for(int i = 0; i < 3; i++) {
+			long startTimeMs = System.currentTimeMillis();
+
+			Reader reader = new FileReader(jsonFile);
+
+			try {
+				assertEquals(generator.policyCount, gson.fromJson(reader, ServicePolicies.class).getPolicies().size());
+			} finally {
+				reader.close();
+			}
+
+			jsonTimeMs  = Math.min(jsonTimeMs, System.currentTimeMillis() - startTimeMs);
+			startTimeMs = System.currentTimeMillis();
+
+			assertEquals(generator.policyCount, ServicePoliciesSnapshot.read(binFile, gson).getPolicies().size());
+
+			binTimeMs = Math.min(binTimeMs, System.currentTimeMillis() - startTimeMs);
+		}
+
+		LOG.info(String.format("TestServicePoliciesSnapshot.testLoadTime(): policies=%d, json: %d bytes, %dms; snapshot: %d bytes, %dms",
+				generator.policyCount, jsonFile.length(), jsonTimeMs, binFile.length(), binTimeMs));
+
+		assertTrue(binFile.length() < jsonFile.length());
+	}
+
+	private void assertReadFails(File file, String expectedMessage) {
+		try {
+			ServicePoliciesSnapshot.read(file, gson);
+
+			fail("read should have failed: " + expectedMessage);
+		} catch(IOException excp) {
+			assertTrue(excp.getMessage(), excp.getMessage().contains(expectedMessage));
+		}
+	}
+}
@@ -27,6 +27,7 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSession;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -86,15 +87,27 @@ public class RangerAdminJersey2RESTClient implements RangerAdminClient {
 
 	@Override
 	public ServicePolicies getServicePoliciesIfUpdated(long lastKnownVersion) throws Exception {
+		return getServicePoliciesIfUpdated(lastKnownVersion, 0, false);
+	}
+
+	@Override
+	public ServicePolicies getServicePoliciesIfUpdated(long lastKnownVersion, long waitTimeoutMs, boolean supportsPolicyDeltas) throws Exception {
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("==> RangerAdminJersey2RESTClient.getServicePoliciesIfUpdated(" + lastKnownVersion + ")");
+			LOG.debug("==> RangerAdminJersey2RESTClient.getServicePoliciesIfUpdated(" + lastKnownVersion + ", " + waitTimeoutMs + ", " + supportsPolicyDeltas + ")");
 		}
 
 		ServicePolicies servicePolicies = null;
 		String url = _utils.getUrlForPolicyUpdate(_baseUrl, _serviceName);
-		Response response = _client.target(url)
+		WebTarget target = _client.target(url)
 				.queryParam(RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, Long.toString(lastKnownVersion))
-				.queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, _pluginId)
+				.queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, _pluginId);
+		if (waitTimeoutMs > 0) {
+			target = target.queryParam(RangerRESTUtils.REST_PARAM_POLICY_WAIT_TIMEOUT_MS, Long.toString(waitTimeoutMs));
+		}
+		if (supportsPolicyDeltas) {
+			target = target.queryParam(RangerRESTUtils.REST_PARAM_SUPPORTS_POLICY_DELTAS, Boolean.TRUE.toString());
+		}
+		Response response = target
 				.request(MediaType.APPLICATION_JSON_TYPE)
 				.get();
 		int httpResponseCode = response == null ? -1 : response.getStatus();
@@ -128,7 +141,7 @@ public class RangerAdminJersey2RESTClient implements RangerAdminClient {
 		}
 
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerAdminJersey2RESTClient.getServicePoliciesIfUpdated(" + lastKnownVersion + "): " + servicePolicies);
+			LOG.debug("<== RangerAdminJersey2RESTClient.getServicePoliciesIfUpdated(" + lastKnownVersion + ", " + waitTimeoutMs + ", " + supportsPolicyDeltas + "): " + servicePolicies);
 		}
 		return servicePolicies;
 	}
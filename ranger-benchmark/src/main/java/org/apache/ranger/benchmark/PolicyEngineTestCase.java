@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResource;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.util.ServicePolicies;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+
+/**
+ * Policies and requests of a policy-engine test resource, like /policyengine/test_policyengine_hive.json in the
+ * test-jar of ranger-plugins-common. Expected results in the resource are ignored.
+ */
+public class PolicyEngineTestCase {
+	public String             serviceName;
+	public RangerServiceDef   serviceDef;
+	public List<RangerPolicy> policies;
+	public List<TestData>     tests;
+
+	private static final Gson gson = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z")
+	                                                  .registerTypeAdapter(RangerAccessRequest.class, new RangerAccessRequestDeserializer())
+	                                                  .registerTypeAdapter(RangerAccessResource.class, new RangerResourceDeserializer())
+	                                                  .create();
+
+	public static PolicyEngineTestCase load(String resourceName) {
+		InputStream inStream = PolicyEngineTestCase.class.getResourceAsStream(resourceName);
+
+		if(inStream == null) {
+			throw new IllegalArgumentException(resourceName + ": resource not found");
+		}
+
+		return gson.fromJson(new InputStreamReader(inStream), PolicyEngineTestCase.class);
+	}
+
+	public ServicePolicies getServicePolicies() {
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceName(serviceName);
+		ret.setServiceDef(serviceDef);
+		ret.setPolicies(policies);
+		ret.setPolicyVersion(1L);
+
+		return ret;
+	}
+
+	public RangerAccessRequest[] getRequests() {
+		RangerAccessRequest[] ret = new RangerAccessRequest[tests.size()];
+
+		for(int i = 0; i < ret.length; i++) {
+			ret[i] = tests.get(i).request;
+		}
+
+		return ret;
+	}
+
+	public static class TestData {
+		public String              name;
+		public RangerAccessRequest request;
+	}
+
+	static class RangerAccessRequestDeserializer implements JsonDeserializer<RangerAccessRequest> {
+		@Override
+		public RangerAccessRequest deserialize(JsonElement jsonObj, Type type, JsonDeserializationContext context) throws JsonParseException {
+			RangerAccessRequestImpl ret = gson.fromJson(jsonObj, RangerAccessRequestImpl.class);
+
+			ret.setAccessType(ret.getAccessType()); // to force computation of isAccessTypeAny and isAccessTypeDelegatedAdmin
+
+			return ret;
+		}
+	}
+
+	static class RangerResourceDeserializer implements JsonDeserializer<RangerAccessResource> {
+		@Override
+		public RangerAccessResource deserialize(JsonElement jsonObj, Type type, JsonDeserializationContext context) throws JsonParseException {
+			return gson.fromJson(jsonObj, RangerAccessResourceImpl.class);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyengine.RangerPolicyGenerator;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RangerPolicyEngineImpl.getAllowedPolicies() on policies generated by RangerPolicyGenerator, compared with scan():
+ * each policy checked with isAccessAllowed(policy resources), as getAllowedPolicies() used to do. The scan grows with
+ * the square of the policy count, hence few iterations; to compare at 10000 policies only:
+ *   java -jar ranger-benchmark/target/benchmarks.jar RangerAllowedPoliciesBenchmark -p policyCount=10000
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RangerAllowedPoliciesBenchmark {
+	private static final String ACCESS_TYPE = "select";
+
+	@Param({ "hive" })
+	public String serviceType;
+
+	@Param({ "100", "1000", "10000" })
+	public int policyCount;
+
+	private RangerPolicyEngine policyEngine;
+	private String[]           users;
+	private List<Set<String>>  userGroups;
+
+	@Setup
+	public void setUp() throws Exception {
+		RangerPolicyGenerator generator = new RangerPolicyGenerator();
+
+		generator.serviceType = serviceType;
+		generator.policyCount = policyCount;
+
+		ServicePolicies servicePolicies = generator.generateServicePolicies();
+
+		policyEngine = new RangerPolicyEngineImpl(servicePolicies, new RangerPolicyEngineOptions());
+		users        = new String[generator.groupCount];
+		userGroups   = new ArrayList<Set<String>>(users.length);
+
+		// a user from each group, as named in generated policy items
+		for(int i = 0; i < users.length; i++) {
+			users[i] = "user" + i;
+
+			userGroups.add(Collections.singleton("group" + i));
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class UserIndex {
+		int next = 0;
+
+		int next(int count) {
+			int ret = next;
+
+			if(++next == count) {
+				next = 0;
+			}
+
+			return ret;
+		}
+	}
+
+	@Benchmark
+	public List<RangerPolicy> getAllowedPolicies(UserIndex userIndex) {
+		int i = userIndex.next(users.length);
+
+		return policyEngine.getAllowedPolicies(users[i], userGroups.get(i), ACCESS_TYPE);
+	}
+
+	@Benchmark
+	public List<RangerPolicy> scan(UserIndex userIndex) {
+		int                i   = userIndex.next(users.length);
+		List<RangerPolicy> ret = new ArrayList<RangerPolicy>();
+
+		for(RangerPolicy policy : policyEngine.getPolicies()) {
+			if(policyEngine.isAccessAllowed(policy.getResources(), users[i], userGroups.get(i), ACCESS_TYPE)) {
+				ret.add(policy);
+			}
+		}
+
+		return ret;
+	}
+}
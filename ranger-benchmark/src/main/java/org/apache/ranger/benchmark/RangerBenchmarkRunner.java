@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which reports allocation rate along with throughput and average time.
+ *
+ * Build and run:
+ *   mvn -Pbenchmark -pl ranger-benchmark -am package -DskipTests
+ *   java -jar ranger-benchmark/target/benchmarks.jar [JMH options] [benchmark regex]
+ *
+ * For example, to run only the policy-engine benchmark on hive policies:
+ *   java -jar ranger-benchmark/target/benchmarks.jar RangerPolicyEngineBenchmark -p policySet=hive
+ */
+public class RangerBenchmarkRunner {
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmdLineOptions = new CommandLineOptions(args);
+
+		if(cmdLineOptions.shouldHelp() || cmdLineOptions.shouldList() || cmdLineOptions.shouldListProfilers() || cmdLineOptions.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);
+
+			return;
+		}
+
+		Options options = new OptionsBuilder().parent(cmdLineOptions)
+		                                      .addProfiler(GCProfiler.class)
+		                                      .build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ranger.plugin.conditionevaluator.RangerConditionEvaluator;
+import org.apache.ranger.plugin.conditionevaluator.RangerIpMatcher;
+import org.apache.ranger.plugin.conditionevaluator.RangerSimpleMatcher;
+import org.apache.ranger.plugin.conditionevaluator.RangerTimeOfDayMatcher;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerPolicyConditionDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * isMatched() of the condition evaluators: ip-range, time-of-day and simple (context value) matchers.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RangerConditionEvaluatorBenchmark {
+	private static final String[] CLIENT_IPS   = { "10.1.2.3", "10.1.3.4", "192.168.1.20", "172.16.0.1", "fe80:0:0:0:202:b3ff:fe1e:8329" };
+	private static final String[] COUNTRIES    = { "US", "CA", "IN", "DE", "BR" };
+	private static final String   CONTEXT_NAME = "country";
+
+	@Param({ "ip", "timeOfDay", "simple" })
+	public String conditionType;
+
+	private RangerConditionEvaluator conditionEvaluator;
+	private RangerAccessRequest[]    requests;
+
+	@Setup
+	public void setUp() {
+		RangerPolicyConditionDef conditionDef = new RangerPolicyConditionDef(1L, conditionType, null, Collections.singletonMap(RangerSimpleMatcher.CONTEXT_NAME, CONTEXT_NAME));
+
+		if(conditionType.equals("ip")) {
+			conditionEvaluator = new RangerIpMatcher();
+			conditionEvaluator.init(conditionDef, new RangerPolicyItemCondition(conditionType, Arrays.asList("10.1.2.*", "192.168.*", "172.16.0.1", "fe80:*")));
+		} else if(conditionType.equals("timeOfDay")) {
+			conditionEvaluator = new RangerTimeOfDayMatcher();
+			conditionEvaluator.init(conditionDef, new RangerPolicyItemCondition(conditionType, Arrays.asList("9am-5pm", "8:30 PM - 11 PM")));
+		} else {
+			conditionEvaluator = new RangerSimpleMatcher();
+			conditionEvaluator.init(conditionDef, new RangerPolicyItemCondition(conditionType, Arrays.asList("US", "CA", "MX")));
+		}
+
+		requests = new RangerAccessRequest[CLIENT_IPS.length];
+
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(2015, Calendar.JULY, 1, 0, 0, 0);
+
+		for(int i = 0; i < requests.length; i++) {
+			RangerAccessRequestImpl request = new RangerAccessRequestImpl(new RangerAccessResourceImpl(), "select", "user1", Collections.<String>emptySet());
+
+			calendar.add(Calendar.HOUR_OF_DAY, 5);
+
+			Map<String, Object> context = new HashMap<String, Object>();
+			context.put(CONTEXT_NAME, COUNTRIES[i]);
+
+			request.setClientIPAddress(CLIENT_IPS[i]);
+			request.setAccessTime(calendar.getTime());
+			request.setContext(context);
+
+			requests[i] = request;
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class RequestIndex {
+		int next = 0;
+	}
+
+	@Benchmark
+	public boolean isMatched(RequestIndex requestIndex) {
+		RangerAccessRequest request = requests[requestIndex.next];
+
+		if(++requestIndex.next == requests.length) {
+			requestIndex.next = 0;
+		}
+
+		return conditionEvaluator.isMatched(request);
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyengine.RangerPolicyGenerator;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RangerPolicyEngineImpl.isAccessAllowed() with each evaluator type, on policies and requests of:
+ *  - policyengine test resources: hdfs, hive and hbase
+ *  - policies generated by RangerPolicyGenerator: generated-{serviceType}-{policyCount}
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RangerPolicyEngineBenchmark {
+	private static final String GENERATED_PREFIX        = "generated-";
+	private static final int    GENERATED_REQUEST_COUNT = 10000;
+
+	@Param({ "hdfs", "hive", "hbase", "generated-hive-1000", "generated-hive-10000", "generated-hdfs-10000", "generated-hbase-10000" })
+	public String policySet;
+
+	@Param({ "default", "optimized", "cached" })
+	public String evaluatorType;
+
+	private RangerPolicyEngine    policyEngine;
+	private RangerAccessRequest[] requests;
+
+	@Setup
+	public void setUp() throws Exception {
+		ServicePolicies servicePolicies;
+
+		if(policySet.startsWith(GENERATED_PREFIX)) {
+			String[]              typeAndCount = policySet.substring(GENERATED_PREFIX.length()).split("-");
+			RangerPolicyGenerator generator    = new RangerPolicyGenerator();
+
+			generator.serviceType = typeAndCount[0];
+			generator.policyCount = Integer.parseInt(typeAndCount[1]);
+
+			servicePolicies = generator.generateServicePolicies();
+			requests        = generator.generateRequests(GENERATED_REQUEST_COUNT);
+		} else {
+			PolicyEngineTestCase testCase = PolicyEngineTestCase.load("/policyengine/test_policyengine_" + policySet + ".json");
+
+			servicePolicies = testCase.getServicePolicies();
+			requests        = testCase.getRequests();
+		}
+
+		RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+		options.evaluatorType = evaluatorType;
+
+		policyEngine = new RangerPolicyEngineImpl(servicePolicies, options);
+	}
+
+	@State(Scope.Thread)
+	public static class RequestIndex {
+		int next = 0;
+	}
+
+	@Benchmark
+	public RangerAccessResult isAccessAllowed(RequestIndex requestIndex) {
+		RangerAccessRequest request = requests[requestIndex.next];
+
+		if(++requestIndex.next == requests.length) {
+			requestIndex.next = 0;
+		}
+
+		return policyEngine.isAccessAllowed(request, null);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.resourcematcher.RangerDefaultResourceMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerResourceMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * isMatch() of resource matchers, for each kind of policy value: exact, wildcard, and recursive path.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RangerResourceMatcherBenchmark {
+	private static final String[] TABLE_NAMES = { "finance", "finance_2015", "hr_payroll", "sales", "Finance_archive", "marketing_finance" };
+
+	private static final String[] PATHS = { "/finance/2015/q1/data.csv", "/finance/restricted", "/hr/payroll/2015/jan.csv",
+	                                        "/app/hive/warehouse/sales.db/orders/part-0000", "/tmp/finance", "/Finance/2015" };
+
+	@Param({ "exact", "wildcard", "recursivePath", "recursiveWildcardPath" })
+	public String matcherType;
+
+	private RangerResourceMatcher matcher;
+	private String[]              resources;
+
+	@Setup
+	public void setUp() {
+		Map<String, String> options = new HashMap<String, String>();
+
+		if(matcherType.equals("exact")) {
+			matcher   = createMatcher(new RangerDefaultResourceMatcher(), options, new RangerPolicyResource(Arrays.asList("finance", "hr_payroll", "sales"), false, false));
+			resources = TABLE_NAMES;
+		} else if(matcherType.equals("wildcard")) {
+			matcher   = createMatcher(new RangerDefaultResourceMatcher(), options, new RangerPolicyResource(Arrays.asList("fin*", "*_payroll", "s?les"), false, false));
+			resources = TABLE_NAMES;
+		} else if(matcherType.equals("recursivePath")) {
+			matcher   = createMatcher(new RangerPathResourceMatcher(), options, new RangerPolicyResource(Arrays.asList("/finance", "/hr/payroll"), false, true));
+			resources = PATHS;
+		} else {
+			matcher   = createMatcher(new RangerPathResourceMatcher(), options, new RangerPolicyResource(Arrays.asList("/finance/*/q?", "/app/hive/warehouse/*.db"), false, true));
+			resources = PATHS;
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ResourceIndex {
+		int next = 0;
+	}
+
+	@Benchmark
+	public boolean isMatch(ResourceIndex resourceIndex) {
+		String resource = resources[resourceIndex.next];
+
+		if(++resourceIndex.next == resources.length) {
+			resourceIndex.next = 0;
+		}
+
+		return matcher.isMatch(resource);
+	}
+
+	private static RangerResourceMatcher createMatcher(RangerResourceMatcher matcher, Map<String, String> options, RangerPolicyResource policyResource) {
+		matcher.init(options, policyResource);
+
+		return matcher;
+	}
+}
@@ -892,6 +892,20 @@ to_time TIMESTAMP DEFAULT NULL NULL,
 content TEXT NOT NULL,
 primary key(id)
 );
+
+DROP TABLE IF EXISTS x_policy_change_log CASCADE;
+DROP SEQUENCE IF EXISTS x_policy_change_log_seq;
+CREATE SEQUENCE x_policy_change_log_seq;
+CREATE TABLE x_policy_change_log(
+id BIGINT DEFAULT nextval('x_policy_change_log_seq'::regclass),
+create_time TIMESTAMP DEFAULT NULL NULL,
+service_id BIGINT NOT NULL,
+policy_version BIGINT NOT NULL,
+change_type INT NOT NULL,
+policy_id BIGINT NOT NULL,
+primary key(id)
+);
+CREATE INDEX x_policy_chg_log_idx_svc_ver ON x_policy_change_log(service_id, policy_version);
 CREATE INDEX x_service_def_added_by_id ON x_service_def(added_by_id);
 CREATE INDEX x_service_def_upd_by_id ON x_service_def(upd_by_id);
 CREATE INDEX x_service_def_cr_time ON x_service_def(create_time);
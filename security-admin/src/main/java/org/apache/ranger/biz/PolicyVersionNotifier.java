@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.common.PropertiesUtil;
+import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.entity.XXService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+/**
+ * Tells policy downloads waiting for a change of the policy version of a service that the version changed: right
+ * after a change made by this instance is committed and, for changes made by other instances sharing the database,
+ * when the versions of services having waiters are next read from the database - every few seconds.
+ */
+@Component
+public class PolicyVersionNotifier {
+	private static final Log LOG = LogFactory.getLog(PolicyVersionNotifier.class);
+
+	public static final String PROP_CHECK_INTERVAL_MS = "ranger.admin.policy.download.longpoll.check.interval.ms";
+
+	public interface Waiter {
+		/**
+		 * called once, when the policy version of the service is found to differ from lastKnownVersion
+		 */
+		void onPolicyVersionChange(String serviceName, Long policyVersion);
+	}
+
+	@Autowired
+	RangerDaoManager daoMgr;
+
+	@Autowired
+	@Qualifier(value = "transactionManager")
+	PlatformTransactionManager txManager;
+
+	private final Map<String, Map<Waiter, Long>> waitersByService = new HashMap<String, Map<Waiter, Long>>();
+
+	private Timer timer = null;
+
+	@PostConstruct
+	public void init() {
+		int checkIntervalMs = PropertiesUtil.getIntProperty(PROP_CHECK_INTERVAL_MS, 5 * 1000);
+
+		if(checkIntervalMs > 0) {
+			timer = new Timer("PolicyVersionNotifier", true);
+
+			timer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					checkPolicyVersions();
+				}
+			}, checkIntervalMs, checkIntervalMs);
+		}
+	}
+
+	@PreDestroy
+	public void cleanup() {
+		if(timer != null) {
+			timer.cancel();
+
+			timer = null;
+		}
+	}
+
+	/**
+	 * @return the policy version of the service in the database; null if the service does not exist
+	 */
+	public Long getPolicyVersion(final String serviceName) {
+		TransactionTemplate txTemplate = new TransactionTemplate(txManager);
+
+		txTemplate.setReadOnly(true);
+
+		return txTemplate.execute(new TransactionCallback<Long>() {
+			@Override
+			public Long doInTransaction(TransactionStatus status) {
+				XXService serviceDbObj = daoMgr.getXXService().findByName(serviceName);
+
+				return serviceDbObj == null ? null : serviceDbObj.getPolicyVersion();
+			}
+		});
+	}
+
+	/**
+	 * Registers the waiter, unless the policy version already differs from lastKnownVersion
+	 *
+	 * @return false if the policy version differs from lastKnownVersion, in which case the waiter is not registered
+	 */
+	public boolean addWaiter(String serviceName, Long lastKnownVersion, Waiter waiter) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> PolicyVersionNotifier.addWaiter(" + serviceName + ", " + lastKnownVersion + ")");
+		}
+
+		synchronized(waitersByService) {
+			Map<Waiter, Long> waiters = waitersByService.get(serviceName);
+
+			if(waiters == null) {
+				waiters = new HashMap<Waiter, Long>();
+
+				waitersByService.put(serviceName, waiters);
+			}
+
+			waiters.put(waiter, lastKnownVersion);
+		}
+
+		// registered before reading the version: a change committed after this read is notified to the waiter
+		Long    policyVersion = getPolicyVersion(serviceName);
+		boolean ret           = ObjectUtils.equals(policyVersion, lastKnownVersion);
+
+		if(!ret) {
+			removeWaiter(serviceName, waiter);
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== PolicyVersionNotifier.addWaiter(" + serviceName + ", " + lastKnownVersion + "): policyVersion=" + policyVersion + ", ret=" + ret);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return true if the waiter was registered, and not yet notified
+	 */
+	public boolean removeWaiter(String serviceName, Waiter waiter) {
+		boolean ret = false;
+
+		synchronized(waitersByService) {
+			Map<Waiter, Long> waiters = waitersByService.get(serviceName);
+
+			if(waiters != null) {
+				ret = waiters.containsKey(waiter);
+
+				waiters.remove(waiter);
+
+				if(waiters.isEmpty()) {
+					waitersByService.remove(serviceName);
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Notifies waiters of the service of its new policy version once the current transaction, if any, commits
+	 */
+	public void onPolicyVersionChange(final String serviceName, final Long policyVersion) {
+		if(TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					notifyWaiters(serviceName, policyVersion);
+				}
+			});
+		} else {
+			notifyWaiters(serviceName, policyVersion);
+		}
+	}
+
+	public int getWaiterCount() {
+		int ret = 0;
+
+		synchronized(waitersByService) {
+			for(Map<Waiter, Long> waiters : waitersByService.values()) {
+				ret += waiters.size();
+			}
+		}
+
+		return ret;
+	}
+
+	void notifyWaiters(String serviceName, Long policyVersion) {
+		List<Waiter> toNotify = null;
+
+		synchronized(waitersByService) {
+			Map<Waiter, Long> waiters = waitersByService.get(serviceName);
+
+			if(waiters != null) {
+				for(Iterator<Map.Entry<Waiter, Long>> iter = waiters.entrySet().iterator(); iter.hasNext(); ) {
+					Map.Entry<Waiter, Long> e = iter.next();
+
+					if(!ObjectUtils.equals(e.getValue(), policyVersion)) {
+						if(toNotify == null) {
+							toNotify = new ArrayList<Waiter>();
+						}
+
+						toNotify.add(e.getKey());
+
+						iter.remove();
+					}
+				}
+
+				if(waiters.isEmpty()) {
+					waitersByService.remove(serviceName);
+				}
+			}
+		}
+
+		if(toNotify != null) {
+			if(LOG.isDebugEnabled()) {
+				LOG.debug("PolicyVersionNotifier.notifyWaiters(" + serviceName + ", " + policyVersion + "): notifying " + toNotify.size() + " waiters");
+			}
+
+			for(Waiter waiter : toNotify) {
+				try {
+					waiter.onPolicyVersionChange(serviceName, policyVersion);
+				} catch(Exception excp) {
+					LOG.error("PolicyVersionNotifier.notifyWaiters(" + serviceName + ", " + policyVersion + "): failed to notify waiter", excp);
+				}
+			}
+		}
+	}
+
+	private void checkPolicyVersions() {
+		Set<String> serviceNames;
+
+		synchronized(waitersByService) {
+			serviceNames = new HashSet<String>(waitersByService.keySet());
+		}
+
+		for(String serviceName : serviceNames) {
+			try {
+				notifyWaiters(serviceName, getPolicyVersion(serviceName));
+			} catch(Exception excp) {
+				LOG.error("PolicyVersionNotifier.checkPolicyVersions(): failed to read policy version of service " + serviceName, excp);
+			}
+		}
+	}
+}
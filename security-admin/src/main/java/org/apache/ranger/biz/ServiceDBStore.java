@@ -23,9 +23,13 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import javax.annotation.PostConstruct;
 
@@ -37,6 +41,7 @@ import org.apache.ranger.common.ContextUtil;
 import org.apache.ranger.common.DateUtil;
 import org.apache.ranger.common.MessageEnums;
 import org.apache.ranger.common.PasswordUtils;
+import org.apache.ranger.common.PropertiesUtil;
 import org.apache.ranger.common.RESTErrorUtil;
 import org.apache.ranger.common.RangerCommonEnums;
 import org.apache.ranger.common.RangerConstants;
@@ -69,6 +74,7 @@ import org.apache.ranger.entity.XXEnumDef;
 import org.apache.ranger.entity.XXEnumElementDef;
 import org.apache.ranger.entity.XXGroup;
 import org.apache.ranger.entity.XXPolicy;
+import org.apache.ranger.entity.XXPolicyChangeLog;
 import org.apache.ranger.entity.XXPolicyConditionDef;
 import org.apache.ranger.entity.XXPolicyItem;
 import org.apache.ranger.entity.XXPolicyItemAccess;
@@ -175,11 +181,18 @@ public class ServiceDBStore extends AbstractServiceStore {
 
     @Autowired
     RangerFactory factory;
+
+	@Autowired
+	PolicyVersionNotifier policyVersionNotifier;
+
+	@Autowired
+	ServicePoliciesCache servicePoliciesCache;
     
 	private static volatile boolean legacyServiceDefsInitDone = false;
 	private Boolean populateExistingBaseFields = false;
 	
 	public static final String HIDDEN_PASSWORD_STR = "*****";
+	public static final String PROP_POLICY_DELTA_MAX_VERSIONS = "ranger.admin.policy.delta.max.versions";
 	public static final String CONFIG_KEY_PASSWORD = "password";
 	
 	@Override
@@ -406,6 +419,19 @@ public class ServiceDBStore extends AbstractServiceStore {
 		RangerServiceDef updatedSvcDef = getServiceDef(serviceDefId);
 		dataHistService.createObjectDataHistory(updatedSvcDef, RangerDataHistService.ACTION_UPDATE);
 
+		// policy deltas from versions before this change must not be applied to the policies downloaded then: with the
+		// change log cleared, plugins get all policies with the updated service-def on their next download
+		List<XXService> svcDefServices = daoMgr.getXXService().findByServiceDefId(serviceDefId);
+
+		if (svcDefServices != null) {
+			for (XXService svcDefService : svcDefServices) {
+				daoMgr.getXXPolicyChangeLog().deleteByServiceId(svcDefService.getId());
+			}
+		}
+
+		// cached ServicePolicies include the service-def
+		servicePoliciesCache.invalidateAll();
+
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("<== ServiceDefDBStore.updateServiceDef(" + serviceDef + "): " + serviceDef);
 		}
@@ -838,6 +864,8 @@ public class ServiceDBStore extends AbstractServiceStore {
 		
 		dataHistService.createObjectDataHistory(serviceDef, RangerDataHistService.ACTION_DELETE);
 
+		servicePoliciesCache.invalidateAll();
+
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("<== ServiceDefDBStore.deleteServiceDef(" + serviceDefId + ")");
 		}
@@ -1164,6 +1192,9 @@ public class ServiceDBStore extends AbstractServiceStore {
 		dataHistService.createObjectDataHistory(updService, RangerDataHistService.ACTION_UPDATE);
 		bizUtil.createTrxLog(trxLogList);
 
+		servicePoliciesCache.invalidate(existingName);
+		servicePoliciesCache.invalidate(updService.getName());
+
 		return updService;
 	}
 
@@ -1201,6 +1232,10 @@ public class ServiceDBStore extends AbstractServiceStore {
 		service.setVersion(version);
 		
 		svcService.delete(service);
+
+		daoMgr.getXXPolicyChangeLog().deleteByServiceId(service.getId());
+
+		servicePoliciesCache.invalidate(service.getName());
 		
 		dataHistService.createObjectDataHistory(service, RangerDataHistService.ACTION_DELETE);
 		
@@ -1312,7 +1347,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 
 		createNewResourcesForPolicy(policy, xCreatedPolicy, resources);
 		createNewPolicyItemsForPolicy(policy, xCreatedPolicy, policyItems, xServiceDef);
-		handlePolicyUpdate(service);
+		handlePolicyUpdate(service, XXPolicyChangeLog.CHANGE_TYPE_POLICY_CREATE, policy.getId());
 		RangerPolicy createdPolicy = policyService.getPopulatedViewObject(xCreatedPolicy);
 		dataHistService.createObjectDataHistory(createdPolicy, RangerDataHistService.ACTION_CREATE);
 
@@ -1384,7 +1419,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 		createNewResourcesForPolicy(policy, newUpdPolicy, newResources);
 		createNewPolicyItemsForPolicy(policy, newUpdPolicy, newPolicyItems, xServiceDef);
 		
-		handlePolicyUpdate(service);
+		handlePolicyUpdate(service, XXPolicyChangeLog.CHANGE_TYPE_POLICY_UPDATE, policy.getId());
 		RangerPolicy updPolicy = policyService.getPopulatedViewObject(newUpdPolicy);
 		dataHistService.createObjectDataHistory(updPolicy, RangerDataHistService.ACTION_UPDATE);
 		
@@ -1428,7 +1463,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 		deleteExistingPolicyResources(policy);
 		
 		policyService.delete(policy);
-		handlePolicyUpdate(service);
+		handlePolicyUpdate(service, XXPolicyChangeLog.CHANGE_TYPE_POLICY_DELETE, policyId);
 		
 		dataHistService.createObjectDataHistory(policy, RangerDataHistService.ACTION_DELETE);
 		
@@ -1581,35 +1616,146 @@ public class ServiceDBStore extends AbstractServiceStore {
 
 		ServicePolicies ret = null;
 
-		XXService serviceDbObj = daoMgr.getXXService().findByName(serviceName);
+		final XXService serviceDbObj = daoMgr.getXXService().findByName(serviceName);
 
 		if(serviceDbObj == null) {
 			throw new Exception("service does not exist. name=" + serviceName);
 		}
 
 		if(lastKnownVersion == null || serviceDbObj.getPolicyVersion() == null || !lastKnownVersion.equals(serviceDbObj.getPolicyVersion())) {
+			ret = servicePoliciesCache.get(serviceName, serviceDbObj.getPolicyVersion(), null, new Callable<ServicePolicies>() {
+				@Override
+				public ServicePolicies call() throws Exception {
+					return buildServicePolicies(serviceDbObj);
+				}
+			});
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== ServiceDBStore.getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + "): count=" + ((ret == null || ret.getPolicies() == null) ? 0 : ret.getPolicies().size()));
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Like getServicePoliciesIfUpdated(), except that when the changes since lastKnownVersion are all known, only
+	 * policies created or updated since are returned, with ids of policies deleted since and the current service-def.
+	 * Otherwise, as when changes have been trimmed from the change log or the service-def was updated since, all
+	 * policies are returned.
+	 */
+	public ServicePolicies getServicePolicyDeltasIfUpdated(String serviceName, Long lastKnownVersion) throws Exception {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceDBStore.getServicePolicyDeltasIfUpdated(" + serviceName + ", " + lastKnownVersion + ")");
+		}
+
+		ServicePolicies ret = null;
+
+		final XXService serviceDbObj = daoMgr.getXXService().findByName(serviceName);
+
+		if(serviceDbObj == null) {
+			throw new Exception("service does not exist. name=" + serviceName);
+		}
+
+		final Long policyVersion = serviceDbObj.getPolicyVersion();
+
+		if(lastKnownVersion != null && lastKnownVersion > 0 && policyVersion != null && lastKnownVersion < policyVersion) {
+			final Long basePolicyVersion = lastKnownVersion;
+
+			ret = servicePoliciesCache.get(serviceName, policyVersion, basePolicyVersion, new Callable<ServicePolicies>() {
+				@Override
+				public ServicePolicies call() throws Exception {
+					return buildServicePolicyDeltas(serviceDbObj, policyVersion, basePolicyVersion);
+				}
+			});
+		}
+
+		if(ret == null) {
+			ret = getServicePoliciesIfUpdated(serviceName, lastKnownVersion);
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== ServiceDBStore.getServicePolicyDeltasIfUpdated(" + serviceName + ", " + lastKnownVersion + "): isDelta=" + (ret != null && ret.getBasePolicyVersion() != null) + ", count=" + ((ret == null || ret.getPolicies() == null) ? 0 : ret.getPolicies().size()));
+		}
+
+		return ret;
+	}
+
+	private ServicePolicies buildServicePolicies(XXService serviceDbObj) throws Exception {
+		RangerServiceDef serviceDef = getServiceDef(serviceDbObj.getType());
+
+		if(serviceDef == null) {
+			throw new Exception("service-def does not exist. id=" + serviceDbObj.getType());
+		}
+
+		List<RangerPolicy> policies = getServicePolicies(serviceDbObj.getName(), null);
+
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceId(serviceDbObj.getId());
+		ret.setServiceName(serviceDbObj.getName());
+		ret.setPolicyVersion(serviceDbObj.getPolicyVersion());
+		ret.setPolicyUpdateTime(serviceDbObj.getPolicyUpdateTime());
+		ret.setPolicies(policies);
+		ret.setServiceDef(serviceDef);
+
+		return ret;
+	}
+
+	/*
+	 * returns null if a change since basePolicyVersion is not in the change log
+	 */
+	private ServicePolicies buildServicePolicyDeltas(XXService serviceDbObj, Long policyVersion, Long basePolicyVersion) throws Exception {
+		ServicePolicies ret = null;
+
+		List<XXPolicyChangeLog> changes  = daoMgr.getXXPolicyChangeLog().findByServiceIdAndVersions(serviceDbObj.getId(), basePolicyVersion, policyVersion);
+		Set<Long>               versions = new HashSet<Long>();
+
+		for(XXPolicyChangeLog change : changes) {
+			versions.add(change.getPolicyVersion());
+		}
+
+		// each version since basePolicyVersion must have its change logged: none trimmed, none made before logging
+		if(versions.size() == policyVersion - basePolicyVersion) {
+			// sent with every delta: the service-def can be updated without a change in the policy version
 			RangerServiceDef serviceDef = getServiceDef(serviceDbObj.getType());
 
 			if(serviceDef == null) {
 				throw new Exception("service-def does not exist. id=" + serviceDbObj.getType());
 			}
 
-			List<RangerPolicy> policies = getServicePolicies(serviceName, null);
+			Map<Long, Integer> lastChangeTypes = new LinkedHashMap<Long, Integer>();
+
+			for(XXPolicyChangeLog change : changes) {
+				lastChangeTypes.remove(change.getPolicyId());
+				lastChangeTypes.put(change.getPolicyId(), change.getChangeType());
+			}
+
+			List<RangerPolicy> policies         = new ArrayList<RangerPolicy>();
+			List<Long>         deletedPolicyIds = new ArrayList<Long>();
+
+			for(Map.Entry<Long, Integer> e : lastChangeTypes.entrySet()) {
+				XXPolicy xPolicy = e.getValue() == XXPolicyChangeLog.CHANGE_TYPE_POLICY_DELETE ? null : daoMgr.getXXPolicy().getById(e.getKey());
+
+				if(xPolicy == null) {
+					deletedPolicyIds.add(e.getKey());
+				} else {
+					policies.add(policyService.getPopulatedViewObject(xPolicy));
+				}
+			}
 
 			ret = new ServicePolicies();
 
 			ret.setServiceId(serviceDbObj.getId());
 			ret.setServiceName(serviceDbObj.getName());
-			ret.setPolicyVersion(serviceDbObj.getPolicyVersion());
+			ret.setPolicyVersion(policyVersion);
 			ret.setPolicyUpdateTime(serviceDbObj.getPolicyUpdateTime());
 			ret.setPolicies(policies);
+			ret.setBasePolicyVersion(basePolicyVersion);
+			ret.setDeletedPolicyIds(deletedPolicyIds);
 			ret.setServiceDef(serviceDef);
 		}
 
-		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== ServiceDBStore.getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + "): count=" + ((ret == null || ret.getPolicies() == null) ? 0 : ret.getPolicies().size()));
-		}
-
 		return ret;
 	}
 	
@@ -1708,8 +1854,24 @@ public class ServiceDBStore extends AbstractServiceStore {
 		return validConfigs;
 	}
 	
-	private void handlePolicyUpdate(RangerService service) throws Exception {
+	private void handlePolicyUpdate(RangerService service, int changeType, Long policyId) throws Exception {
 		updatePolicyVersion(service);
+
+		int maxDeltaVersions = PropertiesUtil.getIntProperty(PROP_POLICY_DELTA_MAX_VERSIONS, 100);
+
+		if(maxDeltaVersions > 0 && service.getPolicyVersion() != null) {
+			XXPolicyChangeLog changeLog = new XXPolicyChangeLog();
+
+			changeLog.setServiceId(service.getId());
+			changeLog.setPolicyVersion(service.getPolicyVersion());
+			changeLog.setChangeType(changeType);
+			changeLog.setPolicyId(policyId);
+
+			daoMgr.getXXPolicyChangeLog().create(changeLog);
+
+			// keep only what is needed for deltas from the last maxDeltaVersions versions
+			daoMgr.getXXPolicyChangeLog().deleteByServiceIdUptoVersion(service.getId(), service.getPolicyVersion() - maxDeltaVersions);
+		}
 	}
 
 	private void updatePolicyVersion(RangerService service) throws Exception {
@@ -1742,6 +1904,10 @@ public class ServiceDBStore extends AbstractServiceStore {
 		serviceDbObj.setPolicyUpdateTime(service.getPolicyUpdateTime());
 
 		serviceDao.update(serviceDbObj);
+
+		servicePoliciesCache.invalidate(serviceDbObj.getName());
+
+		policyVersionNotifier.onPolicyVersionChange(serviceDbObj.getName(), serviceDbObj.getPolicyVersion());
 	}
 
 	private void createNewPolicyItemsForPolicy(RangerPolicy policy, XXPolicy xPolicy, List<RangerPolicyItem> policyItems, XXServiceDef xServiceDef) {
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.common.PropertiesUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+
+/**
+ * ServicePolicies returned to policy downloads, for the current policy version of each service: the full set of
+ * policies and the deltas from earlier versions. Plugins picking up a change download the same ServicePolicies, which
+ * is built once - by the first of concurrent downloads, the others waiting for it.
+ *
+ * Cached ServicePolicies are shared by downloads, hence must not be modified by callers.
+ */
+@Component
+public class ServicePoliciesCache {
+	private static final Log LOG = LogFactory.getLog(ServicePoliciesCache.class);
+
+	public static final String PROP_CACHE_ENABLED = "ranger.admin.policy.download.cache.enabled";
+
+	private final Map<String, CachedServicePolicies> cache = new HashMap<String, CachedServicePolicies>();
+
+	private final boolean isEnabled;
+
+	public ServicePoliciesCache() {
+		isEnabled = PropertiesUtil.getBooleanProperty(PROP_CACHE_ENABLED, true);
+	}
+
+	/**
+	 * @param serviceName       name of the service
+	 * @param policyVersion     current policy version of the service
+	 * @param basePolicyVersion version the delta is from; null for all policies
+	 * @param loader            builds the ServicePolicies when not in the cache
+	 * @return the ServicePolicies built by loader, for this or an earlier call with the same arguments
+	 */
+	public ServicePolicies get(String serviceName, Long policyVersion, Long basePolicyVersion, Callable<ServicePolicies> loader) throws Exception {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> ServicePoliciesCache.get(" + serviceName + ", " + policyVersion + ", " + basePolicyVersion + ")");
+		}
+
+		final ServicePolicies ret;
+
+		FutureTask<ServicePolicies> task    = null;
+		boolean                     isOwner = false;
+
+		if(isEnabled && serviceName != null && policyVersion != null) {
+			synchronized(cache) {
+				CachedServicePolicies cached = cache.get(serviceName);
+
+				if(cached == null || cached.policyVersion < policyVersion) {
+					cached = new CachedServicePolicies(policyVersion);
+
+					cache.put(serviceName, cached);
+				}
+
+				// a caller that read an older version than cached is served without caching
+				if(cached.policyVersion.equals(policyVersion)) {
+					task = cached.tasks.get(basePolicyVersion);
+
+					if(task == null) {
+						task    = new FutureTask<ServicePolicies>(loader);
+						isOwner = true;
+
+						cached.tasks.put(basePolicyVersion, task);
+					}
+				}
+			}
+		}
+
+		if(task == null) {
+			ret = loader.call();
+		} else {
+			if(isOwner) {
+				task.run();
+			}
+
+			try {
+				ret = task.get();
+			} catch(ExecutionException excp) {
+				remove(serviceName, policyVersion, basePolicyVersion, task);
+
+				Throwable cause = excp.getCause();
+
+				if(cause instanceof Exception) {
+					throw (Exception)cause;
+				}
+
+				throw excp;
+			}
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== ServicePoliciesCache.get(" + serviceName + ", " + policyVersion + ", " + basePolicyVersion + "): isCached=" + (task != null && !isOwner));
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Removes cached ServicePolicies of the service, right away and once the current transaction, if any, commits
+	 */
+	public void invalidate(final String serviceName) {
+		remove(serviceName);
+
+		if(TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					remove(serviceName);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Removes cached ServicePolicies of all services, right away and once the current transaction, if any, commits
+	 */
+	public void invalidateAll() {
+		removeAll();
+
+		if(TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					removeAll();
+				}
+			});
+		}
+	}
+
+	private void remove(String serviceName) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("ServicePoliciesCache.remove(" + serviceName + ")");
+		}
+
+		synchronized(cache) {
+			cache.remove(serviceName);
+		}
+	}
+
+	private void removeAll() {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("ServicePoliciesCache.removeAll()");
+		}
+
+		synchronized(cache) {
+			cache.clear();
+		}
+	}
+
+	/*
+	 * removes a failed load, so that the next call retries it
+	 */
+	private void remove(String serviceName, Long policyVersion, Long basePolicyVersion, FutureTask<ServicePolicies> task) {
+		synchronized(cache) {
+			CachedServicePolicies cached = cache.get(serviceName);
+
+			if(cached != null && cached.policyVersion.equals(policyVersion) && cached.tasks.get(basePolicyVersion) == task) {
+				cached.tasks.remove(basePolicyVersion);
+			}
+		}
+	}
+
+	private static class CachedServicePolicies {
+		final Long                                   policyVersion;
+		final Map<Long, FutureTask<ServicePolicies>> tasks         = new HashMap<Long, FutureTask<ServicePolicies>>();
+
+		CachedServicePolicies(Long policyVersion) {
+			this.policyVersion = policyVersion;
+		}
+	}
+}
@@ -269,6 +269,9 @@ public abstract class RangerDaoManagerBase {
 		if (className.equals("XXDataHist")) {
 			return getXXDataHist();
 		}
+		if (className.equals("XXPolicyChangeLog")) {
+			return getXXPolicyChangeLog();
+		}
 		if (className.equals("XXPolicyWithAssignedId")) {
 			return getXXPolicyWithAssignedId();
 		}
@@ -435,6 +438,10 @@ public abstract class RangerDaoManagerBase {
 	public XXDataHistDao getXXDataHist() {
 		return new XXDataHistDao(this);
 	}
+
+	public XXPolicyChangeLogDao getXXPolicyChangeLog() {
+		return new XXPolicyChangeLogDao(this);
+	}
 	
 	public XXPolicyWithAssignedIdDao getXXPolicyWithAssignedId() {
 		return new XXPolicyWithAssignedIdDao(this);
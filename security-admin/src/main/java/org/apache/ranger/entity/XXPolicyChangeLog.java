@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.entity;
+
+import java.util.Date;
+
+import javax.persistence.*;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.apache.ranger.common.DateUtil;
+
+/**
+ * A change to a policy of a service, and the policy version of the service it resulted in.
+ */
+@Entity
+@XmlRootElement
+@Table(name = "x_policy_change_log")
+public class XXPolicyChangeLog implements java.io.Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final int CHANGE_TYPE_POLICY_CREATE = 1;
+	public static final int CHANGE_TYPE_POLICY_UPDATE = 2;
+	public static final int CHANGE_TYPE_POLICY_DELETE = 3;
+
+	@Id
+	@SequenceGenerator(name = "x_policy_change_log_SEQ", sequenceName = "x_policy_change_log_SEQ", allocationSize = 1)
+	@GeneratedValue(strategy = GenerationType.AUTO, generator = "x_policy_change_log_SEQ")
+	@Column(name = "id")
+	protected Long id;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "create_time")
+	protected Date createTime = DateUtil.getUTCDate();
+
+	@Column(name = "service_id")
+	protected Long serviceId;
+
+	@Column(name = "policy_version")
+	protected Long policyVersion;
+
+	@Column(name = "change_type")
+	protected Integer changeType;
+
+	@Column(name = "policy_id")
+	protected Long policyId;
+
+	/**
+	 * @return the id
+	 */
+	public Long getId() {
+		return id;
+	}
+
+	/**
+	 * @param id the id to set
+	 */
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	/**
+	 * @return the createTime
+	 */
+	public Date getCreateTime() {
+		return createTime;
+	}
+
+	/**
+	 * @param createTime the createTime to set
+	 */
+	public void setCreateTime(Date createTime) {
+		this.createTime = createTime;
+	}
+
+	/**
+	 * @return the serviceId
+	 */
+	public Long getServiceId() {
+		return serviceId;
+	}
+
+	/**
+	 * @param serviceId the serviceId to set
+	 */
+	public void setServiceId(Long serviceId) {
+		this.serviceId = serviceId;
+	}
+
+	/**
+	 * @return the policy version of the service after the change
+	 */
+	public Long getPolicyVersion() {
+		return policyVersion;
+	}
+
+	/**
+	 * @param policyVersion the policyVersion to set
+	 */
+	public void setPolicyVersion(Long policyVersion) {
+		this.policyVersion = policyVersion;
+	}
+
+	/**
+	 * @return one of CHANGE_TYPE_POLICY_CREATE, CHANGE_TYPE_POLICY_UPDATE, CHANGE_TYPE_POLICY_DELETE
+	 */
+	public Integer getChangeType() {
+		return changeType;
+	}
+
+	/**
+	 * @param changeType the changeType to set
+	 */
+	public void setChangeType(Integer changeType) {
+		this.changeType = changeType;
+	}
+
+	/**
+	 * @return the policyId
+	 */
+	public Long getPolicyId() {
+		return policyId;
+	}
+
+	/**
+	 * @param policyId the policyId to set
+	 */
+	public void setPolicyId(Long policyId) {
+		this.policyId = policyId;
+	}
+
+	@Override
+	public String toString() {
+		return "XXPolicyChangeLog={id={" + id + "} createTime={" + createTime + "} serviceId={" + serviceId
+				+ "} policyVersion={" + policyVersion + "} changeType={" + changeType + "} policyId={" + policyId + "}}";
+	}
+}
@@ -1125,7 +1125,7 @@ public class ServiceREST {
 	@GET
 	@Path("/policies/download/{serviceName}")
 	@Produces({ "application/json", "application/xml" })
-	public ServicePolicies getServicePoliciesIfUpdated(@PathParam("serviceName") String serviceName, @QueryParam("lastKnownVersion") Long lastKnownVersion, @QueryParam("pluginId") String pluginId, @Context HttpServletRequest request) throws Exception {
+	public ServicePolicies getServicePoliciesIfUpdated(@PathParam("serviceName") String serviceName, @QueryParam("lastKnownVersion") Long lastKnownVersion, @QueryParam("pluginId") String pluginId, @QueryParam("supportsPolicyDeltas") Boolean supportsPolicyDeltas, @Context HttpServletRequest request) throws Exception {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> ServiceREST.getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ")");
 		}
@@ -1137,14 +1137,18 @@ public class ServiceREST {
 		if (serviceUtil.isValidateHttpsAuthentication(serviceName, request)) {
 			
 			try {
-				ret = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion);
+				if(Boolean.TRUE.equals(supportsPolicyDeltas)) {
+					ret = svcStore.getServicePolicyDeltasIfUpdated(serviceName, lastKnownVersion);
+				} else {
+					ret = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion);
+				}
 	
 				if(ret == null) {
 					httpCode = HttpServletResponse.SC_NOT_MODIFIED;
 					logMsg   = "No change since last update";
 				} else {
 					httpCode = HttpServletResponse.SC_OK;
-					logMsg   = "Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : 0) + " policies. Policy version=" + ret.getPolicyVersion();
+					logMsg   = "Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : 0) + " policies. Policy version=" + ret.getPolicyVersion() + (ret.getBasePolicyVersion() != null ? (". Changes since version=" + ret.getBasePolicyVersion()) : "");
 				}
 			} catch(Exception excp) {
 				LOG.error("getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ") failed", excp);
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.security.web.filter;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.biz.PolicyVersionNotifier;
+import org.apache.ranger.common.PropertiesUtil;
+import org.apache.ranger.plugin.util.RangerRESTUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.GenericFilterBean;
+
+/**
+ * Long-poll for policy downloads: a download with a wait timeout, for a service whose policy version is still the
+ * caller's lastKnownVersion, is suspended - without holding a thread - until the version changes or the timeout
+ * expires. The request is then dispatched, as received, to ServiceREST.getServicePoliciesIfUpdated(), which
+ * authenticates, audits and returns the policies or 304 as for any other download.
+ */
+@Component("policyDownloadFilter")
+public class RangerPolicyDownloadFilter extends GenericFilterBean {
+	private static final Log LOG = LogFactory.getLog(RangerPolicyDownloadFilter.class);
+
+	public static final String PROP_MAX_WAIT_TIMEOUT_MS = "ranger.admin.policy.download.longpoll.max.wait.ms";
+
+	@Autowired
+	PolicyVersionNotifier policyVersionNotifier;
+
+	private final long maxWaitTimeoutMs;
+
+	public RangerPolicyDownloadFilter() {
+		maxWaitTimeoutMs = PropertiesUtil.getIntProperty(PROP_MAX_WAIT_TIMEOUT_MS, 60 * 1000);
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		HttpServletRequest httpRequest      = (HttpServletRequest) request;
+		long               waitTimeoutMs    = Math.min(getLongParameter(httpRequest, RangerRESTUtils.REST_PARAM_POLICY_WAIT_TIMEOUT_MS, 0L), maxWaitTimeoutMs);
+		Long               lastKnownVersion = waitTimeoutMs > 0 ? getLongParameter(httpRequest, RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, null) : null;
+		String             serviceName      = lastKnownVersion != null ? getServiceName(httpRequest) : null;
+
+		if(StringUtils.isEmpty(serviceName) || !httpRequest.isAsyncSupported()) {
+			chain.doFilter(request, response);
+
+			return;
+		}
+
+		final AsyncContext asyncContext = httpRequest.startAsync();
+		final Waiter       waiter       = new Waiter(asyncContext);
+
+		asyncContext.setTimeout(waitTimeoutMs);
+		asyncContext.addListener(new WaiterListener(serviceName, waiter));
+
+		boolean isWaiting = false;
+
+		try {
+			isWaiting = policyVersionNotifier.addWaiter(serviceName, lastKnownVersion, waiter);
+		} catch(Exception excp) {
+			LOG.error("RangerPolicyDownloadFilter.doFilter(serviceName=" + serviceName + "): failed to wait for a policy change", excp);
+
+			policyVersionNotifier.removeWaiter(serviceName, waiter);
+		}
+
+		if(!isWaiting) {
+			waiter.dispatch();
+		} else if(LOG.isDebugEnabled()) {
+			LOG.debug("RangerPolicyDownloadFilter.doFilter(serviceName=" + serviceName + ", lastKnownVersion=" + lastKnownVersion + "): waiting up to " + waitTimeoutMs + "ms for a policy change");
+		}
+	}
+
+	private String getServiceName(HttpServletRequest request) {
+		String uri = request.getRequestURI();
+		int    idx = uri == null ? -1 : uri.lastIndexOf('/');
+		String ret = idx == -1 ? null : uri.substring(idx + 1);
+
+		try {
+			return ret == null ? null : URLDecoder.decode(ret, "UTF-8");
+		} catch(Exception excp) {
+			return null;
+		}
+	}
+
+	private static Long getLongParameter(HttpServletRequest request, String name, Long defaultValue) {
+		String strValue = request.getParameter(name);
+
+		try {
+			return StringUtils.isEmpty(strValue) ? defaultValue : Long.valueOf(strValue);
+		} catch(NumberFormatException excp) {
+			return defaultValue;
+		}
+	}
+
+	/*
+	 * dispatches the suspended request once: on policy change, or on timeout - whichever comes first
+	 */
+	private static class Waiter implements PolicyVersionNotifier.Waiter {
+		private final AsyncContext  asyncContext;
+		private final AtomicBoolean isDispatched = new AtomicBoolean(false);
+
+		Waiter(AsyncContext asyncContext) {
+			this.asyncContext = asyncContext;
+		}
+
+		@Override
+		public void onPolicyVersionChange(String serviceName, Long policyVersion) {
+			dispatch();
+		}
+
+		void dispatch() {
+			if(isDispatched.compareAndSet(false, true)) {
+				asyncContext.dispatch();
+			}
+		}
+	}
+
+	private class WaiterListener implements AsyncListener {
+		private final String serviceName;
+		private final Waiter waiter;
+
+		WaiterListener(String serviceName, Waiter waiter) {
+			this.serviceName = serviceName;
+			this.waiter      = waiter;
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) throws IOException {
+			policyVersionNotifier.removeWaiter(serviceName, waiter);
+
+			waiter.dispatch();
+		}
+
+		@Override
+		public void onError(AsyncEvent event) throws IOException {
+			policyVersionNotifier.removeWaiter(serviceName, waiter);
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) throws IOException {
+			policyVersionNotifier.removeWaiter(serviceName, waiter);
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) throws IOException {
+		}
+	}
+}
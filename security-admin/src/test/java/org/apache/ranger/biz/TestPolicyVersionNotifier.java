@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TestPolicyVersionNotifier {
+	private static final String SERVICE_NAME = "cl1_hive";
+
+	private TestNotifier notifier;
+
+	@Before
+	public void setup() {
+		notifier = new TestNotifier();
+
+		notifier.policyVersions.put(SERVICE_NAME, 5L);
+	}
+
+	@Test
+	public void testAddWaiterWhenVersionUnchanged() {
+		TestWaiter waiter = new TestWaiter();
+
+		Assert.assertTrue(notifier.addWaiter(SERVICE_NAME, 5L, waiter));
+		Assert.assertEquals(1, notifier.getWaiterCount());
+
+		notifier.notifyWaiters(SERVICE_NAME, 5L);
+
+		Assert.assertTrue(waiter.notifications.isEmpty());
+
+		notifier.notifyWaiters(SERVICE_NAME, 6L);
+
+		Assert.assertEquals(1, waiter.notifications.size());
+		Assert.assertEquals(Long.valueOf(6L), waiter.notifications.get(0));
+		Assert.assertEquals(0, notifier.getWaiterCount());
+		Assert.assertFalse(notifier.removeWaiter(SERVICE_NAME, waiter));
+
+		// notified only once
+		notifier.notifyWaiters(SERVICE_NAME, 7L);
+
+		Assert.assertEquals(1, waiter.notifications.size());
+	}
+
+	@Test
+	public void testAddWaiterWhenVersionAlreadyMoved() {
+		TestWaiter waiter = new TestWaiter();
+
+		Assert.assertFalse(notifier.addWaiter(SERVICE_NAME, 4L, waiter));
+		Assert.assertEquals(0, notifier.getWaiterCount());
+
+		notifier.notifyWaiters(SERVICE_NAME, 6L);
+
+		Assert.assertTrue(waiter.notifications.isEmpty());
+
+		// service deleted
+		Assert.assertFalse(notifier.addWaiter("unknown", 4L, waiter));
+		Assert.assertEquals(0, notifier.getWaiterCount());
+	}
+
+	@Test
+	public void testChangeCommittedWhileAddingWaiter() {
+		TestWaiter waiter = new TestWaiter();
+
+		// the version changes, and waiters are notified, between registering the waiter and reading the version
+		notifier.changeOnRead = true;
+
+		Assert.assertFalse(notifier.addWaiter(SERVICE_NAME, 5L, waiter));
+		Assert.assertEquals(0, notifier.getWaiterCount());
+		Assert.assertEquals(1, waiter.notifications.size());
+		Assert.assertEquals(Long.valueOf(6L), waiter.notifications.get(0));
+	}
+
+	@Test
+	public void testNotifyAfterCommit() {
+		TestWaiter waiter = new TestWaiter();
+
+		Assert.assertTrue(notifier.addWaiter(SERVICE_NAME, 5L, waiter));
+
+		TransactionSynchronizationManager.initSynchronization();
+
+		try {
+			notifier.onPolicyVersionChange(SERVICE_NAME, 6L);
+
+			// not before the change is committed
+			Assert.assertTrue(waiter.notifications.isEmpty());
+			Assert.assertEquals(1, notifier.getWaiterCount());
+
+			List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+
+			Assert.assertEquals(1, synchronizations.size());
+
+			for(TransactionSynchronization synchronization : synchronizations) {
+				synchronization.afterCommit();
+			}
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		Assert.assertEquals(1, waiter.notifications.size());
+		Assert.assertEquals(Long.valueOf(6L), waiter.notifications.get(0));
+		Assert.assertEquals(0, notifier.getWaiterCount());
+	}
+
+	@Test
+	public void testNotifyWithoutTransaction() {
+		TestWaiter waiter = new TestWaiter();
+
+		Assert.assertTrue(notifier.addWaiter(SERVICE_NAME, 5L, waiter));
+
+		notifier.onPolicyVersionChange(SERVICE_NAME, 6L);
+
+		Assert.assertEquals(1, waiter.notifications.size());
+		Assert.assertEquals(0, notifier.getWaiterCount());
+	}
+
+	@Test
+	public void testRemoveWaiter() {
+		TestWaiter waiter1 = new TestWaiter();
+		TestWaiter waiter2 = new TestWaiter();
+
+		Assert.assertTrue(notifier.addWaiter(SERVICE_NAME, 5L, waiter1));
+		Assert.assertTrue(notifier.addWaiter(SERVICE_NAME, 5L, waiter2));
+		Assert.assertEquals(2, notifier.getWaiterCount());
+
+		Assert.assertTrue(notifier.removeWaiter(SERVICE_NAME, waiter1));
+		Assert.assertFalse(notifier.removeWaiter(SERVICE_NAME, waiter1));
+		Assert.assertEquals(1, notifier.getWaiterCount());
+
+		notifier.notifyWaiters(SERVICE_NAME, 6L);
+
+		Assert.assertTrue(waiter1.notifications.isEmpty());
+		Assert.assertEquals(1, waiter2.notifications.size());
+	}
+
+	/*
+	 * reads policy versions from a map, instead of the database
+	 */
+	private static class TestNotifier extends PolicyVersionNotifier {
+		final Map<String, Long> policyVersions = new HashMap<String, Long>();
+
+		boolean changeOnRead = false;
+
+		@Override
+		public Long getPolicyVersion(String serviceName) {
+			if(changeOnRead) {
+				Long policyVersion = policyVersions.get(serviceName) + 1;
+
+				policyVersions.put(serviceName, policyVersion);
+
+				notifyWaiters(serviceName, policyVersion);
+			}
+
+			return policyVersions.get(serviceName);
+		}
+	}
+
+	private static class TestWaiter implements PolicyVersionNotifier.Waiter {
+		final List<Long> notifications = new ArrayList<Long>();
+
+		@Override
+		public void onPolicyVersionChange(String serviceName, Long policyVersion) {
+			notifications.add(policyVersion);
+		}
+	}
+}
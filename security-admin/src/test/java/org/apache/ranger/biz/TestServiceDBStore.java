@@ -22,6 +22,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.apache.ranger.common.ContextUtil;
 import org.apache.ranger.common.StringUtil;
@@ -112,7 +113,9 @@ import org.junit.runners.MethodSorters;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 @Ignore("tests to be reviewed")
 @RunWith(MockitoJUnitRunner.class)
@@ -159,6 +162,12 @@ public class TestServiceDBStore {
 
 	@Mock
 	RangerServiceWithAssignedIdService svcServiceWithAssignedId;
+
+	@Mock
+	PolicyVersionNotifier policyVersionNotifier;
+
+	@Mock
+	ServicePoliciesCache servicePoliciesCache;
 	
 	@Rule
 	public ExpectedException thrown = ExpectedException.none();
@@ -1747,6 +1756,15 @@ public class TestServiceDBStore {
 		Mockito.when(serviceDefService.getPopulatedViewObject(xServiceDef))
 				.thenReturn(rangerServiceDef);
 
+		Mockito.when(servicePoliciesCache.get(Mockito.eq(serviceName), Mockito.any(Long.class), Mockito.any(Long.class), Mockito.any(Callable.class)))
+				.thenAnswer(new Answer<ServicePolicies>() {
+					@SuppressWarnings("unchecked")
+					@Override
+					public ServicePolicies answer(InvocationOnMock invocation) throws Throwable {
+						return ((Callable<ServicePolicies>) invocation.getArguments()[3]).call();
+					}
+				});
+
 		ServicePolicies dbServicePolicies = serviceDBStore
 				.getServicePoliciesIfUpdated(serviceName, Id);
 		Assert.assertNotNull(dbServicePolicies);
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TestServicePoliciesCache {
+	private static final String SERVICE_NAME = "cl1_hive";
+
+	private ServicePoliciesCache cache;
+
+	@Before
+	public void setup() {
+		cache = new ServicePoliciesCache();
+	}
+
+	@Test
+	public void testConcurrentGetBuildsOnce() throws Exception {
+		final int            numThreads = 10;
+		final CountDownLatch release    = new CountDownLatch(1);
+		final TestLoader     loader     = new TestLoader(5L, release);
+
+		ExecutorService               executor = Executors.newFixedThreadPool(numThreads);
+		List<Future<ServicePolicies>> results  = new ArrayList<Future<ServicePolicies>>();
+
+		try {
+			for(int i = 0; i < numThreads; i++) {
+				results.add(executor.submit(new Callable<ServicePolicies>() {
+					@Override
+					public ServicePolicies call() throws Exception {
+						return cache.get(SERVICE_NAME, 5L, null, loader);
+					}
+				}));
+			}
+
+			// let all callers reach the cache while the first build is in progress
+			Thread.sleep(200);
+
+			release.countDown();
+
+			ServicePolicies first = results.get(0).get(10, TimeUnit.SECONDS);
+
+			for(Future<ServicePolicies> result : results) {
+				Assert.assertSame(first, result.get(10, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assert.assertEquals(1, loader.loadCount.get());
+
+		// later calls are served from the cache
+		Assert.assertNotNull(cache.get(SERVICE_NAME, 5L, null, loader));
+		Assert.assertEquals(1, loader.loadCount.get());
+	}
+
+	@Test
+	public void testFailedBuildIsRetried() throws Exception {
+		TestLoader loader = new TestLoader(5L, null);
+
+		loader.failCount = 1;
+
+		try {
+			cache.get(SERVICE_NAME, 5L, null, loader);
+
+			Assert.fail("expected the build failure to be thrown");
+		} catch(IllegalStateException excp) {
+			// expected
+		}
+
+		ServicePolicies policies = cache.get(SERVICE_NAME, 5L, null, loader);
+
+		Assert.assertNotNull(policies);
+		Assert.assertEquals(2, loader.loadCount.get());
+		Assert.assertSame(policies, cache.get(SERVICE_NAME, 5L, null, loader));
+		Assert.assertEquals(2, loader.loadCount.get());
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		TestLoader loader = new TestLoader(5L, null);
+
+		ServicePolicies policies = cache.get(SERVICE_NAME, 5L, null, loader);
+
+		cache.invalidate(SERVICE_NAME);
+
+		Assert.assertNotSame(policies, cache.get(SERVICE_NAME, 5L, null, loader));
+		Assert.assertEquals(2, loader.loadCount.get());
+
+		// other services are not affected
+		ServicePolicies otherPolicies = cache.get("cl1_hdfs", 5L, null, loader);
+
+		cache.invalidate(SERVICE_NAME);
+
+		Assert.assertSame(otherPolicies, cache.get("cl1_hdfs", 5L, null, loader));
+
+		cache.invalidateAll();
+
+		Assert.assertNotSame(otherPolicies, cache.get("cl1_hdfs", 5L, null, loader));
+	}
+
+	@Test
+	public void testInvalidateAfterCommit() throws Exception {
+		TestLoader loader = new TestLoader(5L, null);
+
+		TransactionSynchronizationManager.initSynchronization();
+
+		try {
+			cache.invalidate(SERVICE_NAME);
+
+			// built before the change is committed, from what the transaction didn't yet change
+			ServicePolicies policies = cache.get(SERVICE_NAME, 5L, null, loader);
+
+			Assert.assertSame(policies, cache.get(SERVICE_NAME, 5L, null, loader));
+
+			for(TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCommit();
+			}
+
+			Assert.assertNotSame(policies, cache.get(SERVICE_NAME, 5L, null, loader));
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	public void testNewerVersionReplacesEntry() throws Exception {
+		TestLoader loader5 = new TestLoader(5L, null);
+		TestLoader loader6 = new TestLoader(6L, null);
+
+		ServicePolicies policies5 = cache.get(SERVICE_NAME, 5L, null, loader5);
+		ServicePolicies delta5    = cache.get(SERVICE_NAME, 5L, 4L, loader5);
+
+		Assert.assertNotSame(policies5, delta5);
+
+		ServicePolicies policies6 = cache.get(SERVICE_NAME, 6L, null, loader6);
+
+		Assert.assertEquals(Long.valueOf(6L), policies6.getPolicyVersion());
+		Assert.assertSame(policies6, cache.get(SERVICE_NAME, 6L, null, loader6));
+		Assert.assertEquals(1, loader6.loadCount.get());
+
+		// the entries of version 5 were replaced: a caller that read version 5 is served without caching
+		ServicePolicies stale1 = cache.get(SERVICE_NAME, 5L, null, loader5);
+		ServicePolicies stale2 = cache.get(SERVICE_NAME, 5L, null, loader5);
+
+		Assert.assertNotSame(policies5, stale1);
+		Assert.assertNotSame(stale1, stale2);
+		Assert.assertEquals(4, loader5.loadCount.get());
+		Assert.assertSame(policies6, cache.get(SERVICE_NAME, 6L, null, loader6));
+	}
+
+	/*
+	 * builds ServicePolicies of the given version, after waiting for release if given
+	 */
+	private static class TestLoader implements Callable<ServicePolicies> {
+		final Long           policyVersion;
+		final CountDownLatch release;
+		final AtomicInteger  loadCount = new AtomicInteger();
+
+		int failCount = 0;
+
+		TestLoader(Long policyVersion, CountDownLatch release) {
+			this.policyVersion = policyVersion;
+			this.release       = release;
+		}
+
+		@Override
+		public ServicePolicies call() throws Exception {
+			int count = loadCount.incrementAndGet();
+
+			if(release != null) {
+				release.await();
+			}
+
+			if(count <= failCount) {
+				throw new IllegalStateException("failed to load policies");
+			}
+
+			ServicePolicies ret = new ServicePolicies();
+
+			ret.setServiceName(SERVICE_NAME);
+			ret.setPolicyVersion(policyVersion);
+
+			return ret;
+		}
+	}
+}
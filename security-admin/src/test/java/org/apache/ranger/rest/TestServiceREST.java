@@ -774,7 +774,7 @@ public class TestServiceREST {
 		String pluginId = "1";
 		ServicePolicies dbServicePolicies = serviceREST
 				.getServicePoliciesIfUpdated(serviceName, lastKnownVersion,
-						pluginId, request);
+						pluginId, null, request);
 		Assert.assertNull(dbServicePolicies);
 	}
 
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.security.web.filter;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.ranger.biz.PolicyVersionNotifier;
+import org.apache.ranger.plugin.util.RangerRESTUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+public class TestRangerPolicyDownloadFilter {
+	private static final String SERVICE_NAME = "cl1_hive";
+
+	private RangerPolicyDownloadFilter filter;
+	private PolicyVersionNotifier      notifier;
+	private HttpServletRequest         request;
+	private HttpServletResponse        response;
+	private FilterChain                chain;
+	private AsyncContext               asyncContext;
+
+	@Before
+	public void setup() {
+		notifier     = Mockito.mock(PolicyVersionNotifier.class);
+		request      = Mockito.mock(HttpServletRequest.class);
+		response     = Mockito.mock(HttpServletResponse.class);
+		chain        = Mockito.mock(FilterChain.class);
+		asyncContext = Mockito.mock(AsyncContext.class);
+		filter       = new RangerPolicyDownloadFilter();
+
+		filter.policyVersionNotifier = notifier;
+
+		Mockito.when(request.getRequestURI()).thenReturn("/service/plugins/policies/download/" + SERVICE_NAME);
+		Mockito.when(request.getParameter(RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION)).thenReturn("5");
+		Mockito.when(request.isAsyncSupported()).thenReturn(true);
+		Mockito.when(request.startAsync()).thenReturn(asyncContext);
+	}
+
+	@Test
+	public void testDownloadWithoutWait() throws Exception {
+		filter.doFilter(request, response, chain);
+
+		Mockito.verify(chain).doFilter(request, response);
+		Mockito.verify(request, Mockito.never()).startAsync();
+		Mockito.verifyZeroInteractions(notifier);
+	}
+
+	@Test
+	public void testVersionAlreadyMoved() throws Exception {
+		Mockito.when(request.getParameter(RangerRESTUtils.REST_PARAM_POLICY_WAIT_TIMEOUT_MS)).thenReturn("30000");
+		Mockito.when(notifier.addWaiter(Mockito.eq(SERVICE_NAME), Mockito.eq(5L), Mockito.any(PolicyVersionNotifier.Waiter.class))).thenReturn(false);
+
+		filter.doFilter(request, response, chain);
+
+		Mockito.verify(asyncContext).setTimeout(30000L);
+		Mockito.verify(asyncContext, Mockito.times(1)).dispatch();
+		Mockito.verify(chain, Mockito.never()).doFilter(request, response);
+	}
+
+	@Test
+	public void testNotifyRacingTimeout() throws Exception {
+		Mockito.when(request.getParameter(RangerRESTUtils.REST_PARAM_POLICY_WAIT_TIMEOUT_MS)).thenReturn("30000");
+		Mockito.when(notifier.addWaiter(Mockito.eq(SERVICE_NAME), Mockito.eq(5L), Mockito.any(PolicyVersionNotifier.Waiter.class))).thenReturn(true);
+
+		filter.doFilter(request, response, chain);
+
+		Mockito.verify(asyncContext, Mockito.never()).dispatch();
+
+		ArgumentCaptor<PolicyVersionNotifier.Waiter> waiterCaptor   = ArgumentCaptor.forClass(PolicyVersionNotifier.Waiter.class);
+		ArgumentCaptor<AsyncListener>                listenerCaptor = ArgumentCaptor.forClass(AsyncListener.class);
+
+		Mockito.verify(notifier).addWaiter(Mockito.eq(SERVICE_NAME), Mockito.eq(5L), waiterCaptor.capture());
+		Mockito.verify(asyncContext).addListener(listenerCaptor.capture());
+
+		final PolicyVersionNotifier.Waiter waiter   = waiterCaptor.getValue();
+		final AsyncListener                listener = listenerCaptor.getValue();
+
+		// the change notification and the timeout come at the same time, from different threads
+		Thread notifyThread = new Thread() {
+			@Override
+			public void run() {
+				waiter.onPolicyVersionChange(SERVICE_NAME, 6L);
+			}
+		};
+		Thread timeoutThread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					listener.onTimeout(null);
+				} catch(Exception excp) {
+					throw new RuntimeException(excp);
+				}
+			}
+		};
+
+		notifyThread.start();
+		timeoutThread.start();
+
+		notifyThread.join();
+		timeoutThread.join();
+
+		Mockito.verify(asyncContext, Mockito.times(1)).dispatch();
+		Mockito.verify(notifier).removeWaiter(SERVICE_NAME, waiter);
+
+		// and again, once more, in the same order
+		waiter.onPolicyVersionChange(SERVICE_NAME, 7L);
+		listener.onTimeout(null);
+
+		Mockito.verify(asyncContext, Mockito.times(1)).dispatch();
+	}
+
+	@Test
+	public void testAddWaiterFailure() throws Exception {
+		Mockito.when(request.getParameter(RangerRESTUtils.REST_PARAM_POLICY_WAIT_TIMEOUT_MS)).thenReturn("30000");
+		Mockito.when(notifier.addWaiter(Mockito.eq(SERVICE_NAME), Mockito.eq(5L), Mockito.any(PolicyVersionNotifier.Waiter.class))).thenThrow(new RuntimeException("database unavailable"));
+
+		filter.doFilter(request, response, chain);
+
+		Mockito.verify(notifier).removeWaiter(Mockito.eq(SERVICE_NAME), Mockito.any(PolicyVersionNotifier.Waiter.class));
+		Mockito.verify(asyncContext, Mockito.times(1)).dispatch();
+	}
+}